@@ -1,6 +1,13 @@
 package com.air.aicodemaster.ai;
 
+import com.air.aicodemaster.ai.memory.CompactingChatMemory;
+import com.air.aicodemaster.ai.memory.ToolResultCompactor;
+import com.air.aicodemaster.ai.monitor.MonitoredStreamingChatModel;
+import com.air.aicodemaster.ai.retry.RetryBudget;
+import com.air.aicodemaster.ai.retry.RetryingStreamingChatModel;
 import com.air.aicodemaster.ai.tools.*;
+import com.air.aicodemaster.config.ChatMemoryCompactionConfig;
+import com.air.aicodemaster.config.StreamingRetryConfig;
 import com.air.aicodemaster.exception.BusinessException;
 import com.air.aicodemaster.exception.ErrorCode;
 import com.air.aicodemaster.model.enums.CodeGenTypeEnum;
@@ -9,11 +16,13 @@ import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import dev.langchain4j.community.store.memory.chat.redis.RedisChatMemoryStore;
 import dev.langchain4j.data.message.ToolExecutionResultMessage;
+import dev.langchain4j.memory.ChatMemory;
 import dev.langchain4j.memory.chat.MessageWindowChatMemory;
 import dev.langchain4j.model.chat.ChatModel;
 import dev.langchain4j.model.chat.StreamingChatModel;
 import dev.langchain4j.model.openai.OpenAiStreamingChatModel;
 import dev.langchain4j.service.AiServices;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Bean;
@@ -71,6 +80,30 @@ public class AiCodeGeneratorServiceFactory {
     @Resource
     private ToolManager toolManager;
 
+    /**
+     * 工具执行结果压缩策略
+     */
+    @Resource
+    private ToolResultCompactor toolResultCompactor;
+
+    @Resource
+    private ChatMemoryCompactionConfig chatMemoryCompactionConfig;
+
+    /**
+     * 监控指标注册中心，用于记录流式模型的耗时指标
+     */
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    /**
+     * 流式模型中途失败的续写重试配置
+     */
+    @Resource
+    private StreamingRetryConfig streamingRetryConfig;
+
+    @Resource
+    private RetryBudget retryBudget;
+
 
     /**
      * 通过 AI Service 工厂为每一个 appId 单独构建会话记忆，并且单独提供 AI 服务，这样每个 AI 服务只为 appId 提供特定功能，
@@ -137,13 +170,18 @@ public class AiCodeGeneratorServiceFactory {
         // 初始化客户端的时候，加载对话历史到 chatMemory 中，也就是将对话历史添加到大模型的对话记忆中
         chatHistoryService.loadChatHistoryToMemory(appId, chatMemory, 20);
 
+        // Vue 项目生成会多轮调用工具，每一轮都会重新发送整个对话记忆，这里对发送的工具执行结果做压缩
+        ChatMemory toolChatMemory = chatMemoryCompactionConfig.isEnabled()
+                ? new CompactingChatMemory(chatMemory, toolResultCompactor)
+                : chatMemory;
+
         // 根据代码生成类型选择不同的模型配置
         return switch (codeGenType) {
             // Vue 项目生成使用推理模型
             case VUE_PROJECT -> AiServices.builder(AiCodeGeneratorService.class)
-                    .streamingChatModel(reasoningStreamingChatModel)
-                    .chatMemoryProvider(memoryId -> chatMemory) // 根据不同的 appId 来提供不同的对话记忆，因为我在方法上使用了工具的上下文传参，这里必须要指定
-                    .tools(toolManager.getAllTools())
+                    .streamingChatModel(decorateStreamingChatModel(reasoningStreamingChatModel, codeGenType))
+                    .chatMemoryProvider(memoryId -> toolChatMemory) // 根据不同的 appId 来提供不同的对话记忆，因为我在方法上使用了工具的上下文传参，这里必须要指定
+                    .toolProvider(toolManager.getToolProvider(codeGenType)) // 按生成阶段提供工具，工具执行器带监控指标
                     // 处理工具调用时出现的幻觉问题
                     .hallucinatedToolNameStrategy(toolExecutionRequest -> ToolExecutionResultMessage.from(
                             toolExecutionRequest, "Error: there is no tool called " + toolExecutionRequest.name()
@@ -153,7 +191,7 @@ public class AiCodeGeneratorServiceFactory {
             // HTML 和多文件生成使用默认模型
             case HTML, MULTI_FILE -> AiServices.builder(AiCodeGeneratorService.class)
                     .chatModel(chatModel)
-                    .streamingChatModel(openAiStreamingChatModel)
+                    .streamingChatModel(decorateStreamingChatModel(openAiStreamingChatModel, codeGenType))
                     .chatMemory(chatMemory)
                     .build();
 
@@ -162,6 +200,19 @@ public class AiCodeGeneratorServiceFactory {
         };
     }
 
+    /**
+     * 给流式模型加上监控指标和中途失败的续写重试
+     * 监控在内层，每一次重试都会单独记录耗时
+     */
+    private StreamingChatModel decorateStreamingChatModel(StreamingChatModel streamingChatModel, CodeGenTypeEnum codeGenType) {
+        StreamingChatModel monitoredModel = new MonitoredStreamingChatModel(streamingChatModel, meterRegistry, codeGenType.getValue());
+        if (!streamingRetryConfig.isEnabled()) {
+            return monitoredModel;
+        }
+        return new RetryingStreamingChatModel(monitoredModel, retryBudget, streamingRetryConfig.getMaxRetries(),
+                streamingRetryConfig.getBackoffMillis(), meterRegistry, codeGenType.getValue());
+    }
+
     /**
      * 构建缓存键
      */
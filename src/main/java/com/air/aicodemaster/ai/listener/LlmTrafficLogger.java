@@ -0,0 +1,268 @@
+package com.air.aicodemaster.ai.listener;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.rolling.RollingFileAppender;
+import ch.qos.logback.core.rolling.SizeAndTimeBasedRollingPolicy;
+import ch.qos.logback.core.util.FileSize;
+import cn.hutool.core.util.RandomUtil;
+import cn.hutool.core.util.StrUtil;
+import com.air.aicodemaster.config.LlmTrafficLogConfig;
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.ToolExecutionResultMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.listener.ChatModelErrorContext;
+import dev.langchain4j.model.chat.listener.ChatModelListener;
+import dev.langchain4j.model.chat.listener.ChatModelRequestContext;
+import dev.langchain4j.model.chat.listener.ChatModelResponseContext;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 大模型请求响应日志
+ * 按采样率记录，每条消息截断到固定长度，API Key 和用户内容脱敏
+ * 日志写到单独的 llm.traffic 日志器，在 logback-spring.xml 中通过异步 Appender 输出，不阻塞流式响应线程
+ * 单独的日志文件只有开启 fileEnabled 时才在启动时挂到 llm.traffic.file 日志器上，关闭时不会创建文件
+ * 注册为 Bean 之后，框架自动配置的模型也会自动加上这个监听器
+ */
+@Slf4j
+@Component
+public class LlmTrafficLogger implements ChatModelListener {
+
+    private static final Logger TRAFFIC_LOG = LoggerFactory.getLogger("llm.traffic");
+
+    /**
+     * 单独的压缩日志文件，只有开启 fileEnabled 时才写入
+     */
+    private static final Logger TRAFFIC_FILE_LOG = LoggerFactory.getLogger("llm.traffic.file");
+
+    private static final String SAMPLED_KEY = "llmTrafficSampled";
+
+    private static final String START_KEY = "llmTrafficStart";
+
+    /**
+     * 常见的 API Key 格式：sk-xxx、Bearer xxx、apiKey=xxx
+     */
+    private static final Pattern API_KEY_PATTERN = Pattern.compile(
+            "(sk-[A-Za-z0-9_-]{8,})|(Bearer\\s+[A-Za-z0-9._-]{8,})|((?i)api[_-]?key[\"']?\\s*[:=]\\s*[\"']?)[^\\s\"',]+");
+
+    @Resource
+    private LlmTrafficLogConfig llmTrafficLogConfig;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    /**
+     * 文件日志的异步 Appender，没有开启时为空
+     */
+    private AsyncAppender fileAppender;
+
+    @PostConstruct
+    public void init() {
+        if (!llmTrafficLogConfig.isFileEnabled()) {
+            return;
+        }
+        if (!(LoggerFactory.getILoggerFactory() instanceof LoggerContext context)) {
+            log.warn("当前日志实现不是 logback，不写入大模型请求响应日志文件");
+            return;
+        }
+        String fileDir = llmTrafficLogConfig.getFileDir();
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern("%d{yyyy-MM-dd HH:mm:ss.SSS} %msg%n");
+        encoder.setCharset(StandardCharsets.UTF_8);
+        encoder.start();
+
+        // 按天滚动并 gzip 压缩
+        RollingFileAppender<ILoggingEvent> rollingFileAppender = new RollingFileAppender<>();
+        rollingFileAppender.setContext(context);
+        rollingFileAppender.setName("LLM_TRAFFIC_FILE");
+        rollingFileAppender.setFile(fileDir + "/llm-traffic.log");
+        rollingFileAppender.setEncoder(encoder);
+        SizeAndTimeBasedRollingPolicy<ILoggingEvent> rollingPolicy = new SizeAndTimeBasedRollingPolicy<>();
+        rollingPolicy.setContext(context);
+        rollingPolicy.setParent(rollingFileAppender);
+        rollingPolicy.setFileNamePattern(fileDir + "/llm-traffic.%d{yyyy-MM-dd}.%i.log.gz");
+        rollingPolicy.setMaxFileSize(FileSize.valueOf("100MB"));
+        rollingPolicy.setMaxHistory(7);
+        rollingPolicy.setTotalSizeCap(FileSize.valueOf("2GB"));
+        rollingPolicy.start();
+        rollingFileAppender.setRollingPolicy(rollingPolicy);
+        rollingFileAppender.start();
+
+        // 异步写入，队列满时丢弃，不阻塞流式响应线程
+        AsyncAppender asyncAppender = new AsyncAppender();
+        asyncAppender.setContext(context);
+        asyncAppender.setName("ASYNC_LLM_TRAFFIC_FILE");
+        asyncAppender.setQueueSize(1024);
+        asyncAppender.setDiscardingThreshold(0);
+        asyncAppender.setNeverBlock(true);
+        asyncAppender.addAppender(rollingFileAppender);
+        asyncAppender.start();
+
+        ch.qos.logback.classic.Logger fileLogger = context.getLogger(TRAFFIC_FILE_LOG.getName());
+        fileLogger.setAdditive(false);
+        fileLogger.addAppender(asyncAppender);
+        fileAppender = asyncAppender;
+    }
+
+    @PreDestroy
+    public void destroy() {
+        if (fileAppender != null) {
+            ((ch.qos.logback.classic.Logger) TRAFFIC_FILE_LOG).detachAppender(fileAppender);
+            // 停止时写完队列中的日志并关闭文件
+            fileAppender.stop();
+            fileAppender = null;
+        }
+    }
+
+    @Override
+    public void onRequest(ChatModelRequestContext requestContext) {
+        if (!llmTrafficLogConfig.isEnabled()) {
+            return;
+        }
+        boolean sampled = RandomUtil.getRandom().nextDouble() < llmTrafficLogConfig.getSampleRate();
+        requestContext.attributes().put(SAMPLED_KEY, sampled);
+        requestContext.attributes().put(START_KEY, System.nanoTime());
+        if (!sampled) {
+            return;
+        }
+        long start = System.nanoTime();
+        ChatRequest chatRequest = requestContext.chatRequest();
+        write(String.format("LLM 请求 model=%s messages=%d tools=%d\n%s",
+                chatRequest.parameters() == null ? null : chatRequest.parameters().modelName(),
+                chatRequest.messages().size(),
+                chatRequest.parameters() == null || chatRequest.parameters().toolSpecifications() == null
+                        ? 0 : chatRequest.parameters().toolSpecifications().size(),
+                describeMessages(chatRequest.messages())));
+        recordOverhead(start);
+    }
+
+    @Override
+    public void onResponse(ChatModelResponseContext responseContext) {
+        if (!isSampled(responseContext.attributes().get(SAMPLED_KEY))) {
+            return;
+        }
+        long start = System.nanoTime();
+        ChatResponse chatResponse = responseContext.chatResponse();
+        write(String.format("LLM 响应 model=%s duration=%dms finishReason=%s tokenUsage=%s\n%s",
+                chatResponse.modelName(),
+                elapsedMillis(responseContext.attributes().get(START_KEY)),
+                chatResponse.finishReason(),
+                chatResponse.tokenUsage(),
+                describeMessage(chatResponse.aiMessage())));
+        recordOverhead(start);
+    }
+
+    @Override
+    public void onError(ChatModelErrorContext errorContext) {
+        // 出错的调用不采样，全部记录，但不记录消息内容
+        if (!llmTrafficLogConfig.isEnabled()) {
+            return;
+        }
+        TRAFFIC_LOG.warn("LLM 调用失败 duration={}ms error={}",
+                elapsedMillis(errorContext.attributes().get(START_KEY)),
+                redact(String.valueOf(errorContext.error().getMessage())));
+    }
+
+    private String describeMessages(List<ChatMessage> messages) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < messages.size(); i++) {
+            builder.append("  [").append(i).append("] ").append(describeMessage(messages.get(i))).append('\n');
+        }
+        return builder.toString();
+    }
+
+    /**
+     * 每条消息只记录类型、长度和截断后的内容
+     */
+    private String describeMessage(ChatMessage message) {
+        if (message instanceof SystemMessage systemMessage) {
+            return "system(" + systemMessage.text().length() + "): " + truncate(systemMessage.text());
+        }
+        if (message instanceof UserMessage userMessage) {
+            String text = userMessage.hasSingleText() ? userMessage.singleText() : String.valueOf(userMessage.contents());
+            return "user(" + text.length() + "): " + userContent(text);
+        }
+        if (message instanceof ToolExecutionResultMessage resultMessage) {
+            return "tool_result[" + resultMessage.toolName() + "](" + StrUtil.length(resultMessage.text()) + "): "
+                    + userContent(resultMessage.text());
+        }
+        if (message instanceof AiMessage aiMessage) {
+            StringBuilder builder = new StringBuilder("ai(").append(StrUtil.length(aiMessage.text())).append("): ")
+                    .append(truncate(aiMessage.text()));
+            if (aiMessage.hasToolExecutionRequests()) {
+                for (ToolExecutionRequest request : aiMessage.toolExecutionRequests()) {
+                    builder.append(" tool_call[").append(request.name()).append("](")
+                            .append(StrUtil.length(request.arguments())).append(")");
+                }
+            }
+            return builder.toString();
+        }
+        return message == null ? "null" : message.type().name();
+    }
+
+    private String userContent(String text) {
+        return llmTrafficLogConfig.isRedactUserContent() ? "[已脱敏]" : truncate(text);
+    }
+
+    private String truncate(String text) {
+        if (text == null) {
+            return "";
+        }
+        int maxChars = llmTrafficLogConfig.getMaxPayloadChars();
+        String truncated = maxChars > 0 && text.length() > maxChars
+                ? text.substring(0, maxChars) + "...(共 " + text.length() + " 字符)"
+                : text;
+        return redact(truncated.replace('\n', ' '));
+    }
+
+    static String redact(String text) {
+        return API_KEY_PATTERN.matcher(text).replaceAll(matchResult ->
+                matchResult.group(3) != null ? Matcher.quoteReplacement(matchResult.group(3)) + "***" : "***");
+    }
+
+    private void write(String message) {
+        TRAFFIC_LOG.info(message);
+        if (fileAppender != null) {
+            TRAFFIC_FILE_LOG.info(message);
+        }
+    }
+
+    /**
+     * 记录日志本身的耗时，和之前同步输出完整请求响应的耗时做对比
+     */
+    private void recordOverhead(long start) {
+        Timer.builder("ai.llm.traffic.log")
+                .register(meterRegistry)
+                .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+
+    private boolean isSampled(Object sampled) {
+        return llmTrafficLogConfig.isEnabled() && Boolean.TRUE.equals(sampled);
+    }
+
+    private long elapsedMillis(Object start) {
+        return start instanceof Long startNanos ? (System.nanoTime() - startNanos) / 1_000_000 : -1;
+    }
+}
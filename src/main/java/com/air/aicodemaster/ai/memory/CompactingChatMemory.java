@@ -0,0 +1,43 @@
+package com.air.aicodemaster.ai.memory;
+
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.memory.ChatMemory;
+
+import java.util.List;
+
+/**
+ * 带工具结果压缩的对话记忆
+ * 包装原有的对话记忆，写入和清空都交给原有记忆处理，只在读取消息（也就是组装发给模型的消息）时做压缩
+ * 这样 Redis 中存储的仍然是完整的对话记忆
+ */
+public class CompactingChatMemory implements ChatMemory {
+
+    private final ChatMemory delegate;
+
+    private final ToolResultCompactor compactor;
+
+    public CompactingChatMemory(ChatMemory delegate, ToolResultCompactor compactor) {
+        this.delegate = delegate;
+        this.compactor = compactor;
+    }
+
+    @Override
+    public Object id() {
+        return delegate.id();
+    }
+
+    @Override
+    public void add(ChatMessage message) {
+        delegate.add(message);
+    }
+
+    @Override
+    public List<ChatMessage> messages() {
+        return compactor.compact(delegate.messages());
+    }
+
+    @Override
+    public void clear() {
+        delegate.clear();
+    }
+}
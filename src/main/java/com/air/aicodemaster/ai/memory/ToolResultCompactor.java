@@ -0,0 +1,281 @@
+package com.air.aicodemaster.ai.memory;
+
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.json.JSONArray;
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.ToolExecutionResultMessage;
+import dev.langchain4j.data.message.UserMessage;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 工具执行结果压缩策略
+ * 每一轮工具调用后，框架都会把整个对话记忆重新发给大模型，记忆里包含了每一次 readFile 的文件内容和 readDir 的目录结构
+ * 随着 Vue 项目生成的推进，后面每一轮的 prompt 会越来越大，越来越慢也越来越贵
+ * 这里只压缩发送给模型的消息视图，不修改记忆中存储的原始消息：
+ * 1. 之后被重写、修改或删除过的文件，之前的读取结果替换为占位说明，批量读取的结果在所有文件都过期后才替换
+ * 2. 之后又重新读取过的同一目录，之前的目录结构替换为占位说明；过长的目录结构只保留前若干行
+ * 3. 估算的 prompt token 数超过上限时，从最早的工具结果开始替换为占位说明，当前这一轮的工具结果不压缩
+ * 注意只替换消息内容，不删除消息，工具调用请求和工具执行结果必须一一对应，否则接口会报错
+ */
+@Slf4j
+public class ToolResultCompactor {
+
+    /**
+     * 读取文件内容的工具
+     */
+    private static final Set<String> FILE_READ_TOOLS = Set.of("readFile", "readFiles");
+
+    /**
+     * 会改变文件内容的工具，这些工具调用之后，之前对同一文件的读取结果就过期了
+     */
+    private static final Set<String> FILE_WRITE_TOOLS = Set.of("writeFile", "writeFiles", "modifyFile", "patchFile", "deleteFile");
+
+    /**
+     * 读取目录结构的工具
+     */
+    private static final Set<String> DIR_READ_TOOLS = Set.of("readDir");
+
+    /**
+     * 单次请求允许的 prompt token 估算上限，小于等于 0 表示不限制
+     */
+    private final int maxPromptTokens;
+
+    /**
+     * 目录结构最多保留的行数
+     */
+    private final int maxDirListingLines;
+
+    public ToolResultCompactor(int maxPromptTokens, int maxDirListingLines) {
+        this.maxPromptTokens = maxPromptTokens;
+        this.maxDirListingLines = maxDirListingLines;
+    }
+
+    /**
+     * 压缩消息列表，返回新的列表，不修改传入的消息
+     *
+     * @param messages 对话记忆中的消息
+     * @return 发送给模型的消息
+     */
+    public List<ChatMessage> compact(List<ChatMessage> messages) {
+        if (messages == null || messages.isEmpty()) {
+            return messages;
+        }
+        // 1. 根据工具调用 id 找到对应的调用请求，工具结果消息里只有 id 和工具名称，参数要从请求里拿
+        Map<String, ToolExecutionRequest> requestMap = new HashMap<>();
+        // 最后一条带工具调用请求的 AI 消息的位置，它之后的工具结果属于当前这一轮，不做压缩
+        int currentRoundStart = -1;
+        for (int i = 0; i < messages.size(); i++) {
+            if (messages.get(i) instanceof AiMessage aiMessage && aiMessage.hasToolExecutionRequests()) {
+                for (ToolExecutionRequest request : aiMessage.toolExecutionRequests()) {
+                    requestMap.put(request.id(), request);
+                }
+                currentRoundStart = i;
+            }
+        }
+
+        // 2. 记录每个文件最后一次被修改的位置，以及每个目录最后一次被读取的位置
+        Map<String, Integer> lastWriteIndex = new HashMap<>();
+        Map<String, Integer> lastDirReadIndex = new HashMap<>();
+        for (int i = 0; i < messages.size(); i++) {
+            if (!(messages.get(i) instanceof ToolExecutionResultMessage resultMessage)) {
+                continue;
+            }
+            String toolName = resultMessage.toolName();
+            ToolExecutionRequest request = requestMap.get(resultMessage.id());
+            if (FILE_WRITE_TOOLS.contains(toolName)) {
+                for (String path : getFilePathArguments(request)) {
+                    lastWriteIndex.put(path, i);
+                }
+            } else if (DIR_READ_TOOLS.contains(toolName)) {
+                String path = getDirPathArgument(request);
+                lastDirReadIndex.put(path == null ? "" : path, i);
+            }
+        }
+
+        // 3. 替换过期的读取结果，截断过长的目录结构
+        List<ChatMessage> result = new ArrayList<>(messages.size());
+        int compactedCount = 0;
+        for (int i = 0; i < messages.size(); i++) {
+            ChatMessage message = messages.get(i);
+            if (!(message instanceof ToolExecutionResultMessage resultMessage)) {
+                result.add(message);
+                continue;
+            }
+            String toolName = resultMessage.toolName();
+            ToolExecutionRequest request = requestMap.get(resultMessage.id());
+            List<String> filePaths = FILE_READ_TOOLS.contains(toolName) ? getFilePathArguments(request) : List.of();
+            final int index = i;
+            String dirPath = DIR_READ_TOOLS.contains(toolName) ? getDirPathArgument(request) : null;
+            if (!filePaths.isEmpty()
+                    && filePaths.stream().allMatch(path -> lastWriteIndex.getOrDefault(path, -1) > index)) {
+                result.add(stub(resultMessage, "该文件在之后已被修改，如需最新内容请重新读取 - " + String.join(", ", filePaths)));
+                compactedCount++;
+            } else if (DIR_READ_TOOLS.contains(toolName)
+                    && lastDirReadIndex.getOrDefault(dirPath == null ? "" : dirPath, -1) > i) {
+                result.add(stub(resultMessage, "该目录结构已过期，请以之后的目录读取结果为准"));
+                compactedCount++;
+            } else if (DIR_READ_TOOLS.contains(toolName)) {
+                result.add(summarizeDirListing(resultMessage));
+            } else {
+                result.add(message);
+            }
+        }
+
+        // 4. 超过 token 上限时，从最早的工具结果开始替换为占位说明
+        if (maxPromptTokens > 0) {
+            int totalTokens = estimateTokens(result);
+            for (int i = 0; i < result.size() && i < currentRoundStart && totalTokens > maxPromptTokens; i++) {
+                if (!(result.get(i) instanceof ToolExecutionResultMessage resultMessage)) {
+                    continue;
+                }
+                ToolExecutionResultMessage stubMessage = stub(resultMessage, "较早的工具执行结果已省略，如有需要请重新调用工具");
+                int saved = estimateTokens(resultMessage.text()) - estimateTokens(stubMessage.text());
+                if (saved <= 0) {
+                    continue;
+                }
+                result.set(i, stubMessage);
+                totalTokens -= saved;
+                compactedCount++;
+            }
+            if (totalTokens > maxPromptTokens) {
+                log.warn("工具结果压缩后 prompt 仍超过上限，估算 token 数: {}, 上限: {}", totalTokens, maxPromptTokens);
+            }
+        }
+        if (compactedCount > 0) {
+            log.info("压缩工具执行结果 {} 条，消息总数: {}", compactedCount, result.size());
+        }
+        return result;
+    }
+
+    /**
+     * 截断过长的目录结构，只保留前若干行
+     */
+    private ToolExecutionResultMessage summarizeDirListing(ToolExecutionResultMessage resultMessage) {
+        String text = resultMessage.text();
+        if (maxDirListingLines <= 0 || StrUtil.isEmpty(text)) {
+            return resultMessage;
+        }
+        List<String> lines = StrUtil.split(text, '\n');
+        if (lines.size() <= maxDirListingLines) {
+            return resultMessage;
+        }
+        String summary = String.join("\n", lines.subList(0, maxDirListingLines))
+                + String.format("\n... 共 %d 行，已省略 %d 行，如需查看请读取具体子目录", lines.size(), lines.size() - maxDirListingLines);
+        return ToolExecutionResultMessage.from(resultMessage.id(), resultMessage.toolName(), summary);
+    }
+
+    /**
+     * 构造占位消息，保留工具调用 id 和工具名称，保证和调用请求对应
+     */
+    private ToolExecutionResultMessage stub(ToolExecutionResultMessage resultMessage, String reason) {
+        return ToolExecutionResultMessage.from(resultMessage.id(), resultMessage.toolName(), "[已省略] " + reason);
+    }
+
+    /**
+     * 从工具调用参数中取出文件的相对路径，统一分隔符，便于比较
+     * 单文件工具的参数是 relativeFilePath，批量读取是 relativeFilePaths，批量写入是 files 中每一项的 relativeFilePath
+     */
+    private List<String> getFilePathArguments(ToolExecutionRequest request) {
+        JSONObject arguments = parseArguments(request);
+        if (arguments == null) {
+            return List.of();
+        }
+        List<String> paths = new ArrayList<>();
+        String path = arguments.getStr("relativeFilePath");
+        if (path != null) {
+            paths.add(normalizePath(path));
+        }
+        JSONArray relativeFilePaths = arguments.getJSONArray("relativeFilePaths");
+        if (relativeFilePaths != null) {
+            relativeFilePaths.toList(String.class).forEach(item -> paths.add(normalizePath(item)));
+        }
+        JSONArray files = arguments.getJSONArray("files");
+        if (files != null) {
+            for (int i = 0; i < files.size(); i++) {
+                String filePath = files.getJSONObject(i).getStr("relativeFilePath");
+                if (filePath != null) {
+                    paths.add(normalizePath(filePath));
+                }
+            }
+        }
+        return paths;
+    }
+
+    /**
+     * 从工具调用参数中取出目录的相对路径
+     */
+    private String getDirPathArgument(ToolExecutionRequest request) {
+        JSONObject arguments = parseArguments(request);
+        return arguments == null ? null : normalizePath(arguments.getStr("relativeDirPath"));
+    }
+
+    private JSONObject parseArguments(ToolExecutionRequest request) {
+        if (request == null || StrUtil.isBlank(request.arguments()) || !JSONUtil.isTypeJSONObject(request.arguments())) {
+            return null;
+        }
+        return JSONUtil.parseObj(request.arguments());
+    }
+
+    static String normalizePath(String path) {
+        if (path == null) {
+            return null;
+        }
+        String normalized = path.trim().replace('\\', '/');
+        while (normalized.startsWith("./")) {
+            normalized = normalized.substring(2);
+        }
+        return StrUtil.strip(normalized, "/");
+    }
+
+    /**
+     * 估算消息列表的 token 数
+     */
+    static int estimateTokens(List<ChatMessage> messages) {
+        int total = 0;
+        for (ChatMessage message : messages) {
+            if (message instanceof SystemMessage systemMessage) {
+                total += estimateTokens(systemMessage.text());
+            } else if (message instanceof UserMessage userMessage && userMessage.hasSingleText()) {
+                total += estimateTokens(userMessage.singleText());
+            } else if (message instanceof AiMessage aiMessage) {
+                total += estimateTokens(aiMessage.text());
+                if (aiMessage.hasToolExecutionRequests()) {
+                    for (ToolExecutionRequest request : aiMessage.toolExecutionRequests()) {
+                        total += estimateTokens(request.arguments());
+                    }
+                }
+            } else if (message instanceof ToolExecutionResultMessage resultMessage) {
+                total += estimateTokens(resultMessage.text());
+            }
+        }
+        return total;
+    }
+
+    /**
+     * 粗略估算文本的 token 数，不依赖具体模型的分词器
+     * 中文字符大约 1 个 token，英文和代码大约 3~4 个字符 1 个 token
+     */
+    static int estimateTokens(String text) {
+        if (StrUtil.isEmpty(text)) {
+            return 0;
+        }
+        int cjkCount = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (Character.UnicodeScript.of(text.charAt(i)) == Character.UnicodeScript.HAN) {
+                cjkCount++;
+            }
+        }
+        return cjkCount + (text.length() - cjkCount) / 3;
+    }
+}
@@ -0,0 +1,217 @@
+package com.air.aicodemaster.ai.monitor;
+
+import cn.hutool.core.util.StrUtil;
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.model.ModelProvider;
+import dev.langchain4j.model.chat.Capability;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.chat.listener.ChatModelListener;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.request.ChatRequestParameters;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import dev.langchain4j.model.openai.OpenAiTokenUsage;
+import dev.langchain4j.model.output.TokenUsage;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 带监控指标的流式模型
+ * 包装原有的流式模型，记录每一次模型调用的耗时指标，按模型名称和代码生成类型打标签：
+ * - ai.model.connect：发出请求到收到第一个数据块的耗时（包含建立连接和服务端排队）
+ * - ai.model.ttft：发出请求到收到第一个可见输出（文本或工具调用）的耗时
+ * - ai.model.phase：推理阶段和回答阶段的耗时，推理阶段只有 deepseek-reasoner 这类推理模型才有
+ * - ai.model.inter.token.gap：相邻两次可见输出之间的间隔，带分位数
+ * - ai.model.tokens.per.second：回答阶段的输出速度
+ * - ai.model.stream.duration：整个流式响应的耗时，带成功失败状态
+ * 这样生成慢的时候，可以区分是模型服务慢，还是工具调用或者 SSE 推送慢
+ */
+public class MonitoredStreamingChatModel implements StreamingChatModel {
+
+    private final StreamingChatModel delegate;
+
+    private final MeterRegistry meterRegistry;
+
+    private final String codeGenType;
+
+    public MonitoredStreamingChatModel(StreamingChatModel delegate, MeterRegistry meterRegistry, String codeGenType) {
+        this.delegate = delegate;
+        this.meterRegistry = meterRegistry;
+        this.codeGenType = codeGenType;
+    }
+
+    @Override
+    public void chat(ChatRequest chatRequest, StreamingChatResponseHandler handler) {
+        // 直接交给原有模型的 chat 方法，原有模型的监听器等逻辑不受影响
+        delegate.chat(chatRequest, new MonitoringHandler(handler, resolveModelName(chatRequest)));
+    }
+
+    @Override
+    public ChatRequestParameters defaultRequestParameters() {
+        return delegate.defaultRequestParameters();
+    }
+
+    @Override
+    public List<ChatModelListener> listeners() {
+        return delegate.listeners();
+    }
+
+    @Override
+    public ModelProvider provider() {
+        return delegate.provider();
+    }
+
+    @Override
+    public Set<Capability> supportedCapabilities() {
+        return delegate.supportedCapabilities();
+    }
+
+    private String resolveModelName(ChatRequest chatRequest) {
+        String modelName = chatRequest.parameters() == null ? null : chatRequest.parameters().modelName();
+        if (StrUtil.isBlank(modelName) && delegate.defaultRequestParameters() != null) {
+            modelName = delegate.defaultRequestParameters().modelName();
+        }
+        return StrUtil.blankToDefault(modelName, "unknown");
+    }
+
+    private Timer timer(String name, String modelName, String... extraTags) {
+        return Timer.builder(name)
+                .tag("model", modelName)
+                .tag("codeGenType", codeGenType)
+                .tags(extraTags)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 单次模型调用的计时，每次调用创建一个
+     * 流式回调在同一个线程中按顺序触发，这里不需要加锁
+     */
+    private class MonitoringHandler implements StreamingChatResponseHandler {
+
+        private final StreamingChatResponseHandler handler;
+
+        private final String modelName;
+
+        private final long startNanos = System.nanoTime();
+
+        private long firstChunkNanos = -1;
+
+        private long firstOutputNanos = -1;
+
+        private long lastOutputNanos = -1;
+
+        /**
+         * 第一个可见输出之前收到的无输出数据块数量，大于 0 说明有推理阶段
+         */
+        private int reasoningChunks;
+
+        private int outputChunks;
+
+        private final Timer gapTimer;
+
+        MonitoringHandler(StreamingChatResponseHandler handler, String modelName) {
+            this.handler = handler;
+            this.modelName = modelName;
+            this.gapTimer = timer("ai.model.inter.token.gap", modelName);
+        }
+
+        @Override
+        public void onStreamChunk(boolean hasOutput) {
+            long now = System.nanoTime();
+            if (firstChunkNanos < 0) {
+                firstChunkNanos = now;
+                timer("ai.model.connect", modelName).record(now - startNanos, TimeUnit.NANOSECONDS);
+            }
+            if (hasOutput) {
+                onOutput(now);
+            } else if (firstOutputNanos < 0) {
+                reasoningChunks++;
+            }
+            handler.onStreamChunk(hasOutput);
+        }
+
+        @Override
+        public void onPartialResponse(String partialResponse) {
+            handler.onPartialResponse(partialResponse);
+        }
+
+        @Override
+        public void onPartialToolExecutionRequest(int index, ToolExecutionRequest partialToolExecutionRequest) {
+            handler.onPartialToolExecutionRequest(index, partialToolExecutionRequest);
+        }
+
+        @Override
+        public void onCompleteToolExecutionRequest(int index, ToolExecutionRequest completeToolExecutionRequest) {
+            handler.onCompleteToolExecutionRequest(index, completeToolExecutionRequest);
+        }
+
+        @Override
+        public void onInterruptedUsage(TokenUsage tokenUsage) {
+            handler.onInterruptedUsage(tokenUsage);
+        }
+
+        @Override
+        public void onCompleteResponse(ChatResponse completeResponse) {
+            record("success", completeResponse);
+            handler.onCompleteResponse(completeResponse);
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            record("error", null);
+            handler.onError(error);
+        }
+
+        private void onOutput(long now) {
+            outputChunks++;
+            if (firstOutputNanos < 0) {
+                firstOutputNanos = now;
+                timer("ai.model.ttft", modelName).record(now - startNanos, TimeUnit.NANOSECONDS);
+                if (reasoningChunks > 0) {
+                    // 第一个数据块到第一个可见输出之间就是推理阶段
+                    timer("ai.model.phase", modelName, "phase", "reasoning")
+                            .record(now - firstChunkNanos, TimeUnit.NANOSECONDS);
+                }
+            } else {
+                gapTimer.record(now - lastOutputNanos, TimeUnit.NANOSECONDS);
+            }
+            lastOutputNanos = now;
+        }
+
+        private void record(String status, ChatResponse completeResponse) {
+            long now = System.nanoTime();
+            timer("ai.model.stream.duration", modelName, "status", status).record(now - startNanos, TimeUnit.NANOSECONDS);
+            if (firstOutputNanos < 0) {
+                return;
+            }
+            long answerNanos = now - firstOutputNanos;
+            timer("ai.model.phase", modelName, "phase", "answer").record(answerNanos, TimeUnit.NANOSECONDS);
+            if (answerNanos <= 0) {
+                return;
+            }
+            // 优先使用模型返回的输出 token 数，推理模型的输出 token 包含推理部分，需要减去
+            int outputTokens = outputChunks;
+            TokenUsage tokenUsage = completeResponse == null ? null : completeResponse.tokenUsage();
+            if (tokenUsage != null && tokenUsage.outputTokenCount() != null) {
+                outputTokens = tokenUsage.outputTokenCount();
+                if (tokenUsage instanceof OpenAiTokenUsage openAiTokenUsage
+                        && openAiTokenUsage.outputTokensDetails() != null
+                        && openAiTokenUsage.outputTokensDetails().reasoningTokens() != null) {
+                    outputTokens -= openAiTokenUsage.outputTokensDetails().reasoningTokens();
+                }
+            }
+            DistributionSummary.builder("ai.model.tokens.per.second")
+                    .tag("model", modelName)
+                    .tag("codeGenType", codeGenType)
+                    .publishPercentiles(0.5, 0.95)
+                    .register(meterRegistry)
+                    .record(outputTokens * 1_000_000_000.0 / answerNanos);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.air.aicodemaster.ai.monitor;
+
+import cn.hutool.core.util.StrUtil;
+import com.air.aicodemaster.ai.tools.BaseTool;
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.service.tool.ToolExecutor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 带监控指标的工具执行器
+ * 包装框架默认的工具执行器，记录每次工具调用的耗时、参数和结果大小、失败次数，并写入本轮生成的工具调用时间线
+ * 指标（都带 tool 和 codeGenType 标签）：
+ * - ai.tool.execution：执行耗时，额外带 outcome 标签（success / error）
+ * - ai.tool.arguments.size：调用参数大小（字节）
+ * - ai.tool.result.size：执行结果大小（字节）
+ * - ai.tool.errors：失败次数，包括抛出异常和工具通过 {@link BaseTool#error(String)} 返回的错误信息
+ */
+@Slf4j
+public class MonitoredToolExecutor implements ToolExecutor {
+
+    private final ToolExecutor delegate;
+
+    private final String toolName;
+
+    private final String codeGenType;
+
+    private final MeterRegistry meterRegistry;
+
+    private final ToolTimelineRecorder timelineRecorder;
+
+    private final long slowThresholdMillis;
+
+    private final DistributionSummary argumentsSize;
+
+    private final DistributionSummary resultSize;
+
+    private final Counter errors;
+
+    public MonitoredToolExecutor(ToolExecutor delegate, String toolName, String codeGenType, MeterRegistry meterRegistry,
+                                 ToolTimelineRecorder timelineRecorder, long slowThresholdMillis) {
+        this.delegate = delegate;
+        this.toolName = toolName;
+        this.codeGenType = codeGenType;
+        this.meterRegistry = meterRegistry;
+        this.timelineRecorder = timelineRecorder;
+        this.slowThresholdMillis = slowThresholdMillis;
+        this.argumentsSize = DistributionSummary.builder("ai.tool.arguments.size")
+                .baseUnit("bytes")
+                .tag("tool", toolName)
+                .tag("codeGenType", codeGenType)
+                .register(meterRegistry);
+        this.resultSize = DistributionSummary.builder("ai.tool.result.size")
+                .baseUnit("bytes")
+                .tag("tool", toolName)
+                .tag("codeGenType", codeGenType)
+                .register(meterRegistry);
+        this.errors = Counter.builder("ai.tool.errors")
+                .tag("tool", toolName)
+                .tag("codeGenType", codeGenType)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public String execute(ToolExecutionRequest toolExecutionRequest, Object memoryId) {
+        int argumentsBytes = byteSize(toolExecutionRequest.arguments());
+        long startNanos = System.nanoTime();
+        String result = null;
+        String errorMessage = null;
+        // 清除之前残留的失败标记
+        BaseTool.consumeFailure();
+        try {
+            result = delegate.execute(toolExecutionRequest, memoryId);
+            if (BaseTool.consumeFailure()) {
+                errorMessage = StrUtil.brief(StrUtil.subBefore(result, '\n', false), 200);
+            }
+            return result;
+        } catch (RuntimeException e) {
+            BaseTool.consumeFailure();
+            errorMessage = StrUtil.brief(e.getMessage(), 200);
+            throw e;
+        } finally {
+            long durationNanos = System.nanoTime() - startNanos;
+            boolean success = errorMessage == null;
+            int resultBytes = byteSize(result);
+            Timer.builder("ai.tool.execution")
+                    .tag("tool", toolName)
+                    .tag("codeGenType", codeGenType)
+                    .tag("outcome", success ? "success" : "error")
+                    .register(meterRegistry)
+                    .record(durationNanos, TimeUnit.NANOSECONDS);
+            argumentsSize.record(argumentsBytes);
+            resultSize.record(resultBytes);
+            if (!success) {
+                errors.increment();
+            }
+            long durationMillis = TimeUnit.NANOSECONDS.toMillis(durationNanos);
+            if (durationMillis >= slowThresholdMillis) {
+                log.warn("工具调用较慢: {}, 耗时: {}ms, appId: {}, 参数大小: {}, 结果大小: {}",
+                        toolName, durationMillis, memoryId, argumentsBytes, resultBytes);
+            }
+            if (memoryId instanceof Long appId) {
+                timelineRecorder.record(appId, toolName, startNanos, durationNanos, argumentsBytes, resultBytes, success, errorMessage);
+            }
+        }
+    }
+
+    private static int byteSize(String text) {
+        return text == null ? 0 : text.getBytes(StandardCharsets.UTF_8).length;
+    }
+}
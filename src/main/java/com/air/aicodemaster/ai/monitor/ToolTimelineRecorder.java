@@ -0,0 +1,131 @@
+package com.air.aicodemaster.ai.monitor;
+
+import com.air.aicodemaster.config.ToolMonitorConfig;
+import com.air.aicodemaster.model.vo.ToolCallVO;
+import com.air.aicodemaster.model.vo.ToolTimelineVO;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.Resource;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 工具调用时间线记录
+ * 每个应用只保留最近一轮生成的工具调用，保存在本地缓存中，用于排查某一轮生成慢在哪个工具上
+ */
+@Component
+public class ToolTimelineRecorder {
+
+    @Resource
+    private ToolMonitorConfig toolMonitorConfig;
+
+    private final Cache<Long, ToolTimeline> timelines = Caffeine.newBuilder()
+            .maximumSize(1000)
+            .expireAfterWrite(Duration.ofHours(1))
+            .build();
+
+    /**
+     * 开始新的一轮生成，覆盖该应用上一轮的时间线
+     */
+    public void start(long appId, String codeGenType) {
+        timelines.put(appId, new ToolTimeline(appId, codeGenType));
+    }
+
+    /**
+     * 结束本轮生成
+     */
+    public void finish(long appId) {
+        ToolTimeline timeline = timelines.getIfPresent(appId);
+        if (timeline != null) {
+            timeline.finish();
+        }
+    }
+
+    /**
+     * 记录一次工具调用，没有开始的生成（比如单独调用工具）不记录
+     *
+     * @param startNanos 开始时间，System.nanoTime()
+     */
+    public void record(long appId, String toolName, long startNanos, long durationNanos,
+                       int argumentsSize, int resultSize, boolean success, String errorMessage) {
+        ToolTimeline timeline = timelines.getIfPresent(appId);
+        if (timeline == null) {
+            return;
+        }
+        ToolCallVO call = new ToolCallVO();
+        call.setToolName(toolName);
+        call.setStartOffsetMillis(Math.max(0, Duration.ofNanos(startNanos - timeline.startNanos).toMillis()));
+        call.setDurationMillis(Duration.ofNanos(durationNanos).toMillis());
+        call.setArgumentsSize(argumentsSize);
+        call.setResultSize(resultSize);
+        call.setSuccess(success);
+        call.setErrorMessage(errorMessage);
+        timeline.add(call, durationNanos, toolMonitorConfig.getMaxTimelineEntries());
+    }
+
+    /**
+     * 获取应用最近一轮生成的工具调用时间线
+     *
+     * @return 时间线，没有记录时返回 null
+     */
+    public ToolTimelineVO get(long appId) {
+        ToolTimeline timeline = timelines.getIfPresent(appId);
+        return timeline == null ? null : timeline.toVO();
+    }
+
+    /**
+     * 一轮生成的时间线，工具在模型的回调线程中执行，读取在请求线程中，方法都加锁
+     */
+    private static class ToolTimeline {
+
+        private final long appId;
+
+        private final String codeGenType;
+
+        private final LocalDateTime startTime = LocalDateTime.now();
+
+        private final long startNanos = System.nanoTime();
+
+        private final List<ToolCallVO> calls = new ArrayList<>();
+
+        private LocalDateTime endTime;
+
+        private long totalToolNanos;
+
+        private int droppedCount;
+
+        ToolTimeline(long appId, String codeGenType) {
+            this.appId = appId;
+            this.codeGenType = codeGenType;
+        }
+
+        synchronized void add(ToolCallVO call, long durationNanos, int maxEntries) {
+            totalToolNanos += durationNanos;
+            if (calls.size() >= maxEntries) {
+                droppedCount++;
+                return;
+            }
+            calls.add(call);
+        }
+
+        synchronized void finish() {
+            endTime = LocalDateTime.now();
+        }
+
+        synchronized ToolTimelineVO toVO() {
+            ToolTimelineVO timelineVO = new ToolTimelineVO();
+            timelineVO.setAppId(appId);
+            timelineVO.setCodeGenType(codeGenType);
+            timelineVO.setStartTime(startTime);
+            timelineVO.setEndTime(endTime);
+            timelineVO.setTotalToolMillis(Duration.ofNanos(totalToolNanos).toMillis());
+            timelineVO.setDroppedCount(droppedCount);
+            timelineVO.setCalls(new ArrayList<>(calls));
+            return timelineVO;
+        }
+    }
+}
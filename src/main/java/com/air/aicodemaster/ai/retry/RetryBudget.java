@@ -0,0 +1,44 @@
+package com.air.aicodemaster.ai.retry;
+
+/**
+ * 全局重试预算
+ * 模型服务整体故障时，如果每个请求都重试，会把故障放大成重试风暴，这里限制每分钟全局最多重试的次数
+ */
+public class RetryBudget {
+
+    private static final long WINDOW_MILLIS = 60_000;
+
+    /**
+     * 每分钟最多重试次数，小于等于 0 表示不限制
+     */
+    private final int maxRetriesPerMinute;
+
+    private long windowStart = System.currentTimeMillis();
+
+    private int used;
+
+    public RetryBudget(int maxRetriesPerMinute) {
+        this.maxRetriesPerMinute = maxRetriesPerMinute;
+    }
+
+    /**
+     * 尝试占用一次重试
+     *
+     * @return 是否还有剩余预算
+     */
+    public synchronized boolean tryAcquire() {
+        if (maxRetriesPerMinute <= 0) {
+            return true;
+        }
+        long now = System.currentTimeMillis();
+        if (now - windowStart >= WINDOW_MILLIS) {
+            windowStart = now;
+            used = 0;
+        }
+        if (used >= maxRetriesPerMinute) {
+            return false;
+        }
+        used++;
+        return true;
+    }
+}
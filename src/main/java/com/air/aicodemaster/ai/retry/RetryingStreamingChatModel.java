@@ -0,0 +1,292 @@
+package com.air.aicodemaster.ai.retry;
+
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.exception.NonRetriableException;
+import dev.langchain4j.exception.RetriableException;
+import dev.langchain4j.model.ModelProvider;
+import dev.langchain4j.model.chat.Capability;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.chat.listener.ChatModelListener;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.request.ChatRequestParameters;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import dev.langchain4j.model.output.TokenUsage;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 流式模型中途失败时续写重试
+ * 推理模型一次响应可能长达几万 token，输出到一半网络抖动的话，之前的输出就全部浪费了
+ * 这里在可重试的错误发生时，把已经输出的内容作为 AI 消息的前缀，让模型从中断的地方继续输出，最后合并成一条完整的响应
+ * 重试的粒度是单次模型调用：工具只有在一次模型调用完整结束后才会执行，之前轮次已经执行过的工具结果已经在请求消息中了，
+ * 所以重试不会重复执行工具；工具调用的片段实时推送给下游（前端展示写文件的进度），已经推送过工具调用片段的调用中断时无法撤回，不再重试
+ * 中断的尝试如果已经收到了 token 用量，和最终响应的用量相加，用量记录不会少算
+ */
+@Slf4j
+public class RetryingStreamingChatModel implements StreamingChatModel {
+
+    /**
+     * 续写提示词
+     */
+    static final String CONTINUE_PROMPT = "你的上一条回复因为网络中断被截断了，请从中断的位置继续输出，不要重复已经输出的内容，也不要添加任何说明。";
+
+    private final StreamingChatModel delegate;
+
+    private final RetryBudget retryBudget;
+
+    private final int maxRetries;
+
+    private final long backoffMillis;
+
+    private final MeterRegistry meterRegistry;
+
+    private final String codeGenType;
+
+    public RetryingStreamingChatModel(StreamingChatModel delegate, RetryBudget retryBudget, int maxRetries,
+                                      long backoffMillis, MeterRegistry meterRegistry, String codeGenType) {
+        this.delegate = delegate;
+        this.retryBudget = retryBudget;
+        this.maxRetries = maxRetries;
+        this.backoffMillis = backoffMillis;
+        this.meterRegistry = meterRegistry;
+        this.codeGenType = codeGenType;
+    }
+
+    @Override
+    public void chat(ChatRequest chatRequest, StreamingChatResponseHandler handler) {
+        new RetryingCall(chatRequest, handler).attempt(chatRequest);
+    }
+
+    @Override
+    public ChatRequestParameters defaultRequestParameters() {
+        return delegate.defaultRequestParameters();
+    }
+
+    @Override
+    public List<ChatModelListener> listeners() {
+        return delegate.listeners();
+    }
+
+    @Override
+    public ModelProvider provider() {
+        return delegate.provider();
+    }
+
+    @Override
+    public Set<Capability> supportedCapabilities() {
+        return delegate.supportedCapabilities();
+    }
+
+    /**
+     * 判断是否为可以重试的临时错误：超时、限流、服务端错误以及连接中断
+     */
+    static boolean isTransient(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof NonRetriableException) {
+                return false;
+            }
+            if (cause instanceof RetriableException
+                    || cause instanceof IOException
+                    || cause instanceof TimeoutException) {
+                return true;
+            }
+            if (cause.getCause() == cause) {
+                break;
+            }
+        }
+        return false;
+    }
+
+    private void count(String outcome) {
+        meterRegistry.counter("ai.model.retry", "codeGenType", codeGenType, "outcome", outcome).increment();
+    }
+
+    /**
+     * 一次模型调用及其重试，记录已经推送给下游的文本
+     */
+    private class RetryingCall {
+
+        private final ChatRequest originalRequest;
+
+        private final StreamingChatResponseHandler handler;
+
+        /**
+         * 所有尝试中已经推送给下游的文本
+         */
+        private final StringBuilder emittedText = new StringBuilder();
+
+        private int retries;
+
+        /**
+         * 是否已经向下游推送过工具调用片段
+         */
+        private volatile boolean toolCallForwarded;
+
+        /**
+         * 中断的尝试已经消耗的 token 用量
+         */
+        private TokenUsage interruptedUsage;
+
+        RetryingCall(ChatRequest originalRequest, StreamingChatResponseHandler handler) {
+            this.originalRequest = originalRequest;
+            this.handler = handler;
+        }
+
+        void attempt(ChatRequest chatRequest) {
+            delegate.chat(chatRequest, new StreamingChatResponseHandler() {
+
+                /**
+                 * 连接中断时，HTTP 客户端可能在 onError 之后又回调 onCompleteResponse，这次尝试结束后的回调都忽略掉
+                 */
+                private volatile boolean finished;
+
+                @Override
+                public void onStreamChunk(boolean hasOutput) {
+                    handler.onStreamChunk(hasOutput);
+                }
+
+                @Override
+                public void onPartialResponse(String partialResponse) {
+                    if (finished) {
+                        return;
+                    }
+                    emittedText.append(partialResponse);
+                    handler.onPartialResponse(partialResponse);
+                }
+
+                @Override
+                public void onPartialToolExecutionRequest(int index, ToolExecutionRequest partialToolExecutionRequest) {
+                    if (finished) {
+                        return;
+                    }
+                    toolCallForwarded = true;
+                    handler.onPartialToolExecutionRequest(index, partialToolExecutionRequest);
+                }
+
+                @Override
+                public void onCompleteToolExecutionRequest(int index, ToolExecutionRequest completeToolExecutionRequest) {
+                    if (finished) {
+                        return;
+                    }
+                    toolCallForwarded = true;
+                    handler.onCompleteToolExecutionRequest(index, completeToolExecutionRequest);
+                }
+
+                @Override
+                public void onInterruptedUsage(TokenUsage tokenUsage) {
+                    if (finished) {
+                        return;
+                    }
+                    interruptedUsage = TokenUsage.sum(interruptedUsage, tokenUsage);
+                }
+
+                @Override
+                public void onCompleteResponse(ChatResponse completeResponse) {
+                    if (finished) {
+                        return;
+                    }
+                    finished = true;
+                    if (retries == 0) {
+                        handler.onCompleteResponse(completeResponse);
+                        return;
+                    }
+                    count("recovered");
+                    handler.onCompleteResponse(mergeResponse(completeResponse));
+                }
+
+                @Override
+                public void onError(Throwable error) {
+                    if (finished) {
+                        return;
+                    }
+                    finished = true;
+                    handleError(error);
+                }
+            });
+        }
+
+        private void handleError(Throwable error) {
+            if (!isTransient(error) || retries >= maxRetries) {
+                if (retries > 0) {
+                    count("exhausted");
+                }
+                handler.onError(error);
+                return;
+            }
+            if (toolCallForwarded) {
+                // 下游已经收到了半个工具调用，续写会重新发起这个调用，下游拼出来的参数就乱了
+                log.warn("流式响应在工具调用过程中中断，不再重试: {}", error.getMessage());
+                count("tool_call_interrupted");
+                handler.onError(error);
+                return;
+            }
+            if (!retryBudget.tryAcquire()) {
+                log.warn("全局重试预算已用完，不再重试: {}", error.getMessage());
+                count("budget_exhausted");
+                handler.onError(error);
+                return;
+            }
+            retries++;
+            boolean continuation = !emittedText.isEmpty();
+            count(continuation ? "continuation" : "restart");
+            log.warn("流式响应中断，第 {} 次重试，已输出 {} 个字符: {}", retries, emittedText.length(), error.getMessage());
+            ChatRequest retryRequest = continuation ? buildContinuationRequest() : originalRequest;
+            long delay = backoffMillis * (1L << (retries - 1));
+            // 当前是 HTTP 客户端的回调线程，在虚拟线程中等待后重新发起请求
+            Thread.startVirtualThread(() -> {
+                try {
+                    if (delay > 0) {
+                        Thread.sleep(delay);
+                    }
+                    attempt(retryRequest);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    handler.onError(error);
+                } catch (Exception e) {
+                    handler.onError(e);
+                }
+            });
+        }
+
+        /**
+         * 在原有消息后面加上已经输出的内容和续写提示词
+         */
+        private ChatRequest buildContinuationRequest() {
+            List<ChatMessage> messages = new ArrayList<>(originalRequest.messages());
+            messages.add(AiMessage.from(emittedText.toString()));
+            messages.add(UserMessage.from(CONTINUE_PROMPT));
+            return ChatRequest.builder()
+                    .messages(messages)
+                    .parameters(originalRequest.parameters())
+                    .build();
+        }
+
+        /**
+         * 合并所有尝试输出的文本，工具调用以最后一次尝试为准，token 用量是所有尝试的总和
+         */
+        private ChatResponse mergeResponse(ChatResponse completeResponse) {
+            AiMessage aiMessage = completeResponse.aiMessage();
+            String text = emittedText.isEmpty() ? null : emittedText.toString();
+            AiMessage mergedMessage = AiMessage.builder()
+                    .text(text)
+                    .toolExecutionRequests(aiMessage == null ? List.of() : aiMessage.toolExecutionRequests())
+                    .build();
+            return ChatResponse.builder()
+                    .aiMessage(mergedMessage)
+                    .metadata(completeResponse.metadata().toBuilder()
+                            .tokenUsage(TokenUsage.sum(completeResponse.tokenUsage(), interruptedUsage))
+                            .build())
+                    .build();
+        }
+    }
+}
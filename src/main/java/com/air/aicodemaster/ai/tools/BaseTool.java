@@ -3,6 +3,8 @@ package com.air.aicodemaster.ai.tools;
 
 import cn.hutool.json.JSONObject;
 
+import java.util.List;
+
 /**
  * 工具基类，抽象类
  * 定义所有工具的通用接口
@@ -10,6 +12,35 @@ import cn.hutool.json.JSONObject;
  */
 public abstract class BaseTool {
 
+    /**
+     * 当前线程上一次工具调用是否失败
+     * 工具执行失败时不抛出异常，而是把错误信息返回给大模型，监控通过这个标记区分失败的调用，不去猜测返回的内容
+     * 框架在执行工具的线程中同步调用工具方法，所以用 ThreadLocal 传递
+     */
+    private static final ThreadLocal<Boolean> FAILED = new ThreadLocal<>();
+
+    /**
+     * 返回给大模型的错误信息，同时标记本次调用失败
+     *
+     * @param message 错误信息
+     * @return 原样返回错误信息
+     */
+    protected static String error(String message) {
+        FAILED.set(Boolean.TRUE);
+        return message;
+    }
+
+    /**
+     * 获取并清除当前线程上一次工具调用的失败标记
+     *
+     * @return 上一次调用是否通过 {@link #error(String)} 返回了错误信息
+     */
+    public static boolean consumeFailure() {
+        boolean failed = Boolean.TRUE.equals(FAILED.get());
+        FAILED.remove();
+        return failed;
+    }
+
     /**
      * 获取工具的英文名称（对应方法名）
      *
@@ -42,4 +73,18 @@ public abstract class BaseTool {
      * @return 格式化的工具执行结果
      */
     public abstract String generateToolExecutedResult(JSONObject arguments);
+
+    /**
+     * 批量工具的执行结果格式，一行标题加每个文件一行，不展示文件内容，避免一次调用在对话记录中占用大量篇幅
+     *
+     * @param items 每个文件的显示内容
+     * @return 格式化的工具执行结果
+     */
+    protected String formatBatchResult(List<String> items) {
+        StringBuilder result = new StringBuilder(String.format("[工具调用] %s 共 %d 个文件", getDisplayName(), items.size()));
+        for (String item : items) {
+            result.append("\n- ").append(item);
+        }
+        return result.toString();
+    }
 }
@@ -0,0 +1,75 @@
+package com.air.aicodemaster.ai.tools;
+
+import cn.hutool.json.JSONArray;
+import cn.hutool.json.JSONObject;
+import com.air.aicodemaster.core.workspace.ProjectWorkspaceManager;
+import dev.langchain4j.agent.tool.P;
+import dev.langchain4j.agent.tool.Tool;
+import dev.langchain4j.agent.tool.ToolMemoryId;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * 批量文件读取工具
+ * 一次工具调用读取多个文件，每个文件的内容前加上路径标题，读取失败的文件单独给出错误信息，不影响其他文件
+ * 每个文件和单文件读取一样有字节上限，超过的部分需要通过 readFile 按行号读取
+ */
+@Slf4j
+@Component
+public class FileBatchReadTool extends BaseTool {
+
+    @Resource
+    private ProjectWorkspaceManager projectWorkspaceManager;
+
+    @Tool("批量读取多个文件的内容，需要查看多个文件时优先使用")
+    public String readFiles(
+            @P("文件的相对路径列表")
+            List<String> relativeFilePaths,
+            @ToolMemoryId Long appId
+    ) {
+        if (relativeFilePaths == null || relativeFilePaths.isEmpty()) {
+            return error("错误：文件路径列表不能为空");
+        }
+        StringBuilder result = new StringBuilder();
+        // 去掉重复的路径，同一个文件只读一次
+        for (String relativeFilePath : new LinkedHashSet<>(relativeFilePaths)) {
+            result.append("===== ").append(relativeFilePath).append(" =====\n");
+            try {
+                String content = projectWorkspaceManager.readFile(appId, relativeFilePath);
+                if (content == null) {
+                    result.append("错误：文件不存在或不是文件 - ").append(relativeFilePath);
+                } else {
+                    result.append(FileReadTool.renderContent(relativeFilePath, content, null, null));
+                }
+            } catch (IllegalArgumentException e) {
+                result.append("错误：").append(e.getMessage());
+            } catch (IOException e) {
+                log.error("读取文件失败: {}", relativeFilePath, e);
+                result.append("读取文件失败, 错误: ").append(e.getMessage());
+            }
+            result.append("\n\n");
+        }
+        return result.toString().stripTrailing();
+    }
+
+    @Override
+    public String getToolName() {
+        return "readFiles";
+    }
+
+    @Override
+    public String getDisplayName() {
+        return "批量读取文件";
+    }
+
+    @Override
+    public String generateToolExecutedResult(JSONObject arguments) {
+        JSONArray relativeFilePaths = arguments.getJSONArray("relativeFilePaths");
+        return formatBatchResult(relativeFilePaths == null ? List.of() : relativeFilePaths.toList(String.class));
+    }
+}
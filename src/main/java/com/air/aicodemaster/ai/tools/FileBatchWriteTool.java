@@ -0,0 +1,100 @@
+package com.air.aicodemaster.ai.tools;
+
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.json.JSONArray;
+import cn.hutool.json.JSONObject;
+import com.air.aicodemaster.core.workspace.ProjectWorkspaceManager;
+import dev.langchain4j.agent.tool.P;
+import dev.langchain4j.agent.tool.Tool;
+import dev.langchain4j.agent.tool.ToolMemoryId;
+import dev.langchain4j.model.output.structured.Description;
+import jakarta.annotation.Resource;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 批量文件写入工具
+ * 一次工具调用写入多个文件，减少大模型的调用轮数，每一轮都要把完整的对话上下文重新发给大模型
+ * 所有路径先统一校验，有一个不合法则一个都不写
+ */
+@Slf4j
+@Component
+public class FileBatchWriteTool extends BaseTool {
+
+    @Resource
+    private ProjectWorkspaceManager projectWorkspaceManager;
+
+    @Tool("批量写入多个文件，创建项目时优先使用，一次写入尽可能多的文件")
+    public String writeFiles(
+            @P("要写入的文件列表")
+            List<FileContent> files,
+            @ToolMemoryId Long appId
+    ) {
+        if (files == null || files.isEmpty()) {
+            return error("错误：文件列表不能为空");
+        }
+        Map<String, String> fileMap = new LinkedHashMap<>();
+        for (FileContent file : files) {
+            if (file == null || StrUtil.isBlank(file.getRelativeFilePath())) {
+                return error("错误：文件的相对路径不能为空");
+            }
+            // 同一路径出现多次时以最后一次为准
+            fileMap.put(file.getRelativeFilePath(), StrUtil.nullToEmpty(file.getContent()));
+        }
+        try {
+            List<String> writtenPaths = projectWorkspaceManager.writeFiles(appId, fileMap);
+            log.info("成功批量写入 {} 个文件: {}", writtenPaths.size(), writtenPaths);
+            return String.format("成功写入 %d 个文件: %s", writtenPaths.size(), String.join(", ", writtenPaths));
+        } catch (IllegalArgumentException e) {
+            return error("错误：" + e.getMessage() + "，本次没有写入任何文件");
+        } catch (IOException e) {
+            String errorMessage = "批量写入文件失败, 错误: " + e.getMessage();
+            log.error(errorMessage, e);
+            return error(errorMessage);
+        }
+    }
+
+    /**
+     * 要写入的单个文件
+     */
+    @Data
+    public static class FileContent {
+
+        @Description("文件的相对路径")
+        private String relativeFilePath;
+
+        @Description("要写入文件的完整内容")
+        private String content;
+    }
+
+    @Override
+    public String getToolName() {
+        return "writeFiles";
+    }
+
+    @Override
+    public String getDisplayName() {
+        return "批量写入文件";
+    }
+
+    @Override
+    public String generateToolExecutedResult(JSONObject arguments) {
+        JSONArray files = arguments.getJSONArray("files");
+        List<String> items = new ArrayList<>();
+        if (files != null) {
+            for (int i = 0; i < files.size(); i++) {
+                JSONObject file = files.getJSONObject(i);
+                String content = file.getStr("content", "");
+                items.add(String.format("%s (%d 行)", file.getStr("relativeFilePath"), StrUtil.count(content, '\n') + 1));
+            }
+        }
+        return formatBatchResult(items);
+    }
+}
@@ -1,23 +1,31 @@
 package com.air.aicodemaster.ai.tools;
 
 import cn.hutool.json.JSONObject;
-import com.air.aicodemaster.constant.AppConstant;
+import com.air.aicodemaster.core.workspace.ProjectWorkspaceManager;
 import dev.langchain4j.agent.tool.P;
 import dev.langchain4j.agent.tool.Tool;
 import dev.langchain4j.agent.tool.ToolMemoryId;
+import cn.hutool.core.io.FileUtil;
+import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 
 /**
  * 文件删除工具
  * 支持 AI 通过工具调用的方式删除文件
  */
 @Slf4j
+@Component
 public class FileDeleteTool extends BaseTool{
 
+    /**
+     * 项目工作区，删除在本轮生成成功后才落盘
+     */
+    @Resource
+    private ProjectWorkspaceManager projectWorkspaceManager;
+
     @Tool("删除指定路径的文件")
     public String deleteFile(
             @P("文件的相对路径")
@@ -25,38 +33,31 @@ public class FileDeleteTool extends BaseTool{
             @ToolMemoryId Long appId
     ) {
         try {
-            // 基于这个相对路径创建出 Path 对象
-            Path path = Paths.get(relativeFilePath);
-            // 如果不是绝对路径，基于这个相对路径构建出绝对路径
-            if (!path.isAbsolute()) {
-                String projectDirName = "vue_project_" + appId;
-                Path projectRoot = Paths.get(AppConstant.CODE_OUTPUT_ROOT_DIR, projectDirName);
-                // 将 path 设置为 绝对路径
-                path = projectRoot.resolve(relativeFilePath);
-            }
             // 路径的基本校验
-            if (!Files.exists(path)) {
-                return "警告：文件不存在，无需删除 - " + relativeFilePath;
+            if (projectWorkspaceManager.isDirectory(appId, relativeFilePath)) {
+                return error("错误：指定路径不是文件，无法删除 - " + relativeFilePath);
             }
-            if (!Files.isRegularFile(path)) {
-                return "错误：指定路径不是文件，无法删除 - " + relativeFilePath;
+            if (!projectWorkspaceManager.isFile(appId, relativeFilePath)) {
+                return error("警告：文件不存在，无需删除 - " + relativeFilePath);
             }
 
             // 安全检查：获取文件名，进行判断是否在重要的文件集合中，避免删除重要文件
-            String fileName = path.getFileName().toString();
+            String fileName = FileUtil.getName(relativeFilePath);
             if (isImportantFile(fileName)) {
-                return "错误：不允许删除重要文件 - " + fileName;
+                return error("错误：不允许删除重要文件 - " + fileName);
             }
 
             // 可以执行删除操作
-            Files.delete(path);
-            log.info("成功删除文件: {}", path.toAbsolutePath());
+            projectWorkspaceManager.deleteFile(appId, relativeFilePath);
+            log.info("成功删除文件: {}", relativeFilePath);
             return "文件删除成功: " + relativeFilePath;
+        } catch (IllegalArgumentException e) {
+            return error("错误：" + e.getMessage());
         } catch (IOException e) {
             // 删除失败把错误信息提供给 AI
             String errorMessage = "删除文件失败: " + relativeFilePath + ", 错误: " + e.getMessage();
             log.error(errorMessage, e);
-            return errorMessage;
+            return error(errorMessage);
         }
     }
 
@@ -3,40 +3,31 @@ package com.air.aicodemaster.ai.tools;
 import cn.hutool.core.io.FileUtil;
 import cn.hutool.core.util.StrUtil;
 import cn.hutool.json.JSONObject;
-import com.air.aicodemaster.constant.AppConstant;
+import com.air.aicodemaster.core.workspace.ProjectTreeIndex;
+import com.air.aicodemaster.core.workspace.ProjectWorkspaceManager;
 import dev.langchain4j.agent.tool.P;
 import dev.langchain4j.agent.tool.Tool;
 import dev.langchain4j.agent.tool.ToolMemoryId;
+import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
-import java.io.File;
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
 import java.util.List;
-import java.util.Set;
 
 /**
  * 文件目录结构读取工具
  * 使用 Hutool 简化文件操作
  */
 @Slf4j
+@Component
 public class FileDirReadTool extends BaseTool{
 
     /**
-     * 需要忽略的文件和目录
-     * AI 是不需要读取这些文件的
-     */
-    private static final Set<String> IGNORED_NAMES = Set.of(
-            "node_modules", ".git", "dist", "build", ".DS_Store",
-            ".env", "target", ".mvn", ".idea", ".vscode", "coverage"
-    );
-
-    /**
-     * 需要忽略的文件扩展名
-     * AI 是不需要读取这些扩展名的文件的
+     * 项目工作区，目录结构包含本轮还未提交的文件
      */
-    private static final Set<String> IGNORED_EXTENSIONS = Set.of(
-            ".log", ".tmp", ".cache", ".lock"
-    );
+    @Resource
+    private ProjectWorkspaceManager projectWorkspaceManager;
 
     @Tool("读取目录结构，获取指定目录下的所有文件和子目录信息")
     public String readDir(
@@ -49,81 +40,47 @@ public class FileDirReadTool extends BaseTool{
             // 如果传过来的相对路径为空，那么就直接返回该项目的整体目录结构
             // 如果不为空的话，也就是 AI 可能先前已经调用过一次工具获取了整个项目的目录结构，然后现在想要读取
             // vue_project_1\src\pages 子目录的结构，那就返回该目录下的结构
-            Path path = Paths.get(relativeDirPath == null ? "" : relativeDirPath);
-            if (!path.isAbsolute()) {
-                String projectDirName = "vue_project_" + appId;
-                Path projectRoot = Paths.get(AppConstant.CODE_OUTPUT_ROOT_DIR, projectDirName);
-                path = projectRoot.resolve(relativeDirPath == null ? "" : relativeDirPath);
-            }
-
-            // 基于这个绝对路径创建 File 对象
-            File targetDir = path.toFile();
-            if (!targetDir.exists() || !targetDir.isDirectory()) {
-                return "错误：目录不存在或不是目录 - " + relativeDirPath;
+            if (!projectWorkspaceManager.isDirectory(appId, relativeDirPath)) {
+                return error("错误：目录不存在或不是目录 - " + relativeDirPath);
             }
 
             // 定义字符串动态拼接器
             StringBuilder structure = new StringBuilder();
-            structure.append("项目目录结构:\n");
-            // 使用 Hutool 递归获取所有文件，传入文件过滤器，对不符合的文件进行过滤
-            List<File> allFiles = FileUtil.loopFiles(targetDir, file -> !shouldIgnore(file.getName()));
-            // 按路径深度和名称排序显示，进行拼接
-            allFiles.stream()
-                    // 排序
-                    .sorted((f1, f2) -> {
-                        int depth1 = getRelativeDepth(targetDir, f1);
-                        int depth2 = getRelativeDepth(targetDir, f2);
-                        if (depth1 != depth2) {
-                            return Integer.compare(depth1, depth2);
-                        }
-                        return f1.getPath().compareTo(f2.getPath());
-                    })
-                    // 遍历每个目录，把所有目录名称按照层级去输出，如果是子目录的话我们就增加一个缩进符
-                    .forEach(file -> {
-                        int depth = getRelativeDepth(targetDir, file);
-                        String indent = "  ".repeat(depth);
-                        structure.append(indent).append(file.getName());
-                    });
-            // pom.xml
-            //src
-            //  main
-            //    java
-            //      Main.java
-            //    resources
-            //      config.properties
-            //  test
-            //    Test.java
-            //target
-            //  classes
-            //    Main.class
+            structure.append("项目目录结构（文件大小, 行数）:\n");
+            // 从缓存的文件树索引中获取所有文件（包括本轮还未提交的文件），node_modules 等目录已经被忽略，按路径排序
+            List<ProjectTreeIndex.FileEntry> allFiles = projectWorkspaceManager.listFiles(appId, relativeDirPath);
+            // 按照层级去输出，遇到新的目录先输出目录名称，子目录和文件增加一个缩进符
+            String[] previousDirs = new String[0];
+            for (ProjectTreeIndex.FileEntry file : allFiles) {
+                String[] parts = file.path().split("/");
+                int common = 0;
+                while (common < previousDirs.length && common < parts.length - 1
+                        && previousDirs[common].equals(parts[common])) {
+                    common++;
+                }
+                for (int depth = common; depth < parts.length - 1; depth++) {
+                    structure.append("  ".repeat(depth)).append(parts[depth]).append("/\n");
+                }
+                structure.append("  ".repeat(parts.length - 1)).append(parts[parts.length - 1])
+                        .append(" (").append(FileUtil.readableFileSize(file.size()));
+                if (file.lines() >= 0) {
+                    structure.append(", ").append(file.lines()).append(" 行");
+                }
+                structure.append(")\n");
+                previousDirs = Arrays.copyOf(parts, parts.length - 1);
+            }
+            // package.json (1.2 kB, 30 行)
+            //src/
+            //  App.vue (2 kB, 80 行)
+            //  pages/
+            //    Home.vue (3 kB, 120 行)
             // 像这样
             return structure.toString();
         } catch (Exception e) {
             String errorMessage = "读取目录结构失败: " + relativeDirPath + ", 错误: " + e.getMessage();
             log.error(errorMessage, e);
-            return errorMessage;
-        }
-    }
-
-    /**
-     * 计算文件相对于根目录的深度
-     */
-    private int getRelativeDepth(File root, File file) {
-        Path rootPath = root.toPath();
-        Path filePath = file.toPath();
-        return rootPath.relativize(filePath).getNameCount() - 1;
-    }
-
-    /**
-     * 判断是否应该忽略该文件或目录
-     */
-    private boolean shouldIgnore(String fileName) {
-        // 检查是否在忽略名称列表中
-        if (IGNORED_NAMES.contains(fileName)) {
-            return true;
+            return error(errorMessage);
         }
-        // 检查文件扩展名
-        return IGNORED_EXTENSIONS.stream().anyMatch(fileName::endsWith);
     }
 
     @Override
@@ -1,17 +1,15 @@
 package com.air.aicodemaster.ai.tools;
 
 import cn.hutool.json.JSONObject;
-import com.air.aicodemaster.constant.AppConstant;
+import com.air.aicodemaster.core.workspace.ProjectWorkspaceManager;
 import dev.langchain4j.agent.tool.P;
 import dev.langchain4j.agent.tool.Tool;
 import dev.langchain4j.agent.tool.ToolMemoryId;
+import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
 
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.StandardOpenOption;
 
 /**
  * 文件修改工具
@@ -19,8 +17,15 @@ import java.nio.file.StandardOpenOption;
  * 支持 AI 通过工具调用的方式修改文件内容
  */
 @Slf4j
+@Component
 public class FileModifyTool extends BaseTool{
 
+    /**
+     * 项目工作区
+     */
+    @Resource
+    private ProjectWorkspaceManager projectWorkspaceManager;
+
     @Tool("修改文件内容，用新内容替换指定的旧内容")
     public String modifyFile(
             @P("文件的相对路径")
@@ -32,23 +37,15 @@ public class FileModifyTool extends BaseTool{
             @ToolMemoryId Long appId
     ) {
         try {
-            // 基于相对路径创建绝对路径，构建 Path 对象
-            Path path = Paths.get(relativeFilePath);
-            if (!path.isAbsolute()) {
-                String projectDirName = "vue_project_" + appId;
-                Path projectRoot = Paths.get(AppConstant.CODE_OUTPUT_ROOT_DIR, projectDirName);
-                path = projectRoot.resolve(relativeFilePath);
-            }
+            // 读取原始文件的内容，包括本轮还未提交的写入
+            String originalContent = projectWorkspaceManager.readFile(appId, relativeFilePath);
             // 对文件基本的判断
-            if (!Files.exists(path) || !Files.isRegularFile(path)) {
-                return "错误：文件不存在或不是文件 - " + relativeFilePath;
+            if (originalContent == null) {
+                return error("错误：文件不存在或不是文件 - " + relativeFilePath);
             }
-
-            // 读取原始文件的内容
-            String originalContent = Files.readString(path);
             // 判断这个原始文件中是否存在要修改的内容
             if (!originalContent.contains(oldContent)) {
-                return "警告：文件中未找到要替换的内容，文件未修改 - " + relativeFilePath;
+                return error("警告：文件中未找到要替换的内容，文件未修改 - " + relativeFilePath);
             }
             // 若存在，就进行替换，字符串替换方法
             String modifiedContent = originalContent.replace(oldContent, newContent);
@@ -57,13 +54,15 @@ public class FileModifyTool extends BaseTool{
                 return "信息：替换后文件内容未发生变化 - " + relativeFilePath;
             }
             // 把新的内容写进这个文件里，就修改成功了
-            Files.writeString(path, modifiedContent, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
-            log.info("成功修改文件: {}", path.toAbsolutePath());
+            projectWorkspaceManager.writeFile(appId, relativeFilePath, modifiedContent);
+            log.info("成功修改文件: {}", relativeFilePath);
             return "文件修改成功: " + relativeFilePath;
+        } catch (IllegalArgumentException e) {
+            return error("错误：" + e.getMessage());
         } catch (IOException e) {
             String errorMessage = "修改文件失败: " + relativeFilePath + ", 错误: " + e.getMessage();
             log.error(errorMessage, e);
-            return errorMessage;
+            return error(errorMessage);
         }
     }
 
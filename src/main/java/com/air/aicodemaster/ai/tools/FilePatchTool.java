@@ -0,0 +1,83 @@
+package com.air.aicodemaster.ai.tools;
+
+import cn.hutool.json.JSONObject;
+import com.air.aicodemaster.core.patch.PatchApplier;
+import com.air.aicodemaster.core.workspace.ProjectWorkspaceManager;
+import dev.langchain4j.agent.tool.P;
+import dev.langchain4j.agent.tool.Tool;
+import dev.langchain4j.agent.tool.ToolMemoryId;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+/**
+ * 文件补丁工具
+ * 一次调用可以修改文件中的多处内容，只需要输出修改的部分和少量上下文，比重写整个文件输出的 token 少得多
+ * 定位时容忍缩进和行尾空白的差异，失败时返回每个 hunk 具体的失败原因，方便大模型只修正失败的部分
+ */
+@Slf4j
+@Component
+public class FilePatchTool extends BaseTool {
+
+    @Resource
+    private ProjectWorkspaceManager projectWorkspaceManager;
+
+    @Tool("""
+            使用统一 diff 格式的补丁修改文件，一次可以修改文件中的多处内容，修改现有文件时优先使用。
+            补丁可以包含多个以 @@ 开头的 hunk，@@ 后的行号可以省略；hunk 中以空格开头的是上下文行，以 - 开头的是删除行，以 + 开头的是新增行。
+            每个 hunk 保留 2~3 行上下文，保证能唯一定位；所有 hunk 全部定位成功才会修改文件""")
+    public String patchFile(
+            @P("文件的相对路径")
+            String relativeFilePath,
+            @P("统一 diff 格式的补丁内容")
+            String patch,
+            @ToolMemoryId Long appId
+    ) {
+        try {
+            String originalContent = projectWorkspaceManager.readFile(appId, relativeFilePath);
+            if (originalContent == null) {
+                return error("错误：文件不存在或不是文件 - " + relativeFilePath);
+            }
+            PatchApplier.PatchResult result = PatchApplier.apply(originalContent, patch);
+            if (!result.isSuccess()) {
+                return error("补丁应用失败，文件未修改 - " + relativeFilePath + "\n" + String.join("\n", result.errors()));
+            }
+            if (originalContent.equals(result.content())) {
+                return "信息：应用补丁后文件内容未发生变化 - " + relativeFilePath;
+            }
+            projectWorkspaceManager.writeFile(appId, relativeFilePath, result.content());
+            log.info("成功应用补丁: {}, hunk 数量: {}", relativeFilePath, result.appliedHunks());
+            return String.format("补丁应用成功: %s，共修改 %d 处", relativeFilePath, result.appliedHunks());
+        } catch (IllegalArgumentException e) {
+            return error("错误：" + e.getMessage());
+        } catch (IOException e) {
+            String errorMessage = "应用补丁失败: " + relativeFilePath + ", 错误: " + e.getMessage();
+            log.error(errorMessage, e);
+            return error(errorMessage);
+        }
+    }
+
+    @Override
+    public String getToolName() {
+        return "patchFile";
+    }
+
+    @Override
+    public String getDisplayName() {
+        return "补丁修改文件";
+    }
+
+    @Override
+    public String generateToolExecutedResult(JSONObject arguments) {
+        String relativeFilePath = arguments.getStr("relativeFilePath");
+        String patch = arguments.getStr("patch");
+        return String.format("""
+                [工具调用] %s %s
+                ```diff
+                %s
+                ```
+                """, getDisplayName(), relativeFilePath, patch);
+    }
+}
@@ -1,50 +1,101 @@
 package com.air.aicodemaster.ai.tools;
 
+import cn.hutool.core.util.StrUtil;
 import cn.hutool.json.JSONObject;
-import com.air.aicodemaster.constant.AppConstant;
+import com.air.aicodemaster.core.workspace.ProjectWorkspaceManager;
 import dev.langchain4j.agent.tool.P;
 import dev.langchain4j.agent.tool.Tool;
 import dev.langchain4j.agent.tool.ToolMemoryId;
+import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
 
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
 
 /**
  * 文件读取工具
- * 支持 AI 通过工具调用的方式读取文件内容
+ * 支持 AI 通过工具调用的方式读取文件内容，支持按行号范围读取，大文件默认只返回开头部分
  */
 @Slf4j
+@Component
 public class FileReadTool extends BaseTool{
 
-    @Tool("读取指定路径的文件内容")
+    /**
+     * 项目工作区，优先读取本轮还未提交的写入
+     */
+    @Resource
+    private ProjectWorkspaceManager projectWorkspaceManager;
+
+    /**
+     * 没有指定行范围时最多返回的字节数，读取结果会保存在对话记忆中，之后每一轮都要重新发给大模型
+     */
+    static final int MAX_READ_BYTES = 16 * 1024;
+
+    @Tool("读取指定路径的文件内容，大文件只返回开头部分，可以通过起止行号读取指定部分")
     public String readFile(
             @P("文件的相对路径")
             String relativeFilePath,
+            @P(value = "起始行号，从 1 开始，不传表示从第一行开始", required = false)
+            Integer startLine,
+            @P(value = "结束行号（包含），不传表示读到最后一行", required = false)
+            Integer endLine,
             @ToolMemoryId Long appId
     ) {
         try {
-            // 构建 Path 对象
-            Path path = Paths.get(relativeFilePath);
-            // 基于相对路径构建绝对路径
-            if (!path.isAbsolute()) {
-                String projectDirName = "vue_project_" + appId;
-                Path projectRoot = Paths.get(AppConstant.CODE_OUTPUT_ROOT_DIR, projectDirName);
-                path = projectRoot.resolve(relativeFilePath);
-            }
+            // 读取该路径下的这个文件，读取为一个字符串
+            String content = projectWorkspaceManager.readFile(appId, relativeFilePath);
             // 对该文件进行基本判断
-            if (!Files.exists(path) || !Files.isRegularFile(path)) {
-                return "错误：文件不存在或不是文件 - " + relativeFilePath;
+            if (content == null) {
+                return error("错误：文件不存在或不是文件 - " + relativeFilePath);
             }
-            // 读取该路径下的这个文件，读取为一个字符串
-            return Files.readString(path);
+            return renderContent(relativeFilePath, content, startLine, endLine);
+        } catch (IllegalArgumentException e) {
+            return error("错误：" + e.getMessage());
         } catch (IOException e) {
             String errorMessage = "读取文件失败: " + relativeFilePath + ", 错误: " + e.getMessage();
             log.error(errorMessage, e);
-            return errorMessage;
+            return error(errorMessage);
+        }
+    }
+
+    /**
+     * 生成返回给大模型的文件内容
+     * 读取完整文件且不超过字节上限时原样返回；否则只返回范围内的行，最多 MAX_READ_BYTES 字节，并在开头加上总行数说明
+     */
+    static String renderContent(String relativeFilePath, String content, Integer startLine, Integer endLine) {
+        if (startLine == null && endLine == null && content.getBytes(StandardCharsets.UTF_8).length <= MAX_READ_BYTES) {
+            return content;
+        }
+        List<String> lines = StrUtil.split(StrUtil.removeSuffix(content, "\n"), '\n');
+        int totalLines = lines.size();
+        int start = Math.max(1, startLine == null ? 1 : startLine);
+        int end = Math.min(totalLines, endLine == null ? totalLines : endLine);
+        if (start > totalLines) {
+            return error(String.format("错误：起始行号 %d 超过文件总行数 %d - %s", start, totalLines, relativeFilePath));
         }
+        if (start > end) {
+            return error(String.format("错误：起始行号 %d 大于结束行号 %d - %s", start, end, relativeFilePath));
+        }
+        StringBuilder body = new StringBuilder();
+        int bytes = 0;
+        int last = start - 1;
+        for (int i = start; i <= end; i++) {
+            String line = lines.get(i - 1);
+            bytes += line.getBytes(StandardCharsets.UTF_8).length + 1;
+            // 至少返回一行
+            if (bytes > MAX_READ_BYTES && i > start) {
+                break;
+            }
+            body.append(line).append('\n');
+            last = i;
+        }
+        String header = String.format("[文件 %s 共 %d 行，以下为第 %d-%d 行", relativeFilePath, totalLines, start, last);
+        if (last < end) {
+            header += String.format("，内容超过 %dKB 已截断，请通过 startLine=%d 继续读取", MAX_READ_BYTES / 1024, last + 1);
+        }
+        return header + "]\n" + body;
     }
 
     @Override
@@ -60,6 +111,12 @@ public class FileReadTool extends BaseTool{
     @Override
     public String generateToolExecutedResult(JSONObject arguments) {
         String relativeFilePath = arguments.getStr("relativeFilePath");
-        return String.format("[工具调用] %s %s", getDisplayName(), relativeFilePath);
+        Integer startLine = arguments.getInt("startLine");
+        Integer endLine = arguments.getInt("endLine");
+        if (startLine == null && endLine == null) {
+            return String.format("[工具调用] %s %s", getDisplayName(), relativeFilePath);
+        }
+        return String.format("[工具调用] %s %s 第 %s-%s 行", getDisplayName(), relativeFilePath,
+                startLine == null ? 1 : startLine, endLine == null ? "末" : endLine);
     }
 }
@@ -0,0 +1,68 @@
+package com.air.aicodemaster.ai.tools;
+
+import cn.hutool.core.date.DateUtil;
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.json.JSONObject;
+import com.air.aicodemaster.core.workspace.ProjectTreeIndex;
+import com.air.aicodemaster.core.workspace.ProjectWorkspaceManager;
+import dev.langchain4j.agent.tool.P;
+import dev.langchain4j.agent.tool.Tool;
+import dev.langchain4j.agent.tool.ToolMemoryId;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+/**
+ * 文件信息工具
+ * 只返回文件的大小和行数，不返回内容，大模型可以先判断文件大小，再决定完整读取还是按行号读取
+ */
+@Slf4j
+@Component
+public class FileStatTool extends BaseTool {
+
+    @Resource
+    private ProjectWorkspaceManager projectWorkspaceManager;
+
+    @Tool("获取文件的大小和行数，不返回文件内容")
+    public String fileStat(
+            @P("文件的相对路径")
+            String relativeFilePath,
+            @ToolMemoryId Long appId
+    ) {
+        try {
+            ProjectTreeIndex.FileEntry entry = projectWorkspaceManager.statFile(appId, relativeFilePath);
+            if (entry == null) {
+                return error("错误：文件不存在或不是文件 - " + relativeFilePath);
+            }
+            String lastModified = entry.lastModified() > 0 ? DateUtil.formatDateTime(DateUtil.date(entry.lastModified())) : "本轮修改，未保存";
+            // 过大的文件不统计行数
+            String lines = entry.lines() >= 0 ? entry.lines() + " 行" : "行数未统计";
+            return String.format("%s: 大小 %s（%d 字节），%s，最后修改时间 %s", entry.path(),
+                    FileUtil.readableFileSize(entry.size()), entry.size(), lines, lastModified);
+        } catch (IllegalArgumentException e) {
+            return error("错误：" + e.getMessage());
+        } catch (IOException e) {
+            String errorMessage = "获取文件信息失败: " + relativeFilePath + ", 错误: " + e.getMessage();
+            log.error(errorMessage, e);
+            return error(errorMessage);
+        }
+    }
+
+    @Override
+    public String getToolName() {
+        return "fileStat";
+    }
+
+    @Override
+    public String getDisplayName() {
+        return "查看文件信息";
+    }
+
+    @Override
+    public String generateToolExecutedResult(JSONObject arguments) {
+        String relativeFilePath = arguments.getStr("relativeFilePath");
+        return String.format("[工具调用] %s %s", getDisplayName(), relativeFilePath);
+    }
+}
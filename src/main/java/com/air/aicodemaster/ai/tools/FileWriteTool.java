@@ -2,17 +2,15 @@ package com.air.aicodemaster.ai.tools;
 
 import cn.hutool.core.io.FileUtil;
 import cn.hutool.json.JSONObject;
-import com.air.aicodemaster.constant.AppConstant;
+import com.air.aicodemaster.core.workspace.ProjectWorkspaceManager;
 import dev.langchain4j.agent.tool.P;
 import dev.langchain4j.agent.tool.Tool;
 import dev.langchain4j.agent.tool.ToolMemoryId;
+import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
 
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.StandardOpenOption;
 
 /**
  * @author WyH524
@@ -20,8 +18,14 @@ import java.nio.file.StandardOpenOption;
  * 文件写入工具
  */
 @Slf4j
+@Component
 public class FileWriteTool extends BaseTool{
 
+    /**
+     * 项目工作区，写入先记录在本轮生成的内存中，生成成功后统一落盘
+     */
+    @Resource
+    private ProjectWorkspaceManager projectWorkspaceManager;
 
     /**
      * 标准工具类的定义
@@ -47,43 +51,18 @@ public class FileWriteTool extends BaseTool{
             @ToolMemoryId Long appId  // 接口中传的参数，工具这里可以获得
     ) {
         try {
-            // 将传入的相对文件路径转换为Path对象
-            Path path = Paths.get(relativeFilePath);
-
-            // 把相对路径变成绝对路径
-            // 判断是否是绝对路径，如果不是，就对相对路径进行处理，创建基于 appId 的项目目录
-            if (!path.isAbsolute()) {
-                // 生成项目目录名
-                String projectDirName = "vue_project_" + appId;
-
-                // 创建完整项目路径
-                // /code_output/vue_project_123456
-                Path projectRoot = Paths.get(AppConstant.CODE_OUTPUT_ROOT_DIR, projectDirName);
-
-                // 将相对路径解析到项目目录下
-                // /code_output/vue_project_project123/src/main.js
-                path = projectRoot.resolve(relativeFilePath);
-            }
-
-            // 如果父目录不存在，创建父目录，也就是如果这个目录不存在 E:\Javacode\ai-code-master\tmp 就创建
-            Path parentDir = path.getParent();
-            if (parentDir != null) {
-                Files.createDirectories(parentDir);
-            }
-
-            // 将内容写入文件
-            Files.write(path, content.getBytes(),
-                    StandardOpenOption.CREATE,
-                    StandardOpenOption.TRUNCATE_EXISTING);
-
-            log.info("成功写入文件: {}", path.toAbsolutePath());
+            // 路径统一由工作区解析到 vue_project_{appId} 目录下，父目录在提交时创建
+            projectWorkspaceManager.writeFile(appId, relativeFilePath, content);
+            log.info("成功写入文件: {}", relativeFilePath);
 
             // 注意要返回相对路径，不能让 AI 把文件绝对路径返回给用户
             return "文件写入成功: " + relativeFilePath;
+        } catch (IllegalArgumentException e) {
+            return error("错误：" + e.getMessage());
         } catch (IOException e) {
             String errorMessage = "文件写入失败: " + relativeFilePath + ", 错误: " + e.getMessage();
             log.error(errorMessage, e);
-            return errorMessage;
+            return error(errorMessage);
         }
     }
 
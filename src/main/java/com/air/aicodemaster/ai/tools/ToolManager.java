@@ -1,16 +1,34 @@
 package com.air.aicodemaster.ai.tools;
 
+import com.air.aicodemaster.ai.monitor.MonitoredToolExecutor;
+import com.air.aicodemaster.ai.monitor.ToolTimelineRecorder;
+import com.air.aicodemaster.config.ToolMonitorConfig;
+import com.air.aicodemaster.core.scaffold.VueProjectScaffold;
+import com.air.aicodemaster.core.workspace.ProjectWorkspaceManager;
+import com.air.aicodemaster.model.enums.CodeGenTypeEnum;
+import com.air.aicodemaster.model.enums.ToolPhaseEnum;
+import dev.langchain4j.agent.tool.Tool;
+import dev.langchain4j.agent.tool.ToolSpecification;
+import dev.langchain4j.agent.tool.ToolSpecifications;
+import dev.langchain4j.service.tool.DefaultToolExecutor;
+import dev.langchain4j.service.tool.ToolExecutor;
+import dev.langchain4j.service.tool.ToolProvider;
+import dev.langchain4j.service.tool.ToolProviderResult;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
+import java.lang.reflect.Method;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
  * 工具管理器
- * 统一管理所有工具，提供根据名称获取工具的功能
+ * 统一管理所有工具，提供根据名称获取工具的功能，以及带监控指标、按生成阶段提供的工具执行器
  */
 @Slf4j
 @Component
@@ -27,6 +45,21 @@ public class ToolManager {
     @Resource
     private BaseTool[] tools;
 
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    @Resource
+    private ToolTimelineRecorder toolTimelineRecorder;
+
+    @Resource
+    private ToolMonitorConfig toolMonitorConfig;
+
+    @Resource
+    private ProjectWorkspaceManager projectWorkspaceManager;
+
+    @Resource
+    private VueProjectScaffold vueProjectScaffold;
+
     /**
      * Bean 加载的时候，初始化工具映射
      */
@@ -58,4 +91,67 @@ public class ToolManager {
     public BaseTool[] getAllTools() {
         return tools;
     }
+
+    /**
+     * 获取所有工具的规格和带监控指标的执行器
+     * 和直接传入工具对象相比，每次工具调用都会记录耗时、参数和结果大小，并写入本轮生成的工具调用时间线
+     *
+     * @param codeGenType 代码生成类型，作为指标的标签
+     * @return 工具规格到执行器的映射
+     */
+    public Map<ToolSpecification, ToolExecutor> getToolExecutors(CodeGenTypeEnum codeGenType) {
+        Map<ToolSpecification, ToolExecutor> toolExecutors = new LinkedHashMap<>();
+        for (BaseTool tool : tools) {
+            for (Method method : tool.getClass().getDeclaredMethods()) {
+                if (!method.isAnnotationPresent(Tool.class)) {
+                    continue;
+                }
+                ToolSpecification toolSpecification = ToolSpecifications.toolSpecificationFrom(method);
+                ToolExecutor toolExecutor = new MonitoredToolExecutor(new DefaultToolExecutor(tool, method),
+                        toolSpecification.name(), codeGenType.getValue(), meterRegistry, toolTimelineRecorder,
+                        toolMonitorConfig.getSlowThresholdMillis());
+                toolExecutors.put(toolSpecification, toolExecutor);
+            }
+        }
+        return toolExecutors;
+    }
+
+    /**
+     * 获取按阶段提供工具的工具提供者，用于构建 AI 服务
+     * AI 服务每次被调用（每一轮对话）时都会通过它获取本轮可用的工具，新项目的第一次生成只提供创建项目需要的工具
+     *
+     * @param codeGenType 代码生成类型
+     * @return 工具提供者
+     */
+    public ToolProvider getToolProvider(CodeGenTypeEnum codeGenType) {
+        Map<ToolSpecification, ToolExecutor> toolExecutors = getToolExecutors(codeGenType);
+        return request -> {
+            ToolPhaseEnum phase = resolvePhase(request.chatMemoryId());
+            ToolProviderResult.Builder builder = ToolProviderResult.builder();
+            toolExecutors.forEach((toolSpecification, toolExecutor) -> {
+                if (phase.allows(toolSpecification.name())) {
+                    builder.add(toolSpecification, toolExecutor);
+                }
+            });
+            ToolProviderResult result = builder.build();
+            log.info("应用 {} 本轮生成阶段: {}，提供 {} 个工具", request.chatMemoryId(), phase.getText(), result.tools().size());
+            return result;
+        };
+    }
+
+    /**
+     * 根据项目目录判断生成阶段，项目还没有生成过（不存在或只有脚手架）时为创建阶段
+     */
+    private ToolPhaseEnum resolvePhase(Object memoryId) {
+        if (!(memoryId instanceof Long appId)) {
+            return ToolPhaseEnum.EDIT;
+        }
+        try {
+            return vueProjectScaffold.isUntouched(projectWorkspaceManager.getProjectRoot(appId))
+                    ? ToolPhaseEnum.CREATE : ToolPhaseEnum.EDIT;
+        } catch (IOException e) {
+            log.warn("判断应用 {} 的生成阶段失败，提供全部工具", appId, e);
+            return ToolPhaseEnum.EDIT;
+        }
+    }
 }
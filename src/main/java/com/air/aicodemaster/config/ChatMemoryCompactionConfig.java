@@ -0,0 +1,36 @@
+package com.air.aicodemaster.config;
+
+import com.air.aicodemaster.ai.memory.ToolResultCompactor;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 对话记忆中工具执行结果的压缩配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "ai.memory.compaction")
+@Data
+public class ChatMemoryCompactionConfig {
+
+    /**
+     * 是否开启压缩
+     */
+    private boolean enabled = true;
+
+    /**
+     * 每一轮发送给模型的 prompt token 估算上限，小于等于 0 表示不限制
+     */
+    private int maxPromptTokens = 48000;
+
+    /**
+     * 目录结构最多保留的行数
+     */
+    private int maxDirListingLines = 80;
+
+    @Bean
+    public ToolResultCompactor toolResultCompactor() {
+        return new ToolResultCompactor(maxPromptTokens, maxDirListingLines);
+    }
+}
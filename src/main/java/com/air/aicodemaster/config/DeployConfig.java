@@ -0,0 +1,19 @@
+package com.air.aicodemaster.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 应用部署配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "deploy")
+@Data
+public class DeployConfig {
+
+    /**
+     * 每个部署保留的历史版本数量（不包括当前版本），更早的版本定时清理
+     */
+    private int retainVersions = 5;
+}
@@ -0,0 +1,45 @@
+package com.air.aicodemaster.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 大模型请求响应日志配置
+ * 代替模型自带的 logRequests / logResponses，那两个开关会把完整的 prompt 和响应同步写到日志里
+ */
+@Configuration
+@ConfigurationProperties(prefix = "ai.traffic-log")
+@Data
+public class LlmTrafficLogConfig {
+
+    /**
+     * 是否开启
+     */
+    private boolean enabled = true;
+
+    /**
+     * 采样率，0 ~ 1，1 表示每次调用都记录
+     */
+    private double sampleRate = 0.1;
+
+    /**
+     * 单条消息内容最多记录的字符数
+     */
+    private int maxPayloadChars = 500;
+
+    /**
+     * 是否脱敏用户内容（用户消息和工具执行结果中的文件内容），脱敏后只记录长度
+     */
+    private boolean redactUserContent = true;
+
+    /**
+     * 是否额外写入单独的压缩日志文件 {fileDir}/llm-traffic.log，按天滚动并 gzip 压缩
+     */
+    private boolean fileEnabled = false;
+
+    /**
+     * 日志文件目录
+     */
+    private String fileDir = "logs";
+}
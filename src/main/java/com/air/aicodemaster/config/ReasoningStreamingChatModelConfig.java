@@ -1,11 +1,15 @@
 package com.air.aicodemaster.config;
+import com.air.aicodemaster.ai.listener.LlmTrafficLogger;
 import dev.langchain4j.model.chat.StreamingChatModel;
 import dev.langchain4j.model.openai.OpenAiStreamingChatModel;
+import jakarta.annotation.Resource;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.List;
+
 /**
  * @author WyH524
  * @since 2025/11/23 18:49
@@ -20,6 +24,12 @@ public class ReasoningStreamingChatModelConfig {
 
     private String apiKey;
 
+    /**
+     * 大模型请求响应日志，采样、截断、脱敏后异步输出
+     */
+    @Resource
+    private LlmTrafficLogger llmTrafficLogger;
+
     /**
      * 推理流式模型（用于 Vue 项目生成，带工具调用）
      * 自定义一个 Bean
@@ -37,8 +47,10 @@ public class ReasoningStreamingChatModelConfig {
                 .baseUrl(baseUrl)
                 .modelName(modelName)
                 .maxTokens(maxTokens)
-                .logRequests(true)  // 输出请求日志
-                .logResponses(true)  // 输出响应日志
+                // 不再输出完整的请求响应日志，prompt 中包含完整的对话记忆和文件内容，每一轮都同步写日志会拖慢响应
+                .logRequests(false)
+                .logResponses(false)
+                .listeners(List.of(llmTrafficLogger))
                 .build();
     }
 }
@@ -0,0 +1,40 @@
+package com.air.aicodemaster.config;
+
+import com.air.aicodemaster.constant.AppConstant;
+import com.air.aicodemaster.core.storage.StorageLayout;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Paths;
+
+/**
+ * 代码文件存储配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "storage")
+@Data
+public class StorageConfig {
+
+    /**
+     * 应用代码生成根目录，可以放到 tmpfs 或本地 NVMe 上
+     */
+    private String outputRoot = AppConstant.CODE_OUTPUT_ROOT_DIR;
+
+    /**
+     * 应用部署根目录，Web 服务器从这里提供部署的网站
+     */
+    private String deployRoot = AppConstant.CODE_DEPLOY_ROOT_DIR;
+
+    /**
+     * 应用目录是否按哈希前缀分片
+     */
+    private boolean sharded = true;
+
+    /**
+     * 把配置应用到存储布局，启动时由 {@link StorageLayoutInitializer} 在创建 Bean 之前调用
+     */
+    public void apply() {
+        StorageLayout.configure(Paths.get(outputRoot), Paths.get(deployRoot), sharded);
+    }
+}
@@ -0,0 +1,21 @@
+package com.air.aicodemaster.config;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.env.EnvironmentPostProcessor;
+import org.springframework.core.env.ConfigurableEnvironment;
+
+/**
+ * 在创建任何 Bean 之前配置存储布局
+ * 存储布局是静态的，以前在 StorageConfig 的 @PostConstruct 中配置，比它先初始化的 Bean 计算路径时会用到默认的根目录
+ * 这里在配置文件加载完成之后、创建容器之前直接绑定 storage.* 配置，注册在 META-INF/spring.factories 中
+ */
+public class StorageLayoutInitializer implements EnvironmentPostProcessor {
+
+    @Override
+    public void postProcessEnvironment(ConfigurableEnvironment environment, SpringApplication application) {
+        Binder.get(environment).bind("storage", StorageConfig.class)
+                .orElseGet(StorageConfig::new)
+                .apply();
+    }
+}
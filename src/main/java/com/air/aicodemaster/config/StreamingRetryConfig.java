@@ -0,0 +1,41 @@
+package com.air.aicodemaster.config;
+
+import com.air.aicodemaster.ai.retry.RetryBudget;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 流式模型中途失败的续写重试配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "ai.retry")
+@Data
+public class StreamingRetryConfig {
+
+    /**
+     * 是否开启重试
+     */
+    private boolean enabled = true;
+
+    /**
+     * 单次模型调用最多重试次数
+     */
+    private int maxRetries = 2;
+
+    /**
+     * 重试前等待的时间（毫秒），每次重试翻倍
+     */
+    private long backoffMillis = 1000;
+
+    /**
+     * 全局每分钟最多重试次数，小于等于 0 表示不限制
+     */
+    private int maxRetriesPerMinute = 30;
+
+    @Bean
+    public RetryBudget retryBudget() {
+        return new RetryBudget(maxRetriesPerMinute);
+    }
+}
@@ -0,0 +1,24 @@
+package com.air.aicodemaster.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 工具调用监控配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "ai.tool-monitor")
+@Data
+public class ToolMonitorConfig {
+
+    /**
+     * 慢调用阈值（毫秒），超过时打印警告日志
+     */
+    private long slowThresholdMillis = 2000;
+
+    /**
+     * 每一轮生成最多记录的工具调用数，超过之后只统计指标，不再记录到时间线
+     */
+    private int maxTimelineEntries = 500;
+}
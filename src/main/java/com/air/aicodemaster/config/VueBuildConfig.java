@@ -0,0 +1,94 @@
+package com.air.aicodemaster.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Vue 项目构建配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "vue-build")
+@Data
+public class VueBuildConfig {
+
+    /**
+     * 是否使用共享依赖仓库，关闭后每个项目在自己的目录下执行 npm install
+     */
+    private boolean sharedDependencies = true;
+
+    /**
+     * 离线安装，只使用本地 npm 缓存，不访问网络
+     */
+    private boolean offline = false;
+
+    /**
+     * 同时执行的构建数量，小于等于 0 时使用 CPU 核数
+     */
+    private int maxConcurrentBuilds = 0;
+
+    /**
+     * 每次构建最多保留的输出行数
+     */
+    private int maxLogLines = 2000;
+
+    /**
+     * 是否使用常驻的 vite 构建进程代替每次执行 npm run build（只对 build 脚本是 vite build 的项目生效）
+     */
+    private boolean workerPoolEnabled = false;
+
+    /**
+     * 常驻构建进程数量
+     */
+    private int workerPoolSize = 2;
+
+    /**
+     * 一个构建进程最多执行的构建次数，超过后回收
+     */
+    private int maxBuildsPerWorker = 50;
+
+    /**
+     * 构建进程内存占用上限（MB），超过后回收
+     */
+    private int maxWorkerMemoryMb = 1024;
+
+    /**
+     * 是否开启实时预览，开启后可以为正在编辑的应用启动 vite 开发服务器，修改通过 HMR 立即生效
+     */
+    private boolean previewEnabled = false;
+
+    /**
+     * 预览服务监听的主机名，也用于拼接预览地址
+     */
+    private String previewHost = "localhost";
+
+    /**
+     * 预览服务的起始端口，端口范围是 [previewPortStart, previewPortStart + maxPreviewServers)
+     */
+    private int previewPortStart = 5300;
+
+    /**
+     * 同时运行的预览服务数量，超过后停止最久没有使用的
+     */
+    private int maxPreviewServers = 4;
+
+    /**
+     * 预览服务空闲多久（分钟）后停止
+     */
+    private int previewIdleMinutes = 15;
+
+    /**
+     * 预览服务启动超时时间（秒），不包括安装依赖
+     */
+    private int previewStartTimeoutSeconds = 60;
+
+    /**
+     * npm install 超时时间（秒）
+     */
+    private int installTimeoutSeconds = 300;
+
+    /**
+     * npm run build 超时时间（秒）
+     */
+    private int buildTimeoutSeconds = 180;
+}
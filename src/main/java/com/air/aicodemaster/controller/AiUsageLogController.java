@@ -0,0 +1,77 @@
+package com.air.aicodemaster.controller;
+
+import com.air.aicodemaster.annotation.AuthCheck;
+import com.air.aicodemaster.common.BaseResponse;
+import com.air.aicodemaster.common.ResultUtils;
+import com.air.aicodemaster.constant.UserConstant;
+import com.air.aicodemaster.exception.ErrorCode;
+import com.air.aicodemaster.exception.ThrowUtils;
+import com.air.aicodemaster.model.dto.aiUsage.AiUsageLogQueryRequest;
+import com.air.aicodemaster.model.entity.AiUsageLog;
+import com.air.aicodemaster.model.entity.User;
+import com.air.aicodemaster.service.AiUsageLogService;
+import com.air.aicodemaster.service.UserService;
+import com.mybatisflex.core.paginate.Page;
+import com.mybatisflex.core.query.QueryWrapper;
+import jakarta.annotation.Resource;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * AI 生成用量 控制层。
+ *
+ * @author Wyhhhh
+ */
+@RestController
+@RequestMapping("/aiUsage")
+public class AiUsageLogController {
+
+    @Resource
+    private UserService userService;
+
+    @Resource
+    private AiUsageLogService aiUsageLogService;
+
+
+    /**
+     * 分页查询当前登录用户自己的生成用量
+     *
+     * @param aiUsageLogQueryRequest 查询请求
+     * @param request                请求
+     * @return 用量分页
+     */
+    @PostMapping("/my/list/page")
+    public BaseResponse<Page<AiUsageLog>> listMyAiUsageByPage(@RequestBody AiUsageLogQueryRequest aiUsageLogQueryRequest,
+                                                               HttpServletRequest request) {
+        ThrowUtils.throwIf(aiUsageLogQueryRequest == null, ErrorCode.PARAMS_ERROR);
+        User loginUser = userService.getLoginUser(request);
+        long pageNum = aiUsageLogQueryRequest.getPageNum();
+        long pageSize = aiUsageLogQueryRequest.getPageSize();
+        // 限制每页最多 20 个
+        ThrowUtils.throwIf(pageSize > 20, ErrorCode.PARAMS_ERROR, "每页最多查询 20 条");
+        // 只查询当前用户的用量
+        aiUsageLogQueryRequest.setUserId(loginUser.getId());
+        QueryWrapper queryWrapper = aiUsageLogService.getQueryWrapper(aiUsageLogQueryRequest);
+        Page<AiUsageLog> result = aiUsageLogService.page(Page.of(pageNum, pageSize), queryWrapper);
+        return ResultUtils.success(result);
+    }
+
+
+    /**
+     * 管理员分页查询所有生成用量
+     * 可以按 totalTokens、durationMs 等字段排序，找出消耗最大的提示词
+     *
+     * @param aiUsageLogQueryRequest 查询请求
+     * @return 用量分页
+     */
+    @PostMapping("/admin/list/page")
+    @AuthCheck(mustRole = UserConstant.ADMIN_ROLE)
+    public BaseResponse<Page<AiUsageLog>> listAiUsageByPageForAdmin(@RequestBody AiUsageLogQueryRequest aiUsageLogQueryRequest) {
+        ThrowUtils.throwIf(aiUsageLogQueryRequest == null, ErrorCode.PARAMS_ERROR);
+        long pageNum = aiUsageLogQueryRequest.getPageNum();
+        long pageSize = aiUsageLogQueryRequest.getPageSize();
+        QueryWrapper queryWrapper = aiUsageLogService.getQueryWrapper(aiUsageLogQueryRequest);
+        Page<AiUsageLog> result = aiUsageLogService.page(Page.of(pageNum, pageSize), queryWrapper);
+        return ResultUtils.success(result);
+    }
+}
@@ -3,19 +3,27 @@ package com.air.aicodemaster.controller;
 import cn.hutool.core.bean.BeanUtil;
 import cn.hutool.core.util.StrUtil;
 import cn.hutool.json.JSONUtil;
+import com.air.aicodemaster.ai.monitor.ToolTimelineRecorder;
 import com.air.aicodemaster.annotation.AuthCheck;
 import com.air.aicodemaster.common.BaseResponse;
 import com.air.aicodemaster.common.DeleteRequest;
 import com.air.aicodemaster.common.ResultUtils;
 import com.air.aicodemaster.constant.AppConstant;
 import com.air.aicodemaster.constant.UserConstant;
+import com.air.aicodemaster.core.builder.BuildLog;
+import com.air.aicodemaster.core.builder.BuildLogManager;
+import com.air.aicodemaster.core.builder.VitePreviewManager;
+import com.air.aicodemaster.core.storage.StorageLayout;
 import com.air.aicodemaster.exception.BusinessException;
 import com.air.aicodemaster.exception.ErrorCode;
 import com.air.aicodemaster.exception.ThrowUtils;
 import com.air.aicodemaster.model.dto.app.*;
 import com.air.aicodemaster.model.entity.App;
 import com.air.aicodemaster.model.entity.User;
+import com.air.aicodemaster.model.enums.CodeGenTypeEnum;
 import com.air.aicodemaster.model.vo.AppVO;
+import com.air.aicodemaster.model.vo.DeployVersionVO;
+import com.air.aicodemaster.model.vo.ToolTimelineVO;
 import com.air.aicodemaster.service.AppService;
 import com.air.aicodemaster.service.ProjectDownloadService;
 import com.air.aicodemaster.service.UserService;
@@ -31,6 +39,7 @@ import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.io.File;
+import java.io.IOException;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Map;
@@ -53,6 +62,15 @@ public class AppController {
     @Resource
     private ProjectDownloadService projectDownloadService;
 
+    @Resource
+    private ToolTimelineRecorder toolTimelineRecorder;
+
+    @Resource
+    private BuildLogManager buildLogManager;
+
+    @Resource
+    private VitePreviewManager vitePreviewManager;
+
 
     /**
      * 应用聊天生成代码（流式 SSE）
@@ -144,6 +162,37 @@ public class AppController {
     }
 
 
+    /**
+     * 查询应用的部署版本
+     * 每次部署都会保留一个版本，可以切换到历史版本实现回滚
+     *
+     * @param appId   应用 id
+     * @param request 请求
+     * @return 部署版本，按部署时间倒序
+     */
+    @GetMapping("/deploy/versions")
+    public BaseResponse<List<DeployVersionVO>> listDeployVersions(long appId, HttpServletRequest request) {
+        User loginUser = userService.getLoginUser(request);
+        return ResultUtils.success(appService.listDeployVersions(appId, loginUser));
+    }
+
+    /**
+     * 切换应用当前访问的部署版本
+     *
+     * @param appDeployActivateRequest 切换请求
+     * @param request                  请求
+     * @return 部署 URL
+     */
+    @PostMapping("/deploy/activate")
+    public BaseResponse<String> activateDeployVersion(@RequestBody AppDeployActivateRequest appDeployActivateRequest,
+                                                      HttpServletRequest request) {
+        ThrowUtils.throwIf(appDeployActivateRequest == null, ErrorCode.PARAMS_ERROR);
+        User loginUser = userService.getLoginUser(request);
+        String deployUrl = appService.activateDeployVersion(appDeployActivateRequest.getAppId(),
+                appDeployActivateRequest.getVersionId(), loginUser);
+        return ResultUtils.success(deployUrl);
+    }
+
     /**
      * 创建应用
      * 用户创建应؜用时，只需要填写初始化提示词。系统会‌自动生成应用名称（取提示词前 12 ‍位）和默认的代码生成类型。
@@ -194,8 +243,7 @@ public class AppController {
 
         // 4. 构建应用代码目录路径（生成目录，非部署目录，生成目录包含所生产的代码文件）
         String codeGenType = app.getCodeGenType();
-        String sourceDirName = codeGenType + "_" + appId;
-        String sourceDirPath = AppConstant.CODE_OUTPUT_ROOT_DIR + File.separator + sourceDirName;
+        String sourceDirPath = StorageLayout.getProjectDir(codeGenType, appId).toString();
 
         // 5. 检查代码目录是否存在
         File sourceDir = new File(sourceDirPath);
@@ -210,6 +258,109 @@ public class AppController {
     }
 
 
+    /**
+     * 获取应用最近一轮生成的工具调用时间线（仅本人或管理员）
+     * 用于查看每次工具调用的耗时、参数和结果大小，排查生成慢的原因
+     *
+     * @param appId   应用 id
+     * @param request 请求
+     * @return 工具调用时间线，没有记录时为空
+     */
+    @GetMapping("/tool/timeline")
+    public BaseResponse<ToolTimelineVO> getToolTimeline(long appId, HttpServletRequest request) {
+        ThrowUtils.throwIf(appId <= 0, ErrorCode.PARAMS_ERROR, "应用ID无效");
+        App app = appService.getById(appId);
+        ThrowUtils.throwIf(app == null, ErrorCode.NOT_FOUND_ERROR, "应用不存在");
+        User loginUser = userService.getLoginUser(request);
+        if (!app.getUserId().equals(loginUser.getId()) && !UserConstant.ADMIN_ROLE.equals(loginUser.getUserRole())) {
+            throw new BusinessException(ErrorCode.NO_AUTH_ERROR);
+        }
+        return ResultUtils.success(toolTimelineRecorder.get(appId));
+    }
+
+
+    /**
+     * 订阅 Vue 项目的构建进度（SSE）
+     * 先回放本次构建已有的 npm 输出，之后实时推送（build-progress 事件），构建结束时发送 done 事件，data 中是构建结果
+     * 没有构建记录时直接发送 done 事件
+     *
+     * @param appId 应用 ID
+     * @return 构建进度流
+     */
+    @GetMapping(value = "/build/progress", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<String>> getBuildProgress(@RequestParam Long appId, HttpServletRequest request) {
+        ThrowUtils.throwIf(appId == null || appId <= 0, ErrorCode.PARAMS_ERROR, "应用ID无效");
+        App app = appService.getById(appId);
+        ThrowUtils.throwIf(app == null, ErrorCode.NOT_FOUND_ERROR, "应用不存在");
+        User loginUser = userService.getLoginUser(request);
+        if (!app.getUserId().equals(loginUser.getId()) && !UserConstant.ADMIN_ROLE.equals(loginUser.getUserRole())) {
+            throw new BusinessException(ErrorCode.NO_AUTH_ERROR);
+        }
+        BuildLog buildLog = buildLogManager.get(StorageLayout.getProjectDir(app.getCodeGenType(), appId).toString());
+        if (buildLog == null) {
+            return Flux.just(ServerSentEvent.<String>builder().event("done").data("").build());
+        }
+        return buildLog.lines()
+                .map(line -> ServerSentEvent.<String>builder()
+                        .event("build-progress")
+                        .data(JSONUtil.toJsonStr(Map.of("d", line)))
+                        .build())
+                .concatWith(buildLog.result().map(success -> ServerSentEvent.<String>builder()
+                        .event("done")
+                        .data(JSONUtil.toJsonStr(Map.of("success", success)))
+                        .build()));
+    }
+
+    /**
+     * 启动 Vue 项目的实时预览
+     * 启动 vite 开发服务器，之后每一轮生成的修改通过 HMR 直接推送到预览页面，不再等待生产构建
+     * 服务空闲一段时间或者预览数量达到上限时会被停止，前端可以再次调用重新启动
+     *
+     * @param appPreviewRequest 预览请求
+     * @param request           请求
+     * @return 预览地址
+     */
+    @PostMapping("/preview/start")
+    public BaseResponse<String> startPreview(@RequestBody AppPreviewRequest appPreviewRequest, HttpServletRequest request) {
+        ThrowUtils.throwIf(!vitePreviewManager.isEnabled(), ErrorCode.OPERATION_ERROR, "未开启实时预览");
+        App app = getOwnedVueApp(appPreviewRequest, request);
+        try {
+            return ResultUtils.success(vitePreviewManager.start(app.getId()));
+        } catch (IOException e) {
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "启动预览失败：" + e.getMessage());
+        }
+    }
+
+    /**
+     * 停止 Vue 项目的实时预览
+     *
+     * @param appPreviewRequest 预览请求
+     * @param request           请求
+     * @return 是否成功
+     */
+    @PostMapping("/preview/stop")
+    public BaseResponse<Boolean> stopPreview(@RequestBody AppPreviewRequest appPreviewRequest, HttpServletRequest request) {
+        App app = getOwnedVueApp(appPreviewRequest, request);
+        vitePreviewManager.stop(app.getId());
+        return ResultUtils.success(true);
+    }
+
+    /**
+     * 获取当前用户自己的 Vue 项目应用，只有本人可以预览
+     */
+    private App getOwnedVueApp(AppPreviewRequest appPreviewRequest, HttpServletRequest request) {
+        ThrowUtils.throwIf(appPreviewRequest == null, ErrorCode.PARAMS_ERROR);
+        Long appId = appPreviewRequest.getAppId();
+        ThrowUtils.throwIf(appId == null || appId <= 0, ErrorCode.PARAMS_ERROR, "应用ID无效");
+        App app = appService.getById(appId);
+        ThrowUtils.throwIf(app == null, ErrorCode.NOT_FOUND_ERROR, "应用不存在");
+        User loginUser = userService.getLoginUser(request);
+        ThrowUtils.throwIf(!app.getUserId().equals(loginUser.getId()), ErrorCode.NO_AUTH_ERROR);
+        ThrowUtils.throwIf(CodeGenTypeEnum.getEnumByValue(app.getCodeGenType()) != CodeGenTypeEnum.VUE_PROJECT,
+                ErrorCode.PARAMS_ERROR, "只有 Vue 项目支持实时预览");
+        return app;
+    }
+
     /**
      * 更新应用（用户只能更新自己的应用名称）
      * 用户更新应用时，需要进行权限校验，确保只能修改自己的应用
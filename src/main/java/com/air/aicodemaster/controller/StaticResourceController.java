@@ -1,11 +1,17 @@
 package com.air.aicodemaster.controller;
 
-import com.air.aicodemaster.constant.AppConstant;
+import com.air.aicodemaster.core.storage.BlobStore;
+import com.air.aicodemaster.core.storage.Precompressor;
+import com.air.aicodemaster.core.storage.StorageLayout;
+import com.air.aicodemaster.model.enums.CodeGenTypeEnum;
 import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -13,7 +19,13 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.servlet.HandlerMapping;
 
-import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.Set;
+import java.util.regex.Pattern;
 
 /**
  * 静态资源的访问器
@@ -24,14 +36,37 @@ import java.io.File;
  * 这种方式的有点显而易见，不用安装任何其它的环境，也不用额外起一个 serve 进程，非常方便
  * 缺点就是这个功能相对简单，测一些简单的三个文件的页面没什么问题，我们只定义了几种文件的访问，如果要加载音视频的话，不确定能否完成
  * 下载的能力能否提供，所以这个功能只适合我们临时的浏览，并不适合给用户去看已经部署成功网站的方式，功能上性能上都不如专业的 Web 服务器
+ *
+ * 缓存：响应带有 ETag（文件大小 + 修改时间 + inode），浏览器带着 If-None-Match 再次请求时，
+ * 文件没有变化就返回 304（由 Spring 的 ResponseEntity 处理），预览刷新时不用重新传输所有文件
+ * 不返回 Last-Modified：项目文件是内容存储（{@link BlobStore}）的硬链接，修改时间是这份内容第一次存储的时间，
+ * 文件改成更早存储过的内容时修改时间会倒退，按 If-Modified-Since 判断会把旧内容当成没有变化
+ * Vue 项目中 vite 构建出来的带哈希的文件（dist/assets/xxx-哈希.js）内容不会变，长期缓存；其他文件（包括 AI 生成的普通网页中名字带连字符的资源）每次都要重新验证
+ * 音视频等文件支持 Range 请求（由 Spring 处理 Resource 类型的响应体），返回 206 部分内容
+ * 压缩：文本文件有预先生成的 .br / .gz 文件并且客户端支持时，直接返回压缩文件（见 {@link Precompressor}）
  */
 @RestController
 @RequestMapping("/static")
 public class StaticResourceController {
 
-    // 应用生成根目录（用于浏览）
-    private static final String PREVIEW_ROOT_DIR = AppConstant.CODE_OUTPUT_ROOT_DIR;
+    /**
+     * vite 构建产物的路径格式：/dist/assets/{name}-{8 位 base64url 哈希}.{扩展名}
+     * 哈希中至少有一个数字或大写字母，排除 main-bg-image.png 这样由普通单词组成的文件名
+     */
+    private static final Pattern HASHED_ASSET_PATTERN =
+            Pattern.compile("^/dist/assets/[^/]+-(?=[A-Za-z0-9_-]{0,7}[A-Z0-9])[A-Za-z0-9_-]{8}\\.[A-Za-z0-9]+$");
 
+    /**
+     * 只有 Vue 项目有 vite 构建产物
+     */
+    private static final String VUE_PROJECT_PREFIX = CodeGenTypeEnum.VUE_PROJECT.getValue() + "_";
+
+    /**
+     * 需要指定字符编码的非 text/* 类型
+     */
+    private static final Set<String> TEXT_SUBTYPES = Set.of("javascript", "json", "xml", "svg+xml", "manifest+json", "ld+json");
+
+    private static final CacheControl IMMUTABLE = CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable();
 
     /**
      * 提供静态资源访问，支持目录重定向
@@ -57,37 +92,71 @@ public class StaticResourceController {
                 resourcePath = "/index.html";
             }
 
-            // 构建文件路径，读取本地目录对应的文件
-            String filePath = PREVIEW_ROOT_DIR + "/" + deployKey + resourcePath;
-            File file = new File(filePath);
-            // 检查文件是否存在
-            if (!file.exists()) {
+            // 构建文件路径，读取本地目录对应的文件，应用目录由存储布局决定
+            Path projectDir = StorageLayout.resolveProjectDir(deployKey);
+            if (projectDir == null) {
+                return ResponseEntity.notFound().build();
+            }
+            Path file = projectDir.resolve(resourcePath.substring(1)).normalize();
+            // 检查文件是否存在，不允许访问应用目录之外的文件
+            if (!file.startsWith(projectDir) || !Files.isRegularFile(file)) {
                 // 如果不存在，构造一个 404 不存在的响应
                 return ResponseEntity.notFound().build();
             }
-            // 返回文件资源
-            Resource resource = new FileSystemResource(file);
-            return ResponseEntity.ok()
-                    .header("Content-Type", getContentTypeWithCharset(filePath))
-                    .body(resource);
+            String etag = getETag(Files.readAttributes(file, BasicFileAttributes.class));
+            // 客户端支持时返回预先压缩好的文件，不在请求中压缩
+            Precompressor.Variant variant = Precompressor.select(file, request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+            ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+                    .contentType(getContentTypeWithCharset(file.getFileName().toString()))
+                    .cacheControl(isHashedAsset(deployKey, resourcePath) ? IMMUTABLE : CacheControl.noCache())
+                    .header(HttpHeaders.ACCEPT_RANGES, "bytes");
+            if (Precompressor.isCompressible(file.getFileName().toString())) {
+                builder.varyBy(HttpHeaders.ACCEPT_ENCODING);
+            }
+            if (variant != null) {
+                // 不同编码的内容不同，ETag 也要不同
+                etag = etag + "-" + variant.encoding();
+                builder.header(HttpHeaders.CONTENT_ENCODING, variant.encoding());
+            }
+            // 返回文件资源，请求的 ETag 和文件相同时 Spring 直接返回 304
+            return builder.eTag(etag)
+                    .body(new FileSystemResource(variant != null ? variant.path() : file));
         } catch (Exception e) {
             // 这其中出现任何异常，响应 500 服务器异常响应
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
 
+    /**
+     * 文件的 ETag：大小 + 修改时间 + inode
+     * 不同的内容是不同的 inode，内容文件被回收之后 inode 才可能被复用，这时新内容的修改时间又不同，
+     * 所以修改时间倒退或者两份内容大小、修改时间都相同时也能区分；文件系统不提供 inode 时只用大小和修改时间
+     */
+    static String getETag(BasicFileAttributes attributes) {
+        String etag = Long.toHexString(attributes.size()) + "-" + Long.toHexString(attributes.lastModifiedTime().toMillis());
+        Object fileKey = attributes.fileKey();
+        return fileKey == null ? etag : etag + "-" + Integer.toHexString(fileKey.hashCode());
+    }
+
+    /**
+     * 是否是 Vue 项目构建出来的带哈希的文件
+     */
+    static boolean isHashedAsset(String deployKey, String resourcePath) {
+        return deployKey.startsWith(VUE_PROJECT_PREFIX) && HASHED_ASSET_PATTERN.matcher(resourcePath).matches();
+    }
+
     /**
      * 根据文件扩展名返回带字符编码的 Content-Type
      * 文件服务器，不关要处理网页文件，可能还要处理一些图片资源啊，js，css 资源
      * 这个操作其实就是我们在最终响应给前端的时候，加一个响应头，根据用户要访问的文件类别，来告诉浏览器告诉前端，我要访问的文件
      * 它的格式应该是这样的，如果不加这个头，可能会出现一些乱码，前端可能不认识你要访问的这个文件，它是什么类型的，就可能出现一些问题
+     * 类型使用 Spring 内置的扩展名映射（mime.types），文本类型加上 UTF-8 编码
      */
-    private String getContentTypeWithCharset(String filePath) {
-        if (filePath.endsWith(".html")) return "text/html; charset=UTF-8";
-        if (filePath.endsWith(".css")) return "text/css; charset=UTF-8";
-        if (filePath.endsWith(".js")) return "application/javascript; charset=UTF-8";
-        if (filePath.endsWith(".png")) return "image/png";
-        if (filePath.endsWith(".jpg")) return "image/jpeg";
-        return "application/octet-stream";
+    static MediaType getContentTypeWithCharset(String fileName) {
+        MediaType mediaType = MediaTypeFactory.getMediaType(fileName).orElse(MediaType.APPLICATION_OCTET_STREAM);
+        if ("text".equals(mediaType.getType()) || TEXT_SUBTYPES.contains(mediaType.getSubtype())) {
+            return new MediaType(mediaType, StandardCharsets.UTF_8);
+        }
+        return mediaType;
     }
 }
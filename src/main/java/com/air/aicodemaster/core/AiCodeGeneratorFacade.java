@@ -8,11 +8,17 @@ import com.air.aicodemaster.ai.model.MultiFileCodeResult;
 import com.air.aicodemaster.ai.model.message.AiResponseMessage;
 import com.air.aicodemaster.ai.model.message.ToolExecutedMessage;
 import com.air.aicodemaster.ai.model.message.ToolRequestMessage;
+import com.air.aicodemaster.ai.monitor.ToolTimelineRecorder;
 import com.air.aicodemaster.core.parser.CodeParserExecutor;
 import com.air.aicodemaster.core.saver.CodeFileSaverExecutor;
+import com.air.aicodemaster.core.scaffold.VueProjectScaffold;
+import com.air.aicodemaster.core.usage.GenerationUsageTracker;
+import com.air.aicodemaster.core.workspace.ProjectWorkspaceManager;
 import com.air.aicodemaster.exception.BusinessException;
 import com.air.aicodemaster.exception.ErrorCode;
+import com.air.aicodemaster.exception.ThrowUtils;
 import com.air.aicodemaster.model.enums.CodeGenTypeEnum;
+import com.air.aicodemaster.service.AiUsageLogService;
 import dev.langchain4j.model.chat.response.ChatResponse;
 import dev.langchain4j.service.TokenStream;
 import dev.langchain4j.service.tool.ToolExecution;
@@ -22,6 +28,7 @@ import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 
 import java.io.File;
+import java.io.IOException;
 
 /**
  * AI 代码生成门面类，组合生成和保存功能
@@ -39,6 +46,30 @@ public class AiCodeGeneratorFacade {
     @Resource
     private AiCodeGeneratorServiceFactory aiCodeGeneratorServiceFactory;
 
+    /**
+     * AI 生成用量记录
+     */
+    @Resource
+    private AiUsageLogService aiUsageLogService;
+
+    /**
+     * Vue 项目工作区，工具的修改在生成成功后统一落盘
+     */
+    @Resource
+    private ProjectWorkspaceManager projectWorkspaceManager;
+
+    /**
+     * Vue 项目脚手架
+     */
+    @Resource
+    private VueProjectScaffold vueProjectScaffold;
+
+    /**
+     * 工具调用时间线
+     */
+    @Resource
+    private ToolTimelineRecorder toolTimelineRecorder;
+
 //    // 原先是各个应用共用一个 AI 服务实例，可以直接注入同一个服务实例使用，现在是通过 AiCodeGeneratorServiceFactory 不同的应用获取不同的实例
 //    @Resource
 //    private AiCodeGeneratorService aiCodeGeneratorService;
@@ -53,10 +84,25 @@ public class AiCodeGeneratorFacade {
      * @param appId           应用id
      */
     public Flux<String> generateAndSaveCodeStream(String userMessage, CodeGenTypeEnum codeGenTypeEnum , Long appId) {
+        return generateAndSaveCodeStream(userMessage, codeGenTypeEnum, appId, null);
+    }
+
+
+    /**
+     * 统一入口：根据类型生成并保存代码（流式输出），并记录本次生成的用量
+     *
+     * @param userMessage     用户提示词
+     * @param codeGenTypeEnum 生成类型
+     * @param appId           应用id
+     * @param userId          用户id，为空时不记录用量
+     */
+    public Flux<String> generateAndSaveCodeStream(String userMessage, CodeGenTypeEnum codeGenTypeEnum, Long appId, Long userId) {
         // 再校验一遍代码类型是否存在
         if (codeGenTypeEnum == null) {
             throw new BusinessException(ErrorCode.SYSTEM_ERROR, "生成类型为空");
         }
+        GenerationUsageTracker usageTracker = userId == null ? null
+                : new GenerationUsageTracker(appId, userId, codeGenTypeEnum, userMessage);
 
         // 调用 AI Service 工厂根据 appId 获取对应的 AI 服务实例
         AiCodeGeneratorService aiCodeGeneratorService = aiCodeGeneratorServiceFactory.getAiCodeGeneratorService(appId,codeGenTypeEnum);
@@ -67,15 +113,23 @@ public class AiCodeGeneratorFacade {
                 Flux<String> codeStream = aiCodeGeneratorService.generateHtmlCodeStream(userMessage);
                 // processCodeStream 通用方法就是对 generateAndSaveHtmlCodeStream 和 generateAndSaveMultiFileCodeStream
                 // 这两个具有相同的流程，进行封装
-                yield processCodeStream(codeStream, CodeGenTypeEnum.HTML, appId);
+                yield processCodeStream(codeStream, CodeGenTypeEnum.HTML, appId, usageTracker);
             }
             case MULTI_FILE -> {
                 Flux<String> codeStream = aiCodeGeneratorService.generateMultiFileCodeStream(userMessage);
-                yield processCodeStream(codeStream, CodeGenTypeEnum.MULTI_FILE,appId);
+                yield processCodeStream(codeStream, CodeGenTypeEnum.MULTI_FILE, appId, usageTracker);
             }
             case VUE_PROJECT -> {
+                // 同一个应用同时只能有一轮生成，否则两轮的修改会写到同一个工作区，互相提交或丢弃
+                ThrowUtils.throwIf(projectWorkspaceManager.isGenerating(appId), ErrorCode.OPERATION_ERROR, "应用正在生成中，请等待本轮生成结束");
+                // 第一轮生成之前放置脚手架，失败时由大模型自己写这些文件
+                try {
+                    vueProjectScaffold.materialize(projectWorkspaceManager.getProjectRoot(appId));
+                } catch (IOException e) {
+                    log.warn("放置 Vue 项目脚手架失败, appId: {}", appId, e);
+                }
                 TokenStream tokenStream = aiCodeGeneratorService.generateVueProjectCodeStream(appId, userMessage);
-                yield processTokenStream(tokenStream); // 把 TokenStream 转换为 Flux<String>   适配器模式：原本的插头插不了，直接用一个中转器，让新的插头支持原本的插头
+                yield processTokenStream(tokenStream, appId, usageTracker); // 把 TokenStream 转换为 Flux<String>   适配器模式：原本的插头插不了，直接用一个中转器，让新的插头支持原本的插头
             }
             default -> {
                 String errorMessage = "不支持的生成类型：" + codeGenTypeEnum.getValue();
@@ -88,16 +142,30 @@ public class AiCodeGeneratorFacade {
     /**
      * 将 TokenStream 转换为 Flux<String>，监听工具调用信息
      *
-     * @param tokenStream TokenStream 对象
+     * @param tokenStream  TokenStream 对象
+     * @param appId        应用id
+     * @param usageTracker 用量统计，可以为空
      * @return Flux<String> 流式响应
      */
-    private Flux<String> processTokenStream(TokenStream tokenStream) {
+    private Flux<String> processTokenStream(TokenStream tokenStream, Long appId, GenerationUsageTracker usageTracker) {
         // 我们可以自己构造出一条流，不仅可以处理 AI 得到的流，还可以用 AI 的流构造一个新的流
         return Flux.create(sink -> { // sink 理解为通过这个 sink 对象，可以往这个流里面添加数据
+            // 开启本轮的工作区，工具的写入先记录在内存中，生成失败或者前端断开时不会留下写了一半的项目
+            // 上面的检查和这里之间可能有另一轮生成开始，这里再原子地检查一次，失败时不影响正在进行的那一轮
+            if (!projectWorkspaceManager.begin(appId)) {
+                sink.error(new BusinessException(ErrorCode.OPERATION_ERROR, "应用正在生成中，请等待本轮生成结束"));
+                return;
+            }
+            sink.onCancel(() -> projectWorkspaceManager.cancel(appId));
+            // 开始记录本轮的工具调用时间线
+            toolTimelineRecorder.start(appId, CodeGenTypeEnum.VUE_PROJECT.getValue());
             // 在这里面监听 tokenStream
-            tokenStream
+            TokenStream listenedStream = tokenStream
                     // 监听 AI 返回的内容，partialResponse 部分响应碎片，也就是 AI 流式响应的内容
                     .onPartialResponse((String partialResponse) -> {
+                        if (usageTracker != null) {
+                            usageTracker.onModelOutput();
+                        }
                         // 把这个内容封装成我们定义的 Response 对象
                         AiResponseMessage aiResponseMessage = new AiResponseMessage(partialResponse);
                         // 往新的流里面写数据，通过这个 sink.next() 把这个对象转成 JSON 格式，写入到新的流中
@@ -106,11 +174,17 @@ public class AiCodeGeneratorFacade {
                     })
                     // 获取工具调用的流式输出
                     .onPartialToolExecutionRequest((index, toolExecutionRequest) -> {
+                        if (usageTracker != null) {
+                            usageTracker.onModelOutput();
+                        }
                         ToolRequestMessage toolRequestMessage = new ToolRequestMessage(toolExecutionRequest);
                         sink.next(JSONUtil.toJsonStr(toolRequestMessage));
                     })
                     // 获取工具调用完成的结果，当工具调用完，有了完整参数之后，以及有了返回结果之后，调用它进行封装
                     .onToolExecuted((ToolExecution toolExecution) -> {
+                        if (usageTracker != null) {
+                            usageTracker.onToolExecuted();
+                        }
                         ToolExecutedMessage toolExecutedMessage = new ToolExecutedMessage(toolExecution);
                         sink.next(JSONUtil.toJsonStr(toolExecutedMessage));
                     })
@@ -122,15 +196,47 @@ public class AiCodeGeneratorFacade {
 
                     // tokenStream 结束，调用 sink.complete() 这样我们的 Flux 流就知道什么时候结束了
                     .onCompleteResponse((ChatResponse response) -> {
+                        toolTimelineRecorder.finish(appId);
+                        // 先把本轮的修改提交到磁盘，之后的流处理器才会去打包构建项目
+                        try {
+                            projectWorkspaceManager.commit(appId);
+                        } catch (Exception e) {
+                            log.error("提交项目文件失败, appId: {}", appId, e);
+                            if (usageTracker != null) {
+                                aiUsageLogService.record(usageTracker.error());
+                            }
+                            sink.error(e);
+                            return;
+                        }
+                        // 这里的 token 用量是多轮工具调用累加后的结果
+                        if (usageTracker != null) {
+                            aiUsageLogService.record(usageTracker.success(response));
+                        }
                         sink.complete();
                     })
                     // 包括如果出现任何的错误，我们也要告诉新的 Flux 流，出了一个什么错误
                     .onError((Throwable error) -> {
                         error.printStackTrace();
+                        toolTimelineRecorder.finish(appId);
+                        projectWorkspaceManager.discard(appId);
+                        if (usageTracker != null) {
+                            aiUsageLogService.record(usageTracker.error());
+                        }
                         sink.error(error);
-                    })
-                    // 开始监听
-                    .start();
+                    });
+            // 开始监听
+            try {
+                listenedStream.start();
+            } catch (Exception e) {
+                // 构造请求失败、重试预算不足等同步抛出的异常不会触发 onError，这里同样要释放本轮的工作区，否则这个应用之后一直处于生成中
+                log.error("开始生成失败, appId: {}", appId, e);
+                toolTimelineRecorder.finish(appId);
+                projectWorkspaceManager.discard(appId);
+                if (usageTracker != null) {
+                    aiUsageLogService.record(usageTracker.error());
+                }
+                sink.error(e);
+            }
         });
     }
 
@@ -142,14 +248,26 @@ public class AiCodeGeneratorFacade {
      * @param codeStream  代码流
      * @param codeGenType 代码生成类型
      * @param appId       应用id
+     * @param usageTracker 用量统计，可以为空。返回 Flux 的 AI 服务拿不到 token 用量，这里只记录耗时
      * @return 流式响应
      */
-    private Flux<String> processCodeStream(Flux<String> codeStream, CodeGenTypeEnum codeGenType ,Long appId) {
+    private Flux<String> processCodeStream(Flux<String> codeStream, CodeGenTypeEnum codeGenType, Long appId,
+                                           GenerationUsageTracker usageTracker) {
         StringBuilder codeBuilder = new StringBuilder();
         return codeStream.doOnNext(chunk -> {
+            if (usageTracker != null) {
+                usageTracker.onModelOutput();
+            }
             // 实时收集代码片段
             codeBuilder.append(chunk);
+        }).doOnError(error -> {
+            if (usageTracker != null) {
+                aiUsageLogService.record(usageTracker.error());
+            }
         }).doOnComplete(() -> {
+            if (usageTracker != null) {
+                aiUsageLogService.record(usageTracker.success(null));
+            }
             // 流式返回完成后保存代码
             try {
                 String completeCode = codeBuilder.toString();
@@ -0,0 +1,162 @@
+package com.air.aicodemaster.core.builder;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * 一次构建的输出日志
+ * npm 的输出逐行追加到这里，只保留最后若干行，超出的部分丢弃，避免啰嗦的安装输出占满内存
+ * 同时可以订阅实时输出（订阅时先回放已保留的行），并根据 vite 的输出记录 transform、bundle 阶段的耗时
+ */
+public class BuildLog {
+
+    /**
+     * 终端颜色控制字符
+     */
+    private static final Pattern ANSI_PATTERN = Pattern.compile("\\u001B\\[[;\\d]*[A-Za-z]");
+
+    private final String projectPath;
+
+    private final int maxLines;
+
+    private final Deque<String> lines = new ArrayDeque<>();
+
+    private long droppedLines;
+
+    private final Sinks.Many<String> lineSink;
+
+    private final Sinks.One<Boolean> resultSink = Sinks.one();
+
+    private final Map<String, Long> phaseMillis = new LinkedHashMap<>();
+
+    private final long startNanos = System.nanoTime();
+
+    private String currentPhase;
+
+    private long currentPhaseStartNanos;
+
+    private Boolean success;
+
+    public BuildLog(String projectPath, int maxLines) {
+        this.projectPath = projectPath;
+        this.maxLines = maxLines;
+        this.lineSink = Sinks.many().replay().limit(maxLines);
+    }
+
+    /**
+     * 追加一行输出
+     */
+    public synchronized void append(String line) {
+        if (success != null) {
+            return;
+        }
+        String cleanLine = ANSI_PATTERN.matcher(line).replaceAll("");
+        if (lines.size() >= maxLines) {
+            lines.removeFirst();
+            droppedLines++;
+        }
+        lines.addLast(cleanLine);
+        detectPhase(cleanLine);
+        lineSink.tryEmitNext(cleanLine);
+    }
+
+    /**
+     * 记录一个阶段的耗时
+     */
+    public synchronized void recordPhase(String phase, long millis) {
+        phaseMillis.put(phase, millis);
+    }
+
+    /**
+     * 构建结束，之后追加的输出被忽略
+     */
+    public synchronized void finish(boolean success) {
+        if (this.success != null) {
+            return;
+        }
+        this.success = success;
+        endPhase();
+        lineSink.tryEmitComplete();
+        resultSink.tryEmitValue(success);
+    }
+
+    /**
+     * 实时输出，订阅时先回放已保留的行，构建结束时完成
+     */
+    public Flux<String> lines() {
+        return lineSink.asFlux();
+    }
+
+    /**
+     * 构建结果，构建结束时发出
+     */
+    public Mono<Boolean> result() {
+        return resultSink.asMono();
+    }
+
+    public String getProjectPath() {
+        return projectPath;
+    }
+
+    public synchronized Boolean getSuccess() {
+        return success;
+    }
+
+    public synchronized Map<String, Long> getPhaseMillis() {
+        return Collections.unmodifiableMap(new LinkedHashMap<>(phaseMillis));
+    }
+
+    public long getElapsedMillis() {
+        return Duration.ofNanos(System.nanoTime() - startNanos).toMillis();
+    }
+
+    /**
+     * 完整的日志文本
+     */
+    public synchronized String getText() {
+        StringBuilder builder = new StringBuilder();
+        if (droppedLines > 0) {
+            builder.append("...（省略了前 ").append(droppedLines).append(" 行）\n");
+        }
+        lines.forEach(line -> builder.append(line).append('\n'));
+        return builder.toString();
+    }
+
+    /**
+     * vite build 的输出：
+     * transforming... -> ✓ 42 modules transformed. -> rendering chunks... -> computing gzip size... -> ✓ built in 1.23s
+     */
+    private void detectPhase(String line) {
+        if (line.contains("transforming")) {
+            startPhase("transform");
+        } else if (line.contains("modules transformed")) {
+            endPhase();
+        } else if (line.contains("rendering chunks")) {
+            startPhase("bundle");
+        } else if (line.contains("built in")) {
+            endPhase();
+        }
+    }
+
+    private void startPhase(String phase) {
+        endPhase();
+        currentPhase = phase;
+        currentPhaseStartNanos = System.nanoTime();
+    }
+
+    private void endPhase() {
+        if (currentPhase != null) {
+            phaseMillis.put(currentPhase, Duration.ofNanos(System.nanoTime() - currentPhaseStartNanos).toMillis());
+            currentPhase = null;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.air.aicodemaster.core.builder;
+
+import com.air.aicodemaster.config.VueBuildConfig;
+import com.air.aicodemaster.core.storage.StorageLayout;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+
+/**
+ * 构建日志管理
+ * 每个项目在内存中保留最近一次构建的日志，用于实时推送构建进度；构建结束后日志写入 {存储根目录}/.build-logs/{项目目录名}.log 用于排查问题，
+ * 并记录各阶段的耗时指标
+ */
+@Slf4j
+@Component
+public class BuildLogManager {
+
+    @Resource
+    private VueBuildConfig vueBuildConfig;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    private final Cache<String, BuildLog> buildLogs = Caffeine.newBuilder()
+            .maximumSize(1000)
+            .expireAfterWrite(Duration.ofHours(1))
+            .build();
+
+    /**
+     * 开始新的构建日志，覆盖项目上一次构建的日志
+     */
+    public BuildLog start(String projectPath) {
+        String key = toKey(projectPath);
+        BuildLog buildLog = new BuildLog(key, vueBuildConfig.getMaxLogLines());
+        buildLogs.put(key, buildLog);
+        return buildLog;
+    }
+
+    /**
+     * 获取项目最近一次构建的日志
+     *
+     * @return 构建日志，没有时返回 null
+     */
+    public BuildLog get(String projectPath) {
+        return buildLogs.getIfPresent(toKey(projectPath));
+    }
+
+    /**
+     * 结束构建，保存日志并记录耗时
+     */
+    public void finish(BuildLog buildLog, boolean success) {
+        buildLog.finish(success);
+        buildLog.getPhaseMillis().forEach((phase, millis) -> Timer.builder("vue.build.phase")
+                .description("Vue 项目构建各阶段耗时：install、transform、bundle")
+                .tag("phase", phase)
+                .register(meterRegistry)
+                .record(Duration.ofMillis(millis)));
+        Timer.builder("vue.build.duration")
+                .description("Vue 项目构建总耗时，包括排队时间")
+                .tag("outcome", success ? "success" : "failure")
+                .register(meterRegistry)
+                .record(Duration.ofMillis(buildLog.getElapsedMillis()));
+        Path logFile = StorageLayout.getBuildLogDir().resolve(Paths.get(buildLog.getProjectPath()).getFileName() + ".log");
+        try {
+            Files.createDirectories(logFile.getParent());
+            Files.writeString(logFile, buildLog.getText());
+        } catch (IOException e) {
+            log.warn("保存构建日志失败: {}, 错误信息: {}", logFile, e.getMessage());
+        }
+    }
+
+    private String toKey(String projectPath) {
+        return Paths.get(projectPath).toAbsolutePath().normalize().toString();
+    }
+}
@@ -0,0 +1,121 @@
+package com.air.aicodemaster.core.builder;
+
+import cn.hutool.crypto.digest.DigestUtil;
+import cn.hutool.json.JSONUtil;
+import com.air.aicodemaster.core.storage.StorageLayout;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 构建清单
+ * 构建成功后记录构建时源码的哈希，源码没有变化并且 dist 还在时直接复用，不再执行 npm install 和 npm run build
+ * 哈希包含项目目录下除 node_modules、dist 之外所有文件的路径和内容
+ * 清单保存在 {存储根目录}/.build-cache/{项目目录名}.json，不放在项目目录中，避免影响下载和文件列表
+ */
+@Slf4j
+@Data
+public class BuildManifest {
+
+    /**
+     * 不参与哈希的目录
+     */
+    private static final Set<String> EXCLUDED_DIRS = Set.of("node_modules", "dist", ".git");
+
+    /**
+     * 源码哈希
+     */
+    private String sourceHash;
+
+    /**
+     * 源码文件数量
+     */
+    private int fileCount;
+
+    /**
+     * 构建完成时间（毫秒时间戳）
+     */
+    private long builtAt;
+
+    /**
+     * 计算项目源码的哈希
+     */
+    public static BuildManifest compute(Path projectDir) throws IOException {
+        List<Path> files = new ArrayList<>();
+        Files.walkFileTree(projectDir, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                if (!dir.equals(projectDir) && EXCLUDED_DIRS.contains(dir.getFileName().toString())) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (attrs.isRegularFile()) {
+                    files.add(file);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        List<String> relativePaths = new ArrayList<>();
+        for (Path file : files) {
+            relativePaths.add(projectDir.relativize(file).toString().replace('\\', '/'));
+        }
+        relativePaths.sort(null);
+        StringBuilder builder = new StringBuilder();
+        for (String relativePath : relativePaths) {
+            builder.append(relativePath).append('\0')
+                    .append(DigestUtil.sha256Hex(Files.readAllBytes(projectDir.resolve(relativePath)))).append('\n');
+        }
+        BuildManifest manifest = new BuildManifest();
+        manifest.setSourceHash(DigestUtil.sha256Hex(builder.toString()));
+        manifest.setFileCount(relativePaths.size());
+        return manifest;
+    }
+
+    /**
+     * 读取项目上一次成功构建的清单
+     *
+     * @return 清单，没有或者读取失败时返回 null
+     */
+    public static BuildManifest read(Path projectDir) {
+        Path manifestFile = getManifestFile(projectDir);
+        if (!Files.isRegularFile(manifestFile)) {
+            return null;
+        }
+        try {
+            return JSONUtil.toBean(Files.readString(manifestFile), BuildManifest.class);
+        } catch (Exception e) {
+            log.warn("读取构建清单失败: {}, 错误信息: {}", manifestFile, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 保存构建清单
+     */
+    public void write(Path projectDir) throws IOException {
+        Path manifestFile = getManifestFile(projectDir);
+        Files.createDirectories(manifestFile.getParent());
+        Files.writeString(manifestFile, JSONUtil.toJsonStr(this));
+    }
+
+    /**
+     * 删除构建清单，之后的构建一定会重新执行
+     */
+    public static void delete(Path projectDir) throws IOException {
+        Files.deleteIfExists(getManifestFile(projectDir));
+    }
+
+    private static Path getManifestFile(Path projectDir) {
+        return StorageLayout.getBuildCacheDir().resolve(projectDir.getFileName() + ".json");
+    }
+}
@@ -0,0 +1,253 @@
+package com.air.aicodemaster.core.builder;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.crypto.digest.DigestUtil;
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+import com.air.aicodemaster.config.VueBuildConfig;
+import com.air.aicodemaster.core.storage.StorageLayout;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Vue 项目共享依赖仓库
+ * 以前每个应用每次构建都要执行一次完整的 npm install，把一模一样的依赖下载解压到各自的 node_modules 下
+ * 现在按依赖声明（package.json 中的依赖字段和 package-lock.json）的哈希，在共享仓库中只安装一次：
+ * {依赖仓库}/{哈希}/node_modules，项目中的 node_modules 是指向它的符号链接
+ * 1. 项目的 node_modules 已经链接到当前哈希对应的依赖时，直接跳过安装
+ * 2. 依赖仓库中已有当前哈希的依赖时，只需要重新链接
+ * 3. 都没有时在仓库中安装，npm 缓存也放在仓库中，配置离线模式后只使用本地缓存，可以预先准备好缓存在离线环境使用
+ * 不支持符号链接或者关闭共享依赖时，退化为在项目目录下执行 npm install
+ * 注意：共享的 node_modules 被多个项目使用，构建过程不能修改其中的内容
+ */
+@Slf4j
+@Component
+public class DependencyStore {
+
+    /**
+     * 安装完成的标记文件，内容是 node_modules 的大小（字节）
+     */
+    static final String INSTALLED_MARKER = ".installed";
+
+    private static final String NODE_MODULES = "node_modules";
+
+    private static final List<String> DEPENDENCY_FIELDS = List.of("dependencies", "devDependencies", "optionalDependencies");
+
+    private static final String LOCK_FILE = "package-lock.json";
+
+    /**
+     * 同一份依赖同时只安装一次
+     */
+    private final Map<String, Object> installLocks = new ConcurrentHashMap<>();
+
+    @Resource
+    private VueBuildConfig vueBuildConfig;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    /**
+     * 为项目准备好 node_modules
+     *
+     * @param projectDir 项目根目录
+     * @param buildLog   构建日志
+     * @return 是否成功
+     */
+    public boolean install(File projectDir, BuildLog buildLog) {
+        if (!vueBuildConfig.isSharedDependencies()) {
+            return installInPlace(projectDir, buildLog);
+        }
+        Path nodeModules = projectDir.toPath().resolve(NODE_MODULES);
+        try {
+            String key = computeKey(projectDir.toPath());
+            Path storeDir = StorageLayout.getDependencyRoot().resolve(key);
+            Path sharedNodeModules = storeDir.resolve(NODE_MODULES);
+            if (isInstalled(storeDir) && isLinkedTo(nodeModules, sharedNodeModules)) {
+                log.info("依赖没有变化，跳过 npm install: {}", projectDir);
+                buildLog.append("依赖没有变化，跳过 npm install");
+                recordInstall("skipped", storeDir);
+                return true;
+            }
+            boolean installed = isInstalled(storeDir);
+            if (!installed && !installToStore(projectDir.toPath(), key, storeDir, buildLog)) {
+                recordInstall("failed", null);
+                return false;
+            }
+            replaceWithLink(nodeModules, sharedNodeModules);
+            log.info("已链接共享依赖 {} -> {}", nodeModules, sharedNodeModules);
+            buildLog.append("使用共享依赖 " + key);
+            recordInstall(installed ? "linked" : "installed", installed ? storeDir : null);
+            return true;
+        } catch (IOException | UnsupportedOperationException e) {
+            log.warn("使用共享依赖失败，在项目目录下安装: {}, 错误信息: {}", projectDir, e.getMessage());
+            return installInPlace(projectDir, buildLog);
+        }
+    }
+
+    /**
+     * 计算依赖声明的哈希，只包含 package.json 中的依赖字段（字段内按包名排序）和 package-lock.json
+     * 修改项目名称、脚本等其他字段不需要重新安装
+     */
+    static String computeKey(Path projectDir) throws IOException {
+        StringBuilder builder = new StringBuilder();
+        Map<String, SortedMap<String, String>> dependencies = readDependencies(projectDir);
+        dependencies.forEach((field, packages) -> {
+            builder.append(field).append('\n');
+            packages.forEach((name, version) -> builder.append(name).append('@').append(version).append('\n'));
+        });
+        Path lockFile = projectDir.resolve(LOCK_FILE);
+        if (Files.isRegularFile(lockFile)) {
+            builder.append(LOCK_FILE).append('\n').append(Files.readString(lockFile));
+        }
+        return DigestUtil.sha256Hex(builder.toString());
+    }
+
+    private static Map<String, SortedMap<String, String>> readDependencies(Path projectDir) throws IOException {
+        JSONObject packageJson = JSONUtil.parseObj(Files.readString(projectDir.resolve("package.json")));
+        Map<String, SortedMap<String, String>> dependencies = new LinkedHashMap<>();
+        for (String field : DEPENDENCY_FIELDS) {
+            JSONObject packages = packageJson.getJSONObject(field);
+            if (packages == null || packages.isEmpty()) {
+                continue;
+            }
+            SortedMap<String, String> sorted = new TreeMap<>();
+            packages.forEach((name, version) -> sorted.put(name, String.valueOf(version)));
+            dependencies.put(field, sorted);
+        }
+        return dependencies;
+    }
+
+    /**
+     * 在依赖仓库中安装，先安装到临时目录，完成后再移动到最终位置，安装失败不会留下不完整的依赖
+     */
+    private boolean installToStore(Path projectDir, String key, Path storeDir, BuildLog buildLog) throws IOException {
+        synchronized (installLocks.computeIfAbsent(key, k -> new Object())) {
+            if (isInstalled(storeDir)) {
+                return true;
+            }
+            Path tempDir = storeDir.resolveSibling(key + "_" + IdUtil.fastSimpleUUID());
+            try {
+                Files.createDirectories(tempDir);
+                // 只保留依赖字段，其他字段（比如 scripts）和安装无关
+                Map<String, Object> packageJson = new LinkedHashMap<>();
+                packageJson.put("name", "shared-dependencies");
+                packageJson.put("private", true);
+                packageJson.putAll(readDependencies(projectDir));
+                Files.writeString(tempDir.resolve("package.json"), JSONUtil.toJsonPrettyStr(packageJson));
+                Path lockFile = projectDir.resolve(LOCK_FILE);
+                if (Files.isRegularFile(lockFile)) {
+                    Files.copy(lockFile, tempDir.resolve(LOCK_FILE));
+                }
+                log.info("在共享依赖仓库中安装依赖: {}", key);
+                if (!NpmCommand.execute(tempDir.toFile(), vueBuildConfig.getInstallTimeoutSeconds(), buildLog, installArgs(true))) {
+                    log.error("共享依赖安装失败: {}", key);
+                    return false;
+                }
+                long size = sizeOf(tempDir.resolve(NODE_MODULES));
+                Files.writeString(tempDir.resolve(INSTALLED_MARKER), String.valueOf(size));
+                // 之前安装失败留下的目录
+                FileUtil.del(storeDir.toFile());
+                Files.move(tempDir, storeDir, StandardCopyOption.ATOMIC_MOVE);
+                log.info("共享依赖安装完成: {}，大小 {}", key, FileUtil.readableFileSize(size));
+                return true;
+            } finally {
+                FileUtil.del(tempDir.toFile());
+            }
+        }
+    }
+
+    /**
+     * 在项目目录下直接安装（不使用共享依赖）
+     */
+    private boolean installInPlace(File projectDir, BuildLog buildLog) {
+        Path nodeModules = projectDir.toPath().resolve(NODE_MODULES);
+        try {
+            // 不能在共享的依赖中安装
+            if (Files.isSymbolicLink(nodeModules)) {
+                Files.delete(nodeModules);
+            }
+        } catch (IOException e) {
+            log.error("删除 node_modules 链接失败: {}", nodeModules, e);
+            return false;
+        }
+        boolean success = NpmCommand.execute(projectDir, vueBuildConfig.getInstallTimeoutSeconds(), buildLog, installArgs(false));
+        recordInstall(success ? "in_place" : "failed", null);
+        return success;
+    }
+
+    private String[] installArgs(boolean shared) {
+        List<String> args = new ArrayList<>(List.of("install", "--no-audit", "--no-fund"));
+        if (shared) {
+            args.add("--cache");
+            args.add(StorageLayout.getDependencyRoot().resolve("npm-cache").toAbsolutePath().toString());
+        }
+        args.add(vueBuildConfig.isOffline() ? "--offline" : "--prefer-offline");
+        return args.toArray(new String[0]);
+    }
+
+    private void replaceWithLink(Path nodeModules, Path sharedNodeModules) throws IOException {
+        if (Files.isSymbolicLink(nodeModules)) {
+            Files.delete(nodeModules);
+        } else if (Files.exists(nodeModules)) {
+            // 以前在项目目录下安装的依赖，换成链接后释放磁盘空间
+            FileUtil.del(nodeModules.toFile());
+        }
+        Files.createSymbolicLink(nodeModules, sharedNodeModules.toAbsolutePath());
+    }
+
+    private boolean isInstalled(Path storeDir) {
+        return Files.isRegularFile(storeDir.resolve(INSTALLED_MARKER));
+    }
+
+    private boolean isLinkedTo(Path link, Path target) throws IOException {
+        return Files.isSymbolicLink(link) && Files.readSymbolicLink(link).equals(target.toAbsolutePath());
+    }
+
+    /**
+     * 记录安装结果，复用共享依赖时累计节省的磁盘空间
+     *
+     * @param result   skipped（跳过）、linked（复用已有依赖）、installed（在仓库中新安装）、in_place（在项目目录安装）、failed
+     * @param storeDir 复用的依赖目录，没有复用时为 null
+     */
+    private void recordInstall(String result, Path storeDir) {
+        Counter.builder("vue.build.install")
+                .description("Vue 项目依赖安装次数，按结果区分，skipped 和 linked 是缓存命中")
+                .tag("result", result)
+                .register(meterRegistry)
+                .increment();
+        if (storeDir == null) {
+            return;
+        }
+        try {
+            long size = Long.parseLong(Files.readString(storeDir.resolve(INSTALLED_MARKER), StandardCharsets.UTF_8).trim());
+            Counter.builder("vue.build.install.saved.bytes")
+                    .description("复用共享依赖节省的下载和磁盘空间")
+                    .baseUnit("bytes")
+                    .register(meterRegistry)
+                    .increment(size);
+        } catch (IOException | NumberFormatException e) {
+            log.debug("读取共享依赖大小失败: {}", storeDir);
+        }
+    }
+
+    private static long sizeOf(Path dir) throws IOException {
+        if (!Files.isDirectory(dir)) {
+            return 0;
+        }
+        try (Stream<Path> stream = Files.walk(dir)) {
+            return stream.filter(Files::isRegularFile).mapToLong(path -> path.toFile().length()).sum();
+        }
+    }
+}
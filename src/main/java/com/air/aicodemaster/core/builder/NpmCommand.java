@@ -0,0 +1,122 @@
+package com.air.aicodemaster.core.builder;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * npm 命令的执行
+ */
+@Slf4j
+public class NpmCommand {
+
+    private NpmCommand() {
+    }
+
+    /**
+     * 在工作目录中执行 npm 命令
+     * 进程的标准输出和错误输出合并后由单独的线程持续读取，写入构建日志
+     * 如果不读取，输出较多时（比如安装依赖）管道缓冲区写满，npm 会一直阻塞直到超时
+     *
+     * @param workingDir     工作目录
+     * @param timeoutSeconds 超时时间（秒）
+     * @param buildLog       构建日志，为 null 时丢弃输出
+     * @param args           npm 的参数，比如 install、run build
+     * @return 是否执行成功
+     * 对于这种通用的方法，我们就没有必要直接抛出异常，而是返回 false ，然后让方法外面进行判断
+     */
+    public static boolean execute(File workingDir, int timeoutSeconds, BuildLog buildLog, String... args) {
+        List<String> command = new ArrayList<>();
+        command.add(buildCommand("npm"));
+        command.addAll(Arrays.asList(args));
+        Process process = null;
+        try {
+            log.info("在目录 {} 中执行命令: {}", workingDir.getAbsolutePath(), command);
+            ProcessBuilder processBuilder = new ProcessBuilder(command)
+                    .directory(workingDir)
+                    .redirectErrorStream(true);
+            // 不输出颜色控制字符和进度条
+            processBuilder.environment().put("NO_COLOR", "1");
+            processBuilder.environment().put("CI", "true");
+            process = processBuilder.start();
+            if (buildLog != null) {
+                buildLog.append("> npm " + String.join(" ", args));
+            }
+            Thread reader = drain(process, buildLog);
+            // 等待进程完成，设置超时
+            boolean finished = process.waitFor(timeoutSeconds, TimeUnit.SECONDS);
+            if (!finished) {
+                log.error("命令执行超时（{}秒），强制终止进程", timeoutSeconds);
+                process.destroyForcibly();
+                return false;
+            }
+            // 等待剩余的输出读取完
+            reader.join(TimeUnit.SECONDS.toMillis(5));
+            int exitCode = process.exitValue();
+            if (exitCode == 0) {
+                log.info("命令执行成功: {}", command);
+                return true;
+            } else {
+                log.error("命令执行失败，退出码: {}", exitCode);
+                return false;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            process.destroyForcibly();
+            return false;
+        } catch (Exception e) {
+            log.error("执行命令失败: {}, 错误信息: {}", command, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * 启动读取进程输出的线程，进程结束时输出流关闭，线程随之结束
+     */
+    private static Thread drain(Process process, BuildLog buildLog) {
+        return Thread.ofVirtual()
+                .name("npm-output-" + process.pid())
+                .start(() -> {
+                    try (BufferedReader reader = new BufferedReader(
+                            new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                        String line;
+                        while ((line = reader.readLine()) != null) {
+                            if (buildLog != null) {
+                                buildLog.append(line);
+                            }
+                        }
+                    } catch (IOException e) {
+                        log.debug("读取 npm 输出结束: {}", e.getMessage());
+                    }
+                });
+    }
+
+    /**
+     * 根据操作系统构造命令
+     *
+     * @param baseCommand 基础命令
+     * @return 构建后的命令字符串
+     */
+    private static String buildCommand(String baseCommand) {
+        if (isWindows()) {
+            return baseCommand + ".cmd";
+        }
+        return baseCommand;
+    }
+
+    /**
+     * 判断当前操作系统是否是 windows 系统
+     */
+    private static boolean isWindows() {
+        // 拿到操作系统的名称，转小写，判断是不是 windows
+        return System.getProperty("os.name").toLowerCase().contains("windows");
+    }
+}
@@ -0,0 +1,386 @@
+package com.air.aicodemaster.core.builder;
+
+import com.air.aicodemaster.config.VueBuildConfig;
+import com.air.aicodemaster.core.storage.StorageLayout;
+import com.air.aicodemaster.model.enums.CodeGenTypeEnum;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Vue 项目实时预览
+ * 用户连续修改一个应用时，每一轮生成都要等一次完整的生产构建预览才会更新
+ * 开启后可以为正在编辑的应用启动 vite 开发服务器，每一轮生成提交到磁盘的修改由 vite 监听并通过 HMR 推送到浏览器，
+ * 有预览服务的应用生成完成后不再提交生产构建，只在部署时构建
+ * 1. 端口从固定范围中分配，服务数量达到上限时停止最久没有使用的服务
+ * 2. 空闲超过 preview-idle-minutes 的服务定时停止
+ * 3. 同一个应用同时只会启动一个服务，并发的启动请求等待同一个结果
+ * 4. 服务由 classpath:builder/vite-dev-server.mjs 调用 vite 的 createServer 启动，依赖预构建缓存放在项目自己的缓存目录，
+ *    不写入共享的 node_modules（见 {@link StorageLayout#getViteCacheDir(String)}）
+ */
+@Slf4j
+@Component
+public class VitePreviewManager {
+
+    private static final String SCRIPT_LOCATION = "builder/vite-dev-server.mjs";
+
+    /**
+     * 脚本在服务监听成功之后输出的就绪标记
+     * 不能只探测端口能否连接：端口被其他进程占用时探测直接成功，而 vite 因为 strictPort 退出，返回的会是别人的服务
+     */
+    private static final String READY_MARKER = "@@vite-dev-server-ready@@";
+
+    @Resource
+    private VueBuildConfig vueBuildConfig;
+
+    @Resource
+    private DependencyStore dependencyStore;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    /**
+     * 应用 ID -> 运行中的预览服务，按访问顺序排列，第一个是最久没有使用的，只能在 synchronized (servers) 中访问
+     */
+    private final LinkedHashMap<Long, PreviewServer> servers = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * 应用 ID -> 正在启动的预览服务
+     */
+    private final Map<Long, CompletableFuture<PreviewServer>> starting = new HashMap<>();
+
+    private final Deque<Integer> freePorts = new ArrayDeque<>();
+
+    private volatile Path scriptFile;
+
+    @PostConstruct
+    public void init() {
+        for (int i = 0; i < vueBuildConfig.getMaxPreviewServers(); i++) {
+            freePorts.add(vueBuildConfig.getPreviewPortStart() + i);
+        }
+        Gauge.builder("vue.preview.servers", this, VitePreviewManager::getRunningCount)
+                .description("运行中的 vite 预览服务数量")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 是否开启了实时预览
+     */
+    public boolean isEnabled() {
+        return vueBuildConfig.isPreviewEnabled();
+    }
+
+    /**
+     * 启动应用的预览服务，已经在运行时直接返回
+     * 第一次启动需要安装依赖，可能比较慢
+     *
+     * @param appId 应用 ID
+     * @return 预览地址
+     * @throws IOException 依赖安装失败、没有可用的端口或者服务启动失败
+     */
+    public String start(long appId) throws IOException {
+        CompletableFuture<PreviewServer> future;
+        int port = -1;
+        synchronized (servers) {
+            PreviewServer server = servers.get(appId);
+            if (server != null && server.isAlive()) {
+                server.touch();
+                return getUrl(server.port);
+            }
+            if (server != null) {
+                remove(appId);
+            }
+            future = starting.get(appId);
+            if (future == null) {
+                port = allocatePort();
+                future = new CompletableFuture<>();
+                starting.put(appId, future);
+            }
+        }
+        if (port > 0) {
+            launch(appId, port, future);
+        }
+        try {
+            return getUrl(future.get().port);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("等待预览服务启动时被中断", e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException ioException ? ioException : new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * 应用是否有运行中的预览服务，有的话同时刷新它的使用时间
+     * 生成完成时调用，有预览服务的应用不需要再执行生产构建
+     */
+    public boolean touch(long appId) {
+        synchronized (servers) {
+            PreviewServer server = servers.get(appId);
+            if (server == null || !server.isAlive()) {
+                return false;
+            }
+            server.touch();
+            return true;
+        }
+    }
+
+    /**
+     * 停止应用的预览服务
+     */
+    public void stop(long appId) {
+        synchronized (servers) {
+            remove(appId);
+        }
+    }
+
+    /**
+     * 停止空闲超时和已经退出的预览服务
+     */
+    @Scheduled(fixedDelay = 60 * 1000)
+    public void evictIdle() {
+        long deadline = System.currentTimeMillis() - TimeUnit.MINUTES.toMillis(vueBuildConfig.getPreviewIdleMinutes());
+        synchronized (servers) {
+            List<Long> idle = servers.entrySet().stream()
+                    .filter(entry -> !entry.getValue().isAlive() || entry.getValue().lastAccess < deadline)
+                    .map(Map.Entry::getKey)
+                    .toList();
+            idle.forEach(appId -> {
+                log.info("预览服务空闲超时，停止应用 {} 的预览服务", appId);
+                remove(appId);
+                recordEviction("idle");
+            });
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        synchronized (servers) {
+            new ArrayList<>(servers.keySet()).forEach(this::remove);
+        }
+    }
+
+    /**
+     * 运行中的预览服务数量
+     */
+    public int getRunningCount() {
+        synchronized (servers) {
+            return servers.size();
+        }
+    }
+
+    /**
+     * 分配端口，没有空闲端口时停止最久没有使用的服务，调用方需要持有 servers 的锁
+     */
+    private int allocatePort() throws IOException {
+        if (freePorts.isEmpty() && !servers.isEmpty()) {
+            Long eldest = servers.keySet().iterator().next();
+            log.info("预览服务数量达到上限，停止最久没有使用的应用 {} 的预览服务", eldest);
+            remove(eldest);
+            recordEviction("lru");
+        }
+        Integer port = freePorts.poll();
+        if (port == null) {
+            throw new IOException("预览服务数量已达上限，请稍后重试");
+        }
+        return port;
+    }
+
+    /**
+     * 停止服务并归还端口，调用方需要持有 servers 的锁
+     */
+    private void remove(long appId) {
+        PreviewServer server = servers.remove(appId);
+        if (server != null) {
+            server.close();
+            freePorts.add(server.port);
+        }
+    }
+
+    /**
+     * 安装依赖并启动 vite 开发服务器，结果写入 future
+     */
+    private void launch(long appId, int port, CompletableFuture<PreviewServer> future) {
+        PreviewServer server = null;
+        try {
+            Path projectDir = StorageLayout.getProjectDir(CodeGenTypeEnum.VUE_PROJECT, appId);
+            server = startServer(projectDir, port);
+            synchronized (servers) {
+                starting.remove(appId);
+                servers.put(appId, server);
+            }
+            recordStart("success");
+            log.info("应用 {} 的预览服务已启动: {}", appId, getUrl(port));
+            future.complete(server);
+        } catch (IOException e) {
+            if (server != null) {
+                server.close();
+            }
+            synchronized (servers) {
+                starting.remove(appId);
+                freePorts.add(port);
+            }
+            recordStart("failure");
+            log.error("启动应用 {} 的预览服务失败: {}", appId, e.getMessage());
+            future.completeExceptionally(e);
+        }
+    }
+
+    private PreviewServer startServer(Path projectDir, int port) throws IOException {
+        if (!Files.isRegularFile(projectDir.resolve("package.json"))) {
+            throw new IOException("项目不存在或者不是 Vue 项目");
+        }
+        BuildLog buildLog = new BuildLog(projectDir.toString(), vueBuildConfig.getMaxLogLines());
+        if (!dependencyStore.install(projectDir.toFile(), buildLog)) {
+            throw new IOException("安装依赖失败");
+        }
+        if (!Files.isDirectory(projectDir.resolve("node_modules/vite"))) {
+            throw new IOException("项目没有安装 vite");
+        }
+        Path cacheDir = StorageLayout.getViteCacheDir(projectDir.getFileName().toString());
+        Files.createDirectories(cacheDir);
+        Process process = new ProcessBuilder("node", ensureScript().toString(), projectDir.toString(), cacheDir.toString(),
+                vueBuildConfig.getPreviewHost(), String.valueOf(port))
+                .directory(projectDir.toFile())
+                .redirectErrorStream(true)
+                .start();
+        PreviewServer server = new PreviewServer(process, port, buildLog);
+        boolean ready;
+        try {
+            ready = server.ready.get(vueBuildConfig.getPreviewStartTimeoutSeconds(), TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            server.close();
+            throw new IOException("vite 开发服务器启动超时");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            server.close();
+            throw new IOException("等待 vite 开发服务器启动时被中断", e);
+        } catch (ExecutionException e) {
+            server.close();
+            throw new IOException(e.getCause());
+        }
+        // 输出就绪标记之后进程仍然可能马上退出，注册之前再确认一次
+        if (!ready || !process.isAlive()) {
+            server.close();
+            throw new IOException("vite 开发服务器启动失败: " + buildLog.getText());
+        }
+        return server;
+    }
+
+    /**
+     * 把脚本从 classpath 复制到存储目录，node 只能执行文件系统中的脚本
+     */
+    private Path ensureScript() throws IOException {
+        Path script = scriptFile;
+        if (script != null && Files.isRegularFile(script)) {
+            return script;
+        }
+        synchronized (this) {
+            script = StorageLayout.getOutputRoot().resolve(".workers").resolve("vite-dev-server.mjs");
+            Files.createDirectories(script.getParent());
+            try (InputStream inputStream = new ClassPathResource(SCRIPT_LOCATION).getInputStream()) {
+                Files.copy(inputStream, script, StandardCopyOption.REPLACE_EXISTING);
+            }
+            scriptFile = script;
+            return script;
+        }
+    }
+
+    private String getUrl(int port) {
+        return String.format("http://%s:%d/", vueBuildConfig.getPreviewHost(), port);
+    }
+
+    private void recordStart(String outcome) {
+        Counter.builder("vue.preview.starts")
+                .description("vite 预览服务启动次数")
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private void recordEviction(String reason) {
+        Counter.builder("vue.preview.evictions")
+                .description("vite 预览服务停止次数，idle 是空闲超时，lru 是数量达到上限")
+                .tag("reason", reason)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    /**
+     * 一个运行中的 vite 开发服务器
+     */
+    private static class PreviewServer {
+
+        private final Process process;
+
+        private final int port;
+
+        private volatile long lastAccess = System.currentTimeMillis();
+
+        /**
+         * 输出了就绪标记时为 true，没有输出标记就结束了时为 false
+         */
+        private final CompletableFuture<Boolean> ready = new CompletableFuture<>();
+
+        PreviewServer(Process process, int port, BuildLog buildLog) {
+            this.process = process;
+            this.port = port;
+            // 持续读取输出，否则管道写满后 vite 会阻塞
+            Thread.ofVirtual().name("vite-preview-" + port).start(() -> {
+                try (BufferedReader reader = new BufferedReader(
+                        new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        if (line.equals(READY_MARKER)) {
+                            ready.complete(true);
+                        } else {
+                            buildLog.append(line);
+                        }
+                    }
+                } catch (IOException e) {
+                    log.debug("读取预览服务输出结束: {}", e.getMessage());
+                } finally {
+                    ready.complete(false);
+                }
+            });
+        }
+
+        void touch() {
+            lastAccess = System.currentTimeMillis();
+        }
+
+        boolean isAlive() {
+            return process.isAlive();
+        }
+
+        void close() {
+            process.destroy();
+            try {
+                if (!process.waitFor(5, TimeUnit.SECONDS)) {
+                    process.destroyForcibly();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                process.destroyForcibly();
+            }
+        }
+    }
+}
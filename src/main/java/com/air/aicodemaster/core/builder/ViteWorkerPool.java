@@ -0,0 +1,300 @@
+package com.air.aicodemaster.core.builder;
+
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+import com.air.aicodemaster.config.VueBuildConfig;
+import com.air.aicodemaster.core.storage.StorageLayout;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Vite 常驻构建进程池
+ * 每次 npm run build 都要启动 Node、加载 vite 和插件、从零构建模块图
+ * 开启后由常驻的 Node 进程（classpath:builder/vite-build-worker.mjs）直接调用 vite 的 build 接口，通过标准输入输出收发请求
+ * 1. 进程数量固定，空闲的进程放在队列中，同一个进程一次只执行一个构建
+ * 2. 一个进程执行了一定数量的构建或者内存占用过大之后回收，下次使用时重新启动
+ * 3. 进程异常（启动失败、超时、退出）时抛出 IOException，调用方退化为 npm run build
+ */
+@Slf4j
+@Component
+public class ViteWorkerPool {
+
+    /**
+     * 响应行的前缀，其他行是 vite 的日志
+     */
+    private static final String MARKER = "@@vite-worker@@ ";
+
+    private static final String SCRIPT_LOCATION = "builder/vite-build-worker.mjs";
+
+    @Resource
+    private VueBuildConfig vueBuildConfig;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    private final BlockingQueue<ViteWorker> idleWorkers = new LinkedBlockingQueue<>();
+
+    private final List<ViteWorker> workers = new ArrayList<>();
+
+    private final AtomicLong requestIds = new AtomicLong();
+
+    private volatile Path scriptFile;
+
+    /**
+     * 是否开启了常驻构建进程
+     */
+    public boolean isEnabled() {
+        return vueBuildConfig.isWorkerPoolEnabled();
+    }
+
+    /**
+     * 使用常驻进程构建项目
+     *
+     * @param projectDir 项目根目录
+     * @param buildLog   构建日志
+     * @return 是否构建成功（vite 报告的构建结果）
+     * @throws IOException 进程不可用，调用方应该退化为 npm run build
+     */
+    public boolean build(File projectDir, BuildLog buildLog) throws IOException {
+        ViteWorker worker = acquire();
+        boolean healthy = false;
+        try {
+            buildLog.append("> vite build（常驻构建进程 " + worker.pid() + "）");
+            JSONObject response = worker.request(projectDir.getAbsolutePath(), buildLog, vueBuildConfig.getBuildTimeoutSeconds());
+            healthy = true;
+            boolean success = response.getBool("success", false);
+            if (!success) {
+                log.error("vite 构建失败: {}, 错误信息: {}", projectDir, response.getStr("error"));
+            }
+            recordBuild(success ? "success" : "failure");
+            worker.updateUsage(response.getLong("rss", 0L));
+            return success;
+        } finally {
+            release(worker, healthy);
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        synchronized (workers) {
+            workers.forEach(ViteWorker::close);
+            workers.clear();
+        }
+        idleWorkers.clear();
+    }
+
+    /**
+     * 获取空闲的进程，没有空闲进程并且数量没有达到上限时启动新进程，否则等待
+     */
+    private ViteWorker acquire() throws IOException {
+        ViteWorker worker = idleWorkers.poll();
+        if (worker != null) {
+            return worker;
+        }
+        synchronized (workers) {
+            if (workers.size() < vueBuildConfig.getWorkerPoolSize()) {
+                worker = startWorker();
+                workers.add(worker);
+                return worker;
+            }
+        }
+        try {
+            worker = idleWorkers.poll(vueBuildConfig.getBuildTimeoutSeconds(), TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("等待构建进程时被中断", e);
+        }
+        if (worker == null) {
+            throw new IOException("等待空闲的构建进程超时");
+        }
+        return worker;
+    }
+
+    /**
+     * 归还进程，异常或者达到回收条件的进程直接关闭
+     */
+    private void release(ViteWorker worker, boolean healthy) {
+        long maxMemoryBytes = vueBuildConfig.getMaxWorkerMemoryMb() * 1024L * 1024L;
+        boolean recycle = !healthy
+                || worker.builds >= vueBuildConfig.getMaxBuildsPerWorker()
+                || worker.rss > maxMemoryBytes;
+        if (!recycle && worker.isAlive()) {
+            idleWorkers.offer(worker);
+            return;
+        }
+        log.info("回收构建进程 {}，已构建 {} 次，内存 {} MB", worker.pid(), worker.builds, worker.rss / 1024 / 1024);
+        recordBuild("recycled");
+        synchronized (workers) {
+            workers.remove(worker);
+        }
+        worker.close();
+    }
+
+    private ViteWorker startWorker() throws IOException {
+        Process process = new ProcessBuilder("node", ensureScript().toString())
+                .redirectErrorStream(true)
+                .start();
+        ViteWorker worker = new ViteWorker(process);
+        try {
+            // 等待进程就绪
+            worker.await(0, 30);
+        } catch (IOException e) {
+            worker.close();
+            throw e;
+        }
+        log.info("已启动构建进程 {}", worker.pid());
+        return worker;
+    }
+
+    /**
+     * 把脚本从 classpath 复制到存储目录，node 只能执行文件系统中的脚本
+     */
+    private Path ensureScript() throws IOException {
+        Path script = scriptFile;
+        if (script != null && Files.isRegularFile(script)) {
+            return script;
+        }
+        synchronized (this) {
+            script = StorageLayout.getOutputRoot().resolve(".workers").resolve("vite-build-worker.mjs");
+            Files.createDirectories(script.getParent());
+            try (InputStream inputStream = new ClassPathResource(SCRIPT_LOCATION).getInputStream()) {
+                Files.copy(inputStream, script, StandardCopyOption.REPLACE_EXISTING);
+            }
+            scriptFile = script;
+            return script;
+        }
+    }
+
+    private void recordBuild(String outcome) {
+        Counter.builder("vue.build.worker")
+                .description("常驻构建进程的构建次数和回收次数")
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    /**
+     * 一个常驻构建进程
+     */
+    private class ViteWorker {
+
+        private final Process process;
+
+        private final Writer writer;
+
+        /**
+         * 请求 ID -> 等待中的响应，只会有一个
+         */
+        private final ConcurrentMap<Long, CompletableFuture<JSONObject>> pending = new ConcurrentHashMap<>();
+
+        /**
+         * 当前构建的日志，vite 的输出写入这里
+         */
+        private volatile BuildLog buildLog;
+
+        private int builds;
+
+        private long rss;
+
+        ViteWorker(Process process) {
+            this.process = process;
+            this.writer = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8));
+            pending.put(0L, new CompletableFuture<>());
+            Thread.ofVirtual().name("vite-worker-" + process.pid()).start(this::readOutput);
+        }
+
+        JSONObject request(String projectDir, BuildLog buildLog, int timeoutSeconds) throws IOException {
+            long id = requestIds.incrementAndGet();
+            pending.put(id, new CompletableFuture<>());
+            this.buildLog = buildLog;
+            try {
+                writer.write(JSONUtil.toJsonStr(new JSONObject().set("id", id).set("projectDir", projectDir)));
+                writer.write('\n');
+                writer.flush();
+                JSONObject response = await(id, timeoutSeconds);
+                builds++;
+                return response;
+            } finally {
+                this.buildLog = null;
+            }
+        }
+
+        JSONObject await(long id, int timeoutSeconds) throws IOException {
+            try {
+                return pending.get(id).get(timeoutSeconds, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("等待构建进程响应时被中断", e);
+            } catch (ExecutionException | TimeoutException e) {
+                throw new IOException("构建进程没有响应: " + e, e);
+            } finally {
+                pending.remove(id);
+            }
+        }
+
+        void updateUsage(long rss) {
+            this.rss = rss;
+        }
+
+        private void readOutput() {
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.startsWith(MARKER)) {
+                        JSONObject response = JSONUtil.parseObj(line.substring(MARKER.length()));
+                        CompletableFuture<JSONObject> future = pending.get(response.getLong("id"));
+                        if (future != null) {
+                            future.complete(response);
+                        }
+                    } else if (!line.isEmpty() && buildLog != null) {
+                        buildLog.append(line);
+                    }
+                }
+            } catch (IOException e) {
+                log.debug("读取构建进程输出结束: {}", e.getMessage());
+            }
+            // 进程退出，等待中的请求全部失败
+            pending.values().forEach(future -> future.completeExceptionally(new IOException("构建进程已退出")));
+        }
+
+        boolean isAlive() {
+            return process.isAlive();
+        }
+
+        long pid() {
+            return process.pid();
+        }
+
+        void close() {
+            try {
+                writer.close();
+            } catch (IOException ignored) {
+            }
+            process.destroy();
+            try {
+                if (!process.waitFor(5, TimeUnit.SECONDS)) {
+                    process.destroyForcibly();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                process.destroyForcibly();
+            }
+        }
+    }
+}
@@ -0,0 +1,301 @@
+package com.air.aicodemaster.core.builder;
+
+import com.air.aicodemaster.config.VueBuildConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Vue 项目构建调度
+ * 以前每次生成完成都新开一个虚拟线程执行 npm，没有全局的并发限制，部署时还会在同一个目录上再同步构建一次
+ * 现在所有构建都通过这里提交：
+ * 1. 固定数量的构建线程，默认和 CPU 核数相同，超出的构建排队
+ * 2. 同一个项目同时最多一个正在执行的构建和一个排队的构建，排队期间的新请求合并到排队的构建中
+ *    （构建执行时才读取项目文件，排队的构建总是构建最新的代码），正在执行的构建结束后排队的构建才开始，同一个目录不会并行构建
+ * 3. 部署时如果项目已经有正在执行或者排队的构建，直接等待它的结果，不再另外构建
+ * 4. 部署的发布操作挂在它等待的构建上，由构建线程在构建结束、让出项目之前执行，发布期间排队的构建不会开始清空 dist
+ */
+@Slf4j
+@Component
+public class VueBuildScheduler {
+
+    @Resource
+    private VueProjectBuilder vueProjectBuilder;
+
+    @Resource
+    private VueBuildConfig vueBuildConfig;
+
+    @Resource
+    private BuildLogManager buildLogManager;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    /**
+     * 项目路径 -> 项目的构建状态，只能在 synchronized (builds) 中访问
+     */
+    private final Map<String, ProjectBuilds> builds = new HashMap<>();
+
+    private ExecutorService executor;
+
+    @PostConstruct
+    public void init() {
+        int workers = vueBuildConfig.getMaxConcurrentBuilds() > 0
+                ? vueBuildConfig.getMaxConcurrentBuilds()
+                : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "vue-builder-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        Gauge.builder("vue.build.pending", this, VueBuildScheduler::getPendingCount)
+                .description("排队和正在执行的 Vue 项目构建数量")
+                .register(meterRegistry);
+        log.info("Vue 项目构建线程数: {}", workers);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 提交构建，项目代码有修改之后调用
+     * 项目已经有排队的构建时直接复用，有正在执行的构建时排在它之后（正在执行的构建可能没有包含最新的修改）
+     *
+     * @param projectPath 项目根目录路径
+     * @return 构建结果
+     */
+    public CompletableFuture<Boolean> submit(String projectPath) {
+        return request(projectPath, false, null);
+    }
+
+    /**
+     * 构建并等待结果
+     *
+     * @param projectPath 项目根目录路径
+     * @return 是否构建成功，超时也返回 false
+     */
+    public boolean buildAndWait(String projectPath) {
+        return buildAndRun(projectPath, () -> true) != null;
+    }
+
+    /**
+     * 构建成功后在同一个构建槽位中执行操作并等待结果，部署时用来发布 dist
+     * 项目已经有正在执行或者排队的构建时等待它完成，不再另外构建；操作执行完之前这个项目排队的构建不会开始
+     *
+     * @param projectPath 项目根目录路径
+     * @param action      构建成功后执行的操作
+     * @return 操作的结果，构建失败或者超时返回 null
+     */
+    public <T> T buildAndRun(String projectPath, Supplier<T> action) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        CompletableFuture<Boolean> build = request(projectPath, true, success -> {
+            // 等待已经超时的部署不再执行操作
+            if (result.isDone()) {
+                return;
+            }
+            if (!success) {
+                result.complete(null);
+                return;
+            }
+            try {
+                result.complete(action.get());
+            } catch (Exception e) {
+                result.completeExceptionally(e);
+            }
+        });
+        // 最坏的情况：等待正在执行的构建，再执行一次完整构建
+        long timeoutSeconds = 2L * (vueBuildConfig.getInstallTimeoutSeconds() + vueBuildConfig.getBuildTimeoutSeconds());
+        try {
+            // 构建的结果在让出项目之后才完成，返回时项目已经可以开始下一个构建
+            return build.thenCompose(success -> result).get(timeoutSeconds, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result.cancel(false);
+            return null;
+        } catch (TimeoutException e) {
+            log.error("等待 Vue 项目构建超时: {}", projectPath);
+            result.cancel(false);
+            return null;
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * @param afterBuild 构建结束后由构建线程执行的操作，参数为是否构建成功，执行完之前不会开始下一个构建
+     */
+    private CompletableFuture<Boolean> request(String projectPath, boolean reuseRunning, Consumer<Boolean> afterBuild) {
+        String key = Paths.get(projectPath).toAbsolutePath().normalize().toString();
+        synchronized (builds) {
+            ProjectBuilds projectBuilds = builds.computeIfAbsent(key, k -> new ProjectBuilds());
+            if (projectBuilds.queued != null) {
+                recordRequest("merged");
+                addAction(projectBuilds.queuedActions, afterBuild);
+                return projectBuilds.queued;
+            }
+            if (reuseRunning && projectBuilds.running != null) {
+                recordRequest("reused");
+                addAction(projectBuilds.runningActions, afterBuild);
+                return projectBuilds.running;
+            }
+            projectBuilds.queued = new CompletableFuture<>();
+            addAction(projectBuilds.queuedActions, afterBuild);
+            // 排队时就创建构建日志，客户端可以马上订阅构建进度
+            projectBuilds.queuedLog = buildLogManager.start(key);
+            if (projectBuilds.running == null) {
+                // 没有正在执行的构建，直接交给构建线程；否则等正在执行的构建结束后再提交
+                dispatch(key, projectBuilds);
+            }
+            recordRequest("queued");
+            return projectBuilds.queued;
+        }
+    }
+
+    /**
+     * 把排队的构建交给构建线程，调用方需要持有 builds 的锁
+     */
+    private void dispatch(String key, ProjectBuilds projectBuilds) {
+        CompletableFuture<Boolean> future = projectBuilds.queued;
+        BuildLog buildLog = projectBuilds.queuedLog;
+        try {
+            executor.execute(() -> run(key, future, buildLog));
+        } catch (RejectedExecutionException e) {
+            List<Consumer<Boolean>> actions = new ArrayList<>(projectBuilds.queuedActions);
+            projectBuilds.queued = null;
+            projectBuilds.queuedLog = null;
+            projectBuilds.queuedActions.clear();
+            buildLogManager.finish(buildLog, false);
+            future.complete(false);
+            actions.forEach(action -> action.accept(false));
+        }
+    }
+
+    private void run(String key, CompletableFuture<Boolean> future, BuildLog buildLog) {
+        synchronized (builds) {
+            ProjectBuilds projectBuilds = builds.get(key);
+            // 开始执行之后，新的请求不能再合并到这个构建中
+            projectBuilds.queued = null;
+            projectBuilds.queuedLog = null;
+            projectBuilds.running = future;
+            projectBuilds.runningActions.addAll(projectBuilds.queuedActions);
+            projectBuilds.queuedActions.clear();
+        }
+        boolean success = false;
+        try {
+            success = vueProjectBuilder.buildProject(key, buildLog);
+        } catch (Exception e) {
+            log.error("构建 Vue 项目时发生异常: {}", e.getMessage(), e);
+        } finally {
+            buildLogManager.finish(buildLog, success);
+            runActionsAndRelease(key, success);
+            future.complete(success);
+        }
+    }
+
+    /**
+     * 执行挂在正在执行的构建上的操作，执行期间仍然占用项目，新挂上的操作也会执行，全部执行完才开始排队的构建
+     */
+    private void runActionsAndRelease(String key, boolean success) {
+        while (true) {
+            List<Consumer<Boolean>> actions;
+            synchronized (builds) {
+                ProjectBuilds projectBuilds = builds.get(key);
+                if (projectBuilds.runningActions.isEmpty()) {
+                    projectBuilds.running = null;
+                    if (projectBuilds.queued != null) {
+                        dispatch(key, projectBuilds);
+                    } else {
+                        builds.remove(key);
+                    }
+                    return;
+                }
+                actions = new ArrayList<>(projectBuilds.runningActions);
+                projectBuilds.runningActions.clear();
+            }
+            for (Consumer<Boolean> action : actions) {
+                try {
+                    action.accept(success);
+                } catch (Exception e) {
+                    log.error("执行构建后的操作失败: {}, 错误信息: {}", key, e.getMessage(), e);
+                }
+            }
+        }
+    }
+
+    private static void addAction(List<Consumer<Boolean>> actions, Consumer<Boolean> action) {
+        if (action != null) {
+            actions.add(action);
+        }
+    }
+
+    /**
+     * 当前排队和正在执行的构建数量
+     */
+    public int getPendingCount() {
+        synchronized (builds) {
+            return builds.values().stream()
+                    .mapToInt(projectBuilds -> (projectBuilds.queued != null ? 1 : 0) + (projectBuilds.running != null ? 1 : 0))
+                    .sum();
+        }
+    }
+
+    private void recordRequest(String outcome) {
+        Counter.builder("vue.build.requests")
+                .description("Vue 项目构建请求，merged 和 reused 表示复用了已有的构建")
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    /**
+     * 一个项目的构建状态
+     */
+    private static class ProjectBuilds {
+
+        /**
+         * 正在执行的构建
+         */
+        private CompletableFuture<Boolean> running;
+
+        /**
+         * 排队等待执行的构建
+         */
+        private CompletableFuture<Boolean> queued;
+
+        /**
+         * 排队的构建的日志
+         */
+        private BuildLog queuedLog;
+
+        /**
+         * 正在执行的构建结束后要执行的操作
+         */
+        private final List<Consumer<Boolean>> runningActions = new ArrayList<>();
+
+        /**
+         * 排队的构建结束后要执行的操作
+         */
+        private final List<Consumer<Boolean>> queuedActions = new ArrayList<>();
+    }
+}
@@ -0,0 +1,127 @@
+package com.air.aicodemaster.core.deploy;
+
+import cn.hutool.crypto.digest.DigestUtil;
+import cn.hutool.json.JSONUtil;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * 部署清单
+ * 记录一个部署版本中每个文件的路径、大小和内容哈希，下一次部署时和当前版本的清单比较，
+ * 没有变化的文件直接链接当前版本中的文件，只有新增和修改的文件需要从源目录写入
+ * 清单保存在版本目录旁边 {deployRoot}/.versions/{deployKey}/{版本号}.json，不放在版本目录中，不会被访问到
+ */
+@Slf4j
+@Data
+public class DeployManifest {
+
+    /**
+     * 文件列表，按路径排序
+     */
+    private List<FileEntry> files = new ArrayList<>();
+
+    /**
+     * 和上一个版本相比新增或修改的文件数量
+     */
+    private int changedCount;
+
+    /**
+     * 文件的总大小（字节）
+     */
+    private long totalBytes;
+
+    /**
+     * 计算目录中所有文件的哈希
+     */
+    public static DeployManifest compute(Path dir) throws IOException {
+        List<Path> paths;
+        try (Stream<Path> stream = Files.walk(dir)) {
+            paths = stream.filter(Files::isRegularFile).toList();
+        }
+        DeployManifest manifest = new DeployManifest();
+        for (Path path : paths) {
+            FileEntry entry = new FileEntry();
+            entry.setPath(dir.relativize(path).toString().replace('\\', '/'));
+            entry.setSize(Files.size(path));
+            try (InputStream inputStream = Files.newInputStream(path)) {
+                entry.setHash(DigestUtil.sha256Hex(inputStream));
+            }
+            manifest.files.add(entry);
+            manifest.totalBytes += entry.getSize();
+        }
+        manifest.files.sort((a, b) -> a.getPath().compareTo(b.getPath()));
+        return manifest;
+    }
+
+    /**
+     * 读取清单
+     *
+     * @return 清单，没有或者读取失败时返回 null
+     */
+    public static DeployManifest read(Path manifestFile) {
+        if (!Files.isRegularFile(manifestFile)) {
+            return null;
+        }
+        try {
+            return JSONUtil.toBean(Files.readString(manifestFile), DeployManifest.class);
+        } catch (Exception e) {
+            log.warn("读取部署清单失败: {}, 错误信息: {}", manifestFile, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 保存清单
+     */
+    public void write(Path manifestFile) throws IOException {
+        Files.createDirectories(manifestFile.getParent());
+        Files.writeString(manifestFile, JSONUtil.toJsonStr(this));
+    }
+
+    /**
+     * 路径 -> 文件信息
+     */
+    public Map<String, FileEntry> toMap() {
+        Map<String, FileEntry> map = new HashMap<>(files.size() * 2);
+        for (FileEntry file : files) {
+            map.put(file.getPath(), file);
+        }
+        return map;
+    }
+
+    /**
+     * 一个文件的信息
+     */
+    @Data
+    public static class FileEntry {
+
+        /**
+         * 相对版本目录的路径，使用 / 分隔
+         */
+        private String path;
+
+        private long size;
+
+        /**
+         * 内容的 SHA-256
+         */
+        private String hash;
+
+        /**
+         * 内容是否和另一个文件相同
+         */
+        public boolean sameContent(FileEntry other) {
+            return other != null && size == other.size && hash.equals(other.hash);
+        }
+    }
+}
@@ -0,0 +1,340 @@
+package com.air.aicodemaster.core.deploy;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.RandomUtil;
+import com.air.aicodemaster.config.DeployConfig;
+import com.air.aicodemaster.core.storage.BlobStore;
+import com.air.aicodemaster.core.storage.Precompressor;
+import com.air.aicodemaster.core.storage.StorageLayout;
+import com.air.aicodemaster.model.vo.DeployVersionVO;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * 部署版本管理
+ * 以前部署直接覆盖 {deployRoot}/{deployKey}，访问者可能看到复制了一半的网站，也没有办法回滚
+ * 现在每次部署写入一个新的版本目录 {deployRoot}/.versions/{deployKey}/{版本号}，写完之后不再修改
+ * {deployRoot}/{deployKey} 是指向当前版本的符号链接，切换版本时先创建新的链接再重命名覆盖，访问者只会看到旧版本或者新版本
+ * 1. 历史版本保留 deploy.retain-versions 个，可以立即回滚，更早的版本定时清理
+ * 2. 文件系统不支持符号链接时（比如没有权限的 Windows），退化为把版本中的文件链接到部署目录中
+ * 3. 旧的部署目录（真实目录）在第一次发布新版本时移动到版本目录中，作为一个历史版本保留
+ * 4. 每个版本有一份部署清单（{@link DeployManifest}），发布时只写入和当前版本相比新增或修改的文件
+ * 5. 文本文件在版本目录中生成 .gz 压缩文件（{@link Precompressor}），Web 服务器可以直接返回压缩文件
+ */
+@Slf4j
+@Component
+public class DeployVersionManager {
+
+    /**
+     * 版本号：部署时间（精确到毫秒）-随机后缀，按字符串排序就是按时间排序
+     */
+    private static final Pattern VERSION_ID_PATTERN = Pattern.compile("^\\d{17}-[a-zA-Z0-9]{4}$");
+
+    private static final DateTimeFormatter VERSION_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMddHHmmssSSS");
+
+    /**
+     * 写入中的版本目录超过这个时间还在，说明发布中断了，可以清理
+     */
+    private static final Duration STALE_STAGING = Duration.ofHours(1);
+
+    @Resource
+    private DeployConfig deployConfig;
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    /**
+     * 发布新版本并切换为当前版本
+     * 和当前版本的部署清单比较，没有变化的文件直接链接当前版本中的文件，只写入新增和修改的文件
+     *
+     * @param deployKey 部署标识
+     * @param sourceDir 要部署的目录（Vue 项目的 dist 或者应用目录）
+     * @return 新版本号
+     */
+    public String publish(String deployKey, Path sourceDir) throws IOException {
+        long start = System.nanoTime();
+        Path versionRoot = StorageLayout.getDeployVersionRoot(deployKey);
+        String versionId = LocalDateTime.now().format(VERSION_TIME_FORMATTER) + "-" + RandomUtil.randomString(4);
+        Path staging = versionRoot.resolve("." + versionId + ".staging");
+        DeployManifest manifest = DeployManifest.compute(sourceDir);
+        String activeVersion = getActiveVersion(deployKey);
+        DeployManifest activeManifest = activeVersion == null ? null : DeployManifest.read(getManifestFile(deployKey, activeVersion));
+        Map<String, DeployManifest.FileEntry> activeFiles = activeManifest == null ? Map.of() : activeManifest.toMap();
+        Path activeDir = activeVersion == null ? null : versionRoot.resolve(activeVersion);
+        int changed = 0;
+        try {
+            // 先在临时目录中写完，再重命名为版本目录，版本目录总是完整的
+            Files.createDirectories(staging);
+            Map<String, DeployManifest.FileEntry> sourceFiles = manifest.toMap();
+            for (DeployManifest.FileEntry file : manifest.getFiles()) {
+                Path target = staging.resolve(file.getPath());
+                Path activeFile = activeDir == null ? null : activeDir.resolve(file.getPath());
+                boolean unchanged = file.sameContent(activeFiles.get(file.getPath())) && Files.isRegularFile(activeFile);
+                if (unchanged) {
+                    // 没有变化，链接当前版本的文件，当前版本和新版本在同一个文件系统中，总是可以创建硬链接
+                    BlobStore.link(activeFile, target);
+                } else {
+                    BlobStore.link(sourceDir.resolve(file.getPath()), target);
+                    changed++;
+                }
+                // 预压缩，源目录中已经有压缩文件时直接使用；没有变化的文件复用当前版本的压缩文件
+                if (Precompressor.isVariant(file.getPath()) || sourceFiles.containsKey(file.getPath() + ".gz")) {
+                    continue;
+                }
+                Path activeGzip = activeFile == null ? null : Precompressor.gzipOf(activeFile);
+                if (unchanged && Files.isRegularFile(activeGzip)) {
+                    BlobStore.link(activeGzip, Precompressor.gzipOf(target));
+                } else {
+                    Precompressor.compress(target);
+                }
+            }
+            manifest.setChangedCount(changed);
+            // 清单先于版本目录写入，存在的版本目录一定有清单
+            manifest.write(getManifestFile(deployKey, versionId));
+            Files.move(staging, versionRoot.resolve(versionId), StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            if (Files.exists(staging)) {
+                FileUtil.del(staging);
+            }
+        }
+        activate(deployKey, versionId);
+        recordPublish(start, manifest.getFiles().size(), changed);
+        log.info("部署 {} 发布新版本 {}，共 {} 个文件，新增或修改 {} 个", deployKey, versionId, manifest.getFiles().size(), changed);
+        return versionId;
+    }
+
+    /**
+     * 切换当前版本，用于回滚
+     *
+     * @param deployKey 部署标识
+     * @param versionId 版本号
+     * @throws NoSuchFileException 版本不存在
+     */
+    public void activate(String deployKey, String versionId) throws IOException {
+        Path versionDir = getVersionDir(deployKey, versionId);
+        if (versionDir == null || !Files.isDirectory(versionDir)) {
+            throw new NoSuchFileException("部署版本不存在: " + versionId);
+        }
+        Path live = StorageLayout.getDeployDir(deployKey);
+        Files.createDirectories(live.getParent());
+        Path tempLink = live.resolveSibling("." + deployKey + "." + RandomUtil.randomString(8) + ".link");
+        try {
+            try {
+                // 使用相对路径，部署根目录整体移动后链接仍然有效
+                Files.createSymbolicLink(tempLink, live.getParent().relativize(versionDir));
+            } catch (UnsupportedOperationException | FileSystemException e) {
+                log.warn("创建符号链接失败，直接链接文件到部署目录: {}", e.getMessage());
+                BlobStore.linkTree(versionDir, live);
+                recordActivation("fallback");
+                return;
+            }
+            if (Files.isDirectory(live, LinkOption.NOFOLLOW_LINKS)) {
+                migrateLegacyDir(deployKey, live);
+            }
+            Files.move(tempLink, live, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            recordActivation("symlink");
+        } finally {
+            Files.deleteIfExists(tempLink);
+        }
+    }
+
+    /**
+     * 获取当前版本号
+     *
+     * @return 当前版本号，没有部署或者部署目录不是符号链接时返回 null
+     */
+    public String getActiveVersion(String deployKey) {
+        Path live = StorageLayout.getDeployDir(deployKey);
+        if (!Files.isSymbolicLink(live)) {
+            return null;
+        }
+        try {
+            return Files.readSymbolicLink(live).getFileName().toString();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 列出部署的所有版本，按部署时间倒序
+     */
+    public List<DeployVersionVO> listVersions(String deployKey) throws IOException {
+        Path versionRoot = StorageLayout.getDeployVersionRoot(deployKey);
+        if (!Files.isDirectory(versionRoot)) {
+            return new ArrayList<>();
+        }
+        String activeVersion = getActiveVersion(deployKey);
+        List<DeployVersionVO> versions = new ArrayList<>();
+        for (String versionId : listVersionIds(versionRoot)) {
+            DeployVersionVO version = new DeployVersionVO();
+            version.setVersionId(versionId);
+            version.setDeployedTime(LocalDateTime.parse(versionId.substring(0, 17), VERSION_TIME_FORMATTER));
+            DeployManifest manifest = DeployManifest.read(getManifestFile(deployKey, versionId));
+            if (manifest != null) {
+                version.setFileCount(manifest.getFiles().size());
+                version.setChangedFileCount(manifest.getChangedCount());
+                version.setTotalBytes(manifest.getTotalBytes());
+            } else {
+                // 旧的部署目录迁移过来的版本没有清单
+                version.setFileCount(countFiles(versionRoot.resolve(versionId)));
+            }
+            version.setActive(versionId.equals(activeVersion));
+            versions.add(version);
+        }
+        return versions;
+    }
+
+    /**
+     * 定时清理历史版本，保留当前版本和最近的 deploy.retain-versions 个版本
+     */
+    @Scheduled(initialDelay = 15 * 60 * 1000, fixedDelay = 6 * 60 * 60 * 1000)
+    public void collectOldVersions() {
+        Path versionsRoot = StorageLayout.getDeployRoot().resolve(".versions");
+        if (!Files.isDirectory(versionsRoot)) {
+            return;
+        }
+        List<Path> versionRoots;
+        try (Stream<Path> stream = Files.list(versionsRoot)) {
+            versionRoots = stream.filter(Files::isDirectory).toList();
+        } catch (IOException e) {
+            log.error("清理部署版本失败", e);
+            return;
+        }
+        int removed = 0;
+        for (Path versionRoot : versionRoots) {
+            try {
+                removed += collectOldVersions(versionRoot.getFileName().toString());
+            } catch (IOException e) {
+                log.error("清理部署 {} 的历史版本失败", versionRoot.getFileName(), e);
+            }
+        }
+        log.info("部署版本清理完成，删除 {} 个历史版本", removed);
+    }
+
+    /**
+     * 清理一个部署的历史版本
+     *
+     * @return 删除的版本数量
+     */
+    int collectOldVersions(String deployKey) throws IOException {
+        Path versionRoot = StorageLayout.getDeployVersionRoot(deployKey);
+        String activeVersion = getActiveVersion(deployKey);
+        int removed = 0;
+        int kept = 0;
+        for (String versionId : listVersionIds(versionRoot)) {
+            if (versionId.equals(activeVersion)) {
+                continue;
+            }
+            if (kept < deployConfig.getRetainVersions()) {
+                kept++;
+                continue;
+            }
+            FileUtil.del(versionRoot.resolve(versionId));
+            Files.deleteIfExists(getManifestFile(deployKey, versionId));
+            removed++;
+        }
+        // 中断的发布留下的临时目录
+        Instant staleBefore = Instant.now().minus(STALE_STAGING);
+        try (Stream<Path> stream = Files.list(versionRoot)) {
+            for (Path staging : stream.filter(path -> path.getFileName().toString().endsWith(".staging")).toList()) {
+                if (Files.getLastModifiedTime(staging).toInstant().isBefore(staleBefore)) {
+                    FileUtil.del(staging);
+                }
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * 版本目录，版本号不合法时返回 null
+     */
+    private Path getVersionDir(String deployKey, String versionId) {
+        if (versionId == null || !VERSION_ID_PATTERN.matcher(versionId).matches()) {
+            return null;
+        }
+        return StorageLayout.getDeployVersionRoot(deployKey).resolve(versionId);
+    }
+
+    private Path getManifestFile(String deployKey, String versionId) {
+        return StorageLayout.getDeployVersionRoot(deployKey).resolve(versionId + ".json");
+    }
+
+    /**
+     * 把旧的部署目录移动到版本目录中，之后部署目录就可以替换为符号链接
+     * 移动和创建链接之间部署目录短暂不存在，只会发生一次
+     */
+    private void migrateLegacyDir(String deployKey, Path live) throws IOException {
+        String versionId = LocalDateTime.ofInstant(Files.getLastModifiedTime(live).toInstant(), ZoneId.systemDefault())
+                .format(VERSION_TIME_FORMATTER) + "-" + RandomUtil.randomString(4);
+        Path versionDir = StorageLayout.getDeployVersionRoot(deployKey).resolve(versionId);
+        Files.createDirectories(versionDir.getParent());
+        Files.move(live, versionDir, StandardCopyOption.ATOMIC_MOVE);
+        log.info("部署 {} 的旧部署目录已保存为历史版本 {}", deployKey, versionId);
+    }
+
+    /**
+     * 版本号列表，按部署时间倒序
+     */
+    private List<String> listVersionIds(Path versionRoot) throws IOException {
+        if (!Files.isDirectory(versionRoot)) {
+            return new ArrayList<>();
+        }
+        try (Stream<Path> stream = Files.list(versionRoot)) {
+            return stream.map(path -> path.getFileName().toString())
+                    .filter(name -> VERSION_ID_PATTERN.matcher(name).matches())
+                    .sorted(Comparator.reverseOrder())
+                    .toList();
+        }
+    }
+
+    private int countFiles(Path versionDir) throws IOException {
+        try (Stream<Path> stream = Files.walk(versionDir)) {
+            return (int) stream.filter(Files::isRegularFile).count();
+        }
+    }
+
+    private void recordPublish(long startNanos, int fileCount, int changedCount) {
+        Timer.builder("deploy.publish.duration")
+                .description("发布部署版本的耗时，包括计算哈希、写入版本目录和切换版本")
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(Duration.ofNanos(System.nanoTime() - startNanos));
+        recordFiles("reused", fileCount - changedCount);
+        recordFiles("changed", changedCount);
+    }
+
+    private void recordFiles(String result, int count) {
+        Counter.builder("deploy.publish.files")
+                .description("发布部署版本的文件数量，reused 是链接了上一个版本的文件，changed 是新增或修改的文件")
+                .tag("result", result)
+                .register(meterRegistry)
+                .increment(count);
+    }
+
+    private void recordActivation(String mode) {
+        Counter.builder("deploy.activations")
+                .description("部署版本切换次数，symlink 是原子切换，fallback 是不支持符号链接时直接链接文件")
+                .tag("mode", mode)
+                .register(meterRegistry)
+                .increment();
+    }
+}
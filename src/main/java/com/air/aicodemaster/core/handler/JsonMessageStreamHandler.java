@@ -6,8 +6,9 @@ import cn.hutool.json.JSONUtil;
 import com.air.aicodemaster.ai.model.message.*;
 import com.air.aicodemaster.ai.tools.BaseTool;
 import com.air.aicodemaster.ai.tools.ToolManager;
-import com.air.aicodemaster.constant.AppConstant;
-import com.air.aicodemaster.core.builder.VueProjectBuilder;
+import com.air.aicodemaster.core.builder.VitePreviewManager;
+import com.air.aicodemaster.core.builder.VueBuildScheduler;
+import com.air.aicodemaster.core.workspace.ProjectWorkspaceManager;
 import com.air.aicodemaster.model.entity.User;
 import com.air.aicodemaster.model.enums.ChatHistoryMessageTypeEnum;
 import com.air.aicodemaster.service.ChatHistoryService;
@@ -28,11 +29,17 @@ import java.util.Set;
 public class JsonMessageStreamHandler {
 
     @Resource
-    private VueProjectBuilder vueProjectBuilder;
+    private VueBuildScheduler vueBuildScheduler;
+
+    @Resource
+    private VitePreviewManager vitePreviewManager;
 
     @Resource
     private ToolManager toolManager;
 
+    @Resource
+    private ProjectWorkspaceManager projectWorkspaceManager;
+
     /**
      * 处理 TokenStream（VUE_PROJECT）
      * 解析 JSON 消息并重组为完整的响应格式
@@ -61,11 +68,15 @@ public class JsonMessageStreamHandler {
                     String aiResponse = chatHistoryStringBuilder.toString();
                     chatHistoryService.addChatMessage(appId, aiResponse, ChatHistoryMessageTypeEnum.AI.getValue(), loginUser.getId());
 
+                    // 有实时预览的应用，修改已经通过 HMR 推送到预览页面，生产构建等到部署时再执行
+                    if (vitePreviewManager.touch(appId)) {
+                        return;
+                    }
                     // 最后将生成的代码，打包构建成 VUE 项目，可以实现浏览
-                    String projectPath = AppConstant.CODE_OUTPUT_ROOT_DIR + "/" + "vue_project_" + appId;
-                    // 打包构建异步执行不阻塞主线程，假如有非常多的线程阻塞在这里打包了，假如刚好网络有问题，依赖安装不了，那不就是所有的请求都会卡在这个异步构造了，更安全稳定一些
+                    String projectPath = projectWorkspaceManager.getProjectRoot(appId).toString();
+                    // 打包构建异步执行不阻塞主线程，交给构建调度排队执行，连续生成时排队的构建会合并
                     // 缺点是：不知道什么时候异步执行完成了，前端可能没有办法做到实时的更新最新网站的浏览，后续做一些调整
-                    vueProjectBuilder.buildProjectAsync(projectPath);
+                    vueBuildScheduler.submit(projectPath);
                 })
                 .doOnError(error -> {
                     // 如果AI回复失败，也要记录错误消息
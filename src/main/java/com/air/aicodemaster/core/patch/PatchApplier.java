@@ -0,0 +1,283 @@
+package com.air.aicodemaster.core.patch;
+
+import cn.hutool.core.util.StrUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 补丁应用器
+ * 支持统一 diff 格式（unified diff）的补丁，一个补丁可以包含多个 hunk，每个 hunk 以 @@ 开头：
+ * 以空格开头的是上下文行，以 - 开头的是删除行，以 + 开头的是新增行
+ * @@ 后面的行号可以省略，省略时只依靠上下文行和删除行定位（锚定），没有 @@ 时整个补丁作为一个 hunk
+ * 定位时依次尝试：完全匹配、忽略行尾空白、忽略行首行尾空白，大模型输出的缩进经常和原文件不一致
+ * 所有 hunk 都基于原始内容一次性定位，全部定位成功才会生成新内容，否则返回每个失败 hunk 的原因，不修改文件
+ */
+public class PatchApplier {
+
+    private static final Pattern HUNK_HEADER_PATTERN = Pattern.compile("^@@\\s*-(\\d+)(?:,\\d+)?(?:\\s+\\+\\d+(?:,\\d+)?)?\\s*@@.*$");
+
+    /**
+     * 匹配时对行内容的处理方式，按顺序逐级放宽
+     */
+    private enum MatchMode {
+        EXACT,
+        IGNORE_TRAILING_WHITESPACE,
+        IGNORE_SURROUNDING_WHITESPACE;
+
+        String apply(String line) {
+            return switch (this) {
+                case EXACT -> line;
+                case IGNORE_TRAILING_WHITESPACE -> StrUtil.trimEnd(line);
+                case IGNORE_SURROUNDING_WHITESPACE -> line.trim();
+            };
+        }
+    }
+
+    /**
+     * 一个 hunk
+     *
+     * @param number    hunk 序号，从 1 开始
+     * @param startLine 原文件中的起始行号（从 1 开始，纯新增时可以为 0），没有行号时为 -1
+     * @param lines     hunk 中的所有行，保留前缀字符
+     */
+    record Hunk(int number, int startLine, List<String> lines) {
+
+        List<String> oldLines() {
+            return lines.stream().filter(line -> line.charAt(0) != '+').map(line -> line.substring(1)).toList();
+        }
+    }
+
+    /**
+     * hunk 在原内容中的定位结果
+     */
+    private record Located(Hunk hunk, int start, int length) {
+    }
+
+    /**
+     * 补丁应用结果
+     *
+     * @param content      应用补丁后的内容，失败时为 null
+     * @param appliedHunks 成功应用的 hunk 数量
+     * @param errors       每个失败 hunk 的原因
+     */
+    public record PatchResult(String content, int appliedHunks, List<String> errors) {
+
+        public boolean isSuccess() {
+            return errors.isEmpty();
+        }
+    }
+
+    /**
+     * 将补丁应用到内容上
+     *
+     * @param original 原始内容
+     * @param patch    补丁内容
+     * @return 应用结果
+     */
+    public static PatchResult apply(String original, String patch) {
+        List<Hunk> hunks = parse(patch);
+        if (hunks.isEmpty()) {
+            return new PatchResult(null, 0, List.of("补丁中没有任何修改内容"));
+        }
+        String lineSeparator = original.contains("\r\n") ? "\r\n" : "\n";
+        boolean endsWithNewline = original.endsWith("\n");
+        List<String> originalLines = splitLines(original);
+
+        // 1. 依次定位每个 hunk，后一个 hunk 只能出现在前一个 hunk 之后
+        List<Located> locatedHunks = new ArrayList<>();
+        List<String> errors = new ArrayList<>();
+        int searchFrom = 0;
+        // 前面的 hunk 实际位置和行号的偏差，用来修正后面 hunk 的行号
+        int lineOffset = 0;
+        for (Hunk hunk : hunks) {
+            String error = validate(hunk);
+            if (error != null) {
+                errors.add(error);
+                continue;
+            }
+            List<String> oldLines = hunk.oldLines();
+            int hint = hunk.startLine() > 0 ? hunk.startLine() - 1 + lineOffset : -1;
+            if (oldLines.isEmpty()) {
+                // 纯新增的 hunk 没有可以定位的内容，只能依靠行号
+                if (hunk.startLine() < 0) {
+                    errors.add(describe(hunk, "只有新增行，没有上下文行也没有行号，无法确定插入位置"));
+                    continue;
+                }
+                // 统一 diff 中纯新增 hunk 的行号表示插入到这一行之后
+                int start = Math.min(Math.max(hunk.startLine() + lineOffset, searchFrom), originalLines.size());
+                locatedHunks.add(new Located(hunk, start, 0));
+                searchFrom = start;
+                continue;
+            }
+            String locateError = null;
+            Located located = null;
+            for (MatchMode mode : MatchMode.values()) {
+                List<Integer> candidates = findCandidates(originalLines, oldLines, searchFrom, mode);
+                if (candidates.isEmpty()) {
+                    continue;
+                }
+                if (hint < 0 && candidates.size() > 1) {
+                    locateError = describe(hunk, String.format("上下文在文件中匹配到 %d 处（第 %s 行），请增加上下文行或提供行号",
+                            candidates.size(), StrUtil.join("、", candidates.stream().map(index -> index + 1).toList())));
+                    break;
+                }
+                int start = closest(candidates, hint);
+                located = new Located(hunk, start, oldLines.size());
+                break;
+            }
+            if (located == null) {
+                errors.add(locateError != null ? locateError
+                        : describe(hunk, "在文件中找不到匹配的上下文行和删除行，首行: " + StrUtil.brief(oldLines.getFirst().trim(), 80)));
+                continue;
+            }
+            locatedHunks.add(located);
+            if (hunk.startLine() > 0) {
+                lineOffset = located.start() - (hunk.startLine() - 1);
+            }
+            searchFrom = located.start() + located.length();
+        }
+        if (!errors.isEmpty()) {
+            return new PatchResult(null, 0, errors);
+        }
+
+        // 2. 基于原始内容一次性生成新内容，上下文行保留原文件中的内容
+        List<String> resultLines = new ArrayList<>(originalLines.size());
+        int cursor = 0;
+        for (Located located : locatedHunks) {
+            resultLines.addAll(originalLines.subList(cursor, located.start()));
+            int originalIndex = located.start();
+            for (String line : located.hunk().lines()) {
+                char prefix = line.charAt(0);
+                if (prefix == '+') {
+                    resultLines.add(line.substring(1));
+                } else if (prefix == '-') {
+                    originalIndex++;
+                } else {
+                    resultLines.add(originalLines.get(originalIndex++));
+                }
+            }
+            cursor = located.start() + located.length();
+        }
+        resultLines.addAll(originalLines.subList(cursor, originalLines.size()));
+        String content = String.join(lineSeparator, resultLines);
+        if (endsWithNewline && !resultLines.isEmpty()) {
+            content += lineSeparator;
+        }
+        return new PatchResult(content, locatedHunks.size(), List.of());
+    }
+
+    /**
+     * 解析补丁，忽略 ---、+++ 等文件头，不以 +、-、空格开头的行当作上下文行（大模型经常省略上下文行前面的空格）
+     */
+    static List<Hunk> parse(String patch) {
+        List<Hunk> hunks = new ArrayList<>();
+        if (StrUtil.isBlank(patch)) {
+            return hunks;
+        }
+        List<String> patchLines = splitLines(patch);
+        boolean hasHeader = patchLines.stream().anyMatch(line -> line.startsWith("@@"));
+        List<String> current = hasHeader ? null : new ArrayList<>();
+        int startLine = -1;
+        for (String line : patchLines) {
+            if (line.startsWith("@@")) {
+                addHunk(hunks, current, startLine);
+                current = new ArrayList<>();
+                Matcher matcher = HUNK_HEADER_PATTERN.matcher(line.trim());
+                startLine = matcher.matches() ? Integer.parseInt(matcher.group(1)) : -1;
+                continue;
+            }
+            if (current == null || line.startsWith("\\")) {
+                // 第一个 hunk 之前的文件头，以及 "\ No newline at end of file"
+                continue;
+            }
+            if (!hasHeader && (line.startsWith("--- ") || line.startsWith("+++ ") || line.startsWith("diff ") || line.startsWith("index "))) {
+                continue;
+            }
+            if (line.isEmpty()) {
+                current.add(" ");
+            } else if (line.charAt(0) == '+' || line.charAt(0) == '-' || line.charAt(0) == ' ') {
+                current.add(line);
+            } else {
+                current.add(" " + line);
+            }
+        }
+        addHunk(hunks, current, startLine);
+        return hunks;
+    }
+
+    private static void addHunk(List<Hunk> hunks, List<String> lines, int startLine) {
+        if (lines == null) {
+            return;
+        }
+        // 去掉 hunk 末尾的空上下文行，通常是补丁结尾多出来的换行
+        while (!lines.isEmpty() && lines.getLast().isBlank()) {
+            lines.removeLast();
+        }
+        if (!lines.isEmpty()) {
+            hunks.add(new Hunk(hunks.size() + 1, startLine, lines));
+        }
+    }
+
+    private static String validate(Hunk hunk) {
+        boolean changed = hunk.lines().stream().anyMatch(line -> line.charAt(0) == '+' || line.charAt(0) == '-');
+        return changed ? null : describe(hunk, "没有任何新增行或删除行");
+    }
+
+    /**
+     * 找出从 from 开始所有能匹配上的起始位置
+     */
+    private static List<Integer> findCandidates(List<String> lines, List<String> target, int from, MatchMode mode) {
+        List<Integer> candidates = new ArrayList<>();
+        for (int start = from; start + target.size() <= lines.size(); start++) {
+            boolean matched = true;
+            for (int i = 0; i < target.size(); i++) {
+                if (!mode.apply(lines.get(start + i)).equals(mode.apply(target.get(i)))) {
+                    matched = false;
+                    break;
+                }
+            }
+            if (matched) {
+                candidates.add(start);
+            }
+        }
+        return candidates;
+    }
+
+    private static int closest(List<Integer> candidates, int hint) {
+        if (hint < 0) {
+            return candidates.getFirst();
+        }
+        int best = candidates.getFirst();
+        for (int candidate : candidates) {
+            if (Math.abs(candidate - hint) < Math.abs(best - hint)) {
+                best = candidate;
+            }
+        }
+        return best;
+    }
+
+    private static String describe(Hunk hunk, String reason) {
+        String position = hunk.startLine() > 0 ? "（第 " + hunk.startLine() + " 行）" : "";
+        return String.format("第 %d 个 hunk%s: %s", hunk.number(), position, reason);
+    }
+
+    /**
+     * 按行拆分，去掉每行末尾的 \r，内容以换行结尾时不产生最后一个空行
+     */
+    private static List<String> splitLines(String content) {
+        List<String> lines = new ArrayList<>();
+        for (String line : content.split("\n", -1)) {
+            lines.add(StrUtil.removeSuffix(line, "\r"));
+        }
+        if (!lines.isEmpty() && content.endsWith("\n")) {
+            lines.removeLast();
+        }
+        if (content.isEmpty()) {
+            lines.clear();
+        }
+        return lines;
+    }
+}
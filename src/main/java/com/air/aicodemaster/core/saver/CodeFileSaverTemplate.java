@@ -2,13 +2,17 @@ package com.air.aicodemaster.core.saver;
 
 import cn.hutool.core.io.FileUtil;
 import cn.hutool.core.util.StrUtil;
-import com.air.aicodemaster.constant.AppConstant;
+import com.air.aicodemaster.core.storage.BlobStore;
+import com.air.aicodemaster.core.storage.Precompressor;
+import com.air.aicodemaster.core.storage.StorageLayout;
 import com.air.aicodemaster.exception.BusinessException;
 import com.air.aicodemaster.exception.ErrorCode;
 import com.air.aicodemaster.model.enums.CodeGenTypeEnum;
 
 import java.io.File;
-import java.nio.charset.StandardCharsets;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 
 /**
  * @author WyH524
@@ -24,9 +28,6 @@ import java.nio.charset.StandardCharsets;
  */
 public abstract class CodeFileSaverTemplate<T> {
 
-    // 文件保存根目录
-    protected static final String FILE_SAVE_ROOT_DIR = AppConstant.CODE_OUTPUT_ROOT_DIR;
-
     /**
      * 定义一个标准的文件保存流程
      * 模板方法最核心的流程就是定义一个流程，然后子类都要遵循这个流程
@@ -65,9 +66,8 @@ public abstract class CodeFileSaverTemplate<T> {
         if(appId == null){
             throw new BusinessException(ErrorCode.PARAMS_ERROR, "appId 不能为空");
         }
-        String codeType = getCodeType().getValue();
-        String uniqueDirName = StrUtil.format("{}_{}", codeType, appId);
-        String dirPath = FILE_SAVE_ROOT_DIR + File.separator + uniqueDirName;
+        // 目录位置由存储布局决定
+        String dirPath = StorageLayout.getProjectDir(getCodeType(), appId).toString();
         FileUtil.mkdir(dirPath);
         return dirPath;
     }
@@ -81,8 +81,15 @@ public abstract class CodeFileSaverTemplate<T> {
      */
     protected final void writeToFile(String dirPath, String filename, String content) {
         if (StrUtil.isNotBlank(content)) {
-            String filePath = dirPath + File.separator + filename;
-            FileUtil.writeString(content, filePath, StandardCharsets.UTF_8);
+            // 文件内容存入内容存储，相同内容的文件只占一份磁盘空间
+            // 同时生成 gzip 压缩文件，预览时直接返回压缩后的内容
+            try {
+                Path file = Paths.get(dirPath, filename);
+                BlobStore.writeFile(file, content);
+                Precompressor.compress(file);
+            } catch (IOException e) {
+                throw new BusinessException(ErrorCode.SYSTEM_ERROR, "保存文件失败: " + filename);
+            }
         }
     }
 
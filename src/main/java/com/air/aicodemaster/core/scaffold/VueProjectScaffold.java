@@ -0,0 +1,160 @@
+package com.air.aicodemaster.core.scaffold;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.StrUtil;
+import com.air.aicodemaster.core.storage.StorageLayout;
+import com.air.aicodemaster.core.workspace.ProjectTreeIndex;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Vue 项目脚手架
+ * 新建的 Vue 项目都需要 package.json、vite.config.js、index.html、main.js、App.vue、路由这些固定的文件，
+ * 以前每个应用第一轮生成都要让大模型用好几轮工具调用写这些样板代码
+ * 现在在第一轮生成之前直接把脚手架放到 vue_project_{appId} 目录下，大模型只需要编写页面和组件
+ * 脚手架模板放在 classpath:scaffold/vue-project/{版本} 下，修改模板时需要升级版本号
+ * 模板第一次使用时解压到存储根目录下的 .scaffold/vue-project-{版本} 共享目录，项目中的文件是共享目录的硬链接，
+ * 不支持硬链接时（比如跨文件系统）退化为复制
+ * 注意：硬链接的文件不能原地修改，否则会改到共享模板，工作区写文件时会先删除再写入
+ */
+@Slf4j
+@Component
+public class VueProjectScaffold {
+
+    /**
+     * 脚手架模板版本，修改模板内容时升级
+     */
+    public static final String VERSION = "v1";
+
+    private static final String TEMPLATE_LOCATION = "scaffold/vue-project/" + VERSION + "/";
+
+    /**
+     * 把脚手架放到项目目录下，项目目录已经存在时不做任何处理
+     *
+     * @param projectRoot 项目根目录
+     * @return 是否放置了脚手架
+     */
+    public boolean materialize(Path projectRoot) throws IOException {
+        if (Files.exists(projectRoot)) {
+            return false;
+        }
+        Path templateRoot = ensureTemplate();
+        // 先在同级临时目录中生成，完成后重命名，避免生成到一半的项目被当成已存在的项目
+        Path tempDir = projectRoot.resolveSibling(projectRoot.getFileName() + "_" + IdUtil.fastSimpleUUID());
+        try {
+            List<Path> templateFiles;
+            try (Stream<Path> stream = Files.walk(templateRoot)) {
+                templateFiles = stream.filter(Files::isRegularFile).toList();
+            }
+            for (Path templateFile : templateFiles) {
+                Path target = tempDir.resolve(templateRoot.relativize(templateFile));
+                Files.createDirectories(target.getParent());
+                linkOrCopy(templateFile, target);
+            }
+            Files.move(tempDir, projectRoot, StandardCopyOption.ATOMIC_MOVE);
+            log.info("已放置 Vue 项目脚手架 {}，共 {} 个文件: {}", VERSION, templateFiles.size(), projectRoot);
+            return true;
+        } catch (FileAlreadyExistsException e) {
+            // 并发的生成已经放置了脚手架
+            return false;
+        } finally {
+            FileUtil.del(tempDir.toFile());
+        }
+    }
+
+    /**
+     * 判断项目是否还没有被生成过：项目目录不存在，或者只有没有修改过的脚手架文件
+     * 每轮生成都会调用，逐个比较，遇到第一个不同的文件就结束；构建产物和依赖目录（dist、node_modules 等）直接跳过
+     *
+     * @param projectRoot 项目根目录
+     */
+    public boolean isUntouched(Path projectRoot) throws IOException {
+        if (!Files.exists(projectRoot)) {
+            return true;
+        }
+        Path templateRoot = ensureTemplate();
+        boolean[] untouched = {true};
+        Files.walkFileTree(projectRoot, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                if (!dir.equals(projectRoot) && ProjectTreeIndex.shouldIgnore(dir.getFileName().toString())) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path projectFile, BasicFileAttributes attrs) throws IOException {
+                if (!attrs.isRegularFile() || ProjectTreeIndex.shouldIgnore(projectFile.getFileName().toString())) {
+                    return FileVisitResult.CONTINUE;
+                }
+                Path templateFile = templateRoot.resolve(projectRoot.relativize(projectFile));
+                // 硬链接的文件不需要比较内容
+                if (!Files.isRegularFile(templateFile)
+                        || (!Files.isSameFile(projectFile, templateFile) && Files.mismatch(projectFile, templateFile) != -1)) {
+                    untouched[0] = false;
+                    return FileVisitResult.TERMINATE;
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return untouched[0];
+    }
+
+    /**
+     * 确保共享模板目录已经从 classpath 解压出来
+     */
+    private synchronized Path ensureTemplate() throws IOException {
+        Path templateDir = StorageLayout.getScaffoldRoot().resolve("vue-project-" + VERSION);
+        if (Files.isDirectory(templateDir)) {
+            return templateDir;
+        }
+        Path tempDir = templateDir.resolveSibling(templateDir.getFileName() + "_" + IdUtil.fastSimpleUUID());
+        try {
+            Resource[] resources = new PathMatchingResourcePatternResolver().getResources("classpath*:" + TEMPLATE_LOCATION + "**");
+            List<String> extracted = new ArrayList<>();
+            for (Resource resource : resources) {
+                String url = resource.getURL().toString();
+                String relativePath = StrUtil.subAfter(url, TEMPLATE_LOCATION, true);
+                if (StrUtil.isBlank(relativePath) || relativePath.endsWith("/")) {
+                    continue;
+                }
+                Path target = tempDir.resolve(relativePath);
+                Files.createDirectories(target.getParent());
+                try (InputStream inputStream = resource.getInputStream()) {
+                    Files.copy(inputStream, target);
+                }
+                extracted.add(relativePath);
+            }
+            if (extracted.isEmpty()) {
+                throw new IOException("找不到 Vue 项目脚手架模板: " + TEMPLATE_LOCATION);
+            }
+            Files.move(tempDir, templateDir, StandardCopyOption.ATOMIC_MOVE);
+            log.info("已解压 Vue 项目脚手架模板 {}，共 {} 个文件", VERSION, extracted.size());
+        } catch (FileAlreadyExistsException | DirectoryNotEmptyException e) {
+            log.debug("Vue 项目脚手架模板已存在: {}", templateDir);
+        } finally {
+            FileUtil.del(tempDir.toFile());
+        }
+        return templateDir;
+    }
+
+    private void linkOrCopy(Path source, Path target) throws IOException {
+        try {
+            Files.createLink(target, source);
+        } catch (UnsupportedOperationException | IOException e) {
+            Files.copy(source, target);
+        }
+    }
+}
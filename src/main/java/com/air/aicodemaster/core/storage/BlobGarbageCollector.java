@@ -0,0 +1,30 @@
+package com.air.aicodemaster.core.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 定时回收内容存储中没有被引用的内容
+ * 应用删除、文件被重写或删除、部署目录被替换之后，对应的内容文件就不再被引用
+ */
+@Slf4j
+@Component
+public class BlobGarbageCollector {
+
+    /**
+     * 最近写入或被引用过的内容在宽限期内不回收，避免回收正在被链接的内容
+     */
+    private static final Duration GRACE_PERIOD = Duration.ofHours(1);
+
+    @Scheduled(initialDelay = 10 * 60 * 1000, fixedDelay = 6 * 60 * 60 * 1000)
+    public void collect() {
+        try {
+            BlobStore.collectGarbage(GRACE_PERIOD);
+        } catch (Exception e) {
+            log.error("内容存储回收失败", e);
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.air.aicodemaster.core.storage;
+
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.crypto.digest.DigestUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * 内容寻址的文件存储
+ * 大量应用的项目目录中有内容完全相同的文件（脚手架、锁文件、常用组件），部署时又会再复制一份
+ * 这里把文件内容按 SHA-256 存储一次，项目目录和部署目录中的文件都是它的硬链接，相同内容只占用一份磁盘空间，复制目录也只需要创建链接
+ * 约定：项目和部署目录中的文件不能原地修改，只能整体替换（写入新的链接再重命名覆盖），否则会改到所有共享这份内容的文件
+ * 不支持硬链接时（比如跨文件系统）退化为普通写入和复制
+ * 没有被任何文件引用的内容（硬链接数为 1）由 {@link #collectGarbage(Duration)} 回收
+ * 内容文件是所有链接共享的 inode，不能修改它的属性（修改时间会变成每个应用文件的 ETag 的一部分），最近被引用的内容记在内存中
+ */
+@Slf4j
+public class BlobStore {
+
+    /**
+     * 最近被存储或再次引用的内容，值为引用时间，回收时在宽限期内跳过
+     */
+    private static final Map<Path, Instant> RECENT_PUTS = new ConcurrentHashMap<>();
+
+    private BlobStore() {
+    }
+
+    /**
+     * 存储内容，相同的内容只存一份
+     *
+     * @param content 文件内容
+     * @return 内容文件的路径
+     */
+    public static Path put(byte[] content) throws IOException {
+        String hash = DigestUtil.sha256Hex(content);
+        Path blob = StorageLayout.getBlobRoot().resolve(hash.substring(0, 2)).resolve(hash);
+        // 记录引用时间，避免调用方创建链接之前内容被垃圾回收
+        RECENT_PUTS.put(blob, Instant.now());
+        if (Files.isRegularFile(blob)) {
+            return blob;
+        }
+        Files.createDirectories(blob.getParent());
+        Path temp = blob.resolveSibling(hash + "." + IdUtil.fastSimpleUUID() + ".tmp");
+        try {
+            Files.write(temp, content);
+            Files.move(temp, blob, StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException e) {
+            // 并发写入了相同的内容
+            log.debug("内容已存在: {}", hash);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        return blob;
+    }
+
+    /**
+     * 写入文本文件
+     */
+    public static void writeFile(Path target, String content) throws IOException {
+        writeFile(target, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 写入文件，目标文件是内容文件的硬链接，已存在的文件会被整体替换，不会原地修改
+     */
+    public static void writeFile(Path target, byte[] content) throws IOException {
+        Path blob = put(content);
+        Files.createDirectories(target.getParent());
+        Path temp = tempSibling(target);
+        try {
+            if (!tryLink(temp, blob)) {
+                Files.write(temp, content);
+            }
+            replace(temp, target);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * 把已经存储的内容放到目标位置，整体替换已存在的文件
+     *
+     * @param blob 内容文件的路径，由 {@link #put(byte[])} 返回
+     */
+    public static void link(Path blob, Path target) throws IOException {
+        Files.createDirectories(target.getParent());
+        Path temp = tempSibling(target);
+        try {
+            if (!tryLink(temp, blob)) {
+                Files.copy(blob, temp);
+            }
+            replace(temp, target);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * 把源目录中的所有文件链接到目标目录，目标目录中已存在的同名文件被替换，其他文件保留
+     * 源目录的文件不需要在内容存储中，直接链接源文件
+     *
+     * @return 文件数量
+     */
+    public static int linkTree(Path sourceDir, Path targetDir) throws IOException {
+        List<Path> files;
+        try (Stream<Path> stream = Files.walk(sourceDir)) {
+            files = stream.filter(Files::isRegularFile).toList();
+        }
+        for (Path source : files) {
+            link(source, targetDir.resolve(sourceDir.relativize(source).toString()));
+        }
+        return files.size();
+    }
+
+    /**
+     * 回收没有被任何文件引用的内容
+     * 硬链接数为 1 说明只有内容存储自己引用，宽限期内写入或被 {@link #put(byte[])} 引用过的内容可能正在被链接，不回收
+     * 文件系统不支持查询硬链接数时不回收
+     *
+     * @param grace 宽限期
+     * @return 回收的数量
+     */
+    public static int collectGarbage(Duration grace) throws IOException {
+        if (!Files.isDirectory(StorageLayout.getBlobRoot())) {
+            return 0;
+        }
+        if (!StorageLayout.getBlobRoot().getFileSystem().supportedFileAttributeViews().contains("unix")) {
+            log.info("文件系统不支持查询硬链接数，跳过内容存储回收");
+            return 0;
+        }
+        Instant deadline = Instant.now().minus(grace);
+        RECENT_PUTS.values().removeIf(time -> time.isBefore(deadline));
+        int removed = 0;
+        List<Path> blobs;
+        try (Stream<Path> stream = Files.walk(StorageLayout.getBlobRoot())) {
+            blobs = stream.filter(Files::isRegularFile).toList();
+        }
+        for (Path blob : blobs) {
+            try {
+                // 内容文件写入后不会修改，修改时间就是写入时间
+                boolean expired = !RECENT_PUTS.containsKey(blob)
+                        && Files.getLastModifiedTime(blob).toInstant().isBefore(deadline);
+                if (expired && (Integer) Files.getAttribute(blob, "unix:nlink") <= 1) {
+                    Files.deleteIfExists(blob);
+                    removed++;
+                }
+            } catch (NoSuchFileException ignored) {
+            }
+        }
+        log.info("内容存储回收完成，共 {} 个内容文件，回收 {} 个", blobs.size(), removed);
+        return removed;
+    }
+
+    /**
+     * 创建硬链接，失败时返回 false 由调用方退化为复制
+     */
+    private static boolean tryLink(Path link, Path existing) {
+        try {
+            Files.createLink(link, existing);
+            return true;
+        } catch (UnsupportedOperationException | IOException e) {
+            log.debug("创建硬链接失败，改为复制: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    private static void replace(Path source, Path target) throws IOException {
+        try {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static Path tempSibling(Path target) {
+        return target.resolveSibling("." + target.getFileName() + "." + IdUtil.fastSimpleUUID() + ".tmp");
+    }
+}
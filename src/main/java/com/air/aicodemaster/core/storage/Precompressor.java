@@ -0,0 +1,171 @@
+package com.air.aicodemaster.core.storage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 静态文件的预压缩
+ * 写入文件（保存生成的网页、发布部署版本）时为文本文件生成 .gz 压缩文件放在旁边，访问时直接返回压缩文件，每个请求不再消耗 CPU 压缩
+ * 1. 只压缩文本类型、并且不小于 {@link #MIN_SIZE} 的文件，太小的文件压缩后节省不了多少，反而多一次文件查找
+ * 2. 压缩文件也存入内容存储，相同内容的压缩文件只有一份
+ * 3. JDK 没有 Brotli 编码器，这里只生成 gzip；已经存在的 .br 文件（比如构建工具生成的）在访问时同样会被使用
+ * 约定：替换原文件的地方必须同时调用 {@link #compress(Path)} 更新或删除压缩文件，访问时只检查压缩文件是否存在
+ * （不能比较修改时间，文件是内容存储的硬链接，修改时间是这份内容第一次写入的时间）
+ */
+public class Precompressor {
+
+    /**
+     * 需要压缩的最小文件大小（字节）
+     */
+    public static final int MIN_SIZE = 1024;
+
+    private static final Set<String> COMPRESSIBLE_EXTENSIONS = Set.of(
+            "html", "htm", "css", "js", "mjs", "cjs", "json", "map", "svg", "xml", "txt", "md", "csv", "wasm", "webmanifest"
+    );
+
+    private static final String GZIP_SUFFIX = ".gz";
+
+    private static final String BROTLI_SUFFIX = ".br";
+
+    private Precompressor() {
+    }
+
+    /**
+     * 文件是否需要压缩，只看文件名
+     */
+    public static boolean isCompressible(String fileName) {
+        int dot = fileName.lastIndexOf('.');
+        return dot >= 0 && COMPRESSIBLE_EXTENSIONS.contains(fileName.substring(dot + 1).toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * 为文件生成 .gz 压缩文件，文件不需要压缩时删除已有的压缩文件（文件被替换成了更小的内容）
+     *
+     * @return 是否生成了压缩文件
+     */
+    public static boolean compress(Path file) throws IOException {
+        Path gzip = gzipOf(file);
+        if (!isCompressible(file.getFileName().toString()) || Files.size(file) < MIN_SIZE) {
+            Files.deleteIfExists(gzip);
+            return false;
+        }
+        byte[] content = Files.readAllBytes(file);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream(content.length / 3);
+        try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(outputStream) {
+            {
+                def.setLevel(Deflater.BEST_COMPRESSION);
+            }
+        }) {
+            gzipOutputStream.write(content);
+        }
+        byte[] compressed = outputStream.toByteArray();
+        if (compressed.length >= content.length) {
+            Files.deleteIfExists(gzip);
+            return false;
+        }
+        BlobStore.writeFile(gzip, compressed);
+        return true;
+    }
+
+    /**
+     * 压缩目录中所有需要压缩的文件，已经是压缩文件的跳过
+     *
+     * @return 生成的压缩文件数量
+     */
+    public static int compressTree(Path dir) throws IOException {
+        List<Path> files;
+        try (Stream<Path> stream = Files.walk(dir)) {
+            files = stream.filter(Files::isRegularFile)
+                    .filter(path -> !isVariant(path.getFileName().toString()))
+                    .toList();
+        }
+        int compressed = 0;
+        for (Path file : files) {
+            if (compress(file)) {
+                compressed++;
+            }
+        }
+        return compressed;
+    }
+
+    /**
+     * 文件本身是否是压缩文件
+     */
+    public static boolean isVariant(String fileName) {
+        return fileName.endsWith(GZIP_SUFFIX) || fileName.endsWith(BROTLI_SUFFIX);
+    }
+
+    /**
+     * 获取文件的 gzip 压缩文件路径
+     */
+    public static Path gzipOf(Path file) {
+        return file.resolveSibling(file.getFileName() + GZIP_SUFFIX);
+    }
+
+    /**
+     * 根据 Accept-Encoding 选择要返回的文件，优先 Brotli，其次 gzip
+     *
+     * @param file           原文件
+     * @param acceptEncoding 请求头 Accept-Encoding，可以为空
+     * @return 选中的压缩文件，没有可用的压缩文件时返回 null
+     */
+    public static Variant select(Path file, String acceptEncoding) {
+        if (acceptEncoding == null || !isCompressible(file.getFileName().toString())) {
+            return null;
+        }
+        if (accepts(acceptEncoding, "br")) {
+            Path brotli = file.resolveSibling(file.getFileName() + BROTLI_SUFFIX);
+            if (Files.isRegularFile(brotli)) {
+                return new Variant(brotli, "br");
+            }
+        }
+        if (accepts(acceptEncoding, "gzip")) {
+            Path gzip = gzipOf(file);
+            if (Files.isRegularFile(gzip)) {
+                return new Variant(gzip, "gzip");
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Accept-Encoding 中是否包含编码，q=0 表示不接受
+     */
+    static boolean accepts(String acceptEncoding, String encoding) {
+        for (String part : acceptEncoding.split(",")) {
+            String[] params = part.trim().split(";");
+            if (!params[0].trim().equalsIgnoreCase(encoding)) {
+                continue;
+            }
+            for (int i = 1; i < params.length; i++) {
+                String param = params[i].trim().replace(" ", "");
+                if (param.startsWith("q=")) {
+                    try {
+                        return Double.parseDouble(param.substring(2)) > 0;
+                    } catch (NumberFormatException e) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * 选中的压缩文件
+     *
+     * @param path     压缩文件路径
+     * @param encoding Content-Encoding
+     */
+    public record Variant(Path path, String encoding) {
+    }
+}
@@ -0,0 +1,172 @@
+package com.air.aicodemaster.core.storage;
+
+import cn.hutool.crypto.digest.DigestUtil;
+import com.air.aicodemaster.constant.AppConstant;
+import com.air.aicodemaster.model.enums.CodeGenTypeEnum;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.regex.Pattern;
+
+/**
+ * 代码文件的存储布局
+ * 所有应用目录、部署目录、内容存储目录的路径都通过这里计算，不要再自己拼接 codeGenType + "_" + appId
+ * 1. 根目录可以配置（storage.output-root / storage.deploy-root），热数据可以放到 tmpfs 或者本地 NVMe 上
+ * 2. 应用目录按目录名哈希的前两位分片：{outputRoot}/{分片}/{codeGenType}_{appId}，避免几十万个应用目录放在同一个目录下
+ * 3. 部署目录由 Web 服务器按部署标识直接访问，不分片：{deployRoot}/{deployKey}，指向 {deployRoot}/.versions/{deployKey}/{版本} 中的当前版本
+ * 还没有迁移的旧应用目录（{outputRoot}/{codeGenType}_{appId}）仍然可以访问，迁移见 {@link StorageMigrator}
+ * 布局在启动时、创建任何 Bean 之前由 StorageLayoutInitializer 根据 storage.* 配置
+ */
+public class StorageLayout {
+
+    /**
+     * 应用目录名的格式，预览接口使用目录名访问，校验后才能拼接路径
+     */
+    private static final Pattern PROJECT_DIR_NAME_PATTERN = Pattern.compile("^[a-z_]+_\\d+$");
+
+    private static volatile Path outputRoot = Paths.get(AppConstant.CODE_OUTPUT_ROOT_DIR);
+
+    private static volatile Path deployRoot = Paths.get(AppConstant.CODE_DEPLOY_ROOT_DIR);
+
+    private static volatile boolean sharded = true;
+
+    private StorageLayout() {
+    }
+
+    /**
+     * 配置存储布局，启动时调用一次
+     */
+    public static void configure(Path outputRoot, Path deployRoot, boolean sharded) {
+        StorageLayout.outputRoot = outputRoot.toAbsolutePath().normalize();
+        StorageLayout.deployRoot = deployRoot.toAbsolutePath().normalize();
+        StorageLayout.sharded = sharded;
+    }
+
+    public static Path getOutputRoot() {
+        return outputRoot;
+    }
+
+    public static Path getDeployRoot() {
+        return deployRoot;
+    }
+
+    /**
+     * 应用目录名，同时也是预览地址中的标识
+     */
+    public static String getProjectDirName(CodeGenTypeEnum codeGenType, long appId) {
+        return codeGenType.getValue() + "_" + appId;
+    }
+
+    /**
+     * 获取应用的代码目录
+     */
+    public static Path getProjectDir(CodeGenTypeEnum codeGenType, long appId) {
+        return resolveProjectDir(getProjectDirName(codeGenType, appId));
+    }
+
+    /**
+     * 获取应用的代码目录
+     *
+     * @param codeGenType 代码生成类型的值，对应数据库中的字段
+     */
+    public static Path getProjectDir(String codeGenType, long appId) {
+        return resolveProjectDir(codeGenType + "_" + appId);
+    }
+
+    /**
+     * 根据应用目录名获取应用的代码目录，目录名不合法时返回 null
+     * 分片目录不存在而旧的平铺目录存在时（还没有迁移），返回旧目录
+     */
+    public static Path resolveProjectDir(String projectDirName) {
+        if (projectDirName == null || !PROJECT_DIR_NAME_PATTERN.matcher(projectDirName).matches()) {
+            return null;
+        }
+        Path legacyDir = getLegacyProjectDir(projectDirName);
+        if (!sharded) {
+            return legacyDir;
+        }
+        Path shardedDir = outputRoot.resolve(shardOf(projectDirName)).resolve(projectDirName);
+        if (!Files.exists(shardedDir) && Files.exists(legacyDir)) {
+            return legacyDir;
+        }
+        return shardedDir;
+    }
+
+    /**
+     * 获取部署目录
+     */
+    public static Path getDeployDir(String deployKey) {
+        return deployRoot.resolve(deployKey);
+    }
+
+    /**
+     * 部署的版本目录，每次部署写入其中一个不可变的版本目录，部署目录是指向当前版本的符号链接
+     * 以 . 开头，不会和部署标识冲突
+     */
+    public static Path getDeployVersionRoot(String deployKey) {
+        return deployRoot.resolve(".versions").resolve(deployKey);
+    }
+
+    /**
+     * 内容存储目录
+     */
+    public static Path getBlobRoot() {
+        return outputRoot.resolve(".blobs");
+    }
+
+    /**
+     * 脚手架模板目录
+     */
+    public static Path getScaffoldRoot() {
+        return outputRoot.resolve(".scaffold");
+    }
+
+    /**
+     * Vue 项目共享依赖仓库目录
+     */
+    public static Path getDependencyRoot() {
+        return outputRoot.resolve(".deps");
+    }
+
+    /**
+     * 构建日志目录
+     */
+    public static Path getBuildLogDir() {
+        return outputRoot.resolve(".build-logs");
+    }
+
+    /**
+     * 构建缓存目录，保存每个项目的构建清单
+     */
+    public static Path getBuildCacheDir() {
+        return outputRoot.resolve(".build-cache");
+    }
+
+    /**
+     * vite 开发服务器的依赖预构建缓存目录，每个项目一个
+     * 项目的 node_modules 是共享依赖仓库的链接，不能使用 vite 默认的 node_modules/.vite
+     */
+    public static Path getViteCacheDir(String projectDirName) {
+        return outputRoot.resolve(".vite-cache").resolve(projectDirName);
+    }
+
+    static boolean isSharded() {
+        return sharded;
+    }
+
+    static boolean isProjectDirName(String name) {
+        return PROJECT_DIR_NAME_PATTERN.matcher(name).matches();
+    }
+
+    /**
+     * 分片目录名，目录名 MD5 的前两位十六进制，共 256 个分片
+     */
+    static String shardOf(String projectDirName) {
+        return DigestUtil.md5Hex(projectDirName).substring(0, 2);
+    }
+
+    static Path getLegacyProjectDir(String projectDirName) {
+        return outputRoot.resolve(projectDirName);
+    }
+}
@@ -0,0 +1,102 @@
+package com.air.aicodemaster.core.storage;
+
+import cn.hutool.core.io.FileUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * 存储布局迁移
+ * 把旧的平铺应用目录 {旧根目录}/{codeGenType}_{appId} 移动到新布局的分片目录下，旧的部署目录移动到新的部署根目录下
+ * 迁移是幂等的，可以重复执行；新布局中已经存在的目录跳过
+ * 使用方式：启动参数加上 --migrate-storage，可以通过 --migrate-storage-from=旧应用根目录 --migrate-deploy-from=旧部署根目录 指定旧根目录，
+ * 默认是当前配置的根目录（只做平铺到分片的迁移）
+ */
+@Slf4j
+@Component
+public class StorageMigrator implements ApplicationRunner {
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!args.containsOption("migrate-storage")) {
+            return;
+        }
+        Path legacyOutputRoot = getPathOption(args, "migrate-storage-from", StorageLayout.getOutputRoot());
+        Path legacyDeployRoot = getPathOption(args, "migrate-deploy-from", StorageLayout.getDeployRoot());
+        try {
+            migrate(legacyOutputRoot, legacyDeployRoot);
+        } catch (IOException e) {
+            log.error("存储布局迁移失败", e);
+        }
+    }
+
+    /**
+     * 执行迁移
+     *
+     * @return 迁移的目录数量
+     */
+    public int migrate(Path legacyOutputRoot, Path legacyDeployRoot) throws IOException {
+        int migrated = 0;
+        if (Files.isDirectory(legacyOutputRoot)) {
+            for (Path dir : listDirs(legacyOutputRoot)) {
+                String name = dir.getFileName().toString();
+                if (!StorageLayout.isProjectDirName(name)) {
+                    continue;
+                }
+                Path target = StorageLayout.isSharded()
+                        ? StorageLayout.getOutputRoot().resolve(StorageLayout.shardOf(name)).resolve(name)
+                        : StorageLayout.getLegacyProjectDir(name);
+                migrated += move(dir, target) ? 1 : 0;
+            }
+        }
+        Path deployRoot = StorageLayout.getDeployRoot();
+        if (Files.isDirectory(legacyDeployRoot) && !isSameDir(legacyDeployRoot, deployRoot)) {
+            for (Path dir : listDirs(legacyDeployRoot)) {
+                migrated += move(dir, deployRoot.resolve(dir.getFileName().toString())) ? 1 : 0;
+            }
+        }
+        log.info("存储布局迁移完成，共迁移 {} 个目录", migrated);
+        return migrated;
+    }
+
+    private boolean move(Path source, Path target) throws IOException {
+        if (isSameDir(source, target)) {
+            return false;
+        }
+        if (Files.exists(target)) {
+            log.warn("目标目录已存在，跳过迁移: {} -> {}", source, target);
+            return false;
+        }
+        Files.createDirectories(target.getParent());
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException | DirectoryNotEmptyException e) {
+            // 跨文件系统时复制后删除，硬链接会变成普通文件
+            FileUtil.copyContent(source.toFile(), target.toFile(), false);
+            FileUtil.del(source.toFile());
+        }
+        log.info("迁移目录: {} -> {}", source, target);
+        return true;
+    }
+
+    private List<Path> listDirs(Path root) throws IOException {
+        try (Stream<Path> stream = Files.list(root)) {
+            return stream.filter(Files::isDirectory).toList();
+        }
+    }
+
+    private boolean isSameDir(Path first, Path second) {
+        return first.toAbsolutePath().normalize().equals(second.toAbsolutePath().normalize());
+    }
+
+    private Path getPathOption(ApplicationArguments args, String name, Path defaultValue) {
+        List<String> values = args.getOptionValues(name);
+        return values == null || values.isEmpty() ? defaultValue : Paths.get(values.getFirst());
+    }
+}
@@ -0,0 +1,119 @@
+package com.air.aicodemaster.core.usage;
+
+import com.air.aicodemaster.model.entity.AiUsageLog;
+import com.air.aicodemaster.model.enums.CodeGenTypeEnum;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.openai.OpenAiTokenUsage;
+import dev.langchain4j.model.output.TokenUsage;
+
+/**
+ * 一次代码生成的用量统计
+ * 在流式回调中记录首 token 时间、工具调用轮数，生成结束时结合模型返回的 token 用量，构造用量记录
+ * 回调都在同一个流式响应线程中按顺序触发，这里用 volatile 保证结束时读取到最新的值
+ */
+public class GenerationUsageTracker {
+
+    public static final String STATUS_SUCCESS = "success";
+
+    public static final String STATUS_ERROR = "error";
+
+    private final Long appId;
+
+    private final Long userId;
+
+    private final CodeGenTypeEnum codeGenType;
+
+    private final String prompt;
+
+    private final long startNanos = System.nanoTime();
+
+    /**
+     * 首 token 耗时，-1 表示还没有收到
+     */
+    private volatile long firstTokenMs = -1;
+
+    private volatile int toolRounds;
+
+    /**
+     * 上一个事件是否为工具执行结果，连续的工具执行结果属于同一轮
+     */
+    private volatile boolean inToolRound;
+
+    public GenerationUsageTracker(Long appId, Long userId, CodeGenTypeEnum codeGenType, String prompt) {
+        this.appId = appId;
+        this.userId = userId;
+        this.codeGenType = codeGenType;
+        this.prompt = prompt;
+    }
+
+    /**
+     * 收到模型输出（文本或工具调用参数）
+     */
+    public void onModelOutput() {
+        if (firstTokenMs < 0) {
+            firstTokenMs = elapsedMs();
+        }
+        inToolRound = false;
+    }
+
+    /**
+     * 工具执行完成，一次模型响应中的多个工具调用算一轮
+     */
+    public void onToolExecuted() {
+        if (!inToolRound) {
+            toolRounds++;
+            inToolRound = true;
+        }
+    }
+
+    /**
+     * 生成成功，从最终响应中取模型名称和 token 用量（框架已经把多轮工具调用的用量累加好了）
+     */
+    public AiUsageLog success(ChatResponse response) {
+        AiUsageLog aiUsageLog = build(STATUS_SUCCESS);
+        if (response == null) {
+            return aiUsageLog;
+        }
+        aiUsageLog.setModelName(response.modelName());
+        TokenUsage tokenUsage = response.tokenUsage();
+        if (tokenUsage != null) {
+            aiUsageLog.setInputTokens(tokenUsage.inputTokenCount());
+            aiUsageLog.setOutputTokens(tokenUsage.outputTokenCount());
+            aiUsageLog.setTotalTokens(tokenUsage.totalTokenCount());
+        }
+        // OpenAI 兼容接口（DeepSeek）会额外返回缓存命中和推理 token 数
+        if (tokenUsage instanceof OpenAiTokenUsage openAiTokenUsage) {
+            if (openAiTokenUsage.inputTokensDetails() != null) {
+                aiUsageLog.setCachedTokens(openAiTokenUsage.inputTokensDetails().cachedTokens());
+            }
+            if (openAiTokenUsage.outputTokensDetails() != null) {
+                aiUsageLog.setReasoningTokens(openAiTokenUsage.outputTokensDetails().reasoningTokens());
+            }
+        }
+        return aiUsageLog;
+    }
+
+    /**
+     * 生成失败，只记录耗时和工具调用轮数
+     */
+    public AiUsageLog error() {
+        return build(STATUS_ERROR);
+    }
+
+    private AiUsageLog build(String status) {
+        return AiUsageLog.builder()
+                .appId(appId)
+                .userId(userId)
+                .codeGenType(codeGenType == null ? null : codeGenType.getValue())
+                .prompt(prompt)
+                .toolRounds(toolRounds)
+                .firstTokenMs(firstTokenMs < 0 ? null : firstTokenMs)
+                .durationMs(elapsedMs())
+                .status(status)
+                .build();
+    }
+
+    private long elapsedMs() {
+        return (System.nanoTime() - startNanos) / 1_000_000;
+    }
+}
@@ -0,0 +1,275 @@
+package com.air.aicodemaster.core.workspace;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+
+/**
+ * 项目文件树索引
+ * 第一次访问时遍历一次项目目录，之后由工作区在写入、删除、提交时直接更新，目录监听只用来发现外部的修改
+ * 索引中记录了每个文件的大小和行数，读取目录结构时直接渲染，不需要再遍历文件系统
+ */
+@Slf4j
+public class ProjectTreeIndex {
+
+    /**
+     * 需要忽略的文件和目录
+     * AI 是不需要读取这些文件的
+     */
+    public static final Set<String> IGNORED_NAMES = Set.of(
+            "node_modules", ".git", "dist", "build", ".DS_Store",
+            ".env", "target", ".mvn", ".idea", ".vscode", "coverage"
+    );
+
+    /**
+     * 需要忽略的文件扩展名
+     * AI 是不需要读取这些扩展名的文件的
+     */
+    public static final Set<String> IGNORED_EXTENSIONS = Set.of(
+            ".log", ".tmp", ".cache", ".lock"
+    );
+
+    /**
+     * 超过这个大小的文件不统计行数，一般是图片等资源文件
+     */
+    private static final long MAX_LINE_COUNT_SIZE = 1024 * 1024;
+
+    /**
+     * 文件信息
+     *
+     * @param path         相对项目根目录的路径，使用 / 分隔
+     * @param size         文件大小（字节）
+     * @param lines        行数，-1 表示没有统计
+     * @param lastModified 最后修改时间，未提交的文件为 -1
+     */
+    public record FileEntry(String path, long size, int lines, long lastModified) {
+    }
+
+    private final Path root;
+
+    private final ConcurrentSkipListMap<String, FileEntry> entries = new ConcurrentSkipListMap<>();
+
+    private volatile boolean built;
+
+    ProjectTreeIndex(Path root) {
+        this.root = root;
+    }
+
+    /**
+     * 判断是否应该忽略该文件或目录
+     */
+    public static boolean shouldIgnore(String fileName) {
+        // 检查是否在忽略名称列表中
+        if (IGNORED_NAMES.contains(fileName)) {
+            return true;
+        }
+        // 检查文件扩展名
+        return IGNORED_EXTENSIONS.stream().anyMatch(fileName::endsWith);
+    }
+
+    /**
+     * 还没有构建过（或者项目目录还不存在）时遍历项目目录，遍历到的每个目录交给 dirConsumer 用来注册监听
+     */
+    synchronized void ensureBuilt(Consumer<Path> dirConsumer) {
+        if (built) {
+            return;
+        }
+        entries.clear();
+        if (!Files.isDirectory(root)) {
+            // 项目还没有生成，之后的提交会直接更新索引，下次访问时再遍历并注册监听
+            return;
+        }
+        scan(root, dirConsumer);
+        built = true;
+        log.debug("构建项目文件索引: {}, 文件数: {}", root, entries.size());
+    }
+
+    boolean isBuilt() {
+        return built;
+    }
+
+    /**
+     * 遍历目录，把文件加入索引
+     */
+    void scan(Path dir, Consumer<Path> dirConsumer) {
+        try {
+            Files.walkFileTree(dir, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path path, BasicFileAttributes attrs) {
+                    if (!path.equals(root) && shouldIgnore(path.getFileName().toString())) {
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+                    if (dirConsumer != null) {
+                        dirConsumer.accept(path);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path path, BasicFileAttributes attrs) {
+                    if (attrs.isRegularFile() && !shouldIgnore(path.getFileName().toString())) {
+                        String key = toKey(path);
+                        entries.put(key, entryOf(key, path, attrs));
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path path, IOException e) {
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            log.warn("遍历项目目录失败: {}, 错误: {}", dir, e.getMessage());
+        }
+    }
+
+    /**
+     * 列出目录下的文件
+     *
+     * @param dirKey 目录相对项目根目录的路径，根目录为空字符串
+     * @return 按路径排序的文件信息
+     */
+    List<FileEntry> list(String dirKey) {
+        if (dirKey.isEmpty()) {
+            return new ArrayList<>(entries.values());
+        }
+        String prefix = dirKey + "/";
+        return new ArrayList<>(entries.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values());
+    }
+
+    /**
+     * 获取单个文件的信息
+     *
+     * @return 文件信息，不在索引中时返回 null
+     */
+    FileEntry get(String key) {
+        return entries.get(key);
+    }
+
+    /**
+     * 是否有文件在该目录下
+     */
+    boolean hasDirectory(String dirKey) {
+        if (dirKey.isEmpty()) {
+            return !entries.isEmpty();
+        }
+        String prefix = dirKey + "/";
+        String next = entries.ceilingKey(prefix);
+        return next != null && next.startsWith(prefix);
+    }
+
+    /**
+     * 工作区写入文件后更新索引，内容已知，不需要再读文件
+     */
+    void put(String key, String content) {
+        if (isIgnoredKey(key)) {
+            return;
+        }
+        long lastModified = -1;
+        try {
+            lastModified = Files.getLastModifiedTime(root.resolve(key)).toMillis();
+        } catch (IOException ignored) {
+        }
+        entries.put(key, entryOf(key, content, lastModified));
+    }
+
+    void remove(String key) {
+        entries.remove(key);
+    }
+
+    /**
+     * 外部修改了某个路径时，根据磁盘上的实际情况更新索引
+     * 文件的大小和修改时间和索引一致时跳过，避免工作区自己的写入触发重复读取
+     */
+    void refresh(String key, Consumer<Path> dirConsumer) {
+        Path path = root.resolve(key);
+        try {
+            if (Files.isRegularFile(path)) {
+                BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+                FileEntry entry = entries.get(key);
+                if (entry != null && entry.size() == attrs.size() && entry.lastModified() == attrs.lastModifiedTime().toMillis()) {
+                    return;
+                }
+                if (!isIgnoredKey(key)) {
+                    entries.put(key, entryOf(key, path, attrs));
+                }
+                return;
+            }
+            if (Files.isDirectory(path)) {
+                scan(path, dirConsumer);
+                return;
+            }
+        } catch (IOException e) {
+            log.debug("读取文件信息失败: {}", path);
+        }
+        // 路径已经不存在，删除该文件以及该目录下的所有文件
+        entries.remove(key);
+        String prefix = key + "/";
+        entries.subMap(prefix, true, prefix + Character.MAX_VALUE, false).clear();
+    }
+
+    /**
+     * 目录监听事件溢出等无法增量更新的情况，下次访问时重新遍历
+     */
+    synchronized void invalidate() {
+        built = false;
+    }
+
+    String toKey(Path path) {
+        return root.relativize(path).toString().replace('\\', '/');
+    }
+
+    static FileEntry entryOf(String key, Path path, BasicFileAttributes attrs) {
+        return new FileEntry(key, attrs.size(), countLines(path, attrs.size()), attrs.lastModifiedTime().toMillis());
+    }
+
+    static FileEntry entryOf(String key, String content, long lastModified) {
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        return new FileEntry(key, bytes.length, countLines(bytes), lastModified);
+    }
+
+    private boolean isIgnoredKey(String key) {
+        for (String name : key.split("/")) {
+            if (shouldIgnore(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int countLines(Path path, long size) {
+        if (size > MAX_LINE_COUNT_SIZE) {
+            return -1;
+        }
+        try {
+            return countLines(Files.readAllBytes(path));
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    private static int countLines(byte[] bytes) {
+        if (bytes.length == 0) {
+            return 0;
+        }
+        int lines = 0;
+        for (byte b : bytes) {
+            if (b == '\n') {
+                lines++;
+            }
+        }
+        return bytes[bytes.length - 1] == '\n' ? lines : lines + 1;
+    }
+}
@@ -0,0 +1,159 @@
+package com.air.aicodemaster.core.workspace;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * 项目文件树索引缓存
+ * 只为最近访问过的应用保留索引，并用 WatchService 监听这些项目的目录，发现外部修改（比如手动改文件）时增量更新索引
+ */
+@Slf4j
+class ProjectTreeIndexCache {
+
+    /**
+     * 监听的目录
+     */
+    private record WatchedDir(long appId, Path dir) {
+    }
+
+    private final Function<Long, Path> projectRootResolver;
+
+    private final Map<WatchKey, WatchedDir> watchedDirs = new ConcurrentHashMap<>();
+
+    private final Cache<Long, ProjectTreeIndex> indexCache = Caffeine.newBuilder()
+            .maximumSize(200)
+            .expireAfterAccess(Duration.ofMinutes(30))
+            .removalListener((Long appId, ProjectTreeIndex index, RemovalCause cause) -> {
+                if (appId != null) {
+                    unwatch(appId);
+                }
+            })
+            .build();
+
+    private volatile WatchService watchService;
+
+    ProjectTreeIndexCache(Function<Long, Path> projectRootResolver) {
+        this.projectRootResolver = projectRootResolver;
+    }
+
+    /**
+     * 获取应用的文件树索引，还没有构建时遍历一次项目目录
+     */
+    ProjectTreeIndex get(long appId) {
+        ProjectTreeIndex index = indexCache.get(appId, id -> new ProjectTreeIndex(projectRootResolver.apply(id)));
+        if (!index.isBuilt()) {
+            unwatch(appId);
+            index.ensureBuilt(dir -> watch(appId, dir));
+        }
+        return index;
+    }
+
+    /**
+     * 只返回已经缓存的索引，不触发构建
+     */
+    ProjectTreeIndex getIfPresent(long appId) {
+        return indexCache.getIfPresent(appId);
+    }
+
+    void close() {
+        WatchService service = watchService;
+        if (service != null) {
+            try {
+                service.close();
+            } catch (IOException ignored) {
+            }
+        }
+        indexCache.invalidateAll();
+    }
+
+    private void watch(long appId, Path dir) {
+        try {
+            WatchKey key = dir.register(getWatchService(), ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+            watchedDirs.put(key, new WatchedDir(appId, dir));
+        } catch (IOException | ClosedWatchServiceException e) {
+            // 监听只是兜底，注册失败不影响索引使用
+            log.debug("注册目录监听失败: {}, 错误: {}", dir, e.getMessage());
+        }
+    }
+
+    private void unwatch(long appId) {
+        watchedDirs.entrySet().removeIf(entry -> {
+            if (entry.getValue().appId() == appId) {
+                entry.getKey().cancel();
+                return true;
+            }
+            return false;
+        });
+    }
+
+    private WatchService getWatchService() throws IOException {
+        if (watchService == null) {
+            synchronized (this) {
+                if (watchService == null) {
+                    watchService = FileSystems.getDefault().newWatchService();
+                    Thread thread = new Thread(this::processEvents, "project-tree-watcher");
+                    thread.setDaemon(true);
+                    thread.start();
+                }
+            }
+        }
+        return watchService;
+    }
+
+    /**
+     * 处理目录变更事件
+     */
+    private void processEvents() {
+        while (true) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            WatchedDir watchedDir = watchedDirs.get(key);
+            ProjectTreeIndex index = watchedDir == null ? null : indexCache.getIfPresent(watchedDir.appId());
+            if (index != null) {
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    handleEvent(watchedDir, index, event);
+                }
+            } else {
+                key.pollEvents();
+            }
+            if (!key.reset()) {
+                watchedDirs.remove(key);
+            }
+        }
+    }
+
+    private void handleEvent(WatchedDir watchedDir, ProjectTreeIndex index, WatchEvent<?> event) {
+        if (event.kind() == OVERFLOW) {
+            // 事件太多丢失了，下次访问时重新遍历
+            index.invalidate();
+            return;
+        }
+        Path name = (Path) event.context();
+        if (ProjectTreeIndex.shouldIgnore(name.toString())) {
+            return;
+        }
+        Path path = watchedDir.dir().resolve(name);
+        // 新建的目录会在 refresh 中遍历并注册监听
+        index.refresh(index.toKey(path), dir -> watch(watchedDir.appId(), dir));
+    }
+}
@@ -0,0 +1,358 @@
+package com.air.aicodemaster.core.workspace;
+
+import cn.hutool.core.util.StrUtil;
+import com.air.aicodemaster.core.storage.BlobStore;
+import com.air.aicodemaster.core.storage.StorageLayout;
+import com.air.aicodemaster.model.enums.CodeGenTypeEnum;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Vue 项目工作区管理
+ * 统一解析 vue_project_{appId} 项目目录，工具对项目文件的读写都通过这里
+ * 一轮生成开始时调用 begin，之后工具的写入和删除先记录在内存中，读取优先返回还未提交的内容，
+ * 生成成功结束时调用 commit 一次性写入磁盘；生成失败或取消时调用 discard，磁盘上的项目保持生成前的状态
+ * 没有开始的生成（比如单独调用工具）直接读写磁盘
+ * 目录结构由缓存的文件树索引提供，写入、删除、提交时直接更新索引，不需要每次遍历文件系统
+ * 一轮生成中读取过的文件内容和目录列表会缓存到本轮结束，重复读取不再访问磁盘，写入和删除时失效
+ */
+@Slf4j
+@Component
+public class ProjectWorkspaceManager {
+
+    private final Map<Long, WorkspaceOverlay> overlays = new ConcurrentHashMap<>();
+
+    private final ProjectTreeIndexCache treeIndexCache = new ProjectTreeIndexCache(this::getProjectRoot);
+
+    /**
+     * 获取应用对应的 Vue 项目根目录
+     */
+    public Path getProjectRoot(long appId) {
+        return StorageLayout.getProjectDir(CodeGenTypeEnum.VUE_PROJECT, appId);
+    }
+
+    /**
+     * 将相对路径转换为项目中的规范化相对路径，不允许访问项目目录之外的文件
+     *
+     * @param relativePath 相对项目根目录的路径，为空表示根目录
+     * @return 使用 / 分隔的相对路径，根目录为空字符串
+     */
+    public String normalize(long appId, String relativePath) {
+        Path projectRoot = getProjectRoot(appId).toAbsolutePath().normalize();
+        Path path = projectRoot.resolve(StrUtil.nullToEmpty(relativePath).trim()).normalize();
+        if (!path.startsWith(projectRoot)) {
+            throw new IllegalArgumentException("不允许访问项目目录之外的路径: " + relativePath);
+        }
+        return projectRoot.relativize(path).toString().replace('\\', '/');
+    }
+
+    /**
+     * 开始一轮生成
+     * 同一个应用同时只能有一轮生成，上一轮还没有结束时不会替换它的修改
+     *
+     * @return 是否开始成功，上一轮生成还未结束时返回 false
+     */
+    public boolean begin(long appId) {
+        if (overlays.putIfAbsent(appId, new WorkspaceOverlay()) != null) {
+            log.warn("应用 {} 上一轮生成还未结束，不能开始新的生成", appId);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 应用是否有正在进行的生成
+     */
+    public boolean isGenerating(long appId) {
+        return overlays.containsKey(appId);
+    }
+
+    /**
+     * 生成被取消，本轮修改不会提交，但在生成真正结束前工具的修改仍然写在内存中，不会落盘
+     */
+    public void cancel(long appId) {
+        WorkspaceOverlay overlay = overlays.get(appId);
+        if (overlay != null) {
+            overlay.cancel();
+        }
+    }
+
+    /**
+     * 丢弃本轮的修改
+     */
+    public void discard(long appId) {
+        WorkspaceOverlay overlay = overlays.remove(appId);
+        if (overlay != null) {
+            log.info("丢弃应用 {} 本轮未提交的 {} 个文件修改", appId, overlay.snapshot().size());
+        }
+    }
+
+    /**
+     * 提交本轮的修改
+     * 先把所有写入的文件存入内容存储，全部成功后再逐个链接并原子替换到项目目录，最后执行删除
+     * 存入内容存储失败时项目目录不会被修改
+     *
+     * @return 提交的文件数量
+     */
+    public int commit(long appId) throws IOException {
+        WorkspaceOverlay overlay = overlays.remove(appId);
+        if (overlay == null) {
+            return 0;
+        }
+        if (overlay.isCancelled()) {
+            log.info("应用 {} 本轮生成已取消，不提交修改", appId);
+            return 0;
+        }
+        Map<String, String> changes = overlay.snapshot();
+        if (changes.isEmpty()) {
+            return 0;
+        }
+        Path projectRoot = getProjectRoot(appId);
+        // 1. 先把所有内容写入内容存储，失败时项目目录不会被修改
+        Map<String, Path> blobs = new HashMap<>();
+        for (Map.Entry<String, String> change : changes.entrySet()) {
+            if (change.getValue() != null) {
+                blobs.put(change.getKey(), BlobStore.put(change.getValue().getBytes(StandardCharsets.UTF_8)));
+            }
+        }
+        // 2. 逐个链接到项目目录（原子替换），执行删除
+        for (Map.Entry<String, String> change : changes.entrySet()) {
+            Path target = projectRoot.resolve(change.getKey());
+            if (change.getValue() == null) {
+                Files.deleteIfExists(target);
+                continue;
+            }
+            BlobStore.link(blobs.get(change.getKey()), target);
+        }
+        updateIndex(appId, changes);
+        log.info("应用 {} 提交 {} 个文件修改，本轮读取命中缓存 {} 次", appId, changes.size(), overlay.getCacheHits());
+        return changes.size();
+    }
+
+    /**
+     * 读取文件内容
+     *
+     * @return 文件内容，文件不存在时返回 null
+     */
+    public String readFile(long appId, String relativePath) throws IOException {
+        String key = normalize(appId, relativePath);
+        WorkspaceOverlay overlay = overlays.get(appId);
+        if (overlay != null && overlay.contains(key)) {
+            return overlay.get(key);
+        }
+        if (overlay != null) {
+            String cached = overlay.getCachedRead(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        Path path = getProjectRoot(appId).resolve(key);
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+        String content = Files.readString(path);
+        if (overlay != null) {
+            overlay.cacheRead(key, content);
+        }
+        return content;
+    }
+
+    /**
+     * 判断文件是否存在
+     */
+    public boolean isFile(long appId, String relativePath) {
+        String key = normalize(appId, relativePath);
+        WorkspaceOverlay overlay = overlays.get(appId);
+        if (overlay != null && overlay.contains(key)) {
+            return overlay.get(key) != null;
+        }
+        return Files.isRegularFile(getProjectRoot(appId).resolve(key));
+    }
+
+    /**
+     * 获取文件的大小、行数等信息，不读取文件内容
+     * 优先使用本轮还未提交的内容，其次是文件树索引，被忽略的文件（比如 node_modules 下的文件）直接读取文件属性
+     *
+     * @return 文件信息，路径为相对项目根目录的路径，文件不存在时返回 null
+     */
+    public ProjectTreeIndex.FileEntry statFile(long appId, String relativePath) throws IOException {
+        String key = normalize(appId, relativePath);
+        WorkspaceOverlay overlay = overlays.get(appId);
+        if (overlay != null && overlay.contains(key)) {
+            String content = overlay.get(key);
+            return content == null ? null : ProjectTreeIndex.entryOf(key, content, -1);
+        }
+        ProjectTreeIndex.FileEntry entry = treeIndexCache.get(appId).get(key);
+        if (entry != null) {
+            return entry;
+        }
+        Path path = getProjectRoot(appId).resolve(key);
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+        return ProjectTreeIndex.entryOf(key, path, Files.readAttributes(path, BasicFileAttributes.class));
+    }
+
+    /**
+     * 判断目录是否存在，还未提交的文件所在的目录也算存在
+     */
+    public boolean isDirectory(long appId, String relativeDirPath) {
+        String key = normalize(appId, relativeDirPath);
+        if (Files.isDirectory(getProjectRoot(appId).resolve(key))) {
+            return true;
+        }
+        WorkspaceOverlay overlay = overlays.get(appId);
+        if (overlay == null) {
+            return false;
+        }
+        String prefix = key.isEmpty() ? "" : key + "/";
+        return overlay.snapshot().entrySet().stream()
+                .anyMatch(change -> change.getValue() != null && change.getKey().startsWith(prefix));
+    }
+
+    /**
+     * 写入文件
+     */
+    public void writeFile(long appId, String relativePath, String content) throws IOException {
+        String key = normalize(appId, relativePath);
+        WorkspaceOverlay overlay = overlays.get(appId);
+        if (overlay != null) {
+            overlay.write(key, content);
+            return;
+        }
+        BlobStore.writeFile(getProjectRoot(appId).resolve(key), content);
+        updateIndex(appId, Map.of(key, content));
+    }
+
+    /**
+     * 批量写入文件，先校验全部路径，有一个路径不合法则一个都不写
+     *
+     * @param files 相对路径到文件内容的映射
+     * @return 规范化后的相对路径，顺序和传入顺序一致
+     */
+    public List<String> writeFiles(long appId, Map<String, String> files) throws IOException {
+        Map<String, String> changes = new LinkedHashMap<>();
+        for (Map.Entry<String, String> file : files.entrySet()) {
+            changes.put(normalize(appId, file.getKey()), file.getValue());
+        }
+        WorkspaceOverlay overlay = overlays.get(appId);
+        if (overlay != null) {
+            changes.forEach(overlay::write);
+            return new ArrayList<>(changes.keySet());
+        }
+        Path root = getProjectRoot(appId);
+        for (Map.Entry<String, String> change : changes.entrySet()) {
+            BlobStore.writeFile(root.resolve(change.getKey()), change.getValue());
+        }
+        updateIndex(appId, changes);
+        return new ArrayList<>(changes.keySet());
+    }
+
+    /**
+     * 删除文件
+     */
+    public void deleteFile(long appId, String relativePath) throws IOException {
+        String key = normalize(appId, relativePath);
+        WorkspaceOverlay overlay = overlays.get(appId);
+        if (overlay != null) {
+            overlay.delete(key);
+            return;
+        }
+        Files.deleteIfExists(getProjectRoot(appId).resolve(key));
+        ProjectTreeIndex index = treeIndexCache.getIfPresent(appId);
+        if (index != null) {
+            index.remove(key);
+        }
+    }
+
+    /**
+     * 列出目录下所有文件，包含还未提交的文件，不包含已删除的文件和需要忽略的文件（node_modules 等）
+     *
+     * @param relativeDirPath 目录的相对路径
+     * @return 文件信息，路径相对该目录，使用 / 分隔，按路径排序
+     */
+    public List<ProjectTreeIndex.FileEntry> listFiles(long appId, String relativeDirPath) {
+        String dirKey = normalize(appId, relativeDirPath);
+        WorkspaceOverlay overlay = overlays.get(appId);
+        if (overlay != null) {
+            List<ProjectTreeIndex.FileEntry> cached = overlay.getCachedListing(dirKey);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        String prefix = dirKey.isEmpty() ? "" : dirKey + "/";
+        Map<String, ProjectTreeIndex.FileEntry> files = new TreeMap<>();
+        for (ProjectTreeIndex.FileEntry entry : treeIndexCache.get(appId).list(dirKey)) {
+            files.put(entry.path(), entry);
+        }
+        // 合并本轮还未提交的修改
+        if (overlay != null) {
+            for (Map.Entry<String, String> change : overlay.snapshot().entrySet()) {
+                if (!change.getKey().startsWith(prefix) || isIgnored(change.getKey())) {
+                    continue;
+                }
+                if (change.getValue() == null) {
+                    files.remove(change.getKey());
+                } else {
+                    files.put(change.getKey(), ProjectTreeIndex.entryOf(change.getKey(), change.getValue(), -1));
+                }
+            }
+        }
+        List<ProjectTreeIndex.FileEntry> result = new ArrayList<>(files.size());
+        for (ProjectTreeIndex.FileEntry entry : files.values()) {
+            result.add(new ProjectTreeIndex.FileEntry(entry.path().substring(prefix.length()),
+                    entry.size(), entry.lines(), entry.lastModified()));
+        }
+        if (overlay != null) {
+            overlay.cacheListing(dirKey, result);
+        }
+        return result;
+    }
+
+    /**
+     * 应用关闭时停止目录监听
+     */
+    @PreDestroy
+    public void destroy() {
+        treeIndexCache.close();
+    }
+
+    /**
+     * 已经缓存的索引直接更新，还没有缓存的等第一次访问时再遍历
+     */
+    private void updateIndex(long appId, Map<String, String> changes) {
+        ProjectTreeIndex index = treeIndexCache.getIfPresent(appId);
+        if (index == null || !index.isBuilt()) {
+            return;
+        }
+        changes.forEach((key, content) -> {
+            if (content == null) {
+                index.remove(key);
+            } else {
+                index.put(key, content);
+            }
+        });
+    }
+
+    private boolean isIgnored(String relativeFile) {
+        for (String name : relativeFile.split("/")) {
+            if (ProjectTreeIndex.shouldIgnore(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,108 @@
+package com.air.aicodemaster.core.workspace;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 一轮对话中工具对项目文件的待提交修改
+ * key 为相对项目根目录的路径（统一使用 / 分隔），value 为文件的新内容，null 表示删除
+ * 同时缓存本轮从磁盘读取过的文件内容和目录列表，同一轮中大模型经常重复读取同一个文件，写入和删除时让对应的缓存失效
+ */
+class WorkspaceOverlay {
+
+    private final Map<String, String> pendingChanges = new LinkedHashMap<>();
+
+    /**
+     * 生成已经被取消（前端断开连接），之后即使模型正常结束也不提交
+     */
+    private volatile boolean cancelled;
+
+    /**
+     * 本轮从磁盘读取过的文件内容
+     */
+    private final Map<String, String> readCache = new HashMap<>();
+
+    /**
+     * 本轮列出过的目录，任意写入或删除都会让所有目录列表失效
+     */
+    private final Map<String, List<ProjectTreeIndex.FileEntry>> listingCache = new HashMap<>();
+
+    /**
+     * 命中缓存的次数
+     */
+    private int cacheHits;
+
+    synchronized boolean contains(String relativePath) {
+        return pendingChanges.containsKey(relativePath);
+    }
+
+    /**
+     * @return 文件的新内容，null 表示已删除，调用前需要先判断 contains
+     */
+    synchronized String get(String relativePath) {
+        return pendingChanges.get(relativePath);
+    }
+
+    synchronized void write(String relativePath, String content) {
+        pendingChanges.put(relativePath, content);
+        invalidate(relativePath);
+    }
+
+    synchronized void delete(String relativePath) {
+        pendingChanges.put(relativePath, null);
+        invalidate(relativePath);
+    }
+
+    /**
+     * @return 本轮从磁盘读取过的文件内容，没有读取过时返回 null
+     */
+    synchronized String getCachedRead(String relativePath) {
+        String content = readCache.get(relativePath);
+        if (content != null) {
+            cacheHits++;
+        }
+        return content;
+    }
+
+    synchronized void cacheRead(String relativePath, String content) {
+        readCache.put(relativePath, content);
+    }
+
+    /**
+     * @return 本轮列出过的目录，没有列出过时返回 null
+     */
+    synchronized List<ProjectTreeIndex.FileEntry> getCachedListing(String dirKey) {
+        List<ProjectTreeIndex.FileEntry> files = listingCache.get(dirKey);
+        if (files != null) {
+            cacheHits++;
+        }
+        return files;
+    }
+
+    synchronized void cacheListing(String dirKey, List<ProjectTreeIndex.FileEntry> files) {
+        listingCache.put(dirKey, List.copyOf(files));
+    }
+
+    synchronized int getCacheHits() {
+        return cacheHits;
+    }
+
+    private void invalidate(String relativePath) {
+        readCache.remove(relativePath);
+        listingCache.clear();
+    }
+
+    synchronized Map<String, String> snapshot() {
+        return new LinkedHashMap<>(pendingChanges);
+    }
+
+    void cancel() {
+        cancelled = true;
+    }
+
+    boolean isCancelled() {
+        return cancelled;
+    }
+}
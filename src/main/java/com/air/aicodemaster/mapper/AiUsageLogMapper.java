@@ -0,0 +1,13 @@
+package com.air.aicodemaster.mapper;
+
+import com.mybatisflex.core.BaseMapper;
+import com.air.aicodemaster.model.entity.AiUsageLog;
+
+/**
+ * AI 生成用量 映射层。
+ *
+ * @author Wyhhhh
+ */
+public interface AiUsageLogMapper extends BaseMapper<AiUsageLog> {
+
+}
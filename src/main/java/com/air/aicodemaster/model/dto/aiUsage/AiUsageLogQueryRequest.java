@@ -0,0 +1,42 @@
+package com.air.aicodemaster.model.dto.aiUsage;
+
+import com.air.aicodemaster.common.PageRequest;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.io.Serializable;
+
+/**
+ * AI 生成用量查询请求
+ */
+@EqualsAndHashCode(callSuper = true)
+@Data
+public class AiUsageLogQueryRequest extends PageRequest implements Serializable {
+
+    /**
+     * 应用id
+     */
+    private Long appId;
+
+    /**
+     * 用户id
+     */
+    private Long userId;
+
+    /**
+     * 代码生成类型
+     */
+    private String codeGenType;
+
+    /**
+     * 模型名称
+     */
+    private String modelName;
+
+    /**
+     * 状态：success/error
+     */
+    private String status;
+
+    private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,24 @@
+package com.air.aicodemaster.model.dto.app;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * 切换应用部署版本请求类
+ */
+@Data
+public class AppDeployActivateRequest implements Serializable {
+
+    /**
+     * 应用 id
+     */
+    private Long appId;
+
+    /**
+     * 版本号
+     */
+    private String versionId;
+
+    private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,19 @@
+package com.air.aicodemaster.model.dto.app;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * 应用实时预览请求类
+ */
+@Data
+public class AppPreviewRequest implements Serializable {
+
+    /**
+     * 应用 id
+     */
+    private Long appId;
+
+    private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,138 @@
+package com.air.aicodemaster.model.entity;
+
+import com.mybatisflex.annotation.Column;
+import com.mybatisflex.annotation.Id;
+import com.mybatisflex.annotation.KeyType;
+import com.mybatisflex.annotation.Table;
+import com.mybatisflex.core.keygen.KeyGenerators;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serial;
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * AI 生成用量 实体类。
+ * 每一次代码生成（一轮对话）记录一条，用于容量规划和找出消耗最大的提示词
+ *
+ * @author Wyhhhh
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Table("ai_usage_log")
+public class AiUsageLog implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * id
+     */
+    @Id(keyType = KeyType.Generator, value = KeyGenerators.snowFlakeId)
+    private Long id;
+
+    /**
+     * 应用id
+     */
+    @Column("appId")
+    private Long appId;
+
+    /**
+     * 用户id
+     */
+    @Column("userId")
+    private Long userId;
+
+    /**
+     * 代码生成类型
+     */
+    @Column("codeGenType")
+    private String codeGenType;
+
+    /**
+     * 模型名称
+     */
+    @Column("modelName")
+    private String modelName;
+
+    /**
+     * 用户提示词（截断）
+     */
+    private String prompt;
+
+    /**
+     * 输入 token 数
+     */
+    @Column("inputTokens")
+    private Integer inputTokens;
+
+    /**
+     * 输出 token 数
+     */
+    @Column("outputTokens")
+    private Integer outputTokens;
+
+    /**
+     * 命中缓存的输入 token 数
+     */
+    @Column("cachedTokens")
+    private Integer cachedTokens;
+
+    /**
+     * 推理（思考）token 数
+     */
+    @Column("reasoningTokens")
+    private Integer reasoningTokens;
+
+    /**
+     * 总 token 数
+     */
+    @Column("totalTokens")
+    private Integer totalTokens;
+
+    /**
+     * 工具调用轮数
+     */
+    @Column("toolRounds")
+    private Integer toolRounds;
+
+    /**
+     * 首 token 耗时（毫秒）
+     */
+    @Column("firstTokenMs")
+    private Long firstTokenMs;
+
+    /**
+     * 总耗时（毫秒）
+     */
+    @Column("durationMs")
+    private Long durationMs;
+
+    /**
+     * 状态：success/error
+     */
+    private String status;
+
+    /**
+     * 创建时间
+     */
+    @Column("createTime")
+    private LocalDateTime createTime;
+
+    /**
+     * 更新时间
+     */
+    @Column("updateTime")
+    private LocalDateTime updateTime;
+
+    /**
+     * 是否删除
+     */
+    @Column(value = "isDelete", isLogicDelete = true)
+    private Integer isDelete;
+}
@@ -0,0 +1,44 @@
+package com.air.aicodemaster.model.enums;
+
+import lombok.Getter;
+
+import java.util.Set;
+
+/**
+ * 工具调用阶段枚举
+ * 每一轮工具调用都会把可用工具的定义（JSON Schema）发给大模型，不同阶段只提供需要的工具，减少 prompt 长度，也避免大模型误用工具
+ */
+@Getter
+public enum ToolPhaseEnum {
+
+    /**
+     * 新项目的第一次生成，项目中只有脚手架，不需要删除文件、字符串替换和查看文件信息
+     */
+    CREATE("创建项目", "create", Set.of("writeFiles", "writeFile", "patchFile", "readFile", "readFiles")),
+
+    /**
+     * 修改已有项目，提供全部工具
+     */
+    EDIT("修改项目", "edit", null);
+
+    private final String text;
+    private final String value;
+
+    /**
+     * 该阶段可用的工具名称，null 表示全部工具
+     */
+    private final Set<String> toolNames;
+
+    ToolPhaseEnum(String text, String value, Set<String> toolNames) {
+        this.text = text;
+        this.value = value;
+        this.toolNames = toolNames;
+    }
+
+    /**
+     * 该阶段是否提供这个工具
+     */
+    public boolean allows(String toolName) {
+        return toolNames == null || toolNames.contains(toolName);
+    }
+}
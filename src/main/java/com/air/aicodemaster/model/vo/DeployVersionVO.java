@@ -0,0 +1,45 @@
+package com.air.aicodemaster.model.vo;
+
+import lombok.Data;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+/**
+ * 应用的一个部署版本
+ */
+@Data
+public class DeployVersionVO implements Serializable {
+
+    /**
+     * 版本号
+     */
+    private String versionId;
+
+    /**
+     * 部署时间
+     */
+    private LocalDateTime deployedTime;
+
+    /**
+     * 文件数量
+     */
+    private Integer fileCount;
+
+    /**
+     * 和上一个版本相比新增或修改的文件数量
+     */
+    private Integer changedFileCount;
+
+    /**
+     * 文件总大小（字节）
+     */
+    private Long totalBytes;
+
+    /**
+     * 是否是当前访问的版本
+     */
+    private Boolean active;
+
+    private static final long serialVersionUID = 1L;
+}
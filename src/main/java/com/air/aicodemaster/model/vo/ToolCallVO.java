@@ -0,0 +1,49 @@
+package com.air.aicodemaster.model.vo;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * 单次工具调用记录
+ */
+@Data
+public class ToolCallVO implements Serializable {
+
+    /**
+     * 工具名称
+     */
+    private String toolName;
+
+    /**
+     * 开始时间相对本轮生成开始的偏移（毫秒）
+     */
+    private Long startOffsetMillis;
+
+    /**
+     * 执行耗时（毫秒）
+     */
+    private Long durationMillis;
+
+    /**
+     * 调用参数大小（字节）
+     */
+    private Integer argumentsSize;
+
+    /**
+     * 执行结果大小（字节）
+     */
+    private Integer resultSize;
+
+    /**
+     * 是否执行成功
+     */
+    private Boolean success;
+
+    /**
+     * 失败时的错误信息
+     */
+    private String errorMessage;
+
+    private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,51 @@
+package com.air.aicodemaster.model.vo;
+
+import lombok.Data;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 一轮生成的工具调用时间线
+ */
+@Data
+public class ToolTimelineVO implements Serializable {
+
+    /**
+     * 应用 id
+     */
+    private Long appId;
+
+    /**
+     * 代码生成类型
+     */
+    private String codeGenType;
+
+    /**
+     * 本轮生成开始时间
+     */
+    private LocalDateTime startTime;
+
+    /**
+     * 本轮生成结束时间，还在生成中时为空
+     */
+    private LocalDateTime endTime;
+
+    /**
+     * 工具调用总耗时（毫秒）
+     */
+    private Long totalToolMillis;
+
+    /**
+     * 因为超过上限没有记录的工具调用数
+     */
+    private Integer droppedCount;
+
+    /**
+     * 工具调用记录，按开始时间排序
+     */
+    private List<ToolCallVO> calls;
+
+    private static final long serialVersionUID = 1L;
+}
@@ -0,0 +1,31 @@
+package com.air.aicodemaster.service;
+
+import com.air.aicodemaster.model.dto.aiUsage.AiUsageLogQueryRequest;
+import com.air.aicodemaster.model.entity.AiUsageLog;
+import com.mybatisflex.core.query.QueryWrapper;
+import com.mybatisflex.core.service.IService;
+
+/**
+ * AI 生成用量 服务层。
+ *
+ * @author Wyhhhh
+ */
+public interface AiUsageLogService extends IService<AiUsageLog> {
+
+    /**
+     * 记录一次生成的用量，先放入缓冲区，批量写入数据库
+     */
+    void record(AiUsageLog aiUsageLog);
+
+    /**
+     * 将缓冲区中的用量记录批量写入数据库
+     *
+     * @return 写入的条数
+     */
+    int flush();
+
+    /**
+     * 通过查询条件获取 QueryWrapper
+     */
+    QueryWrapper getQueryWrapper(AiUsageLogQueryRequest aiUsageLogQueryRequest);
+}
@@ -5,6 +5,7 @@ import com.air.aicodemaster.model.dto.app.AppQueryRequest;
 import com.air.aicodemaster.model.entity.App;
 import com.air.aicodemaster.model.entity.User;
 import com.air.aicodemaster.model.vo.AppVO;
+import com.air.aicodemaster.model.vo.DeployVersionVO;
 import com.mybatisflex.core.query.QueryWrapper;
 import com.mybatisflex.core.service.IService;
 import reactor.core.publisher.Flux;
@@ -62,6 +63,23 @@ public interface AppService extends IService<App> {
     String deployApp(Long appId, User loginUser);
 
 
+    /**
+     * 查询应用的部署版本
+     * @param appId 应用 id
+     * @param loginUser 登录用户
+     * @return 部署版本，按部署时间倒序，还没有部署时为空
+     */
+    List<DeployVersionVO> listDeployVersions(Long appId, User loginUser);
+
+    /**
+     * 切换应用当前访问的部署版本，用于回滚
+     * @param appId 应用 id
+     * @param versionId 版本号
+     * @param loginUser 登录用户
+     * @return 部署 URL
+     */
+    String activateDeployVersion(Long appId, String versionId, User loginUser);
+
     /**
      * 异步生成应用截图并更新封面
      *
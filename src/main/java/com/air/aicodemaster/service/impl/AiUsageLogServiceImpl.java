@@ -0,0 +1,152 @@
+package com.air.aicodemaster.service.impl;
+
+import cn.hutool.core.util.StrUtil;
+import com.air.aicodemaster.mapper.AiUsageLogMapper;
+import com.air.aicodemaster.model.dto.aiUsage.AiUsageLogQueryRequest;
+import com.air.aicodemaster.model.entity.AiUsageLog;
+import com.air.aicodemaster.service.AiUsageLogService;
+import com.mybatisflex.core.query.QueryWrapper;
+import com.mybatisflex.spring.service.impl.ServiceImpl;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * AI 生成用量 服务层实现。
+ * 每次生成结束都写一次数据库没有必要，这里先把记录放到内存缓冲区，
+ * 攒够一批或者定时任务触发时再批量写入，应用关闭前也会写入一次
+ *
+ * @author Wyhhhh
+ */
+@Slf4j
+@Service
+public class AiUsageLogServiceImpl extends ServiceImpl<AiUsageLogMapper, AiUsageLog> implements AiUsageLogService {
+
+    /**
+     * 缓冲区攒够多少条就立即写入
+     */
+    private static final int BATCH_SIZE = 50;
+
+    /**
+     * 缓冲区最多保留的条数，数据库长时间不可用时丢弃最早的记录，避免内存无限增长
+     */
+    private static final int MAX_BUFFER_SIZE = 5000;
+
+    /**
+     * 提示词最多保留的长度
+     */
+    private static final int MAX_PROMPT_LENGTH = 1000;
+
+    private final ConcurrentLinkedQueue<AiUsageLog> buffer = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger bufferSize = new AtomicInteger();
+
+    /**
+     * 是否已经有一个写入在等待或执行，数据库不可用时缓冲区一直超过批量大小，不能每条记录都再开一个线程排队等锁
+     */
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+    @Override
+    public void record(AiUsageLog aiUsageLog) {
+        if (aiUsageLog == null) {
+            return;
+        }
+        aiUsageLog.setPrompt(StrUtil.maxLength(aiUsageLog.getPrompt(), MAX_PROMPT_LENGTH));
+        buffer.offer(aiUsageLog);
+        int size = bufferSize.incrementAndGet();
+        // 超过上限，丢弃最早的记录
+        while (size > MAX_BUFFER_SIZE && buffer.poll() != null) {
+            size = bufferSize.decrementAndGet();
+            log.warn("AI 用量缓冲区已满，丢弃最早的记录");
+        }
+        if (size >= BATCH_SIZE && flushScheduled.compareAndSet(false, true)) {
+            // 在虚拟线程中写入，不阻塞流式响应的回调线程
+            Thread.startVirtualThread(() -> {
+                try {
+                    flush();
+                } finally {
+                    flushScheduled.set(false);
+                }
+            });
+        }
+    }
+
+    /**
+     * 定时把缓冲区写入数据库
+     */
+    @Scheduled(fixedDelay = 10000)
+    public void scheduledFlush() {
+        flush();
+    }
+
+    /**
+     * 应用关闭前把剩余的记录写入数据库
+     */
+    @PreDestroy
+    public void destroy() {
+        flush();
+    }
+
+    @Override
+    public synchronized int flush() {
+        List<AiUsageLog> batch = new ArrayList<>();
+        AiUsageLog aiUsageLog;
+        while ((aiUsageLog = buffer.poll()) != null) {
+            bufferSize.decrementAndGet();
+            batch.add(aiUsageLog);
+        }
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        try {
+            this.saveBatch(batch, BATCH_SIZE);
+            log.debug("写入 AI 用量记录 {} 条", batch.size());
+        } catch (Exception e) {
+            // 写入失败放回缓冲区，等待下一次重试
+            log.error("写入 AI 用量记录失败: {}", e.getMessage());
+            batch.forEach(item -> {
+                buffer.offer(item);
+                bufferSize.incrementAndGet();
+            });
+            return 0;
+        }
+        return batch.size();
+    }
+
+    /**
+     * 根据查询条件，获取对应的 QueryWrapper 包装类
+     *
+     * @param aiUsageLogQueryRequest
+     * @return
+     */
+    @Override
+    public QueryWrapper getQueryWrapper(AiUsageLogQueryRequest aiUsageLogQueryRequest) {
+        QueryWrapper queryWrapper = QueryWrapper.create();
+        if (aiUsageLogQueryRequest == null) {
+            return queryWrapper;
+        }
+        String sortField = aiUsageLogQueryRequest.getSortField();
+        String sortOrder = aiUsageLogQueryRequest.getSortOrder();
+        // 拼接查询条件
+        queryWrapper.eq("appId", aiUsageLogQueryRequest.getAppId())
+                .eq("userId", aiUsageLogQueryRequest.getUserId())
+                .eq("codeGenType", aiUsageLogQueryRequest.getCodeGenType())
+                .eq("modelName", aiUsageLogQueryRequest.getModelName())
+                .eq("status", aiUsageLogQueryRequest.getStatus());
+        // 排序，可以按 totalTokens、durationMs 等字段排序找出消耗最大的提示词
+        if (StrUtil.isNotBlank(sortField)) {
+            queryWrapper.orderBy(sortField, "ascend".equals(sortOrder));
+        } else {
+            // 默认按创建时间降序排列
+            queryWrapper.orderBy("createTime", false);
+        }
+        return queryWrapper;
+    }
+}
@@ -2,13 +2,14 @@ package com.air.aicodemaster.service.impl;
 
 import cn.hutool.core.bean.BeanUtil;
 import cn.hutool.core.collection.CollUtil;
-import cn.hutool.core.io.FileUtil;
 import cn.hutool.core.util.RandomUtil;
 import cn.hutool.core.util.StrUtil;
 import com.air.aicodemaster.ai.AiCodeGenTypeRoutingService;
 import com.air.aicodemaster.constant.AppConstant;
 import com.air.aicodemaster.core.AiCodeGeneratorFacade;
-import com.air.aicodemaster.core.builder.VueProjectBuilder;
+import com.air.aicodemaster.core.builder.VueBuildScheduler;
+import com.air.aicodemaster.core.deploy.DeployVersionManager;
+import com.air.aicodemaster.core.storage.StorageLayout;
 import com.air.aicodemaster.core.handler.StreamHandlerExecutor;
 import com.air.aicodemaster.exception.BusinessException;
 import com.air.aicodemaster.exception.ErrorCode;
@@ -21,6 +22,7 @@ import com.air.aicodemaster.model.entity.User;
 import com.air.aicodemaster.model.enums.ChatHistoryMessageTypeEnum;
 import com.air.aicodemaster.model.enums.CodeGenTypeEnum;
 import com.air.aicodemaster.model.vo.AppVO;
+import com.air.aicodemaster.model.vo.DeployVersionVO;
 import com.air.aicodemaster.model.vo.UserVO;
 import com.air.aicodemaster.service.AppService;
 import com.air.aicodemaster.service.ChatHistoryService;
@@ -34,7 +36,9 @@ import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 
 import java.io.File;
+import java.io.IOException;
 import java.io.Serializable;
+import java.nio.file.NoSuchFileException;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
@@ -64,7 +68,10 @@ public class AppServiceImpl extends ServiceImpl<AppMapper, App>  implements AppS
     private StreamHandlerExecutor streamHandlerExecutor;
 
     @Resource
-    private VueProjectBuilder vueProjectBuilder;
+    private VueBuildScheduler vueBuildScheduler;
+
+    @Resource
+    private DeployVersionManager deployVersionManager;
 
     @Resource
     private ScreenshotService screenshotService;
@@ -105,7 +112,7 @@ public class AppServiceImpl extends ServiceImpl<AppMapper, App>  implements AppS
 
         // 6. 调用 AI 生成代码，其实在门面类中有对流进行拼接的操作，那里已经可以将 AI 的响应内容保存到对话历史中了
         //    但是为了使业务隔离开来，门面类中拼接代码是将代码保存到文件中，这里拼接是为了保存 AI 响应历史，这两个业务隔离开来
-        Flux<String> codeStream = aiCodeGeneratorFacade.generateAndSaveCodeStream(message, codeGenTypeEnum, appId);
+        Flux<String> codeStream = aiCodeGeneratorFacade.generateAndSaveCodeStream(message, codeGenTypeEnum, appId, loginUser.getId());
 
         // 7. 调用流处理执行器，收集AI响应内容，并在解析完成拼接后，记录到对话历史
         //    生成的单/多文件的代码文件预览 和 VUE 项目的预览是不一样的，VUE项目得要 npm 一下的，分开处理
@@ -172,9 +179,8 @@ public class AppServiceImpl extends ServiceImpl<AppMapper, App>  implements AppS
 
         // 5. 获取代码生成类型，构建源目录路径
         String codeGenType = app.getCodeGenType();
-        String sourceDirName = codeGenType + "_" + appId;
         // 这里是应用浏览的路径，代码所生成的路径就是这里
-        String sourceDirPath = AppConstant.CODE_OUTPUT_ROOT_DIR + File.separator + sourceDirName;
+        String sourceDirPath = StorageLayout.getProjectDir(codeGenType, appId).toString();
 
         // 6. 检查源目录是否存在
         File sourceDir = new File(sourceDirPath);
@@ -182,28 +188,27 @@ public class AppServiceImpl extends ServiceImpl<AppMapper, App>  implements AppS
             throw new BusinessException(ErrorCode.SYSTEM_ERROR, "应用代码不存在，请先生成代码");
         }
 
-        // 7.VUE 项目特殊处理，执行构建，然后将构建好的 dist 目录复制到部署目录即可
+        // 7.VUE 项目特殊处理，执行构建，然后将构建好的 dist 目录发布到部署目录即可
         CodeGenTypeEnum codeGenTypeEnum = CodeGenTypeEnum.getEnumByValue(codeGenType);
         // 只有 vue 项目才做特殊处理
         if (codeGenTypeEnum == CodeGenTypeEnum.VUE_PROJECT) {
             // 这个时候就不需要异步了，因为用户已经点了部署了，用户肯定是希望看到部署的结果的，和实时浏览还是不一样的
-            boolean buildSuccess = vueProjectBuilder.buildProject(sourceDirPath);
-            ThrowUtils.throwIf(!buildSuccess, ErrorCode.SYSTEM_ERROR, "Vue 项目构建失败，请重试");
-            // 检查 dist 目录是否存在
+            // 生成完成后提交的构建还没有结束时直接等待它的结果，不在同一个目录上并行构建
+            // 源码和上一次构建相同时直接复用已有的 dist，不会重新执行 npm
+            // 发布在构建槽位中执行，发布完成之前排队的构建不会开始清空 dist
             File distDir = new File(sourceDirPath, "dist");
-            ThrowUtils.throwIf(!distDir.exists(), ErrorCode.SYSTEM_ERROR, "Vue 项目构建完成但未生成 dist 目录");
-            // 将 dist 目录作为部署源
-            sourceDir = distDir;
-            log.info("Vue 项目构建成功，将部署 dist 目录: {}", distDir.getAbsolutePath());
-        }
-
-        // 8. 复制文件到部署目录
-        String deployDirPath = AppConstant.CODE_DEPLOY_ROOT_DIR + File.separator + deployKey;
-        try {
-            // 进行复制，并且还支持覆盖旧的文件
-            FileUtil.copyContent(sourceDir, new File(deployDirPath), true);
-        } catch (Exception e) {
-            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "部署失败：" + e.getMessage());
+            String publishDeployKey = deployKey;
+            Boolean published = vueBuildScheduler.buildAndRun(sourceDirPath, () -> {
+                // 检查 dist 目录是否存在
+                ThrowUtils.throwIf(!distDir.exists(), ErrorCode.SYSTEM_ERROR, "Vue 项目构建完成但未生成 dist 目录");
+                log.info("Vue 项目构建成功，将部署 dist 目录: {}", distDir.getAbsolutePath());
+                publish(publishDeployKey, distDir);
+                return true;
+            });
+            ThrowUtils.throwIf(published == null, ErrorCode.SYSTEM_ERROR, "Vue 项目构建失败，请重试");
+        } else {
+            // 8. 发布新的部署版本
+            publish(deployKey, sourceDir);
         }
 
         // 9. 更新应用的 deployKey 和部署时间
@@ -224,6 +229,18 @@ public class AppServiceImpl extends ServiceImpl<AppMapper, App>  implements AppS
     }
 
 
+    /**
+     * 发布新的部署版本，文件以硬链接的方式写入新的版本目录，写完后原子切换，访问者不会看到复制了一半的网站
+     */
+    private void publish(String deployKey, File sourceDir) {
+        try {
+            deployVersionManager.publish(deployKey, sourceDir.toPath());
+        } catch (Exception e) {
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "部署失败：" + e.getMessage());
+        }
+    }
+
+
     /**
      * 异步生成应用截图并更新封面
      *
@@ -304,6 +321,56 @@ public class AppServiceImpl extends ServiceImpl<AppMapper, App>  implements AppS
     }
 
 
+    /**
+     * 查询应用的部署版本，仅本人可以查看
+     */
+    @Override
+    public List<DeployVersionVO> listDeployVersions(Long appId, User loginUser) {
+        App app = getDeployedApp(appId, loginUser);
+        if (StrUtil.isBlank(app.getDeployKey())) {
+            return new ArrayList<>();
+        }
+        try {
+            return deployVersionManager.listVersions(app.getDeployKey());
+        } catch (IOException e) {
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "查询部署版本失败：" + e.getMessage());
+        }
+    }
+
+    /**
+     * 切换应用当前访问的部署版本，仅本人可以切换
+     * 只是替换部署目录的符号链接，不需要重新构建和复制文件
+     */
+    @Override
+    public String activateDeployVersion(Long appId, String versionId, User loginUser) {
+        ThrowUtils.throwIf(StrUtil.isBlank(versionId), ErrorCode.PARAMS_ERROR, "版本号不能为空");
+        App app = getDeployedApp(appId, loginUser);
+        String deployKey = app.getDeployKey();
+        ThrowUtils.throwIf(StrUtil.isBlank(deployKey), ErrorCode.OPERATION_ERROR, "应用还没有部署");
+        try {
+            deployVersionManager.activate(deployKey, versionId);
+        } catch (NoSuchFileException e) {
+            throw new BusinessException(ErrorCode.NOT_FOUND_ERROR, "部署版本不存在");
+        } catch (IOException e) {
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "切换部署版本失败：" + e.getMessage());
+        }
+        return String.format("%s/%s/", AppConstant.CODE_DEPLOY_HOST, deployKey);
+    }
+
+    /**
+     * 查询应用并校验是否是本人的应用
+     */
+    private App getDeployedApp(Long appId, User loginUser) {
+        ThrowUtils.throwIf(appId == null || appId <= 0, ErrorCode.PARAMS_ERROR, "应用 ID 不能为空");
+        ThrowUtils.throwIf(loginUser == null, ErrorCode.NOT_LOGIN_ERROR, "用户未登录");
+        App app = this.getById(appId);
+        ThrowUtils.throwIf(app == null, ErrorCode.NOT_FOUND_ERROR, "应用不存在");
+        if (!app.getUserId().equals(loginUser.getId())) {
+            throw new BusinessException(ErrorCode.NO_AUTH_ERROR, "无权限操作该应用的部署");
+        }
+        return app;
+    }
+
     /**
      * 批处理
      * 分页查询应用؜时，也需要额外获取创建应用的用户信息，这会涉‌及到关联查询多个用户信息，我们需要优化查询性‍能。优化查询逻辑如下：
@@ -42,7 +42,10 @@ public class ProjectDownloadServiceImpl implements ProjectDownloadService {
     private static final Set<String> IGNORED_EXTENSIONS = Set.of(
             ".log",
             ".tmp",
-            ".cache"
+            ".cache",
+            // 预压缩生成的文件
+            ".gz",
+            ".br"
     );
 
 
@@ -10,6 +10,7 @@ import dev.langchain4j.model.chat.request.ChatRequestParameters;
 import dev.langchain4j.model.chat.request.DefaultChatRequestParameters;
 import dev.langchain4j.model.chat.response.ChatResponse;
 import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import dev.langchain4j.model.output.TokenUsage;
 
 import java.util.List;
 import java.util.Map;
@@ -45,6 +46,11 @@ public interface StreamingChatModel {
 
         StreamingChatResponseHandler observingHandler = new StreamingChatResponseHandler() {
 
+            @Override
+            public void onStreamChunk(boolean hasOutput) {
+                handler.onStreamChunk(hasOutput);
+            }
+
             @Override
             public void onPartialResponse(String partialResponse) {
                 handler.onPartialResponse(partialResponse);
@@ -60,6 +66,11 @@ public interface StreamingChatModel {
                 handler.onCompleteToolExecutionRequest(index, completeToolExecutionRequest);
             }
 
+            @Override
+            public void onInterruptedUsage(TokenUsage tokenUsage) {
+                handler.onInterruptedUsage(tokenUsage);
+            }
+
             @Override
             public void onCompleteResponse(ChatResponse completeResponse) {
                 onResponse(completeResponse, finalChatRequest, provider(), attributes, listeners);
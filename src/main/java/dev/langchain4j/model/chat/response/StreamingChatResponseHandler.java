@@ -3,6 +3,7 @@ package dev.langchain4j.model.chat.response;
 import dev.langchain4j.agent.tool.ToolExecutionRequest;
 import dev.langchain4j.data.message.AiMessage;
 import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.output.TokenUsage;
 
 /**
  * Represents a handler for a {@link StreamingChatModel} response.
@@ -42,6 +43,26 @@ public interface StreamingChatResponseHandler {
     default void onCompleteToolExecutionRequest(int index, ToolExecutionRequest completeToolExecutionRequest) {
     }
 
+    /**
+     * Invoked for every chunk received from the provider, before it is dispatched to the other callbacks.
+     * Useful for measuring connect time and phases that produce no visible output,
+     * such as the reasoning phase of {@code deepseek-reasoner} (its {@code reasoning_content} is not mapped).
+     *
+     * @param hasOutput whether the chunk carries text content or a tool call
+     */
+    default void onStreamChunk(boolean hasOutput) {
+    }
+
+    /**
+     * Invoked before {@link #onError(Throwable)} when the stream breaks after the provider has already
+     * reported token usage. The tokens of an interrupted response are billed as well,
+     * so callers that retry can add them to the usage of the final response.
+     *
+     * @param tokenUsage the token usage received before the stream was interrupted
+     */
+    default void onInterruptedUsage(TokenUsage tokenUsage) {
+    }
+
     /**
      * Invoked when the model has finished streaming a response.
      * If the model requests the execution of one or multiple tools,
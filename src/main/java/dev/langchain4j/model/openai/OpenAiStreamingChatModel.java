@@ -17,6 +17,7 @@ import dev.langchain4j.model.openai.internal.OpenAiClient;
 import dev.langchain4j.model.openai.internal.chat.*;
 import dev.langchain4j.model.openai.internal.shared.StreamOptions;
 import dev.langchain4j.model.openai.spi.OpenAiStreamingChatModelBuilderFactory;
+import dev.langchain4j.model.output.TokenUsage;
 
 import java.time.Duration;
 import java.util.List;
@@ -125,6 +126,11 @@ public class OpenAiStreamingChatModel implements StreamingChatModel {
         client.chatCompletion(openAiRequest)
                 .onPartialResponse(partialResponse -> {
                     openAiResponseBuilder.append(partialResponse);
+                    try {
+                        handler.onStreamChunk(hasOutput(partialResponse));
+                    } catch (Exception e) {
+                        withLoggingExceptions(() -> handler.onError(e));
+                    }
                     handle(partialResponse, toolBuilder, handler);
                 })
                 .onComplete(() -> {
@@ -143,12 +149,27 @@ public class OpenAiStreamingChatModel implements StreamingChatModel {
                     }
                 })
                 .onError(throwable -> {
+                    TokenUsage tokenUsage = openAiResponseBuilder.build().tokenUsage();
+                    if (tokenUsage != null) {
+                        withLoggingExceptions(() -> handler.onInterruptedUsage(tokenUsage));
+                    }
                     RuntimeException mappedException = ExceptionMapper.DEFAULT.mapException(throwable);
                     withLoggingExceptions(() -> handler.onError(mappedException));
                 })
                 .execute();
     }
 
+    private static boolean hasOutput(ChatCompletionResponse partialResponse) {
+        if (partialResponse == null || isNullOrEmpty(partialResponse.choices())) {
+            return false;
+        }
+        ChatCompletionChoice choice = partialResponse.choices().get(0);
+        if (choice == null || choice.delta() == null) {
+            return false;
+        }
+        return !isNullOrEmpty(choice.delta().content()) || !isNullOrEmpty(choice.delta().toolCalls());
+    }
+
     private static void handle(ChatCompletionResponse partialResponse,
                                ToolExecutionRequestBuilder toolBuilder,
                                StreamingChatResponseHandler handler) {
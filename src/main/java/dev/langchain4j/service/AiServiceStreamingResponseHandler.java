@@ -150,7 +150,7 @@ class AiServiceStreamingResponseHandler implements StreamingChatResponseHandler
                     completeResponseHandler,
                     errorHandler,
                     temporaryMemory,
-                    TokenUsage.sum(tokenUsage, completeResponse.metadata().tokenUsage()),
+                    sumTokenUsage(tokenUsage, completeResponse.metadata().tokenUsage()),
                     toolSpecifications,
                     toolExecutors,
                     commonGuardrailParams,
@@ -162,8 +162,7 @@ class AiServiceStreamingResponseHandler implements StreamingChatResponseHandler
                 ChatResponse finalChatResponse = ChatResponse.builder()
                         .aiMessage(aiMessage)
                         .metadata(completeResponse.metadata().toBuilder()
-                                .tokenUsage(tokenUsage.add(
-                                        completeResponse.metadata().tokenUsage()))
+                                .tokenUsage(sumTokenUsage(tokenUsage, completeResponse.metadata().tokenUsage()))
                                 .build())
                         .build();
 
@@ -199,6 +198,23 @@ class AiServiceStreamingResponseHandler implements StreamingChatResponseHandler
         }
     }
 
+    /**
+     * Sums token usage across tool rounds. The initial usage is an empty {@link TokenUsage}; summing onto it
+     * directly would drop provider-specific details (e.g. cached and reasoning tokens of OpenAiTokenUsage),
+     * so the first real usage is taken as the accumulator instead.
+     */
+    static TokenUsage sumTokenUsage(TokenUsage accumulated, TokenUsage current) {
+        if (current == null) {
+            return accumulated;
+        }
+        if (accumulated == null || (accumulated.inputTokenCount() == null
+                && accumulated.outputTokenCount() == null
+                && accumulated.totalTokenCount() == null)) {
+            return current;
+        }
+        return accumulated.add(current);
+    }
+
     private ChatMemory getMemory() {
         return getMemory(memoryId);
     }
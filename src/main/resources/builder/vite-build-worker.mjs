@@ -0,0 +1,55 @@
+// Vite 常驻构建进程，由 ViteWorkerPool 启动
+// 协议：stdin 每行一个 JSON 请求 {"id": 1, "projectDir": "/path/to/vue_project_1"}
+//      stdout 中以 MARKER 开头的行是响应 {"id": 1, "success": true, "error": null, "durationMs": 812, "rss": 123456}
+//      其他输出（vite 的日志）原样转发到构建日志
+// 同一个进程内按 vite 的安装位置缓存已加载的 vite 模块，后续构建不需要再启动 Node、加载 vite 和插件
+import { createInterface } from 'node:readline';
+import { createRequire } from 'node:module';
+import { pathToFileURL } from 'node:url';
+import path from 'node:path';
+
+const MARKER = '@@vite-worker@@ ';
+const viteModules = new Map();
+
+async function loadVite(projectDir) {
+  const require = createRequire(path.join(projectDir, 'package.json'));
+  const entry = require.resolve('vite');
+  let vite = viteModules.get(entry);
+  if (!vite) {
+    vite = await import(pathToFileURL(entry).href);
+    viteModules.set(entry, vite);
+  }
+  return vite;
+}
+
+function respond(response) {
+  // 前面加换行，保证响应总是从新的一行开始
+  process.stdout.write('\n' + MARKER + JSON.stringify({ ...response, rss: process.memoryUsage().rss }) + '\n');
+}
+
+async function handle(request) {
+  const start = Date.now();
+  try {
+    const vite = await loadVite(request.projectDir);
+    process.chdir(request.projectDir);
+    await vite.build({ root: request.projectDir, mode: 'production', logLevel: 'info' });
+    respond({ id: request.id, success: true, error: null, durationMs: Date.now() - start });
+  } catch (e) {
+    console.log(e && e.stack ? e.stack : String(e));
+    respond({ id: request.id, success: false, error: String(e && e.message ? e.message : e), durationMs: Date.now() - start });
+  }
+}
+
+// 一次只处理一个请求，ViteWorkerPool 保证不会并发发送
+let queue = Promise.resolve();
+createInterface({ input: process.stdin }).on('line', (line) => {
+  if (!line.trim()) {
+    return;
+  }
+  const request = JSON.parse(line);
+  queue = queue.then(() => handle(request));
+}).on('close', () => {
+  queue.then(() => process.exit(0));
+});
+
+respond({ id: 0, success: true, error: null, durationMs: 0 });
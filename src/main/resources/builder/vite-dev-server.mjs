@@ -0,0 +1,33 @@
+// Vite 开发服务器，由 VitePreviewManager 启动
+// 用法：node vite-dev-server.mjs <projectDir> <cacheDir> <host> <port>
+// 监听成功后单独输出一行 READY_MARKER，VitePreviewManager 以它为准判断启动成功；端口被占用时 listen 失败，进程退出
+// 项目的 node_modules 是共享依赖仓库（.deps/{hash}）的链接，vite 默认把依赖预构建缓存写在 node_modules/.vite 中，
+// 依赖相同的项目会互相覆盖缓存，这里通过 createServer 把缓存目录指定到每个项目自己的目录
+import { createRequire } from 'node:module';
+import { pathToFileURL } from 'node:url';
+import path from 'node:path';
+
+const READY_MARKER = '@@vite-dev-server-ready@@';
+const [projectDir, cacheDir, host, port] = process.argv.slice(2);
+
+const require = createRequire(path.join(projectDir, 'package.json'));
+const vite = await import(pathToFileURL(require.resolve('vite')).href);
+
+process.chdir(projectDir);
+const server = await vite.createServer({
+  root: projectDir,
+  cacheDir,
+  server: { host, port: Number(port), strictPort: true },
+});
+await server.listen();
+server.printUrls();
+// 前面加换行，保证标记总是单独的一行
+process.stdout.write('\n' + READY_MARKER + '\n');
+
+async function shutdown() {
+  await server.close();
+  process.exit(0);
+}
+
+process.on('SIGTERM', shutdown);
+process.on('SIGINT', shutdown);
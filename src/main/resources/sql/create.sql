@@ -87,4 +87,31 @@ create table chat_history
 -- 扩展设计
 -- 1）可以按需添加 parentId 字段，将 AI 消息和对应的用户提示词进行关联，便于生成失败时的重试、或者用户手动重新生成，也就是覆盖掉 AI 的响应进行回退。
 -- 2）如果需要保存每个版本的代码文件，还可以添加 fileList 字段，结构为 JSON 数组格式，这样每条消息就对应一个代码版本。
--- 不过代码文件很大时，存到数据库里不是一个合适的选择。
\ No newline at end of file
+-- 不过代码文件很大时，存到数据库里不是一个合适的选择。
+
+-- AI 生成用量表
+create table ai_usage_log
+(
+    id              bigint auto_increment comment 'id' primary key,
+    appId           bigint                             not null comment '应用id',
+    userId          bigint                             not null comment '用户id',
+    codeGenType     varchar(64)                        null comment '代码生成类型',
+    modelName       varchar(128)                       null comment '模型名称',
+    prompt          varchar(1024)                      null comment '用户提示词（截断）',
+    inputTokens     int                                null comment '输入 token 数',
+    outputTokens    int                                null comment '输出 token 数',
+    cachedTokens    int                                null comment '命中缓存的输入 token 数',
+    reasoningTokens int                                null comment '推理 token 数',
+    totalTokens     int                                null comment '总 token 数',
+    toolRounds      int      default 0                 not null comment '工具调用轮数',
+    firstTokenMs    bigint                             null comment '首 token 耗时（毫秒）',
+    durationMs      bigint                             null comment '总耗时（毫秒）',
+    status          varchar(32)                        not null comment 'success/error',
+    createTime      datetime default CURRENT_TIMESTAMP not null comment '创建时间',
+    updateTime      datetime default CURRENT_TIMESTAMP not null on update CURRENT_TIMESTAMP comment '更新时间',
+    isDelete        tinyint  default 0                 not null comment '是否删除',
+    INDEX idx_userId_createTime (userId, createTime), -- 用户查询自己的用量
+    INDEX idx_appId (appId),
+    INDEX idx_createTime (createTime)                 -- 管理员按时间统计
+) comment 'AI 生成用量' collate = utf8mb4_unicode_ci;
+-- 每一轮生成记录一条，由服务端批量写入，token 数在 HTML/多文件 模式下可能为空
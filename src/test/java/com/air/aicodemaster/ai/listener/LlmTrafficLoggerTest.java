@@ -0,0 +1,54 @@
+package com.air.aicodemaster.ai.listener;
+
+import com.air.aicodemaster.config.LlmTrafficLogConfig;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.listener.ChatModelRequestContext;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+
+import static dev.langchain4j.model.ModelProvider.OPEN_AI;
+
+class LlmTrafficLoggerTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void fileIsOnlyCreatedWhenEnabled() throws Exception {
+        LlmTrafficLogger disabled = createLogger(false);
+        disabled.onRequest(requestContext());
+        disabled.destroy();
+        Assertions.assertFalse(Files.exists(tempDir.resolve("llm-traffic.log")));
+
+        LlmTrafficLogger enabled = createLogger(true);
+        enabled.onRequest(requestContext());
+        // 停止时写完队列中的日志
+        enabled.destroy();
+        Assertions.assertTrue(Files.readString(tempDir.resolve("llm-traffic.log")).contains("LLM 请求"));
+    }
+
+    private LlmTrafficLogger createLogger(boolean fileEnabled) {
+        LlmTrafficLogConfig config = new LlmTrafficLogConfig();
+        config.setSampleRate(1);
+        config.setFileEnabled(fileEnabled);
+        config.setFileDir(tempDir.toString());
+        LlmTrafficLogger logger = new LlmTrafficLogger();
+        ReflectionTestUtils.setField(logger, "llmTrafficLogConfig", config);
+        ReflectionTestUtils.setField(logger, "meterRegistry", new SimpleMeterRegistry());
+        logger.init();
+        return logger;
+    }
+
+    private ChatModelRequestContext requestContext() {
+        ChatRequest chatRequest = ChatRequest.builder().messages(UserMessage.from("hello")).build();
+        return new ChatModelRequestContext(chatRequest, OPEN_AI, new HashMap<>());
+    }
+}
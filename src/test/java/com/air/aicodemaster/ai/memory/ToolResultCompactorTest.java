@@ -0,0 +1,82 @@
+package com.air.aicodemaster.ai.memory;
+
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.ToolExecutionResultMessage;
+import dev.langchain4j.data.message.UserMessage;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+class ToolResultCompactorTest {
+
+    @Test
+    void compactSupersededRead() {
+        List<ChatMessage> messages = new ArrayList<>();
+        messages.add(UserMessage.from("修改首页标题"));
+        addToolRound(messages, "1", "readFile", "{\"relativeFilePath\":\"src/App.vue\"}", "<template>old</template>");
+        addToolRound(messages, "2", "writeFile", "{\"relativeFilePath\":\"./src/App.vue\",\"content\":\"new\"}", "文件写入成功: src/App.vue");
+        addToolRound(messages, "3", "readFile", "{\"relativeFilePath\":\"src/App.vue\"}", "<template>new</template>");
+
+        List<ChatMessage> result = new ToolResultCompactor(0, 80).compact(messages);
+
+        Assertions.assertEquals(messages.size(), result.size());
+        Assertions.assertTrue(((ToolExecutionResultMessage) result.get(2)).text().startsWith("[已省略]"));
+        Assertions.assertEquals("<template>new</template>", ((ToolExecutionResultMessage) result.get(6)).text());
+    }
+
+    @Test
+    void compactBatchReadOnlyWhenAllFilesSuperseded() {
+        List<ChatMessage> messages = new ArrayList<>();
+        messages.add(UserMessage.from("修改首页和路由"));
+        addToolRound(messages, "1", "readFiles", "{\"relativeFilePaths\":[\"src/App.vue\",\"src/router/index.js\"]}", "===== src/App.vue =====");
+        addToolRound(messages, "2", "writeFiles", "{\"files\":[{\"relativeFilePath\":\"src/App.vue\",\"content\":\"new\"}]}", "成功写入 1 个文件: src/App.vue");
+
+        List<ChatMessage> result = new ToolResultCompactor(0, 80).compact(messages);
+        Assertions.assertEquals("===== src/App.vue =====", ((ToolExecutionResultMessage) result.get(2)).text());
+
+        addToolRound(messages, "3", "writeFile", "{\"relativeFilePath\":\"src/router/index.js\",\"content\":\"new\"}", "文件写入成功: src/router/index.js");
+        result = new ToolResultCompactor(0, 80).compact(messages);
+        Assertions.assertTrue(((ToolExecutionResultMessage) result.get(2)).text().startsWith("[已省略]"));
+    }
+
+    @Test
+    void summarizeLargeDirListing() {
+        List<ChatMessage> messages = new ArrayList<>();
+        String listing = "项目目录结构:\n" + "  file.vue\n".repeat(200);
+        addToolRound(messages, "1", "readDir", "{\"relativeDirPath\":\"\"}", listing);
+
+        List<ChatMessage> result = new ToolResultCompactor(0, 10).compact(messages);
+
+        String text = ((ToolExecutionResultMessage) result.get(1)).text();
+        Assertions.assertTrue(text.split("\n").length <= 11);
+        Assertions.assertTrue(text.contains("已省略"));
+    }
+
+    @Test
+    void enforceTokenCeilingExceptCurrentRound() {
+        List<ChatMessage> messages = new ArrayList<>();
+        String bigContent = "x".repeat(3000);
+        addToolRound(messages, "1", "readFile", "{\"relativeFilePath\":\"a.js\"}", bigContent);
+        addToolRound(messages, "2", "readFile", "{\"relativeFilePath\":\"b.js\"}", bigContent);
+        addToolRound(messages, "3", "readFile", "{\"relativeFilePath\":\"c.js\"}", bigContent);
+
+        List<ChatMessage> result = new ToolResultCompactor(1500, 80).compact(messages);
+
+        Assertions.assertTrue(((ToolExecutionResultMessage) result.get(1)).text().startsWith("[已省略]"));
+        Assertions.assertEquals(bigContent, ((ToolExecutionResultMessage) result.get(5)).text());
+    }
+
+    private void addToolRound(List<ChatMessage> messages, String id, String toolName, String arguments, String result) {
+        ToolExecutionRequest request = ToolExecutionRequest.builder()
+                .id(id)
+                .name(toolName)
+                .arguments(arguments)
+                .build();
+        messages.add(AiMessage.from(request));
+        messages.add(ToolExecutionResultMessage.from(request, result));
+    }
+}
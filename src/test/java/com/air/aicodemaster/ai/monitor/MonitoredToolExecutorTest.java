@@ -0,0 +1,68 @@
+package com.air.aicodemaster.ai.monitor;
+
+import cn.hutool.json.JSONObject;
+import com.air.aicodemaster.ai.tools.BaseTool;
+import com.air.aicodemaster.config.ToolMonitorConfig;
+import com.air.aicodemaster.model.vo.ToolTimelineVO;
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class MonitoredToolExecutorTest {
+
+    @Test
+    void recordMetricsAndTimeline() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ToolTimelineRecorder recorder = new ToolTimelineRecorder();
+        ReflectionTestUtils.setField(recorder, "toolMonitorConfig", new ToolMonitorConfig());
+        recorder.start(1L, "vue_project");
+
+        // 文件内容中的“失败”不会被当成错误，只有工具通过 error 返回的才算失败
+        MonitoredToolExecutor readFile = new MonitoredToolExecutor((request, memoryId) -> "<!-- 登录失败提示 -->\n<template></template>",
+                "readFile", "vue_project", meterRegistry, recorder, 2000);
+        MonitoredToolExecutor deleteFile = new MonitoredToolExecutor((request, memoryId) -> new FailingTool().deleteFile(),
+                "deleteFile", "vue_project", meterRegistry, recorder, 2000);
+        readFile.execute(request("readFile", "{\"relativeFilePath\":\"src/App.vue\"}"), 1L);
+        deleteFile.execute(request("deleteFile", "{\"relativeFilePath\":\"src/App.vue\"}"), 1L);
+        recorder.finish(1L);
+
+        Assertions.assertEquals(1, meterRegistry.get("ai.tool.execution").tag("tool", "readFile").tag("outcome", "success").timer().count());
+        Assertions.assertEquals(1, meterRegistry.get("ai.tool.errors").tag("tool", "deleteFile").counter().count());
+        Assertions.assertEquals(49, meterRegistry.get("ai.tool.result.size").tag("tool", "readFile").summary().totalAmount());
+        Assertions.assertEquals(0, meterRegistry.get("ai.tool.errors").tag("tool", "readFile").counter().count());
+
+        ToolTimelineVO timeline = recorder.get(1L);
+        Assertions.assertNotNull(timeline.getEndTime());
+        Assertions.assertEquals(2, timeline.getCalls().size());
+        Assertions.assertTrue(timeline.getCalls().get(0).getSuccess());
+        Assertions.assertEquals("错误：不允许删除重要文件 - App.vue", timeline.getCalls().get(1).getErrorMessage());
+    }
+
+    private static class FailingTool extends BaseTool {
+
+        String deleteFile() {
+            return error("错误：不允许删除重要文件 - App.vue");
+        }
+
+        @Override
+        public String getToolName() {
+            return "deleteFile";
+        }
+
+        @Override
+        public String getDisplayName() {
+            return "删除文件";
+        }
+
+        @Override
+        public String generateToolExecutedResult(JSONObject arguments) {
+            return "";
+        }
+    }
+
+    private ToolExecutionRequest request(String name, String arguments) {
+        return ToolExecutionRequest.builder().id(name).name(name).arguments(arguments).build();
+    }
+}
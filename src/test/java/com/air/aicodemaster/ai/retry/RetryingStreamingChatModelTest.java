@@ -0,0 +1,332 @@
+package com.air.aicodemaster.ai.retry;
+
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.exception.AuthenticationException;
+import dev.langchain4j.exception.LangChain4jException;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import dev.langchain4j.model.openai.OpenAiStreamingChatModel;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 使用本地桩服务模拟流式响应中途断开连接，不需要访问真实的模型服务
+ */
+class RetryingStreamingChatModelTest {
+
+    private ServerSocket serverSocket;
+
+    private final List<String> requestBodies = new CopyOnWriteArrayList<>();
+
+    /**
+     * 第一次请求断开连接之前输出的数据
+     */
+    private volatile List<String> interruptedEvents = List.of(chunk("Hello "), chunk("wor"));
+
+    /**
+     * 第一次请求是否正常结束，不断开连接
+     */
+    private volatile boolean firstRequestCompletes;
+
+    /**
+     * 桩服务输出到 {@link #PAUSE} 时等待，直到客户端收到了之前的数据
+     */
+    private final CountDownLatch resume = new CountDownLatch(1);
+
+    private static final String PAUSE = "pause";
+
+    /**
+     * 桩服务是否在等待超时之前等到了客户端
+     */
+    private volatile boolean resumedByClient;
+
+    @BeforeEach
+    void startStubServer() throws IOException {
+        serverSocket = new ServerSocket(0);
+        Thread.startVirtualThread(() -> {
+            while (!serverSocket.isClosed()) {
+                try (Socket socket = serverSocket.accept()) {
+                    String body = readRequestBody(socket);
+                    requestBodies.add(body);
+                    if (requestBodies.size() == 1) {
+                        // 第一次请求输出一部分内容后直接断开连接
+                        writeSse(socket, interruptedEvents, firstRequestCompletes);
+                    } else {
+                        writeSse(socket, List.of(chunk("ld!"), finishChunk()), true);
+                    }
+                } catch (IOException ignored) {
+                }
+            }
+        });
+    }
+
+    @AfterEach
+    void stopStubServer() throws IOException {
+        serverSocket.close();
+    }
+
+    @Test
+    void continueAfterConnectionDropped() throws Exception {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        RetryingStreamingChatModel model = new RetryingStreamingChatModel(buildModel(), new RetryBudget(10),
+                2, 0, meterRegistry, "test");
+        StringBuilder partialText = new StringBuilder();
+        CompletableFuture<ChatResponse> future = new CompletableFuture<>();
+
+        model.chat(ChatRequest.builder().messages(UserMessage.from("say hello")).build(), new StreamingChatResponseHandler() {
+            @Override
+            public void onPartialResponse(String partialResponse) {
+                partialText.append(partialResponse);
+            }
+
+            @Override
+            public void onCompleteResponse(ChatResponse completeResponse) {
+                future.complete(completeResponse);
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                future.completeExceptionally(error);
+            }
+        });
+
+        ChatResponse response = future.get(30, TimeUnit.SECONDS);
+        Assertions.assertEquals("Hello world!", response.aiMessage().text());
+        Assertions.assertEquals("Hello world!", partialText.toString());
+        Assertions.assertEquals(2, requestBodies.size());
+        // 续写请求带上了已经输出的内容和续写提示词
+        Assertions.assertTrue(requestBodies.get(1).contains("Hello wor"));
+        Assertions.assertTrue(requestBodies.get(1).contains(RetryingStreamingChatModel.CONTINUE_PROMPT));
+        Assertions.assertEquals(1.0, meterRegistry.counter("ai.model.retry", "codeGenType", "test", "outcome", "recovered").count());
+    }
+
+    @Test
+    void forwardToolCallFragmentsBeforeCompletion() throws Exception {
+        firstRequestCompletes = true;
+        interruptedEvents = List.of(toolCallChunk(), PAUSE, toolFinishChunk());
+        RetryingStreamingChatModel model = new RetryingStreamingChatModel(buildModel(), new RetryBudget(10),
+                2, 0, new SimpleMeterRegistry(), "test");
+        List<ToolExecutionRequest> partialToolCalls = new CopyOnWriteArrayList<>();
+        CompletableFuture<ChatResponse> future = new CompletableFuture<>();
+
+        model.chat(ChatRequest.builder().messages(UserMessage.from("write a file")).build(), new StreamingChatResponseHandler() {
+            @Override
+            public void onPartialResponse(String partialResponse) {
+            }
+
+            @Override
+            public void onPartialToolExecutionRequest(int index, ToolExecutionRequest partialToolExecutionRequest) {
+                partialToolCalls.add(partialToolExecutionRequest);
+                // 收到片段之后桩服务才会结束响应
+                resume.countDown();
+            }
+
+            @Override
+            public void onCompleteResponse(ChatResponse completeResponse) {
+                future.complete(completeResponse);
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                future.completeExceptionally(error);
+            }
+        });
+
+        ChatResponse response = future.get(30, TimeUnit.SECONDS);
+        // 第一个片段在响应结束之前就推送给了下游
+        Assertions.assertTrue(resumedByClient);
+        Assertions.assertEquals("writeFile", partialToolCalls.get(0).name());
+        Assertions.assertEquals("{\"relativeFilePath\":\"a.txt\"}", response.aiMessage().toolExecutionRequests().get(0).arguments());
+    }
+
+    @Test
+    void doNotReplayAfterToolCallFragmentForwarded() throws Exception {
+        interruptedEvents = List.of(chunk("Hello "), toolCallChunk());
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        RetryingStreamingChatModel model = new RetryingStreamingChatModel(buildModel(), new RetryBudget(10),
+                2, 0, meterRegistry, "test");
+        List<ToolExecutionRequest> partialToolCalls = new CopyOnWriteArrayList<>();
+        CompletableFuture<ChatResponse> future = new CompletableFuture<>();
+
+        model.chat(ChatRequest.builder().messages(UserMessage.from("write a file")).build(), new StreamingChatResponseHandler() {
+            @Override
+            public void onPartialResponse(String partialResponse) {
+            }
+
+            @Override
+            public void onPartialToolExecutionRequest(int index, ToolExecutionRequest partialToolExecutionRequest) {
+                partialToolCalls.add(partialToolExecutionRequest);
+            }
+
+            @Override
+            public void onCompleteResponse(ChatResponse completeResponse) {
+                future.complete(completeResponse);
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                future.completeExceptionally(error);
+            }
+        });
+
+        Assertions.assertThrows(ExecutionException.class, () -> future.get(30, TimeUnit.SECONDS));
+        // 片段已经推送给下游，中断后直接失败，不会重新发起工具调用
+        Assertions.assertEquals(1, partialToolCalls.size());
+        Assertions.assertEquals(1, requestBodies.size());
+        Assertions.assertEquals(1.0, meterRegistry.counter("ai.model.retry", "codeGenType", "test", "outcome", "tool_call_interrupted").count());
+    }
+
+    @Test
+    void sumUsageOfInterruptedAttempt() throws Exception {
+        interruptedEvents = List.of(chunk("Hello "), chunk("wor"), usageChunk());
+        RetryingStreamingChatModel model = new RetryingStreamingChatModel(buildModel(), new RetryBudget(10),
+                2, 0, new SimpleMeterRegistry(), "test");
+        CompletableFuture<ChatResponse> future = new CompletableFuture<>();
+
+        model.chat(ChatRequest.builder().messages(UserMessage.from("say hello")).build(), new StreamingChatResponseHandler() {
+            @Override
+            public void onPartialResponse(String partialResponse) {
+            }
+
+            @Override
+            public void onCompleteResponse(ChatResponse completeResponse) {
+                future.complete(completeResponse);
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                future.completeExceptionally(error);
+            }
+        });
+
+        ChatResponse response = future.get(30, TimeUnit.SECONDS);
+        Assertions.assertEquals("Hello world!", response.aiMessage().text());
+        // 中断的尝试的用量加到最终响应上
+        Assertions.assertEquals(30, response.tokenUsage().inputTokenCount());
+        Assertions.assertEquals(8, response.tokenUsage().outputTokenCount());
+    }
+
+    @Test
+    void isTransient() {
+        Assertions.assertTrue(RetryingStreamingChatModel.isTransient(new LangChain4jException(new IOException("closed"))));
+        Assertions.assertFalse(RetryingStreamingChatModel.isTransient(new AuthenticationException("invalid api key")));
+        Assertions.assertFalse(RetryingStreamingChatModel.isTransient(new IllegalStateException("bug")));
+    }
+
+    private OpenAiStreamingChatModel buildModel() {
+        return OpenAiStreamingChatModel.builder()
+                .baseUrl("http://localhost:" + serverSocket.getLocalPort())
+                .apiKey("test")
+                .modelName("deepseek-chat")
+                .timeout(Duration.ofSeconds(10))
+                .build();
+    }
+
+    private String readRequestBody(Socket socket) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+        int contentLength = 0;
+        String line;
+        while ((line = reader.readLine()) != null && !line.isEmpty()) {
+            if (line.toLowerCase().startsWith("content-length:")) {
+                contentLength = Integer.parseInt(line.substring("content-length:".length()).trim());
+            }
+        }
+        // 请求体是 JSON，这里按字符读取，中文字符数会小于字节数，读到 JSON 结束即可
+        StringBuilder body = new StringBuilder();
+        int depth = 0;
+        for (int i = 0; i < contentLength; i++) {
+            int c = reader.read();
+            if (c < 0) {
+                break;
+            }
+            body.append((char) c);
+            if (c == '{') {
+                depth++;
+            } else if (c == '}' && --depth == 0) {
+                break;
+            }
+        }
+        return body.toString();
+    }
+
+    private void writeSse(Socket socket, List<String> events, boolean complete) throws IOException {
+        // 按 PAUSE 分成几段输出，每段之间等待客户端处理完之前的数据
+        List<StringBuilder> parts = new ArrayList<>(List.of(new StringBuilder()));
+        for (String event : events) {
+            if (PAUSE.equals(event)) {
+                parts.add(new StringBuilder());
+            } else {
+                parts.get(parts.size() - 1).append("data: ").append(event).append("\n\n");
+            }
+        }
+        if (complete) {
+            parts.get(parts.size() - 1).append("data: [DONE]\n\n");
+        }
+        int length = parts.stream().mapToInt(part -> part.toString().getBytes(StandardCharsets.UTF_8).length).sum();
+        // 没有完成的响应声明更长的长度，然后提前关闭连接，客户端会读到意外的结束
+        int contentLength = complete ? length : length + 1024;
+        OutputStream out = socket.getOutputStream();
+        out.write(("HTTP/1.1 200 OK\r\nContent-Type: text/event-stream\r\nContent-Length: " + contentLength
+                + "\r\nConnection: close\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+        for (int i = 0; i < parts.size(); i++) {
+            if (i > 0) {
+                try {
+                    resumedByClient = resume.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            out.write(parts.get(i).toString().getBytes(StandardCharsets.UTF_8));
+            out.flush();
+        }
+    }
+
+    private String chunk(String content) {
+        return "{\"id\":\"1\",\"object\":\"chat.completion.chunk\",\"created\":1,\"model\":\"deepseek-chat\","
+                + "\"choices\":[{\"index\":0,\"delta\":{\"content\":\"" + content + "\"},\"finish_reason\":null}]}";
+    }
+
+    private String toolCallChunk() {
+        return "{\"id\":\"1\",\"object\":\"chat.completion.chunk\",\"created\":1,\"model\":\"deepseek-chat\","
+                + "\"choices\":[{\"index\":0,\"delta\":{\"tool_calls\":[{\"index\":0,\"id\":\"call_1\",\"type\":\"function\","
+                + "\"function\":{\"name\":\"writeFile\",\"arguments\":\"{\\\"relativeFilePath\\\"\"}}]},\"finish_reason\":null}]}";
+    }
+
+    private String toolFinishChunk() {
+        return "{\"id\":\"1\",\"object\":\"chat.completion.chunk\",\"created\":1,\"model\":\"deepseek-chat\","
+                + "\"choices\":[{\"index\":0,\"delta\":{\"tool_calls\":[{\"index\":0,\"function\":{\"arguments\":\":\\\"a.txt\\\"}\"}}]},"
+                + "\"finish_reason\":\"tool_calls\"}],\"usage\":{\"prompt_tokens\":10,\"completion_tokens\":3,\"total_tokens\":13}}";
+    }
+
+    private String usageChunk() {
+        return "{\"id\":\"1\",\"object\":\"chat.completion.chunk\",\"created\":1,\"model\":\"deepseek-chat\","
+                + "\"choices\":[],\"usage\":{\"prompt_tokens\":20,\"completion_tokens\":5,\"total_tokens\":25}}";
+    }
+
+    private String finishChunk() {
+        return "{\"id\":\"1\",\"object\":\"chat.completion.chunk\",\"created\":1,\"model\":\"deepseek-chat\","
+                + "\"choices\":[{\"index\":0,\"delta\":{},\"finish_reason\":\"stop\"}],"
+                + "\"usage\":{\"prompt_tokens\":10,\"completion_tokens\":3,\"total_tokens\":13}}";
+    }
+}
@@ -0,0 +1,32 @@
+package com.air.aicodemaster.ai.tools;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class FileReadToolTest {
+
+    @Test
+    void returnSmallFileAsIs() {
+        String content = "line1\nline2\n";
+        Assertions.assertEquals(content, FileReadTool.renderContent("a.js", content, null, null));
+    }
+
+    @Test
+    void readLineRange() {
+        String result = FileReadTool.renderContent("a.js", "line1\nline2\nline3\nline4\n", 2, 3);
+        Assertions.assertEquals("[文件 a.js 共 4 行，以下为第 2-3 行]\nline2\nline3\n", result);
+    }
+
+    @Test
+    void truncateLargeFile() {
+        StringBuilder content = new StringBuilder();
+        for (int i = 1; i <= 2000; i++) {
+            content.append("const value").append(i).append(" = ").append(i).append('\n');
+        }
+        String result = FileReadTool.renderContent("big.js", content.toString(), null, null);
+
+        Assertions.assertTrue(result.startsWith("[文件 big.js 共 2000 行，以下为第 1-"));
+        Assertions.assertTrue(result.contains("已截断，请通过 startLine="));
+        Assertions.assertTrue(result.length() < FileReadTool.MAX_READ_BYTES + 200);
+    }
+}
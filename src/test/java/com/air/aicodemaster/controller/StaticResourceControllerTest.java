@@ -0,0 +1,149 @@
+package com.air.aicodemaster.controller;
+
+import com.air.aicodemaster.core.storage.BlobStore;
+import com.air.aicodemaster.core.storage.Precompressor;
+import com.air.aicodemaster.core.storage.StorageLayout;
+import com.air.aicodemaster.core.storage.TempStorageExtension;
+import com.air.aicodemaster.model.enums.CodeGenTypeEnum;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ExtendWith(TempStorageExtension.class)
+class StaticResourceControllerTest {
+
+    private final MockMvc mockMvc = MockMvcBuilders.standaloneSetup(new StaticResourceController()).build();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Path projectDir = StorageLayout.getProjectDir(CodeGenTypeEnum.MULTI_FILE, 1L);
+        Files.createDirectories(projectDir.resolve("assets"));
+        Files.writeString(projectDir.resolve("index.html"), "<html></html>");
+        Files.writeString(projectDir.resolve("assets/index-a1B2c3_d.js"), "console.log(1)");
+        Files.write(projectDir.resolve("video.mp4"), "0123456789".getBytes());
+    }
+
+    @Test
+    void revalidateWithETag() throws Exception {
+        MvcResult result = mockMvc.perform(get("/static/multi_file_1/"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, "text/html;charset=UTF-8"))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache"))
+                .andExpect(header().doesNotExist(HttpHeaders.LAST_MODIFIED))
+                .andReturn();
+        String etag = result.getResponse().getHeader(HttpHeaders.ETAG);
+        Assertions.assertNotNull(etag);
+
+        mockMvc.perform(get("/static/multi_file_1/index.html").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void revalidateAfterContentChangedToOlderBlob() throws Exception {
+        Path index = StorageLayout.getProjectDir(CodeGenTypeEnum.MULTI_FILE, 1L).resolve("index.html");
+        FileTime cachedAt = FileTime.from(Instant.now());
+        FileTime past = FileTime.from(Instant.now().minus(Duration.ofDays(1)));
+        // 第二版内容之前已经被其他应用存储过，两份内容大小相同，内容文件的修改时间也相同
+        Files.setLastModifiedTime(BlobStore.put("<html>v1</html>".getBytes(StandardCharsets.UTF_8)), past);
+        Files.setLastModifiedTime(BlobStore.put("<html>v2</html>".getBytes(StandardCharsets.UTF_8)), past);
+        BlobStore.writeFile(index, "<html>v1</html>");
+        String etag = mockMvc.perform(get("/static/multi_file_1/index.html"))
+                .andExpect(content().string("<html>v1</html>"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        BlobStore.writeFile(index, "<html>v2</html>");
+        mockMvc.perform(get("/static/multi_file_1/index.html").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(content().string("<html>v2</html>"));
+        // 只带 If-Modified-Since 的客户端也要拿到新内容
+        mockMvc.perform(get("/static/multi_file_1/index.html")
+                        .header(HttpHeaders.IF_MODIFIED_SINCE, DateTimeFormatter.RFC_1123_DATE_TIME.format(cachedAt.toInstant().atZone(ZoneOffset.UTC))))
+                .andExpect(status().isOk())
+                .andExpect(content().string("<html>v2</html>"));
+    }
+
+    @Test
+    void onlyViteHashedAssetsAreImmutable() throws Exception {
+        Path vueProjectDir = StorageLayout.getProjectDir(CodeGenTypeEnum.VUE_PROJECT, 2L);
+        Files.createDirectories(vueProjectDir.resolve("dist/assets"));
+        Files.writeString(vueProjectDir.resolve("dist/assets/index-BVUAo3Yx.js"), "console.log(1)");
+
+        mockMvc.perform(get("/static/vue_project_2/dist/assets/index-BVUAo3Yx.js"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=31536000, public, immutable"));
+        // 普通网页中的 assets 目录不是构建产物，可能被原地重新生成
+        mockMvc.perform(get("/static/multi_file_1/assets/index-a1B2c3_d.js"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache"));
+
+        Assertions.assertTrue(StaticResourceController.isHashedAsset("vue_project_2", "/dist/assets/index-a1b2c3d4.css"));
+        Assertions.assertTrue(StaticResourceController.isHashedAsset("vue_project_2", "/dist/assets/vendor-lib-Ab_-cdEf.js"));
+        Assertions.assertFalse(StaticResourceController.isHashedAsset("vue_project_2", "/dist/assets/main-bg-image.png"));
+        Assertions.assertFalse(StaticResourceController.isHashedAsset("vue_project_2", "/dist/assets/hero-backdrop.jpg"));
+        Assertions.assertFalse(StaticResourceController.isHashedAsset("vue_project_2", "/src/assets/index-BVUAo3Yx.js"));
+        Assertions.assertFalse(StaticResourceController.isHashedAsset("vue_project_2", "/dist/index.html"));
+        Assertions.assertFalse(StaticResourceController.isHashedAsset("html_2", "/dist/assets/index-BVUAo3Yx.js"));
+    }
+
+    @Test
+    void serveByteRanges() throws Exception {
+        mockMvc.perform(get("/static/multi_file_1/video.mp4").header(HttpHeaders.RANGE, "bytes=2-5"))
+                .andExpect(status().isPartialContent())
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, "video/mp4"))
+                .andExpect(header().string(HttpHeaders.CONTENT_RANGE, "bytes 2-5/10"))
+                .andExpect(content().string("2345"));
+    }
+
+    @Test
+    void servePrecompressedVariant() throws Exception {
+        Path projectDir = StorageLayout.getProjectDir(CodeGenTypeEnum.MULTI_FILE, 1L);
+        Files.writeString(projectDir.resolve("style.css"), "body { color: red; }\n".repeat(100));
+        Precompressor.compress(projectDir.resolve("style.css"));
+
+        MvcResult result = mockMvc.perform(get("/static/multi_file_1/style.css").header(HttpHeaders.ACCEPT_ENCODING, "gzip, br"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andExpect(header().string(HttpHeaders.CONTENT_TYPE, "text/css;charset=UTF-8"))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING))
+                .andReturn();
+        Assertions.assertArrayEquals(Files.readAllBytes(projectDir.resolve("style.css.gz")), result.getResponse().getContentAsByteArray());
+
+        mockMvc.perform(get("/static/multi_file_1/style.css"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                .andExpect(content().string(Files.readString(projectDir.resolve("style.css"))));
+    }
+
+    @Test
+    void rejectPathsOutsideProject() throws Exception {
+        mockMvc.perform(get("/static/multi_file_1/%2e%2e/%2e%2e/secret.txt"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void contentTypes() {
+        Assertions.assertEquals("text/css;charset=UTF-8", StaticResourceController.getContentTypeWithCharset("app.css").toString());
+        Assertions.assertEquals("image/svg+xml;charset=UTF-8", StaticResourceController.getContentTypeWithCharset("logo.svg").toString());
+        Assertions.assertEquals("font/woff2", StaticResourceController.getContentTypeWithCharset("font.woff2").toString());
+        Assertions.assertEquals("application/octet-stream", StaticResourceController.getContentTypeWithCharset("data.unknownext").toString());
+    }
+}
@@ -0,0 +1,55 @@
+package com.air.aicodemaster.core;
+
+import com.air.aicodemaster.ai.monitor.ToolTimelineRecorder;
+import com.air.aicodemaster.core.storage.TempStorageExtension;
+import com.air.aicodemaster.core.workspace.ProjectWorkspaceManager;
+import dev.langchain4j.service.TokenStream;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+
+import java.lang.reflect.Proxy;
+
+/**
+ * 不启动 Spring 容器，验证 TokenStream 转换为 Flux 时工作区的释放
+ */
+@ExtendWith(TempStorageExtension.class)
+class AiCodeGeneratorFacadeStreamTest {
+
+    private final AiCodeGeneratorFacade facade = new AiCodeGeneratorFacade();
+
+    private final ProjectWorkspaceManager projectWorkspaceManager = new ProjectWorkspaceManager();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(facade, "projectWorkspaceManager", projectWorkspaceManager);
+        ReflectionTestUtils.setField(facade, "toolTimelineRecorder", new ToolTimelineRecorder());
+    }
+
+    @Test
+    void releaseWorkspaceWhenStartThrows() {
+        Flux<String> stream = ReflectionTestUtils.invokeMethod(facade, "processTokenStream", failingTokenStream(), 1L, null);
+
+        IllegalStateException error = Assertions.assertThrows(IllegalStateException.class, () -> stream.blockLast());
+        Assertions.assertEquals("重试预算不足", error.getMessage());
+        // 同步抛出的异常同样结束本轮，下一轮生成可以开始
+        Assertions.assertFalse(projectWorkspaceManager.isGenerating(1L));
+        Assertions.assertTrue(projectWorkspaceManager.begin(1L));
+    }
+
+    /**
+     * 注册回调时返回自身，start() 同步抛出异常
+     */
+    private static TokenStream failingTokenStream() {
+        return (TokenStream) Proxy.newProxyInstance(TokenStream.class.getClassLoader(), new Class<?>[]{TokenStream.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("start")) {
+                        throw new IllegalStateException("重试预算不足");
+                    }
+                    return proxy;
+                });
+    }
+}
@@ -0,0 +1,41 @@
+package com.air.aicodemaster.core.builder;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+class BuildLogTest {
+
+    @Test
+    void keepLastLinesAndReplayToLateSubscribers() {
+        BuildLog buildLog = new BuildLog("/tmp/vue_project_1", 3);
+        for (int i = 1; i <= 5; i++) {
+            buildLog.append("\u001B[32mline " + i + "\u001B[39m");
+        }
+        buildLog.finish(true);
+        buildLog.append("ignored");
+
+        Assertions.assertEquals("...（省略了前 2 行）\nline 3\nline 4\nline 5\n", buildLog.getText());
+        List<String> replayed = buildLog.lines().collectList().block(Duration.ofSeconds(1));
+        Assertions.assertEquals(List.of("line 3", "line 4", "line 5"), replayed);
+        Assertions.assertTrue(buildLog.result().block(Duration.ofSeconds(1)));
+    }
+
+    @Test
+    void recordVitePhases() {
+        BuildLog buildLog = new BuildLog("/tmp/vue_project_1", 100);
+        buildLog.recordPhase("install", 1200);
+        buildLog.append("vite v4.5.3 building for production...");
+        buildLog.append("transforming...");
+        buildLog.append("✓ 15 modules transformed.");
+        buildLog.append("rendering chunks...");
+        buildLog.append("computing gzip size...");
+        buildLog.append("✓ built in 812ms");
+        buildLog.finish(true);
+
+        Assertions.assertEquals(List.of("install", "transform", "bundle"), List.copyOf(buildLog.getPhaseMillis().keySet()));
+        Assertions.assertEquals(1200, buildLog.getPhaseMillis().get("install"));
+    }
+}
@@ -0,0 +1,75 @@
+package com.air.aicodemaster.core.builder;
+
+import com.air.aicodemaster.config.VueBuildConfig;
+import com.air.aicodemaster.core.storage.StorageLayout;
+import com.air.aicodemaster.core.storage.TempStorageExtension;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+@ExtendWith(TempStorageExtension.class)
+class DependencyStoreTest {
+
+    private static final String PACKAGE_JSON = """
+            {"name": "vue-project", "scripts": {"build": "vite build"},
+             "dependencies": {"vue": "^3.3.4", "vue-router": "^4.2.4"}}
+            """;
+
+    @TempDir
+    Path tempDir;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final DependencyStore dependencyStore = new DependencyStore();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(dependencyStore, "vueBuildConfig", new VueBuildConfig());
+        ReflectionTestUtils.setField(dependencyStore, "meterRegistry", meterRegistry);
+    }
+
+    @Test
+    void keyOnlyDependsOnDependencies() throws Exception {
+        Path project = tempDir.resolve("project");
+        Files.createDirectories(project);
+        Files.writeString(project.resolve("package.json"), PACKAGE_JSON);
+        String key = DependencyStore.computeKey(project);
+
+        // 调整字段顺序、修改脚本不影响
+        Files.writeString(project.resolve("package.json"), """
+                {"name": "renamed", "dependencies": {"vue-router": "^4.2.4", "vue": "^3.3.4"}}
+                """);
+        Assertions.assertEquals(key, DependencyStore.computeKey(project));
+
+        Files.writeString(project.resolve("package-lock.json"), "{}");
+        Assertions.assertNotEquals(key, DependencyStore.computeKey(project));
+    }
+
+    @Test
+    void linkPrePopulatedStoreAndSkipWhenUnchanged() throws Exception {
+        Path project = tempDir.resolve("project");
+        Files.createDirectories(project.resolve("node_modules/stale"));
+        Files.writeString(project.resolve("package.json"), PACKAGE_JSON);
+        // 预先准备好的依赖，不需要执行 npm
+        Path storeDir = StorageLayout.getDependencyRoot().resolve(DependencyStore.computeKey(project));
+        Files.createDirectories(storeDir.resolve("node_modules/vue"));
+        Files.writeString(storeDir.resolve("node_modules/vue/package.json"), "{}");
+        Files.writeString(storeDir.resolve(DependencyStore.INSTALLED_MARKER), "1024");
+
+        Assertions.assertTrue(dependencyStore.install(project.toFile(), new BuildLog(project.toString(), 100)));
+        Assertions.assertTrue(Files.isSymbolicLink(project.resolve("node_modules")));
+        Assertions.assertTrue(Files.exists(project.resolve("node_modules/vue/package.json")));
+        Assertions.assertTrue(dependencyStore.install(project.toFile(), new BuildLog(project.toString(), 100)));
+
+        Assertions.assertEquals(1, meterRegistry.counter("vue.build.install", "result", "linked").count());
+        Assertions.assertEquals(1, meterRegistry.counter("vue.build.install", "result", "skipped").count());
+        Assertions.assertEquals(2048, meterRegistry.counter("vue.build.install.saved.bytes").count());
+    }
+}
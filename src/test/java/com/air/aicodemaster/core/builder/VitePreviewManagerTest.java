@@ -0,0 +1,154 @@
+package com.air.aicodemaster.core.builder;
+
+import com.air.aicodemaster.config.VueBuildConfig;
+import com.air.aicodemaster.core.storage.StorageLayout;
+import com.air.aicodemaster.core.storage.TempStorageExtension;
+import com.air.aicodemaster.model.enums.CodeGenTypeEnum;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * 使用假的 vite（只监听端口的 node 服务）验证预览服务的端口分配和淘汰，需要本机安装 node
+ */
+@ExtendWith(TempStorageExtension.class)
+class VitePreviewManagerTest {
+
+    private final VueBuildConfig config = new VueBuildConfig();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final VitePreviewManager manager = new VitePreviewManager();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Assumptions.assumeTrue(nodeAvailable(), "没有安装 node");
+        config.setPreviewEnabled(true);
+        config.setPreviewHost("127.0.0.1");
+        config.setPreviewPortStart(findFreePort());
+        config.setMaxPreviewServers(1);
+        config.setPreviewStartTimeoutSeconds(20);
+        ReflectionTestUtils.setField(manager, "vueBuildConfig", config);
+        ReflectionTestUtils.setField(manager, "meterRegistry", meterRegistry);
+        // 依赖已经准备好，不执行 npm install
+        ReflectionTestUtils.setField(manager, "dependencyStore", new DependencyStore() {
+            @Override
+            public boolean install(File projectDir, BuildLog buildLog) {
+                return true;
+            }
+        });
+        manager.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        manager.destroy();
+    }
+
+    @Test
+    void reusesRunningServer() throws Exception {
+        createProject(1L);
+
+        String url = manager.start(1L);
+
+        Assertions.assertEquals("http://127.0.0.1:" + config.getPreviewPortStart() + "/", url);
+        Assertions.assertEquals(url, manager.start(1L));
+        Assertions.assertTrue(manager.touch(1L));
+        Assertions.assertEquals(1, meterRegistry.counter("vue.preview.starts", "outcome", "success").count());
+        // 依赖预构建缓存写在项目自己的缓存目录，不写入共享的 node_modules
+        Path projectDir = StorageLayout.getProjectDir(CodeGenTypeEnum.VUE_PROJECT, 1L);
+        Assertions.assertTrue(Files.isRegularFile(StorageLayout.getViteCacheDir("vue_project_1").resolve("fake-cache")));
+        Assertions.assertFalse(Files.exists(projectDir.resolve("node_modules/.vite")));
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedWhenPortsRunOut() throws Exception {
+        createProject(1L);
+        createProject(2L);
+
+        manager.start(1L);
+        String url = manager.start(2L);
+
+        // 只有一个端口，启动第二个应用时停止了第一个
+        Assertions.assertEquals("http://127.0.0.1:" + config.getPreviewPortStart() + "/", url);
+        Assertions.assertFalse(manager.touch(1L));
+        Assertions.assertTrue(manager.touch(2L));
+        Assertions.assertEquals(1, meterRegistry.counter("vue.preview.evictions", "reason", "lru").count());
+    }
+
+    @Test
+    void failWhenPortIsTakenByAnotherProcess() throws Exception {
+        createProject(1L);
+        // 端口被其他进程占用，能连上但不是这个应用的预览服务
+        try (ServerSocket other = new ServerSocket(config.getPreviewPortStart(), 50, InetAddress.getByName("127.0.0.1"))) {
+            Assertions.assertThrows(IOException.class, () -> manager.start(1L));
+        }
+        Assertions.assertEquals(0, manager.getRunningCount());
+        Assertions.assertEquals(1, meterRegistry.counter("vue.preview.starts", "outcome", "failure").count());
+    }
+
+    @Test
+    void stopsIdleServers() throws Exception {
+        createProject(1L);
+        config.setPreviewIdleMinutes(0);
+        manager.start(1L);
+        Thread.sleep(5);
+
+        manager.evictIdle();
+
+        Assertions.assertFalse(manager.touch(1L));
+        Assertions.assertEquals(0, manager.getRunningCount());
+    }
+
+    private void createProject(long appId) throws Exception {
+        Path projectDir = StorageLayout.getProjectDir(CodeGenTypeEnum.VUE_PROJECT, appId);
+        Path viteDir = projectDir.resolve("node_modules/vite");
+        Files.createDirectories(viteDir);
+        Files.writeString(projectDir.resolve("package.json"), "{\"scripts\":{\"dev\":\"vite\"}}");
+        Files.writeString(viteDir.resolve("package.json"), "{\"name\":\"vite\",\"main\":\"index.mjs\"}");
+        // 假的 vite 只监听端口，并在缓存目录中留下标记
+        Files.writeString(viteDir.resolve("index.mjs"), """
+                import fs from 'node:fs';
+                import http from 'node:http';
+                import path from 'node:path';
+                export async function createServer(options) {
+                  fs.writeFileSync(path.join(options.cacheDir, 'fake-cache'), options.root);
+                  const server = http.createServer((req, res) => res.end('ok'));
+                  return {
+                    listen: () => new Promise((resolve, reject) => {
+                      server.once('error', reject);
+                      server.listen(options.server.port, options.server.host, resolve);
+                    }),
+                    printUrls: () => console.log('fake vite dev server'),
+                    close: () => new Promise((resolve) => server.close(resolve)),
+                  };
+                }
+                """);
+    }
+
+    private static int findFreePort() throws Exception {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static boolean nodeAvailable() {
+        try {
+            return new ProcessBuilder("node", "--version").start().waitFor() == 0;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+}
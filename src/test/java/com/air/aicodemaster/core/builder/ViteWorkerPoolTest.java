@@ -0,0 +1,105 @@
+package com.air.aicodemaster.core.builder;
+
+import com.air.aicodemaster.config.VueBuildConfig;
+import com.air.aicodemaster.core.storage.TempStorageExtension;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * 使用假的 vite 模块（build 只写出 dist/index.html）验证常驻进程的协议和回收，需要本机安装 node
+ */
+@ExtendWith(TempStorageExtension.class)
+class ViteWorkerPoolTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final VueBuildConfig config = new VueBuildConfig();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final ViteWorkerPool pool = new ViteWorkerPool();
+
+    @BeforeEach
+    void setUp() {
+        Assumptions.assumeTrue(nodeAvailable(), "没有安装 node");
+        config.setWorkerPoolEnabled(true);
+        config.setWorkerPoolSize(1);
+        config.setBuildTimeoutSeconds(30);
+        ReflectionTestUtils.setField(pool, "vueBuildConfig", config);
+        ReflectionTestUtils.setField(pool, "meterRegistry", meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.destroy();
+    }
+
+    @Test
+    void buildsWithWarmWorker() throws Exception {
+        Path first = createProject("vue_project_1", false);
+        Path second = createProject("vue_project_2", false);
+        BuildLog firstLog = new BuildLog(first.toString(), 100);
+
+        Assertions.assertTrue(pool.build(first.toFile(), firstLog));
+        Assertions.assertTrue(pool.build(second.toFile(), new BuildLog(second.toString(), 100)));
+
+        Assertions.assertTrue(Files.exists(first.resolve("dist/index.html")));
+        Assertions.assertTrue(Files.exists(second.resolve("dist/index.html")));
+        Assertions.assertTrue(firstLog.getText().contains("fake vite build"));
+        Assertions.assertEquals(2, meterRegistry.counter("vue.build.worker", "outcome", "success").count());
+        Assertions.assertEquals(0, meterRegistry.counter("vue.build.worker", "outcome", "recycled").count());
+    }
+
+    @Test
+    void reportsFailureAndRecyclesAfterMaxBuilds() throws Exception {
+        config.setMaxBuildsPerWorker(1);
+        Path broken = createProject("vue_project_3", true);
+        Path ok = createProject("vue_project_4", false);
+
+        Assertions.assertFalse(pool.build(broken.toFile(), new BuildLog(broken.toString(), 100)));
+        Assertions.assertTrue(pool.build(ok.toFile(), new BuildLog(ok.toString(), 100)));
+
+        Assertions.assertEquals(1, meterRegistry.counter("vue.build.worker", "outcome", "failure").count());
+        Assertions.assertEquals(2, meterRegistry.counter("vue.build.worker", "outcome", "recycled").count());
+    }
+
+    private Path createProject(String name, boolean broken) throws Exception {
+        Path projectDir = tempDir.resolve(name);
+        Path viteDir = projectDir.resolve("node_modules/vite");
+        Files.createDirectories(viteDir);
+        Files.writeString(projectDir.resolve("package.json"), "{\"scripts\":{\"build\":\"vite build\"}}");
+        Files.writeString(viteDir.resolve("package.json"), "{\"name\":\"vite\",\"main\":\"index.mjs\"}");
+        String body = broken
+                ? "throw new Error('syntax error in App.vue');"
+                : "fs.mkdirSync(path.join(options.root, 'dist'), { recursive: true });\n"
+                + "  fs.writeFileSync(path.join(options.root, 'dist', 'index.html'), '<html></html>');";
+        Files.writeString(viteDir.resolve("index.mjs"), """
+                import fs from 'node:fs';
+                import path from 'node:path';
+                export async function build(options) {
+                  console.log('fake vite build ' + options.root);
+                  %s
+                }
+                """.formatted(body));
+        return projectDir;
+    }
+
+    private static boolean nodeAvailable() {
+        try {
+            return new ProcessBuilder("node", "--version").start().waitFor() == 0;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+}
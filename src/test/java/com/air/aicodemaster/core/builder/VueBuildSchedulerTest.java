@@ -0,0 +1,150 @@
+package com.air.aicodemaster.core.builder;
+
+import com.air.aicodemaster.config.VueBuildConfig;
+import com.air.aicodemaster.core.storage.StorageLayout;
+import com.air.aicodemaster.core.storage.TempStorageExtension;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@ExtendWith(TempStorageExtension.class)
+class VueBuildSchedulerTest {
+
+    private final CountDownLatch started = new CountDownLatch(1);
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private final AtomicInteger buildCount = new AtomicInteger();
+
+    private final AtomicInteger concurrentBuilds = new AtomicInteger();
+
+    private final AtomicInteger maxConcurrentBuilds = new AtomicInteger();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final VueBuildScheduler scheduler = new VueBuildScheduler();
+
+    @BeforeEach
+    void setUp() {
+        VueProjectBuilder builder = new VueProjectBuilder() {
+            @Override
+            public boolean buildProject(String projectPath, BuildLog buildLog) {
+                maxConcurrentBuilds.accumulateAndGet(concurrentBuilds.incrementAndGet(), Math::max);
+                buildCount.incrementAndGet();
+                started.countDown();
+                try {
+                    return release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    return false;
+                } finally {
+                    concurrentBuilds.decrementAndGet();
+                }
+            }
+        };
+        VueBuildConfig config = new VueBuildConfig();
+        config.setMaxConcurrentBuilds(4);
+        ReflectionTestUtils.setField(scheduler, "vueProjectBuilder", builder);
+        ReflectionTestUtils.setField(scheduler, "vueBuildConfig", config);
+        ReflectionTestUtils.setField(scheduler, "meterRegistry", meterRegistry);
+        BuildLogManager buildLogManager = new BuildLogManager();
+        ReflectionTestUtils.setField(buildLogManager, "vueBuildConfig", config);
+        ReflectionTestUtils.setField(buildLogManager, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(scheduler, "buildLogManager", buildLogManager);
+        scheduler.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        scheduler.destroy();
+    }
+
+    @Test
+    void mergeQueuedBuildsAndNeverBuildSameProjectInParallel() throws Exception {
+        CompletableFuture<Boolean> running = scheduler.submit("/tmp/vue_project_1");
+        Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        // 正在构建时的新请求排队，排队期间的请求合并，部署直接等待排队的构建
+        CompletableFuture<Boolean> queued = scheduler.submit("/tmp/vue_project_1");
+        Assertions.assertNotSame(running, queued);
+        Assertions.assertSame(queued, scheduler.submit("/tmp/vue_project_1"));
+        Assertions.assertEquals(2, scheduler.getPendingCount());
+
+        CompletableFuture<Boolean> deploy = CompletableFuture.supplyAsync(() -> scheduler.buildAndWait("/tmp/vue_project_1"));
+        // 等部署合并到排队的构建之后再结束构建，否则排队的构建可能在部署之前就完成了
+        long deadline = System.currentTimeMillis() + 5000;
+        while (meterRegistry.counter("vue.build.requests", "outcome", "merged").count() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        release.countDown();
+        Assertions.assertTrue(deploy.get(5, TimeUnit.SECONDS));
+        Assertions.assertTrue(running.get(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(2, buildCount.get());
+        Assertions.assertEquals(1, maxConcurrentBuilds.get());
+        Assertions.assertEquals(0, scheduler.getPendingCount());
+        Assertions.assertTrue(Files.exists(StorageLayout.getBuildLogDir().resolve("vue_project_1.log")));
+    }
+
+    @Test
+    void deployReusesRunningBuildAndPublishesBeforeNextBuild() throws Exception {
+        CompletableFuture<Boolean> running = scheduler.submit("/tmp/vue_project_2");
+        Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        CountDownLatch publishing = new CountDownLatch(1);
+        CountDownLatch finishPublish = new CountDownLatch(1);
+        CompletableFuture<Integer> deploy = CompletableFuture.supplyAsync(() -> scheduler.buildAndRun("/tmp/vue_project_2", () -> {
+            publishing.countDown();
+            try {
+                finishPublish.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return buildCount.get();
+        }));
+        // 等部署复用了正在执行的构建之后再结束构建
+        long deadline = System.currentTimeMillis() + 5000;
+        while (meterRegistry.counter("vue.build.requests", "outcome", "reused").count() < 1 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        release.countDown();
+        Assertions.assertTrue(publishing.await(5, TimeUnit.SECONDS));
+
+        // 发布期间提交的构建只排队，发布完成之后才开始
+        CompletableFuture<Boolean> next = scheduler.submit("/tmp/vue_project_2");
+        Thread.sleep(100);
+        Assertions.assertEquals(1, buildCount.get());
+        finishPublish.countDown();
+
+        Assertions.assertEquals(1, deploy.get(5, TimeUnit.SECONDS));
+        Assertions.assertTrue(running.get(5, TimeUnit.SECONDS));
+        Assertions.assertTrue(next.get(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(2, buildCount.get());
+        Assertions.assertEquals(1, maxConcurrentBuilds.get());
+    }
+
+    @Test
+    void skipActionWhenBuildFailsAndRethrowActionErrors() {
+        release.countDown();
+        Assertions.assertThrows(IllegalStateException.class, () -> scheduler.buildAndRun("/tmp/vue_project_3", () -> {
+            throw new IllegalStateException("发布失败");
+        }));
+
+        ReflectionTestUtils.setField(scheduler, "vueProjectBuilder", new VueProjectBuilder() {
+            @Override
+            public boolean buildProject(String projectPath, BuildLog buildLog) {
+                return false;
+            }
+        });
+        Assertions.assertNull(scheduler.buildAndRun("/tmp/vue_project_3", () -> "published"));
+    }
+}
@@ -0,0 +1,62 @@
+package com.air.aicodemaster.core.builder;
+
+import com.air.aicodemaster.config.VueBuildConfig;
+import com.air.aicodemaster.core.storage.TempStorageExtension;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+@ExtendWith(TempStorageExtension.class)
+class VueProjectBuilderTest {
+
+    @TempDir
+    Path tempDir;
+
+    private Path projectDir;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final VueProjectBuilder builder = new VueProjectBuilder();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        ReflectionTestUtils.setField(builder, "vueBuildConfig", new VueBuildConfig());
+        ReflectionTestUtils.setField(builder, "meterRegistry", meterRegistry);
+        projectDir = tempDir.resolve("vue_project_1");
+        Files.createDirectories(projectDir.resolve("src"));
+        Files.writeString(projectDir.resolve("package.json"), "{}");
+        Files.writeString(projectDir.resolve("src/App.vue"), "<template>1</template>");
+    }
+
+    @Test
+    void sourceHashIgnoresBuildOutputAndDependencies() throws Exception {
+        String hash = BuildManifest.compute(projectDir).getSourceHash();
+
+        Files.createDirectories(projectDir.resolve("dist"));
+        Files.writeString(projectDir.resolve("dist/index.html"), "<html></html>");
+        Files.createDirectories(projectDir.resolve("node_modules/vue"));
+        Files.writeString(projectDir.resolve("node_modules/vue/index.js"), "");
+        Assertions.assertEquals(hash, BuildManifest.compute(projectDir).getSourceHash());
+
+        Files.writeString(projectDir.resolve("src/App.vue"), "<template>2</template>");
+        Assertions.assertNotEquals(hash, BuildManifest.compute(projectDir).getSourceHash());
+    }
+
+    @Test
+    void reuseDistWhenSourcesUnchanged() throws Exception {
+        Files.createDirectories(projectDir.resolve("dist"));
+        Files.writeString(projectDir.resolve("dist/index.html"), "<html></html>");
+        BuildManifest.compute(projectDir).write(projectDir);
+
+        // 命中缓存时不会执行 npm（没有注入依赖仓库）
+        Assertions.assertTrue(builder.buildProject(projectDir.toString(), new BuildLog(projectDir.toString(), 100)));
+        Assertions.assertEquals(1, meterRegistry.counter("vue.build.cache", "result", "hit").count());
+    }
+}
@@ -0,0 +1,130 @@
+package com.air.aicodemaster.core.deploy;
+
+import com.air.aicodemaster.config.DeployConfig;
+import com.air.aicodemaster.core.storage.StorageLayout;
+import com.air.aicodemaster.core.storage.TempStorageExtension;
+import com.air.aicodemaster.model.vo.DeployVersionVO;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.List;
+
+@ExtendWith(TempStorageExtension.class)
+class DeployVersionManagerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final DeployConfig config = new DeployConfig();
+
+    private final DeployVersionManager manager = new DeployVersionManager();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(manager, "deployConfig", config);
+        ReflectionTestUtils.setField(manager, "meterRegistry", new SimpleMeterRegistry());
+    }
+
+    @Test
+    void publishSwapsLiveVersionAndRollsBack() throws Exception {
+        Path live = StorageLayout.getDeployDir("abc123");
+        String first = manager.publish("abc123", createSite("v1"));
+        String second = manager.publish("abc123", createSite("v2"));
+
+        Assertions.assertTrue(Files.isSymbolicLink(live));
+        Assertions.assertEquals("v2", Files.readString(live.resolve("index.html")));
+        // 历史版本的文件不受新版本影响
+        Assertions.assertEquals("v1", Files.readString(StorageLayout.getDeployVersionRoot("abc123").resolve(first).resolve("index.html")));
+
+        manager.activate("abc123", first);
+        Assertions.assertEquals("v1", Files.readString(live.resolve("index.html")));
+
+        List<DeployVersionVO> versions = manager.listVersions("abc123");
+        Assertions.assertEquals(List.of(second, first), versions.stream().map(DeployVersionVO::getVersionId).toList());
+        Assertions.assertTrue(versions.get(1).getActive());
+        Assertions.assertEquals(2, versions.get(0).getFileCount());
+
+        Assertions.assertThrows(NoSuchFileException.class, () -> manager.activate("abc123", "../../etc"));
+    }
+
+    @Test
+    void publishOnlyWritesChangedFiles() throws Exception {
+        Path site = createSite("v1");
+        String first = manager.publish("inc", site);
+        // 和构建一样整体替换文件，不原地修改（部署的文件是源文件的硬链接）
+        Files.delete(site.resolve("index.html"));
+        Files.writeString(site.resolve("index.html"), "v2");
+        String second = manager.publish("inc", site);
+
+        Path versionRoot = StorageLayout.getDeployVersionRoot("inc");
+        // 没有变化的文件是上一个版本文件的硬链接
+        Assertions.assertTrue(Files.isSameFile(versionRoot.resolve(first).resolve("assets/app.js"),
+                versionRoot.resolve(second).resolve("assets/app.js")));
+        Assertions.assertEquals("v1", Files.readString(versionRoot.resolve(first).resolve("index.html")));
+        Assertions.assertEquals("v2", Files.readString(StorageLayout.getDeployDir("inc").resolve("index.html")));
+        DeployVersionVO latest = manager.listVersions("inc").get(0);
+        Assertions.assertEquals(1, latest.getChangedFileCount());
+        Assertions.assertEquals(2, latest.getFileCount());
+    }
+
+    @Test
+    void publishPrecompressesTextAssets() throws Exception {
+        Path site = createSite("v1");
+        Files.writeString(site.resolve("assets/vendor.js"), "export const a = 1;\n".repeat(200));
+        String first = manager.publish("gz", site);
+        Files.delete(site.resolve("index.html"));
+        Files.writeString(site.resolve("index.html"), "v2");
+        String second = manager.publish("gz", site);
+
+        Path versionRoot = StorageLayout.getDeployVersionRoot("gz");
+        Path gzip = versionRoot.resolve(second).resolve("assets/vendor.js.gz");
+        Assertions.assertTrue(Files.isRegularFile(gzip));
+        // 没有变化的文件复用上一个版本的压缩文件
+        Assertions.assertTrue(Files.isSameFile(versionRoot.resolve(first).resolve("assets/vendor.js.gz"), gzip));
+        // 小文件不压缩
+        Assertions.assertFalse(Files.exists(versionRoot.resolve(second).resolve("index.html.gz")));
+    }
+
+    @Test
+    void migrateLegacyDeployDirectory() throws Exception {
+        Path live = StorageLayout.getDeployDir("legacy");
+        Files.createDirectories(live);
+        Files.writeString(live.resolve("index.html"), "old");
+
+        manager.publish("legacy", createSite("new"));
+
+        Assertions.assertTrue(Files.isSymbolicLink(live));
+        Assertions.assertEquals("new", Files.readString(live.resolve("index.html")));
+        Assertions.assertEquals(2, manager.listVersions("legacy").size());
+    }
+
+    @Test
+    void collectKeepsActiveAndRecentVersions() throws Exception {
+        config.setRetainVersions(1);
+        String first = manager.publish("gc", createSite("v1"));
+        manager.publish("gc", createSite("v2"));
+        String third = manager.publish("gc", createSite("v3"));
+        manager.activate("gc", first);
+
+        Assertions.assertEquals(1, manager.collectOldVersions("gc"));
+
+        List<String> remaining = manager.listVersions("gc").stream().map(DeployVersionVO::getVersionId).toList();
+        Assertions.assertEquals(List.of(third, first), remaining);
+    }
+
+    private Path createSite(String content) throws Exception {
+        Path site = Files.createTempDirectory(tempDir, "dist");
+        Files.createDirectories(site.resolve("assets"));
+        Files.writeString(site.resolve("index.html"), content);
+        Files.writeString(site.resolve("assets/app.js"), "console.log('" + content + "')");
+        return site;
+    }
+}
@@ -0,0 +1,79 @@
+package com.air.aicodemaster.core.patch;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class PatchApplierTest {
+
+    private static final String ORIGINAL = """
+            <template>
+              <div class="home">
+                <h1>旧标题</h1>
+                <p>介绍</p>
+              </div>
+            </template>
+
+            <script setup>
+            const count = 0
+            </script>
+            """;
+
+    @Test
+    void applyMultipleHunksWithLineNumbers() {
+        String patch = """
+                --- a/src/App.vue
+                +++ b/src/App.vue
+                @@ -2,3 +2,3 @@
+                   <div class="home">
+                -    <h1>旧标题</h1>
+                +    <h1>新标题</h1>
+                     <p>介绍</p>
+                @@ -8,3 +8,4 @@
+                 <script setup>
+                -const count = 0
+                +import { ref } from 'vue'
+                +const count = ref(0)
+                 </script>
+                """;
+        PatchApplier.PatchResult result = PatchApplier.apply(ORIGINAL, patch);
+
+        Assertions.assertTrue(result.isSuccess(), String.join("\n", result.errors()));
+        Assertions.assertEquals(2, result.appliedHunks());
+        Assertions.assertTrue(result.content().contains("    <h1>新标题</h1>\n"));
+        Assertions.assertTrue(result.content().contains("import { ref } from 'vue'\nconst count = ref(0)\n</script>\n"));
+    }
+
+    @Test
+    void toleratesIndentationWithoutLineNumbers() {
+        // 上下文行缩进和原文件不一致，也没有行号
+        String patch = """
+                @@
+                 <div class="home">
+                -<h1>旧标题</h1>
+                +    <h1>新标题</h1>
+                """;
+        PatchApplier.PatchResult result = PatchApplier.apply(ORIGINAL, patch);
+
+        Assertions.assertTrue(result.isSuccess(), String.join("\n", result.errors()));
+        // 上下文行保留原文件的内容
+        Assertions.assertTrue(result.content().contains("  <div class=\"home\">\n    <h1>新标题</h1>\n"));
+    }
+
+    @Test
+    void reportFailedHunksWithoutApplying() {
+        String patch = """
+                @@ -3 @@
+                -    <h1>旧标题</h1>
+                +    <h1>新标题</h1>
+                @@
+                -<span>不存在</span>
+                +<span>新内容</span>
+                """;
+        PatchApplier.PatchResult result = PatchApplier.apply(ORIGINAL, patch);
+
+        Assertions.assertFalse(result.isSuccess());
+        Assertions.assertNull(result.content());
+        Assertions.assertEquals(1, result.errors().size());
+        Assertions.assertTrue(result.errors().getFirst().startsWith("第 2 个 hunk"));
+    }
+}
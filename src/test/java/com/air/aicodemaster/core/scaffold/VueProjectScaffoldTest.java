@@ -0,0 +1,66 @@
+package com.air.aicodemaster.core.scaffold;
+
+import com.air.aicodemaster.core.storage.StorageLayout;
+import com.air.aicodemaster.core.storage.TempStorageExtension;
+import com.air.aicodemaster.core.workspace.ProjectWorkspaceManager;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+@ExtendWith(TempStorageExtension.class)
+class VueProjectScaffoldTest {
+
+    private final ProjectWorkspaceManager manager = new ProjectWorkspaceManager();
+
+    private final long appId = 1L;
+
+    private Path projectRoot;
+
+    @BeforeEach
+    void setUp() {
+        projectRoot = manager.getProjectRoot(appId);
+    }
+
+    @Test
+    void materializeOnlyForNewProject() throws Exception {
+        VueProjectScaffold scaffold = new VueProjectScaffold();
+
+        Assertions.assertTrue(scaffold.materialize(projectRoot));
+        Assertions.assertTrue(Files.readString(projectRoot.resolve("package.json")).contains("\"vite\""));
+        Assertions.assertTrue(Files.isRegularFile(projectRoot.resolve("src/router/index.js")));
+        Assertions.assertFalse(scaffold.materialize(projectRoot));
+    }
+
+    @Test
+    void untouchedUntilProjectChanges() throws Exception {
+        VueProjectScaffold scaffold = new VueProjectScaffold();
+        Assertions.assertTrue(scaffold.isUntouched(projectRoot));
+        scaffold.materialize(projectRoot);
+        Assertions.assertTrue(scaffold.isUntouched(projectRoot));
+        // 构建产物和依赖不算修改
+        Files.createDirectories(projectRoot.resolve("dist/assets"));
+        Files.writeString(projectRoot.resolve("dist/assets/index-a1b2c3d4.js"), "built");
+        Files.createDirectories(projectRoot.resolve("node_modules/vue"));
+        Files.writeString(projectRoot.resolve("node_modules/vue/index.js"), "vue");
+        Assertions.assertTrue(scaffold.isUntouched(projectRoot));
+
+        manager.writeFile(appId, "src/pages/About.vue", "<template>关于</template>");
+        Assertions.assertFalse(scaffold.isUntouched(projectRoot));
+    }
+
+    @Test
+    void writingProjectFileKeepsTemplateUnchanged() throws Exception {
+        new VueProjectScaffold().materialize(projectRoot);
+        Path template = StorageLayout.getScaffoldRoot().resolve("vue-project-" + VueProjectScaffold.VERSION).resolve("src/App.vue");
+        String original = Files.readString(template);
+
+        manager.writeFile(appId, "src/App.vue", "<template>changed</template>");
+
+        Assertions.assertEquals("<template>changed</template>", Files.readString(projectRoot.resolve("src/App.vue")));
+        Assertions.assertEquals(original, Files.readString(template));
+    }
+}
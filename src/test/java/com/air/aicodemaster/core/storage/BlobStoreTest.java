@@ -0,0 +1,89 @@
+package com.air.aicodemaster.core.storage;
+
+import cn.hutool.core.io.FileUtil;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+
+@ExtendWith(TempStorageExtension.class)
+class BlobStoreTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void deduplicateAndReplaceWithoutTouchingSharedContent() throws Exception {
+        String content = "shared";
+        Path first = tempDir.resolve("a/App.vue");
+        Path second = tempDir.resolve("b/App.vue");
+        BlobStore.writeFile(first, content);
+        BlobStore.writeFile(second, content);
+        Path blob = BlobStore.put(content.getBytes());
+
+        Assertions.assertTrue(Files.isSameFile(first, second));
+        Assertions.assertTrue(Files.isSameFile(first, blob));
+
+        // 重写其中一个文件，另一个文件和存储的内容不受影响
+        BlobStore.writeFile(first, "changed");
+        Assertions.assertEquals("changed", Files.readString(first));
+        Assertions.assertEquals(content, Files.readString(second));
+        Assertions.assertEquals(content, Files.readString(blob));
+        FileUtil.del(tempDir.resolve("b").toFile());
+    }
+
+    @Test
+    void linkTreeCopiesDirectory() throws Exception {
+        Path dist = tempDir.resolve("dist");
+        Files.createDirectories(dist.resolve("assets"));
+        Files.writeString(dist.resolve("index.html"), "<html></html>");
+        Files.writeString(dist.resolve("assets/app.js"), "console.log(1)");
+        Path deploy = tempDir.resolve("deploy");
+
+        Assertions.assertEquals(2, BlobStore.linkTree(dist, deploy));
+        Assertions.assertEquals("console.log(1)", Files.readString(deploy.resolve("assets/app.js")));
+
+        // 重新构建时删除重建源文件，已部署的文件不受影响
+        Files.delete(dist.resolve("index.html"));
+        Files.writeString(dist.resolve("index.html"), "<html>new</html>");
+        Assertions.assertEquals("<html></html>", Files.readString(deploy.resolve("index.html")));
+    }
+
+    @Test
+    void keepReferencedBlobs() throws Exception {
+        String content = "referenced";
+        Path file = tempDir.resolve("App.vue");
+        BlobStore.writeFile(file, content);
+        Path blob = BlobStore.put(content.getBytes());
+
+        BlobStore.collectGarbage(Duration.ZERO);
+        Assertions.assertTrue(Files.exists(blob));
+
+        Files.delete(file);
+        BlobStore.collectGarbage(Duration.ZERO);
+        Assertions.assertFalse(Files.exists(blob));
+    }
+
+    @Test
+    void reuseDoesNotTouchSharedInode() throws Exception {
+        Path file = tempDir.resolve("index.html");
+        BlobStore.writeFile(file, "<html></html>");
+        FileTime old = FileTime.from(Instant.now().minus(Duration.ofDays(1)));
+        Files.setLastModifiedTime(file, old);
+
+        // 其他应用再次存储相同内容，已有文件的修改时间（Last-Modified、ETag）不变
+        Path blob = BlobStore.put("<html></html>".getBytes());
+        Assertions.assertEquals(old, Files.getLastModifiedTime(file));
+
+        // 刚被引用的旧内容在宽限期内不回收
+        Files.delete(file);
+        Assertions.assertEquals(0, BlobStore.collectGarbage(Duration.ofHours(1)));
+        Assertions.assertTrue(Files.exists(blob));
+    }
+}
@@ -0,0 +1,75 @@
+package com.air.aicodemaster.core.storage;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+
+@ExtendWith(TempStorageExtension.class)
+class PrecompressorTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void compressLargeTextFiles() throws Exception {
+        Path file = tempDir.resolve("app.js");
+        String content = "console.log('hello world');\n".repeat(100);
+        Files.writeString(file, content);
+
+        Assertions.assertTrue(Precompressor.compress(file));
+
+        Path gzip = Precompressor.gzipOf(file);
+        Assertions.assertTrue(Files.size(gzip) < Files.size(file));
+        try (GZIPInputStream inputStream = new GZIPInputStream(new ByteArrayInputStream(Files.readAllBytes(gzip)))) {
+            Assertions.assertEquals(content, new String(inputStream.readAllBytes()));
+        }
+    }
+
+    @Test
+    void skipSmallAndBinaryFilesAndRemoveStaleVariant() throws Exception {
+        Path file = tempDir.resolve("index.html");
+        Files.writeString(file, "<html>" + "x".repeat(2000) + "</html>");
+        Assertions.assertTrue(Precompressor.compress(file));
+
+        // 替换成小文件，旧的压缩文件要删除
+        Files.delete(file);
+        Files.writeString(file, "<html></html>");
+        Assertions.assertFalse(Precompressor.compress(file));
+        Assertions.assertFalse(Files.exists(Precompressor.gzipOf(file)));
+
+        Path image = tempDir.resolve("logo.png");
+        Files.write(image, new byte[4096]);
+        Assertions.assertFalse(Precompressor.compress(image));
+        Assertions.assertFalse(Files.exists(Precompressor.gzipOf(image)));
+    }
+
+    @Test
+    void selectBestVariant() throws Exception {
+        Path file = tempDir.resolve("style.css");
+        Files.writeString(file, "body { color: red; }\n".repeat(100));
+        Precompressor.compress(file);
+
+        Assertions.assertNull(Precompressor.select(file, null));
+        Assertions.assertNull(Precompressor.select(file, "identity"));
+        Assertions.assertEquals("gzip", Precompressor.select(file, "gzip, deflate, br").encoding());
+
+        Files.write(file.resolveSibling("style.css.br"), new byte[]{1});
+        Assertions.assertEquals("br", Precompressor.select(file, "gzip, deflate, br").encoding());
+        Assertions.assertEquals("gzip", Precompressor.select(file, "gzip, br;q=0").encoding());
+    }
+
+    @Test
+    void parseAcceptEncoding() {
+        Assertions.assertTrue(Precompressor.accepts("gzip;q=0.5", "gzip"));
+        Assertions.assertTrue(Precompressor.accepts("deflate, GZIP", "gzip"));
+        Assertions.assertFalse(Precompressor.accepts("gzip;q=0", "gzip"));
+        Assertions.assertFalse(Precompressor.accepts("gzip; q=0.0", "gzip"));
+        Assertions.assertFalse(Precompressor.accepts("x-gzip", "gzip"));
+    }
+}
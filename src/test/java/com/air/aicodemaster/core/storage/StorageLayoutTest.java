@@ -0,0 +1,49 @@
+package com.air.aicodemaster.core.storage;
+
+import com.air.aicodemaster.model.enums.CodeGenTypeEnum;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+@ExtendWith(TempStorageExtension.class)
+class StorageLayoutTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void shardProjectDirAndRejectInvalidNames() {
+        Path projectDir = StorageLayout.getProjectDir(CodeGenTypeEnum.VUE_PROJECT, 42L);
+        Assertions.assertEquals("vue_project_42", projectDir.getFileName().toString());
+        Assertions.assertEquals(StorageLayout.getOutputRoot().resolve(StorageLayout.shardOf("vue_project_42")), projectDir.getParent());
+        Assertions.assertEquals(projectDir, StorageLayout.getProjectDir("vue_project", 42L));
+
+        Assertions.assertNull(StorageLayout.resolveProjectDir("../vue_project_42"));
+        Assertions.assertNull(StorageLayout.resolveProjectDir(".blobs"));
+    }
+
+    @Test
+    void fallBackToLegacyDirAndMigrate() throws Exception {
+        Path legacyDir = StorageLayout.getOutputRoot().resolve("html_7");
+        Files.createDirectories(legacyDir);
+        Files.writeString(legacyDir.resolve("index.html"), "<html></html>");
+        Path oldDeployDir = tempDir.resolve("old-deploy/abc123");
+        Files.createDirectories(oldDeployDir);
+        Assertions.assertEquals(legacyDir, StorageLayout.getProjectDir(CodeGenTypeEnum.HTML, 7L));
+
+        int migrated = new StorageMigrator().migrate(StorageLayout.getOutputRoot(), tempDir.resolve("old-deploy"));
+
+        Assertions.assertEquals(2, migrated);
+        Path projectDir = StorageLayout.getProjectDir(CodeGenTypeEnum.HTML, 7L);
+        Assertions.assertNotEquals(legacyDir, projectDir);
+        Assertions.assertEquals("<html></html>", Files.readString(projectDir.resolve("index.html")));
+        Assertions.assertFalse(Files.exists(legacyDir));
+        Assertions.assertTrue(Files.isDirectory(StorageLayout.getDeployDir("abc123")));
+        // 重复执行不会再迁移
+        Assertions.assertEquals(0, new StorageMigrator().migrate(StorageLayout.getOutputRoot(), tempDir.resolve("old-deploy")));
+    }
+}
@@ -0,0 +1,38 @@
+package com.air.aicodemaster.core.storage;
+
+import cn.hutool.core.io.FileUtil;
+import org.junit.jupiter.api.extension.AfterEachCallback;
+import org.junit.jupiter.api.extension.BeforeEachCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * 把存储布局指向每个测试单独的临时目录，测试结束后恢复并删除
+ * 存储布局是静态的，不指向临时目录的话测试会写到真实的 tmp/code_output 中
+ * 用法：在测试类上加 {@code @ExtendWith(TempStorageExtension.class)}，通过 StorageLayout 获取各个根目录
+ */
+public class TempStorageExtension implements BeforeEachCallback, AfterEachCallback {
+
+    private static final ExtensionContext.Namespace NAMESPACE = ExtensionContext.Namespace.create(TempStorageExtension.class);
+
+    @Override
+    public void beforeEach(ExtensionContext context) throws Exception {
+        Path root = Files.createTempDirectory("storage-test");
+        ExtensionContext.Store store = context.getStore(NAMESPACE);
+        store.put("root", root);
+        store.put("outputRoot", StorageLayout.getOutputRoot());
+        store.put("deployRoot", StorageLayout.getDeployRoot());
+        store.put("sharded", StorageLayout.isSharded());
+        StorageLayout.configure(root.resolve("output"), root.resolve("deploy"), true);
+    }
+
+    @Override
+    public void afterEach(ExtensionContext context) {
+        ExtensionContext.Store store = context.getStore(NAMESPACE);
+        StorageLayout.configure(store.get("outputRoot", Path.class), store.get("deployRoot", Path.class),
+                store.get("sharded", Boolean.class));
+        FileUtil.del(store.get("root", Path.class).toFile());
+    }
+}
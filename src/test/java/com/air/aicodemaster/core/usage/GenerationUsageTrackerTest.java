@@ -0,0 +1,66 @@
+package com.air.aicodemaster.core.usage;
+
+import com.air.aicodemaster.model.entity.AiUsageLog;
+import com.air.aicodemaster.model.enums.CodeGenTypeEnum;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.openai.OpenAiTokenUsage;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class GenerationUsageTrackerTest {
+
+    @Test
+    void countConsecutiveToolResultsAsOneRound() {
+        GenerationUsageTracker tracker = new GenerationUsageTracker(1L, 2L, CodeGenTypeEnum.VUE_PROJECT, "做一个博客");
+        // 第一次模型响应调用了两个工具，第二次调用了一个工具，最后输出文本
+        tracker.onModelOutput();
+        tracker.onToolExecuted();
+        tracker.onToolExecuted();
+        tracker.onModelOutput();
+        tracker.onToolExecuted();
+        tracker.onModelOutput();
+
+        AiUsageLog aiUsageLog = tracker.error();
+        Assertions.assertEquals(2, aiUsageLog.getToolRounds());
+        Assertions.assertNotNull(aiUsageLog.getFirstTokenMs());
+        Assertions.assertTrue(aiUsageLog.getDurationMs() >= aiUsageLog.getFirstTokenMs());
+        Assertions.assertEquals(GenerationUsageTracker.STATUS_ERROR, aiUsageLog.getStatus());
+        Assertions.assertEquals("vue_project", aiUsageLog.getCodeGenType());
+        Assertions.assertNull(aiUsageLog.getInputTokens());
+    }
+
+    @Test
+    void leaveFirstTokenEmptyWithoutModelOutput() {
+        AiUsageLog aiUsageLog = new GenerationUsageTracker(1L, 2L, CodeGenTypeEnum.HTML, "做一个博客").error();
+        Assertions.assertNull(aiUsageLog.getFirstTokenMs());
+        Assertions.assertEquals(0, aiUsageLog.getToolRounds());
+    }
+
+    @Test
+    void mapOpenAiTokenUsageDetails() {
+        GenerationUsageTracker tracker = new GenerationUsageTracker(1L, 2L, CodeGenTypeEnum.MULTI_FILE, "做一个博客");
+        tracker.onModelOutput();
+        OpenAiTokenUsage tokenUsage = OpenAiTokenUsage.builder()
+                .inputTokenCount(100)
+                .outputTokenCount(40)
+                .totalTokenCount(140)
+                .inputTokensDetails(OpenAiTokenUsage.InputTokensDetails.builder().cachedTokens(60).build())
+                .outputTokensDetails(OpenAiTokenUsage.OutputTokensDetails.builder().reasoningTokens(25).build())
+                .build();
+        ChatResponse response = ChatResponse.builder()
+                .aiMessage(AiMessage.from("完成"))
+                .modelName("deepseek-chat")
+                .tokenUsage(tokenUsage)
+                .build();
+
+        AiUsageLog aiUsageLog = tracker.success(response);
+        Assertions.assertEquals(GenerationUsageTracker.STATUS_SUCCESS, aiUsageLog.getStatus());
+        Assertions.assertEquals("deepseek-chat", aiUsageLog.getModelName());
+        Assertions.assertEquals(100, aiUsageLog.getInputTokens());
+        Assertions.assertEquals(40, aiUsageLog.getOutputTokens());
+        Assertions.assertEquals(140, aiUsageLog.getTotalTokens());
+        Assertions.assertEquals(60, aiUsageLog.getCachedTokens());
+        Assertions.assertEquals(25, aiUsageLog.getReasoningTokens());
+    }
+}
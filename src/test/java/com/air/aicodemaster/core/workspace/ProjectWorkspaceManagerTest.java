@@ -0,0 +1,113 @@
+package com.air.aicodemaster.core.workspace;
+
+import com.air.aicodemaster.core.storage.TempStorageExtension;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+@ExtendWith(TempStorageExtension.class)
+class ProjectWorkspaceManagerTest {
+
+    private final ProjectWorkspaceManager manager = new ProjectWorkspaceManager();
+
+    private final long appId = 1L;
+
+    private Path projectRoot;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        projectRoot = manager.getProjectRoot(appId);
+        Files.createDirectories(projectRoot.resolve("src"));
+        Files.writeString(projectRoot.resolve("src/App.vue"), "old");
+        Files.writeString(projectRoot.resolve("src/Old.vue"), "old");
+    }
+
+    @Test
+    void commitAfterTurn() throws Exception {
+        manager.begin(appId);
+        manager.writeFile(appId, "src/App.vue", "new");
+        manager.writeFile(appId, "./src/pages/Home.vue", "home");
+        manager.deleteFile(appId, "src/Old.vue");
+
+        // 提交前读取到的是未提交的内容，磁盘保持不变
+        Assertions.assertEquals("new", manager.readFile(appId, "src/App.vue"));
+        Assertions.assertNull(manager.readFile(appId, "src/Old.vue"));
+        Assertions.assertEquals(List.of("App.vue", "pages/Home.vue"), listFiles("src"));
+        Assertions.assertEquals("old", Files.readString(projectRoot.resolve("src/App.vue")));
+
+        Assertions.assertEquals(3, manager.commit(appId));
+        Assertions.assertEquals("new", Files.readString(projectRoot.resolve("src/App.vue")));
+        Assertions.assertEquals("home", Files.readString(projectRoot.resolve("src/pages/Home.vue")));
+        Assertions.assertFalse(Files.exists(projectRoot.resolve("src/Old.vue")));
+    }
+
+    @Test
+    void cancelledTurnLeavesTreeUntouched() throws Exception {
+        manager.begin(appId);
+        manager.writeFile(appId, "src/App.vue", "half");
+        manager.cancel(appId);
+        // 取消之后模型仍可能继续调用工具，修改依然只在内存中
+        manager.deleteFile(appId, "src/Old.vue");
+
+        Assertions.assertEquals(0, manager.commit(appId));
+        Assertions.assertEquals("old", Files.readString(projectRoot.resolve("src/App.vue")));
+        Assertions.assertTrue(Files.exists(projectRoot.resolve("src/Old.vue")));
+    }
+
+    @Test
+    void rejectConcurrentTurn() throws Exception {
+        Assertions.assertTrue(manager.begin(appId));
+        manager.writeFile(appId, "src/App.vue", "first");
+        // 第二轮不能替换正在进行的一轮，第一轮的修改不受影响
+        Assertions.assertFalse(manager.begin(appId));
+        Assertions.assertTrue(manager.isGenerating(appId));
+        Assertions.assertEquals(1, manager.commit(appId));
+        Assertions.assertEquals("first", Files.readString(projectRoot.resolve("src/App.vue")));
+        Assertions.assertFalse(manager.isGenerating(appId));
+    }
+
+    @Test
+    void indexTracksWritesAndSkipsIgnoredDirs() throws Exception {
+        Files.createDirectories(projectRoot.resolve("node_modules/vue"));
+        Files.writeString(projectRoot.resolve("node_modules/vue/index.js"), "x");
+        Assertions.assertEquals(List.of("src/App.vue", "src/Old.vue"), listFiles(""));
+
+        // 不开启本轮生成时直接写磁盘，同时更新索引
+        manager.writeFile(appId, "src/main.js", "import a\nimport b\n");
+        manager.deleteFile(appId, "src/Old.vue");
+        List<ProjectTreeIndex.FileEntry> entries = manager.listFiles(appId, "src");
+        Assertions.assertEquals(List.of("App.vue", "main.js"), entries.stream().map(ProjectTreeIndex.FileEntry::path).toList());
+        Assertions.assertEquals(2, entries.get(1).lines());
+    }
+
+    @Test
+    void memoizeReadsWithinTurn() throws Exception {
+        manager.begin(appId);
+        Assertions.assertEquals("old", manager.readFile(appId, "src/App.vue"));
+        Assertions.assertEquals(List.of("App.vue", "Old.vue"), listFiles("src"));
+        // 同一轮中再次读取不访问磁盘
+        Files.writeString(projectRoot.resolve("src/App.vue"), "changed on disk");
+        Assertions.assertEquals("old", manager.readFile(appId, "src/App.vue"));
+
+        // 写入和删除让缓存失效
+        manager.writeFile(appId, "src/App.vue", "new");
+        manager.deleteFile(appId, "src/Old.vue");
+        Assertions.assertEquals("new", manager.readFile(appId, "src/App.vue"));
+        Assertions.assertEquals(List.of("App.vue"), listFiles("src"));
+        manager.discard(appId);
+    }
+
+    @Test
+    void rejectPathOutsideProject() {
+        Assertions.assertThrows(IllegalArgumentException.class, () -> manager.readFile(appId, "../other/secret.txt"));
+    }
+
+    private List<String> listFiles(String relativeDirPath) {
+        return manager.listFiles(appId, relativeDirPath).stream().map(ProjectTreeIndex.FileEntry::path).toList();
+    }
+}
@@ -0,0 +1,98 @@
+package com.air.aicodemaster.service.impl;
+
+import com.air.aicodemaster.model.entity.AiUsageLog;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 不连接数据库，覆盖 saveBatch 模拟写入结果，验证缓冲区的批量写入
+ */
+class AiUsageLogServiceImplTest {
+
+    private final List<AiUsageLog> saved = new ArrayList<>();
+
+    private final AtomicBoolean failing = new AtomicBoolean();
+
+    @Test
+    void requeueRecordsWhenSaveFails() {
+        AiUsageLogServiceImpl service = new AiUsageLogServiceImpl() {
+            @Override
+            public boolean saveBatch(Collection<AiUsageLog> entities, int batchSize) {
+                if (failing.get()) {
+                    throw new IllegalStateException("数据库不可用");
+                }
+                saved.addAll(entities);
+                return true;
+            }
+        };
+        failing.set(true);
+        service.record(AiUsageLog.builder().appId(1L).prompt("a".repeat(2000)).build());
+        service.record(AiUsageLog.builder().appId(2L).build());
+        service.record(null);
+
+        // 写入失败，记录放回缓冲区
+        Assertions.assertEquals(0, service.flush());
+        Assertions.assertTrue(saved.isEmpty());
+
+        failing.set(false);
+        Assertions.assertEquals(2, service.flush());
+        Assertions.assertEquals(List.of(1L, 2L), saved.stream().map(AiUsageLog::getAppId).toList());
+        // 提示词截断到 1000 个字符再加省略号，不超过数据库字段长度
+        Assertions.assertEquals("a".repeat(1000) + "...", saved.getFirst().getPrompt());
+        Assertions.assertEquals(0, service.flush());
+    }
+
+    @Test
+    void scheduleAtMostOneFlushWhileSaving() throws Exception {
+        CountDownLatch saving = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger flushCalls = new AtomicInteger();
+        AiUsageLogServiceImpl service = new AiUsageLogServiceImpl() {
+            @Override
+            public int flush() {
+                flushCalls.incrementAndGet();
+                return super.flush();
+            }
+
+            @Override
+            public boolean saveBatch(Collection<AiUsageLog> entities, int batchSize) {
+                saving.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                synchronized (saved) {
+                    saved.addAll(entities);
+                }
+                return true;
+            }
+        };
+        for (int i = 0; i < 50; i++) {
+            service.record(AiUsageLog.builder().appId((long) i).build());
+        }
+        Assertions.assertTrue(saving.await(5, TimeUnit.SECONDS));
+
+        // 写入还没有结束，缓冲区再次超过批量大小也不会再开线程排队
+        for (int i = 50; i < 120; i++) {
+            service.record(AiUsageLog.builder().appId((long) i).build());
+        }
+        // flush 持锁阻塞时会占住虚拟线程的载体线程，多出来的线程可能要等写入结束才会运行，所以放行之后再检查
+        release.countDown();
+        Thread.sleep(200);
+        Assertions.assertEquals(1, flushCalls.get());
+        synchronized (saved) {
+            Assertions.assertEquals(50, saved.size());
+        }
+
+        Assertions.assertEquals(70, service.flush());
+    }
+}
@@ -0,0 +1,44 @@
+package dev.langchain4j.service;
+
+import dev.langchain4j.model.openai.OpenAiTokenUsage;
+import dev.langchain4j.model.output.TokenUsage;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class AiServiceStreamingResponseHandlerTest {
+
+    @Test
+    void keepOpenAiDetailsWhenNothingAccumulated() {
+        OpenAiTokenUsage current = openAiTokenUsage(100, 40, 60, 25);
+
+        Assertions.assertSame(current, AiServiceStreamingResponseHandler.sumTokenUsage(null, current));
+        // 初始的空用量不能把 OpenAiTokenUsage 变成普通的 TokenUsage，丢掉缓存命中和推理 token 数
+        Assertions.assertSame(current, AiServiceStreamingResponseHandler.sumTokenUsage(new TokenUsage(), current));
+
+        TokenUsage accumulated = openAiTokenUsage(10, 5, 0, 0);
+        Assertions.assertSame(accumulated, AiServiceStreamingResponseHandler.sumTokenUsage(accumulated, null));
+    }
+
+    @Test
+    void addUsageOfEveryRound() {
+        TokenUsage sum = AiServiceStreamingResponseHandler.sumTokenUsage(
+                openAiTokenUsage(100, 40, 60, 25), openAiTokenUsage(200, 30, 150, 10));
+
+        OpenAiTokenUsage openAiTokenUsage = Assertions.assertInstanceOf(OpenAiTokenUsage.class, sum);
+        Assertions.assertEquals(300, sum.inputTokenCount());
+        Assertions.assertEquals(70, sum.outputTokenCount());
+        Assertions.assertEquals(370, sum.totalTokenCount());
+        Assertions.assertEquals(210, openAiTokenUsage.inputTokensDetails().cachedTokens());
+        Assertions.assertEquals(35, openAiTokenUsage.outputTokensDetails().reasoningTokens());
+    }
+
+    private static OpenAiTokenUsage openAiTokenUsage(int input, int output, int cached, int reasoning) {
+        return OpenAiTokenUsage.builder()
+                .inputTokenCount(input)
+                .outputTokenCount(output)
+                .totalTokenCount(input + output)
+                .inputTokensDetails(OpenAiTokenUsage.InputTokensDetails.builder().cachedTokens(cached).build())
+                .outputTokensDetails(OpenAiTokenUsage.OutputTokensDetails.builder().reasoningTokens(reasoning).build())
+                .build();
+    }
+}